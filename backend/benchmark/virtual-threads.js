@@ -0,0 +1,48 @@
+/*
+    Load benchmark comparing platform and virtual thread request handling of diet-ms, product-ms and statistics-ms.
+    Run once per mode against the same data and compare http_reqs rate (throughput) and p(99) of http_req_duration:
+
+      VIRTUAL_THREADS_ENABLED=false ./mvnw spring-boot:run   ->  k6 run -e TOKEN=... -e MODE=platform virtual-threads.js
+      VIRTUAL_THREADS_ENABLED=true  ./mvnw spring-boot:run   ->  k6 run -e TOKEN=... -e MODE=virtual virtual-threads.js
+
+    Request rate rises until the platform thread pool (200 Tomcat threads by default) saturates, most of request
+    time is spent waiting for JDBC. Pinned virtual threads are reported by VirtualThreadPinningMonitor in service logs.
+ */
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8082';
+const PATH = __ENV.PATH_UNDER_TEST || '/api/diets?year=2026&month=1';
+const MODE = __ENV.MODE || 'unknown';
+
+export const options = {
+    scenarios: {
+        ramp: {
+            executor: 'ramping-arrival-rate',
+            startRate: 50,
+            timeUnit: '1s',
+            preAllocatedVUs: 200,
+            maxVUs: 2000,
+            stages: [
+                { target: 200, duration: '30s' },
+                { target: 800, duration: '1m' },
+                { target: 1500, duration: '1m' },
+            ],
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export default function () {
+    const response = http.get(`${BASE_URL}${PATH}`, {
+        headers: { Authorization: `Bearer ${__ENV.TOKEN}` },
+    });
+    check(response, { 'status is 200': (r) => r.status === 200 });
+}
+
+export function handleSummary(data) {
+    const duration = data.metrics.http_req_duration.values;
+    const line = `${MODE}: ${data.metrics.http_reqs.values.rate.toFixed(1)} req/s, p99 ${duration['p(99)'].toFixed(1)} ms, ` +
+        `failed ${(data.metrics.http_req_failed.values.rate * 100).toFixed(2)}%\n`;
+    return { stdout: line, [`virtual-threads-${MODE}.json`]: JSON.stringify(data, null, 2) };
+}
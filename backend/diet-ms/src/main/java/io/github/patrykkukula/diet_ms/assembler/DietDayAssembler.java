@@ -10,11 +10,18 @@ import io.github.patrykkukula.diet_ms.mapper.ProductQuantityMapper;
 import io.github.patrykkukula.diet_ms.model.*;
 import io.github.patrykkukula.diet_ms.repository.OutboxEventRepository;
 import io.github.patrykkukula.diet_ms.repository.ProductSnapshotRepository;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayLoggedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.LoggedMeal;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.MealLoggedEvent;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductAddedToMealEvent;
 import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * Assembler class to assemble DietDay entity and set bidirectional relation mapping for Meal and ProductQuantity entities
  */
@@ -33,15 +40,63 @@ public class DietDayAssembler {
         String username = authenticationUtils.getAuthenticatedUserUsername();
         dietDay.setOwnerUsername(username);
 
-        dietDayDto.getMeals()
-                .forEach(mealDto -> {
-                    addMealToDietDay(mealDto, dietDay, username);                      // saving outbox event handled here
-                });
+        Map<Long, ProductSnapshot> snapshots = fetchProductSnapshots(dietDayDto.getMeals().stream()
+                .flatMap(mealDto -> mealDto.getQuantities().stream())
+                .toList());
+
+        List<LoggedMeal> loggedMeals = dietDayDto.getMeals()
+                .stream()
+                .map(mealDto -> MealMapper.mapMealToLoggedMeal(createMeal(mealDto, dietDay, snapshots)))
+                .toList();
+
+        // single OutboxEvent for whole DietDay, carries its totals for rollups
+        outboxEventRepository.save(eventFactory.create(new DietDayLoggedEvent(username, dietDay.getDate(), loggedMeals,
+                OutboxEventFactory.totalsDelta(dietDay.getTotals(), 1))));
 
         return dietDay;
     }
 
     public MealDto addMealToDietDay(MealDto mealDto, DietDay dietDay, String username) {
+        return MealMapper.mapMealToMealDto(createMeal(mealDto, dietDay, username));
+    }
+
+    // same as addMealToDietDay, returns created Meal entity
+    public Meal createMeal(MealDto mealDto, DietDay dietDay, String username) {
+        Meal meal = createMeal(mealDto, dietDay, fetchProductSnapshots(mealDto.getQuantities()));
+
+        // single OutboxEvent for whole Meal, carries its totals for rollups
+        LoggedMeal loggedMeal = MealMapper.mapMealToLoggedMeal(meal);
+        outboxEventRepository.save(eventFactory.create(new MealLoggedEvent(username, dietDay.getDate(), loggedMeal.mealName(),
+                loggedMeal.products(), OutboxEventFactory.totalsDelta(meal.getTotals(), 0))));
+
+        return meal;
+    }
+
+    public ProductQuantityDto addProductQuantityToMeal(ProductQuantityDto productQuantityDto, Meal meal, String username) {
+        return ProductQuantityMapper.mapProductQuantityToProductQuantityDto(createProductQuantity(productQuantityDto, meal, username));
+    }
+
+    // same as addProductQuantityToMeal, returns created ProductQuantity entity
+    public ProductQuantity createProductQuantity(ProductQuantityDto productQuantityDto, Meal meal, String username) {
+        ProductQuantity productQuantity = createProductQuantity(productQuantityDto, meal, fetchProductSnapshots(List.of(productQuantityDto)));
+        ProductSnapshot productSnapshot = productQuantity.getProductSnapshot();
+
+        // create OutboxEvent
+        OutboxEvent event = eventFactory.create(new ProductAddedToMealEvent(
+                productSnapshot.getName(),
+                productSnapshot.getProductId(),
+                productQuantity.getQuantity(),
+                username,
+                meal.getDietDay().getDate(),
+                OutboxEventFactory.totalsDelta(MacroTotals.of(productSnapshot, productQuantity.getQuantity()), 0)
+        ));
+
+        outboxEventRepository.save(event);              // save OutboxEvent
+
+        return productQuantity;
+    }
+
+    private Meal createMeal(MealDto mealDto, DietDay dietDay, Map<Long, ProductSnapshot> snapshots) {
         if (mealDto.getName() == null || mealDto.getName().isEmpty()) {
             mealDto.setName(DEFAULT_MEAL_NAME);
         }
@@ -51,37 +106,49 @@ public class DietDayAssembler {
         meal.setOrderIndex((long) dietDay.getMeals().size());
 
         mealDto.getQuantities()
-                .forEach(qty -> addProductQuantityToMeal(qty, meal, username));         // saving outbox event handled here
+                .forEach(qty -> createProductQuantity(qty, meal, snapshots));
 
         dietDay.addMeal(meal);
 
-        return MealMapper.mapMealToMealDto(meal);
+        return meal;
     }
 
-    /*
-        handling creating and saving OutboxEvent in this method
-     */
-    public ProductQuantityDto addProductQuantityToMeal(ProductQuantityDto productQuantityDto, Meal meal, String username) {
+    private ProductQuantity createProductQuantity(ProductQuantityDto productQuantityDto, Meal meal, Map<Long, ProductSnapshot> snapshots) {
         ProductQuantity productQuantity = ProductQuantity.fromDto(productQuantityDto);
 
-        ProductSnapshot productSnapshot = productSnapshotRepository.findById(productQuantityDto.getProductId())
-                .orElseThrow(() -> new ProductSnapshotNotFoundException(productQuantityDto.getProductId()));
+        ProductSnapshot productSnapshot = snapshots.get(productQuantityDto.getProductId());
 
-        productQuantity.setProductSnapshot(productSnapshot);
-        productSnapshot.getProductQuantities().add(productQuantity);
+        productQuantity.setProductSnapshot(productSnapshot);         // inverse side not updated, it would load all quantities of the product
 
         meal.addProductQuantity(productQuantity);
+        meal.addTotals(MacroTotals.of(productSnapshot, productQuantity.getQuantity()));    // DietDay totals updated if meal already belongs to it
 
-        // create OutboxEvent
-        OutboxEvent event = eventFactory.create(new ProductAddedToMealEvent(
-                productSnapshot.getName(),
-                productSnapshot.getProductId(),
-                productQuantity.getQuantity(),
-                username
-        ));
+        return productQuantity;
+    }
 
-        outboxEventRepository.save(event);              // save OutboxEvent
+    /*
+        resolve ProductSnapshots of all given quantities with single query, all missing ids are reported in one exception
+     */
+    private Map<Long, ProductSnapshot> fetchProductSnapshots(List<ProductQuantityDto> quantities) {
+        Set<Long> productIds = quantities.stream()
+                .map(ProductQuantityDto::getProductId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
 
-        return ProductQuantityMapper.mapProductQuantityToProductQuantityDto(productQuantity);
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, ProductSnapshot> snapshots = productSnapshotRepository.findAllById(productIds)
+                .stream()
+                .collect(Collectors.toMap(ProductSnapshot::getProductId, Function.identity()));
+
+        List<Long> missingIds = productIds.stream()
+                .filter(id -> !snapshots.containsKey(id))
+                .toList();
+
+        if (!missingIds.isEmpty()) {
+            throw new ProductSnapshotNotFoundException(missingIds);
+        }
+        return snapshots;
     }
 }
@@ -1,6 +1,7 @@
 package io.github.patrykkukula.diet_ms.cache;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import io.github.patrykkukula.mealtrackingapp_common.cache.CaffeineCacheImpl;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
@@ -11,23 +12,47 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
 import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 @EnableCaching
 @Configuration
 public class CacheConfig {
+    private static final Set<String> INDEXED_CACHES = Set.of("dietDay", "monthlyDiets");
 
     @Bean
     @Primary
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(DietCacheIndex dietCacheIndex) {
         return new CaffeineCacheManager() {
             @Override
             protected Cache createCaffeineCache(String name) {
+                if (INDEXED_CACHES.contains(name)) {
+                    return createIndexedCache(name, dietCacheIndex);
+                }
                 com.github.benmanes.caffeine.cache.Cache<Object, Object> cache = cacheBuilder(name).build();
                 return new CaffeineCacheImpl(name, cache);
             }
         };
     }
 
+    /*
+        entries removed by size or expiry policy are removed from DietCacheIndex by removal listener
+     */
+    private Cache createIndexedCache(String name, DietCacheIndex index) {
+        AtomicReference<com.github.benmanes.caffeine.cache.Cache<Object, Object>> nativeCache = new AtomicReference<>();
+        nativeCache.set(cacheBuilder(name)
+                .removalListener((Object key, Object value, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        index.onEvicted(name, key, k -> nativeCache.get().asMap().containsKey(k));
+                    }
+                })
+                .build());
+
+        IndexedCaffeineCache cache = new IndexedCaffeineCache(name, nativeCache.get(), index);
+        index.registerCache(cache);
+        return cache;
+    }
+
     private Caffeine<Object, Object> cacheBuilder(String name) {
         switch (name) {
             case "dietDay" -> {
@@ -0,0 +1,28 @@
+package io.github.patrykkukula.diet_ms.cache;
+
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single place to build keys for dietDay and monthlyDiets caches. Referenced from cache annotations as @cacheKeys
+ */
+@Component("cacheKeys")
+@RequiredArgsConstructor
+public class CacheKeys {
+    private final AuthenticationUtils authenticationUtils;
+
+    public record DietDayKey(Long dietDayId, String username) {}
+
+    public record MonthlyDietsKey(int year, int month, String username) {}
+
+    // key of DietDay for authenticated user
+    public DietDayKey dietDay(Long dietDayId) {
+        return new DietDayKey(dietDayId, authenticationUtils.getAuthenticatedUserUsername());
+    }
+
+    // key of DietDay list for given month for authenticated user
+    public MonthlyDietsKey monthlyDiets(int year, int month) {
+        return new MonthlyDietsKey(year, month, authenticationUtils.getAuthenticatedUserUsername());
+    }
+}
@@ -1,49 +1,92 @@
 package io.github.patrykkukula.diet_ms.cache;
 
+import io.github.patrykkukula.diet_ms.dto.DietDayDtoRead;
 import io.github.patrykkukula.diet_ms.model.DietDay;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.function.UnaryOperator;
+
+/**
+ * Invalidation of dietDay and monthlyDiets caches through {@link DietCacheIndex}.
+ * Eviction is repeated after commit, so a read running concurrently with the transaction cannot leave
+ * pre-commit data in cache. Changes inside a DietDay patch cached copies after commit instead of evicting them, the change
+ * is recorded in the index before the write as well, so reads racing the transaction do not cache their result.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class CacheUtils {
-    private final CacheManager cacheManager;
-    private static final String MONTHLY_DIETS = "monthlyDiets";
-    private static final String DIET_DAY = "dietDay";
+    private final DietCacheIndex dietCacheIndex;
 
+    // evict DietDay lists of owner for month of given DietDay, used when DietDay is added to the month
     public void evictMonthlyDietsCache(DietDay dietDay) {
-        String key = ("%s-%s-%s").formatted(
-                dietDay.getDate().getYear(),
-                dietDay.getDate().getMonthValue(),
-                dietDay.getOwnerUsername()
-        );
-
-        Cache cache = cacheManager.getCache(MONTHLY_DIETS);
-        if (cache != null) {
-            cache.evict(key);
-        }
-        else {
-            log.info("[CACHE {} does not exists", MONTHLY_DIETS);
-        }
+        String username = dietDay.getOwnerUsername();
+        evictNowAndAfterCommit(() -> dietCacheIndex.invalidateUserMonth(username, dietDay.getDate()));
     }
 
+    // evict cached DietDay and every cached DietDay list containing it
     public void evictDietDayCache(DietDay dietDay) {
-        String key = dietDay.getDietDayId() + "-" + dietDay.getOwnerUsername();
-        Cache cache = cacheManager.getCache(DIET_DAY);
-        if (cache != null) {
-            cache.evict(dietDay.getDietDayId());
-        }
-        else {
-            log.info("[CACHE {} does not exists", MONTHLY_DIETS);
-        }
+        Long dietDayId = dietDay.getDietDayId();
+        evictNowAndAfterCommit(() -> dietCacheIndex.invalidateDietDay(dietDayId));
+    }
+
+    // evict every cached DietDay and DietDay list containing given product, used when ProductSnapshot changes
+    public void evictProductCaches(Long productId) {
+        evictNowAndAfterCommit(() -> dietCacheIndex.invalidateProduct(productId));
     }
 
     public void evictCaches(DietDay dietDay) {
         this.evictDietDayCache(dietDay);
         this.evictMonthlyDietsCache(dietDay);
     }
+
+    /*
+        apply patch to cached copies of DietDay after commit, so rolled back changes never reach cache. Patch is evaluated
+        after commit, ids generated on flush are available. Cached copies are evicted when they cannot be patched
+     */
+    public void patchDietDayCache(DietDay dietDay, UnaryOperator<DietDayDtoRead> patch) {
+        patchDietDayCache(dietDay.getDietDayId(), patch);
+    }
+
+    // same as above, for callers changing DietDay without loading it
+    public void patchDietDayCache(Long dietDayId, UnaryOperator<DietDayDtoRead> patch) {
+        dietCacheIndex.markDietDayChanged(dietDayId);
+        runAfterCommit(() -> {
+            boolean patched;
+            try {
+                patched = dietCacheIndex.patchDietDay(dietDayId, patch);
+            } catch (RuntimeException ex) {
+                log.warn("[CACHE PATCH] failed for DietDay with ID {}: {}", dietDayId, ex.getMessage());
+                patched = false;
+            }
+            if (!patched) {
+                dietCacheIndex.invalidateDietDay(dietDayId);
+            }
+        });
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void evictNowAndAfterCommit(Runnable eviction) {
+        eviction.run();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            runAfterCommit(eviction);
+        }
+    }
 }
@@ -0,0 +1,329 @@
+package io.github.patrykkukula.diet_ms.cache;
+
+import io.github.patrykkukula.diet_ms.dto.DietDayDtoRead;
+import io.github.patrykkukula.diet_ms.dto.MealDtoRead;
+import io.github.patrykkukula.diet_ms.dto.ProductDtoRead;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reverse indexes from DietDay id, user month and product id to cached entries containing them.
+ * Entries are indexed when put into cache and removed from index when evicted explicitly or by cache policy,
+ * so invalidation evicts exactly the entries holding changed data.
+ * Indexing an entry together with its put, and lookup together with eviction, run under one lock - an entry cannot
+ * be put between lookup and eviction and stay cached without being indexed.
+ * Every invalidation and patch records a change sequence for the ids it touched. A put coming from a read that started
+ * before the last change of any id in its value is rejected, so a read racing a write cannot cache pre-commit data.
+ */
+@Component
+@Slf4j
+public class DietCacheIndex {
+    private final ReentrantLock lock = new ReentrantLock();
+    private static final long MAX_TRACKED_CHANGES = 100_000;
+
+    private final Map<String, IndexedCaffeineCache> caches = new ConcurrentHashMap<>();
+    private final Map<Long, Set<CacheEntry>> byDietDayId = new HashMap<>();
+    private final Map<UserMonth, Set<CacheEntry>> byUserMonth = new HashMap<>();
+    private final Map<Long, Set<CacheEntry>> byProductId = new HashMap<>();
+    private final Map<CacheEntry, IndexedIds> indexedEntries = new HashMap<>();
+    private final AtomicLong changeSequence = new AtomicLong();
+    // changes dropped by size bound before expiry, reads started before the last of them are treated as changed
+    private final AtomicLong droppedChangesUpTo = new AtomicLong();
+    // last change of each id, kept long enough to outlive any read started before the change
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Long> lastChanges = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .maximumSize(MAX_TRACKED_CHANGES)
+            .<Object, Long>evictionListener((id, sequence, cause) -> {
+                if (cause == RemovalCause.SIZE && sequence != null) {
+                    droppedChangesUpTo.accumulateAndGet(sequence, Math::max);
+                }
+            })
+            .build();
+
+    public record CacheEntry(String cacheName, Object key) {}
+
+    public record UserMonth(String username, int year, int month) {
+        public static UserMonth of(String username, LocalDate date) {
+            return new UserMonth(username, date.getYear(), date.getMonthValue());
+        }
+    }
+
+    private record IndexedIds(Set<Long> dietDayIds, Set<UserMonth> userMonths, Set<Long> productIds) {}
+
+    private record DietDayChange(Long dietDayId) {}
+
+    private record ProductChange(Long productId) {}
+
+    public void registerCache(IndexedCaffeineCache cache) {
+        caches.put(cache.getName(), cache);
+    }
+
+    // change sequence to remember when a read misses cache, passed back with the put of the value read
+    public long readStarted() {
+        return changeSequence.get();
+    }
+
+    /*
+        index entry and put it into cache as one operation. When value was read before the last change of any id it
+        contains, value may hold pre-commit data - put is skipped and entry evicted, next read loads it again
+     */
+    public void put(String cacheName, Object key, Object value, Long readStartedAt, Runnable put, Runnable evict) {
+        lock.lock();
+        try {
+            CacheEntry entry = new CacheEntry(cacheName, key);
+            IndexedIds ids = extractIds(key, value);
+            unindex(entry);
+            if (readStartedAt != null && changedSince(ids, readStartedAt)) {
+                log.info("[CACHE PUT SKIPPED {}] key={} changed since read started", cacheName, key);
+                evict.run();
+                return;
+            }
+            index(entry, ids);
+            put.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+        evict single entry from cache and remove it from index as one operation
+     */
+    public void evict(String cacheName, Object key, Runnable evict) {
+        lock.lock();
+        try {
+            evict.run();
+            unindex(new CacheEntry(cacheName, key));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+        called when entry was removed by cache size or expiry policy, entry is removed from index only if it has not been
+        put again in the meantime
+     */
+    public void onEvicted(String cacheName, Object key, Predicate<Object> isCached) {
+        lock.lock();
+        try {
+            if (!isCached.test(key)) {
+                unindex(new CacheEntry(cacheName, key));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear(String cacheName, Runnable clear) {
+        lock.lock();
+        try {
+            clear.run();
+            List.copyOf(indexedEntries.keySet()).stream()
+                    .filter(entry -> entry.cacheName().equals(cacheName))
+                    .forEach(this::unindex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // evict every cached entry containing given DietDay
+    public int invalidateDietDay(Long dietDayId) {
+        markChanged(new DietDayChange(dietDayId));
+        return invalidate(byDietDayId, dietDayId);
+    }
+
+    // evict every cached DietDay list of given user and month
+    public int invalidateUserMonth(String username, LocalDate date) {
+        UserMonth userMonth = UserMonth.of(username, date);
+        markChanged(userMonth);
+        return invalidate(byUserMonth, userMonth);
+    }
+
+    // evict every cached entry containing given product
+    public int invalidateProduct(Long productId) {
+        markChanged(new ProductChange(productId));
+        return invalidate(byProductId, productId);
+    }
+
+    // record change of DietDay without touching cache, reads started before it will not cache their result
+    public void markDietDayChanged(Long dietDayId) {
+        markChanged(new DietDayChange(dietDayId));
+    }
+
+    /*
+        replace every cached copy of given DietDay - single entry or element of cached list - with patched copy.
+        Returns false when patch cannot be applied to some copy, caller should invalidate DietDay in that case
+     */
+    public boolean patchDietDay(Long dietDayId, UnaryOperator<DietDayDtoRead> patch) {
+        lock.lock();
+        try {
+            markChanged(new DietDayChange(dietDayId));
+            Set<CacheEntry> entries = byDietDayId.get(dietDayId);
+            if (entries == null) {
+                return true;
+            }
+            for (CacheEntry entry : List.copyOf(entries)) {
+                IndexedCaffeineCache cache = caches.get(entry.cacheName());
+                Cache.ValueWrapper cached = cache != null ? cache.peek(entry.key()) : null;
+                if (cached == null) {
+                    unindex(entry);
+                    continue;
+                }
+                Object patched = patchValue(cached.get(), dietDayId, patch);
+                if (patched == null) {
+                    return false;
+                }
+                cache.putPatched(entry.key(), patched);      // indexed cache re-indexes patched value
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return indexedEntries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void markChanged(Object changedId) {
+        lastChanges.put(changedId, changeSequence.incrementAndGet());
+    }
+
+    private boolean changedSince(IndexedIds ids, long readStartedAt) {
+        return ids.dietDayIds().stream().anyMatch(id -> isChangedSince(new DietDayChange(id), readStartedAt))
+                || ids.userMonths().stream().anyMatch(month -> isChangedSince(month, readStartedAt))
+                || ids.productIds().stream().anyMatch(id -> isChangedSince(new ProductChange(id), readStartedAt));
+    }
+
+    private boolean isChangedSince(Object changedId, long readStartedAt) {
+        if (droppedChangesUpTo.get() > readStartedAt) {
+            return true;
+        }
+        Long changedAt = lastChanges.getIfPresent(changedId);
+        return changedAt != null && changedAt > readStartedAt;
+    }
+
+    private <K> int invalidate(Map<K, Set<CacheEntry>> index, K id) {
+        lock.lock();
+        try {
+            Set<CacheEntry> entries = index.get(id);
+            if (entries == null) {
+                return 0;
+            }
+            List<CacheEntry> toEvict = List.copyOf(entries);
+            toEvict.forEach(entry -> {
+                Cache cache = caches.get(entry.cacheName());
+                if (cache != null) {
+                    cache.evict(entry.key());             // indexed cache removes entry from index on evict
+                }
+                unindex(entry);
+            });
+            log.info("[CACHE INVALIDATE] id={} evicted entries: {}", id, toEvict.size());
+            return toEvict.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Object patchValue(Object value, Long dietDayId, UnaryOperator<DietDayDtoRead> patch) {
+        if (value instanceof DietDayDtoRead dietDay) {
+            return dietDay.dietDayId().equals(dietDayId) ? patch.apply(dietDay) : null;
+        }
+        if (value instanceof List<?> values) {
+            List<Object> patched = new ArrayList<>(values.size());
+            for (Object element : values) {
+                if (element instanceof DietDayDtoRead dietDay && dietDay.dietDayId().equals(dietDayId)) {
+                    element = patch.apply(dietDay);
+                    if (element == null) {
+                        return null;
+                    }
+                }
+                patched.add(element);
+            }
+            return Collections.unmodifiableList(patched);
+        }
+        return null;
+    }
+
+    private void index(CacheEntry entry, IndexedIds ids) {
+        if (ids.dietDayIds().isEmpty() && ids.userMonths().isEmpty() && ids.productIds().isEmpty()) {
+            return;
+        }
+        ids.dietDayIds().forEach(id -> byDietDayId.computeIfAbsent(id, k -> new HashSet<>()).add(entry));
+        ids.userMonths().forEach(month -> byUserMonth.computeIfAbsent(month, k -> new HashSet<>()).add(entry));
+        ids.productIds().forEach(id -> byProductId.computeIfAbsent(id, k -> new HashSet<>()).add(entry));
+        indexedEntries.put(entry, ids);
+    }
+
+    private void unindex(CacheEntry entry) {
+        IndexedIds ids = indexedEntries.remove(entry);
+        if (ids == null) {
+            return;
+        }
+        ids.dietDayIds().forEach(id -> removeFromIndex(byDietDayId, id, entry));
+        ids.userMonths().forEach(month -> removeFromIndex(byUserMonth, month, entry));
+        ids.productIds().forEach(id -> removeFromIndex(byProductId, id, entry));
+    }
+
+    private <K> void removeFromIndex(Map<K, Set<CacheEntry>> index, K id, CacheEntry entry) {
+        Set<CacheEntry> entries = index.get(id);
+        if (entries != null) {
+            entries.remove(entry);
+            if (entries.isEmpty()) {
+                index.remove(id);
+            }
+        }
+    }
+
+    /*
+        ids contained in cached value - DietDayDtoRead for dietDay cache, list of DietDayDtoRead for monthlyDiets cache
+     */
+    private IndexedIds extractIds(Object key, Object value) {
+        Set<Long> dietDayIds = new HashSet<>();
+        Set<UserMonth> userMonths = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+
+        if (key instanceof CacheKeys.MonthlyDietsKey monthlyKey) {
+            userMonths.add(new UserMonth(monthlyKey.username(), monthlyKey.year(), monthlyKey.month()));
+        }
+        if (value instanceof DietDayDtoRead dietDay) {
+            addIds(dietDay, dietDayIds, productIds);
+        }
+        else if (value instanceof Collection<?> values) {
+            values.stream()
+                    .filter(DietDayDtoRead.class::isInstance)
+                    .map(DietDayDtoRead.class::cast)
+                    .forEach(dietDay -> addIds(dietDay, dietDayIds, productIds));
+        }
+        return new IndexedIds(dietDayIds, userMonths, productIds);
+    }
+
+    private void addIds(DietDayDtoRead dietDay, Set<Long> dietDayIds, Set<Long> productIds) {
+        dietDayIds.add(dietDay.dietDayId());
+        if (dietDay.meals() == null) {
+            return;
+        }
+        dietDay.meals().stream()
+                .map(MealDtoRead::products)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .map(ProductDtoRead::productId)
+                .forEach(productIds::add);
+    }
+}
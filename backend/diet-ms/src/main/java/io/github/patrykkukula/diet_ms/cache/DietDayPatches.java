@@ -0,0 +1,69 @@
+package io.github.patrykkukula.diet_ms.cache;
+
+import io.github.patrykkukula.diet_ms.dto.DietDayDtoRead;
+import io.github.patrykkukula.diet_ms.dto.MealDtoRead;
+import io.github.patrykkukula.diet_ms.dto.ProductDtoRead;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Copy-on-write changes of cached DietDayDtoRead. Cached copy is never modified, every patch returns a new instance.
+ * Meals and products are matched by id, so applying the same patch twice gives the same result.
+ * Patch returns null when cached copy does not contain Meal it should change - cached copy is stale then.
+ */
+public class DietDayPatches {
+    private DietDayPatches() {}
+
+    // add Meal at the end of DietDay or replace Meal with the same id
+    public static UnaryOperator<DietDayDtoRead> putMeal(MealDtoRead meal) {
+        return dietDay -> withMeals(dietDay, replaceOrAppend(dietDay.meals(), meal, MealDtoRead::mealId));
+    }
+
+    public static UnaryOperator<DietDayDtoRead> removeMeal(Long mealId) {
+        return dietDay -> withMeals(dietDay, dietDay.meals().stream()
+                .filter(meal -> !meal.mealId().equals(mealId))
+                .toList());
+    }
+
+    // add product at the end of Meal or replace product with the same ProductQuantity id
+    public static UnaryOperator<DietDayDtoRead> putProduct(Long mealId, ProductDtoRead product) {
+        return patchMeal(mealId, meal -> replaceOrAppend(meal.products(), product, ProductDtoRead::productQuantityId));
+    }
+
+    public static UnaryOperator<DietDayDtoRead> removeProduct(Long mealId, Long productQuantityId) {
+        return patchMeal(mealId, meal -> meal.products().stream()
+                .filter(product -> !product.productQuantityId().equals(productQuantityId))
+                .toList());
+    }
+
+    private static UnaryOperator<DietDayDtoRead> patchMeal(Long mealId, Function<MealDtoRead, List<ProductDtoRead>> products) {
+        return dietDay -> {
+            if (dietDay.meals().stream().noneMatch(meal -> meal.mealId().equals(mealId))) {
+                return null;
+            }
+            return withMeals(dietDay, dietDay.meals().stream()
+                    .map(meal -> meal.mealId().equals(mealId) ? new MealDtoRead(meal.mealId(), meal.name(), products.apply(meal)) : meal)
+                    .toList());
+        };
+    }
+
+    private static DietDayDtoRead withMeals(DietDayDtoRead dietDay, List<MealDtoRead> meals) {
+        return new DietDayDtoRead(dietDay.dietDayId(), dietDay.ownerUsername(), dietDay.date(), meals);
+    }
+
+    private static <T> List<T> replaceOrAppend(List<T> items, T item, Function<T, Long> id) {
+        List<T> result = new ArrayList<>(items);
+        for (int i = 0; i < result.size(); i++) {
+            if (Objects.equals(id.apply(result.get(i)), id.apply(item))) {
+                result.set(i, item);
+                return List.copyOf(result);
+            }
+        }
+        result.add(item);
+        return List.copyOf(result);
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.patrykkukula.diet_ms.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.github.patrykkukula.mealtrackingapp_common.cache.CaffeineCacheImpl;
+import org.jspecify.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CaffeineCacheImpl which keeps {@link DietCacheIndex} in sync with cache content.
+ * A miss records when the read started, the put of the value read afterwards on the same thread is checked against it.
+ * Read that fails is never put, so only the last MAX_PENDING_READS misses of a thread are remembered - enough for
+ * nested cached reads. Put whose miss was dropped is checked against every change still tracked by the index
+ */
+public class IndexedCaffeineCache extends CaffeineCacheImpl {
+    private final DietCacheIndex index;
+    private static final int MAX_PENDING_READS = 16;
+
+    private final ThreadLocal<Map<Object, Long>> readsStarted = ThreadLocal.withInitial(() -> new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Long> eldest) {
+            return size() > MAX_PENDING_READS;
+        }
+    });
+
+    public IndexedCaffeineCache(String name, Cache<Object, Object> cache, DietCacheIndex index) {
+        super(name, cache);
+        this.index = index;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper cached = super.get(key);
+        if (cached == null) {
+            readsStarted.get().put(key, index.readStarted());
+        }
+        return cached;
+    }
+
+    @Override
+    public void put(Object key, @Nullable Object value) {
+        Long readStartedAt = readsStarted.get().remove(key);
+        index.put(getName(), key, value, readStartedAt != null ? readStartedAt : 0L, () -> super.put(key, value), () -> super.evict(key));
+    }
+
+    // read and put of patched value, not recorded as read and not checked against changes
+    ValueWrapper peek(Object key) {
+        return super.get(key);
+    }
+
+    void putPatched(Object key, @Nullable Object value) {
+        index.put(getName(), key, value, null, () -> super.put(key, value), () -> super.evict(key));
+    }
+
+    @Override
+    public void evict(Object key) {
+        index.evict(getName(), key, () -> super.evict(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean[] evicted = new boolean[1];
+        index.evict(getName(), key, () -> evicted[0] = super.evictIfPresent(key));
+        return evicted[0];
+    }
+
+    @Override
+    public void clear() {
+        index.clear(getName(), super::clear);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean[] invalidated = new boolean[1];
+        index.clear(getName(), () -> invalidated[0] = super.invalidate());
+        return invalidated[0];
+    }
+}
@@ -1,8 +1,11 @@
 package io.github.patrykkukula.diet_ms.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.patrykkukula.diet_ms.dto.DietDayDto;
 import io.github.patrykkukula.diet_ms.dto.DietDayDtoRead;
+import io.github.patrykkukula.diet_ms.dto.DietDaySummaryDto;
 import io.github.patrykkukula.diet_ms.dto.MealDto;
+import io.github.patrykkukula.diet_ms.service.DietDayExportService;
 import io.github.patrykkukula.diet_ms.service.DietDayService;
 import io.github.patrykkukula.mealtrackingapp_common.utils.BasicUtils;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,12 +14,18 @@ import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
@@ -24,6 +33,8 @@ import java.util.List;
 @Validated
 public class DietDayController {
     private final DietDayService dietDayService;
+    private final DietDayExportService dietDayExportService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<DietDayDtoRead> createDietDay(@Valid @RequestBody DietDayDto dietDayDto, HttpServletRequest request) {
@@ -47,6 +58,32 @@ public class DietDayController {
         return ResponseEntity.ok(dietDays);
     }
 
+    @GetMapping("/summary")
+    public ResponseEntity<List<DietDaySummaryDto>> getDietDaySummaryForUserForGivenYearAndMonth(
+            @RequestParam(value = "year") int year,
+            @Min(value = 1, message = "min month is 1") @Max(value = 12, message = "max month is 12")
+            @RequestParam(value = "month") int month) {
+        return ResponseEntity.ok(dietDayService.getDietDaySummaryForUserByGivenYearAndMonth(year, month));
+    }
+
+    /*
+        DietDays of given range written as newline delimited JSON, one DietDay per line, while they are loaded in batches.
+        Client passes date and id of last received DietDay as cursor to resume interrupted stream
+     */
+    @GetMapping(value = "/range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getDietDaysForUserInGivenDateRange(
+            @RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ndjson(dietDayService.getDietDayStreamForUserInGivenDateRange(from, to, cursor), true);
+    }
+
+    // DietDays of all users with totals and used products as newline delimited JSON, read by statistics-ms rebuild
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportDietDays() {
+        return ndjson(dietDayExportService.exportDietDays(), false);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> removeDietDay(@PositiveOrZero(message = "Id cannot be less than 0") @PathVariable Long id) {
         dietDayService.removeDietDay(id);
@@ -54,9 +91,34 @@ public class DietDayController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/{id}/copy")
+    public ResponseEntity<List<DietDayDtoRead>> copyDietDay(@PositiveOrZero(message = "Id cannot be less than 0") @PathVariable Long id,
+                                                            @RequestParam(value = "date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                            @Min(value = 1, message = "min days is 1") @Max(value = 7, message = "max days is 7")
+                                                            @RequestParam(value = "days", defaultValue = "1") int days) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(dietDayService.copyDietDay(id, date, days));
+    }
+
     @PostMapping("/{id}/add_meal")
     public ResponseEntity<MealDto> addMealToDietDay(@PositiveOrZero(message = "Id cannot be less than 0") @PathVariable Long id,
                                                     @Valid @RequestBody MealDto mealDto) {
         return ResponseEntity.accepted().body(dietDayService.addMealToDietDay(id, mealDto));
     }
+
+    // flushEachItem sends every line as soon as it is written, otherwise lines are sent when response buffer fills
+    private <T> ResponseEntity<StreamingResponseBody> ndjson(Stream<T> items, boolean flushEachItem) {
+        StreamingResponseBody body = output -> {
+            try (items) {
+                Iterator<T> iterator = items.iterator();
+                while (iterator.hasNext()) {
+                    output.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    output.write('\n');
+                    if (flushEachItem) {
+                        output.flush();
+                    }
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
 }
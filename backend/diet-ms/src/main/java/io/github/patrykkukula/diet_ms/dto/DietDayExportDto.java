@@ -0,0 +1,26 @@
+package io.github.patrykkukula.diet_ms.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DietDay of bulk export - maintained totals and used products, without Meal structure
+ */
+public record DietDayExportDto(Long dietDayId,
+                               String username,
+                               LocalDate date,
+                               Double calories,
+                               Double protein,
+                               Double carbs,
+                               Double fat,
+                               List<ProductUsageExportDto> products) {
+
+    // read by repository query, products are fetched with separate statement
+    public DietDayExportDto(Long dietDayId, String username, LocalDate date, Double calories, Double protein, Double carbs, Double fat) {
+        this(dietDayId, username, date, calories, protein, carbs, fat, List.of());
+    }
+
+    public DietDayExportDto withProducts(List<ProductUsageExportDto> products) {
+        return new DietDayExportDto(dietDayId, username, date, calories, protein, carbs, fat, products);
+    }
+}
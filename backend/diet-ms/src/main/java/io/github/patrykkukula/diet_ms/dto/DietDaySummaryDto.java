@@ -0,0 +1,13 @@
+package io.github.patrykkukula.diet_ms.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+public record DietDaySummaryDto(Long dietDayId,
+                                @JsonFormat(pattern = "yyyy-MM-dd") LocalDate date,
+                                Double calories,
+                                Double protein,
+                                Double carbs,
+                                Double fat) {
+}
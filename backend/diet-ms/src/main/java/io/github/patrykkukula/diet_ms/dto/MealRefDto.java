@@ -0,0 +1,21 @@
+package io.github.patrykkukula.diet_ms.dto;
+
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
+
+import java.time.LocalDate;
+
+/**
+ * Keys and maintained totals of owned Meal, read with one statement instead of loading Meal and DietDay entities
+ */
+public record MealRefDto(Long mealId,
+                         Long dietDayId,
+                         LocalDate date,
+                         Double calories,
+                         Double protein,
+                         Double carbs,
+                         Double fat) {
+
+    public MacroTotals totals() {
+        return new MacroTotals(calories, protein, carbs, fat);
+    }
+}
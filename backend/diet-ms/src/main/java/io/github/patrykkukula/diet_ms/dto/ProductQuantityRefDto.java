@@ -0,0 +1,33 @@
+package io.github.patrykkukula.diet_ms.dto;
+
+import io.github.patrykkukula.diet_ms.constants.ProductCategory;
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
+
+import java.time.LocalDate;
+
+/**
+ * Keys of owned ProductQuantity with quantity and snapshot macros, read with one statement instead of loading
+ * ProductQuantity, Meal, DietDay and ProductSnapshot entities. Used to adjust maintained totals and patch cached DietDay
+ */
+public record ProductQuantityRefDto(Long productQuantityId,
+                                    Long mealId,
+                                    Long dietDayId,
+                                    LocalDate date,
+                                    Long productId,
+                                    Double quantity,
+                                    String name,
+                                    ProductCategory productCategory,
+                                    Integer calories,
+                                    Integer protein,
+                                    Integer carbs,
+                                    Integer fat) {
+
+    // macros of the product scaled by given quantity
+    public MacroTotals totals(Double quantity) {
+        return new MacroTotals(calories * quantity, protein * quantity, carbs * quantity, fat * quantity);
+    }
+
+    public ProductDtoRead toProductDtoRead(Double quantity) {
+        return new ProductDtoRead(productId, productQuantityId, quantity, name, productCategory, calories, protein, carbs, fat);
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.patrykkukula.diet_ms.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// single ProductQuantity of exported DietDay
+public record ProductUsageExportDto(@JsonIgnore Long dietDayId,
+                                    Long productId,
+                                    String productName,
+                                    Double quantity) {
+}
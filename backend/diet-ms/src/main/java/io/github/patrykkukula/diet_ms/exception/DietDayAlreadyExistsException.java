@@ -0,0 +1,9 @@
+package io.github.patrykkukula.diet_ms.exception;
+
+import java.time.LocalDate;
+
+public class DietDayAlreadyExistsException extends RuntimeException {
+    public DietDayAlreadyExistsException(LocalDate startDate, LocalDate endDate) {
+        super("DietDay between %s and %s already exists".formatted(startDate, endDate));
+    }
+}
@@ -74,6 +74,24 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponseDto> handleDietDayAlreadyExistsException(DietDayAlreadyExistsException ex, HttpServletRequest request) {
+        log.warn(
+                "DietDayAlreadyExistsException occurred in Diet MS. path={}",
+                request.getRequestURI(),
+                ex
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                new ErrorResponseDto(
+                        HttpStatus.CONFLICT.getReasonPhrase(),
+                        HttpStatus.CONFLICT.value(), ex.getMessage(),
+                        request.getRequestURI(),
+                        setOccurrenceTime()
+                )
+        );
+    }
+
     @ExceptionHandler
     public ResponseEntity<ErrorResponseDto> handleProductQuantityNotFoundException(ProductQuantityNotFoundException ex, HttpServletRequest request) {
         log.warn(
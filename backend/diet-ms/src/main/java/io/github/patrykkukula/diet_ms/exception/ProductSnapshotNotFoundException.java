@@ -1,8 +1,14 @@
 package io.github.patrykkukula.diet_ms.exception;
 
+import java.util.Collection;
+
 // This should not be thrown if application is designed properly
 public class ProductSnapshotNotFoundException extends RuntimeException {
     public ProductSnapshotNotFoundException(Long id) {
         super("Product snapshot with ID %s not found".formatted(id));
     }
+
+    public ProductSnapshotNotFoundException(Collection<Long> ids) {
+        super("Product snapshots with IDs %s not found".formatted(ids));
+    }
 }
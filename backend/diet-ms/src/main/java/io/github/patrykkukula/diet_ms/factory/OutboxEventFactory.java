@@ -2,15 +2,20 @@ package io.github.patrykkukula.diet_ms.factory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
 import io.github.patrykkukula.diet_ms.model.OutboxEvent;
 import io.github.patrykkukula.mealtrackingapp_common.events.EventType;
 import io.github.patrykkukula.mealtrackingapp_common.events.OutboxEventStatus;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayTotalsChangedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.TotalsDelta;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.BasicProductEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Component
 @RequiredArgsConstructor
@@ -23,6 +28,7 @@ public class OutboxEventFactory {
         try {
             return new OutboxEvent(
                     null,
+                    UUID.randomUUID(),
                     OutboxEventStatus.NEW,
                     EventType.fromRoutingKey(event.routingKey()),
                     objectMapper.writeValueAsString(event),
@@ -34,4 +40,14 @@ public class OutboxEventFactory {
             throw new RuntimeException("error processing Event to Json", e);
         }
     }
+
+    // DietDayTotalsChangedEvent for change of DietDay totals by given delta, only for changes without logged event
+    public OutboxEvent createTotalsChanged(String username, LocalDate date, MacroTotals delta, int daysDelta) {
+        return create(DietDayTotalsChangedEvent.of(username, date, totalsDelta(delta, daysDelta)));
+    }
+
+    // totals carried by logged events
+    public static TotalsDelta totalsDelta(MacroTotals delta, int daysDelta) {
+        return new TotalsDelta(delta.getCalories(), delta.getProtein(), delta.getCarbs(), delta.getFat(), daysDelta);
+    }
 }
@@ -9,6 +9,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 @Configuration
@@ -17,27 +18,30 @@ import java.util.function.Consumer;
 public class ProductFunctions {
     private final ProductSnapshotService productSnapshotService;
 
+    /*
+        product bindings consume in batch mode, batch size and max wait are configured in consumer properties of bindings
+     */
     @Bean
-    public Consumer<ProductCreatedEvent> productCreated() {
-        return event -> {
-          log.info("ProductCreated Event received in diet_ms for product ID: {}", event.productId());
-          productSnapshotService.addProductSnapshot(event);
+    public Consumer<List<ProductCreatedEvent>> productCreated() {
+        return events -> {
+            log.info("ProductCreated Events received in diet_ms: {}", events.size());
+            productSnapshotService.addProductSnapshots(events);
         };
     }
 
     @Bean
-    public Consumer<ProductUpdatedEvent> productUpdated() {
-        return event -> {
-            log.info("ProductUpdated Event received in diet_ms for product ID: {}", event.productId());
-            productSnapshotService.updateProductSnapshot(event);
+    public Consumer<List<ProductUpdatedEvent>> productUpdated() {
+        return events -> {
+            log.info("ProductUpdated Events received in diet_ms: {}", events.size());
+            productSnapshotService.updateProductSnapshots(events);
         };
     }
 
     @Bean
-    public Consumer<ProductDeletedEvent> productDeleted() {
-        return event -> {
-            log.info("ProductDeleted Event received in diet_ms for product ID: {}", event.productId());
-            productSnapshotService.deleteProductSnapshot(event.productId());
+    public Consumer<List<ProductDeletedEvent>> productDeleted() {
+        return events -> {
+            log.info("ProductDeleted Events received in diet_ms: {}", events.size());
+            productSnapshotService.deleteProductSnapshots(events.stream().map(ProductDeletedEvent::productId).toList());
         };
     }
 }
@@ -0,0 +1,22 @@
+package io.github.patrykkukula.diet_ms.function;
+
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.cloud.stream.config.ListenerContainerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/*
+    stream consumers of bindings run on virtual threads when spring.threads.virtual.enabled=true
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConsumerConfig {
+
+    @Bean
+    public ListenerContainerCustomizer<AbstractMessageListenerContainer> virtualThreadListenerContainerCustomizer() {
+        return (container, destination, group) -> container.setTaskExecutor(new VirtualThreadTaskExecutor(destination + "-"));
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.patrykkukula.diet_ms.loader;
+
+import io.github.patrykkukula.diet_ms.model.DietDay;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Position in DietDays ordered by date and id, written as "yyyy-MM-dd:id". Loading continues after the position
+ */
+public record DietDayCursor(LocalDate date, Long dietDayId) {
+
+    // position before every DietDay at given date
+    public static DietDayCursor startOf(LocalDate date) {
+        return new DietDayCursor(date, 0L);
+    }
+
+    public static DietDayCursor after(DietDay dietDay) {
+        return new DietDayCursor(dietDay.getDate(), dietDay.getDietDayId());
+    }
+
+    public static DietDayCursor parse(String cursor) {
+        String[] parts = cursor.split(":");
+        try {
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: %s".formatted(cursor));
+            }
+            return new DietDayCursor(LocalDate.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (DateTimeParseException | NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor: %s".formatted(cursor), ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "%s:%d".formatted(date, dietDayId);
+    }
+}
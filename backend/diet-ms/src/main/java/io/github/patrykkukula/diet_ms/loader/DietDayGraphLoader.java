@@ -0,0 +1,85 @@
+package io.github.patrykkukula.diet_ms.loader;
+
+import io.github.patrykkukula.diet_ms.model.DietDay;
+import io.github.patrykkukula.diet_ms.model.Meal;
+import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
+import io.github.patrykkukula.diet_ms.repository.MealRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Loads whole DietDay graph (DietDay -> Meal -> ProductQuantity -> ProductSnapshot) level by level.
+ * Every level is fetched with a single statement for all parents, so number of statements does not depend on
+ * number of days, meals or quantities. Meal ids are sent in chunks to keep IN list bounded.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DietDayGraphLoader {
+    private final DietDayRepository dietDayRepository;
+    private final MealRepository mealRepository;
+    private static final int MEAL_ID_CHUNK_SIZE = 500;
+
+    /**
+     * @param startDate - inclusive
+     * @param endDate - exclusive
+     * @param username - owner of DietDays
+     * @return DietDays ordered by date with meals, quantities and snapshots initialized
+     */
+    @Transactional(readOnly = true)
+    public List<DietDay> loadDietDays(LocalDate startDate, LocalDate endDate, String username) {
+        List<DietDay> dietDays = dietDayRepository.fetchDietDaysWithMealsForUserForGivenDateRange(startDate, endDate, username);
+
+        loadProductQuantities(dietDays);
+
+        return dietDays;
+    }
+
+    /**
+     * Next batch of DietDays after given cursor. Ids are selected first, so the limit is applied in database and not
+     * to the fetch joined rows
+     * @param startDate - inclusive
+     * @param endDate - exclusive
+     * @param cursor - position after which DietDays are loaded
+     * @param username - owner of DietDays
+     * @param limit - maximal number of loaded DietDays
+     * @return DietDays ordered by date and id with meals, quantities and snapshots initialized
+     */
+    @Transactional(readOnly = true)
+    public List<DietDay> loadDietDaysAfter(LocalDate startDate, LocalDate endDate, DietDayCursor cursor, String username, int limit) {
+        List<Long> dietDayIds = dietDayRepository.fetchDietDayIdsForUserAfterCursor(
+                startDate, endDate, cursor.date(), cursor.dietDayId(), username, PageRequest.of(0, limit));
+
+        if (dietDayIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<DietDay> dietDays = dietDayRepository.fetchDietDaysWithMealsByIds(dietDayIds);
+
+        loadProductQuantities(dietDays);
+
+        return dietDays;
+    }
+
+    /*
+        initialize productQuantities of all meals of given DietDays. Must be called inside the transaction
+        that loaded DietDays so fetched Meals are resolved to the same instances
+     */
+    private void loadProductQuantities(List<DietDay> dietDays) {
+        List<Long> mealIds = dietDays.stream()
+                .flatMap(dietDay -> dietDay.getMeals().stream())
+                .map(Meal::getMealId)
+                .toList();
+
+        for (int from = 0; from < mealIds.size(); from += MEAL_ID_CHUNK_SIZE) {
+            mealRepository.fetchMealsWithProductQuantities(mealIds.subList(from, Math.min(from + MEAL_ID_CHUNK_SIZE, mealIds.size())));
+        }
+        log.debug("Loaded graph for {} DietDays and {} Meals", dietDays.size(), mealIds.size());
+    }
+}
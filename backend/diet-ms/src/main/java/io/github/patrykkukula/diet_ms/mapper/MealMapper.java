@@ -1,8 +1,11 @@
 package io.github.patrykkukula.diet_ms.mapper;
 
 import io.github.patrykkukula.diet_ms.dto.MealDto;
+import io.github.patrykkukula.diet_ms.dto.MealDtoRead;
 import io.github.patrykkukula.diet_ms.dto.ProductQuantityDto;
 import io.github.patrykkukula.diet_ms.model.Meal;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.LoggedMeal;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.LoggedProduct;
 
 public class MealMapper {
     private MealMapper() {}
@@ -16,4 +19,21 @@ public class MealMapper {
                 .toList());
         return mealDto;
     }
+
+    public static MealDtoRead mapMealToMealDtoRead(Meal meal) {
+        return new MealDtoRead(meal.getMealId(), meal.getName(), meal.getProductQuantities()
+                .stream()
+                .map(quantity -> ProductSnapshotMapper.mapProductSnapshotToProductDtoRead(quantity.getProductSnapshot(), quantity))
+                .toList());
+    }
+
+    public static LoggedMeal mapMealToLoggedMeal(Meal meal) {
+        return new LoggedMeal(meal.getName(), meal.getProductQuantities()
+                .stream()
+                .map(quantity -> new LoggedProduct(
+                        quantity.getProductSnapshot().getProductId(),
+                        quantity.getProductSnapshot().getName(),
+                        quantity.getQuantity()))
+                .toList());
+    }
 }
@@ -9,6 +9,15 @@ public class ProductQuantityMapper {
     public static ProductQuantityDto mapProductQuantityToProductQuantityDto(ProductQuantity productQuantity) {
         ProductQuantityDto productQuantityDto = new ProductQuantityDto();
         productQuantityDto.setQuantity(productQuantity.getQuantity());
+        if (productQuantity.getProductSnapshot() != null) {
+            productQuantityDto.setProductId(productQuantity.getProductSnapshot().getProductId());
+        }
+        return productQuantityDto;
+    }
+
+    public static ProductQuantityDto mapQuantityToProductQuantityDto(Double quantity) {
+        ProductQuantityDto productQuantityDto = new ProductQuantityDto();
+        productQuantityDto.setQuantity(quantity);
         return productQuantityDto;
     }
 }
@@ -11,11 +11,13 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_diet_day_owner_date", columnList = "owner_username, date"))
 @Getter @Setter
 @NoArgsConstructor
 public class DietDay {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "diet_day_seq")
+    @SequenceGenerator(name = "diet_day_seq", sequenceName = "diet_day_seq", allocationSize = 50)
     private Long dietDayId;
 
     @Column(nullable = false)
@@ -28,13 +30,23 @@ public class DietDay {
     @Column(nullable = false, length = 64)
     private String ownerUsername;
 
+    @Embedded
+    private MacroTotals totals = new MacroTotals();
+
+    // source of DietDay created by set-based copy, matches copied Meals with the DietDay they were copied into
+    @Column(updatable = false)
+    private Long copiedFromId;
+
     public void addMeal(Meal meal) {
         meals.add(meal);
         meal.setDietDay(this);
+        totals.add(meal.getTotals());
     }
 
     public void removeMeal(Meal meal) {
-        meals.remove(meal);
+        if (meals.remove(meal)) {
+            totals.subtract(meal.getTotals());
+        }
     }
 
     public static DietDay fromDto(DietDayDto dto) {
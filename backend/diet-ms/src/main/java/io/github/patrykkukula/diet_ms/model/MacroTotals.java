@@ -0,0 +1,62 @@
+package io.github.patrykkukula.diet_ms.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Denormalized macro totals maintained on Meal and DietDay, so reads do not have to sum all ProductQuantities
+ */
+@Embeddable
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+public class MacroTotals {
+    @Column(name = "total_calories", nullable = false)
+    private Double calories = 0.0;
+    @Column(name = "total_protein", nullable = false)
+    private Double protein = 0.0;
+    @Column(name = "total_carbs", nullable = false)
+    private Double carbs = 0.0;
+    @Column(name = "total_fat", nullable = false)
+    private Double fat = 0.0;
+
+    // macros of given ProductSnapshot scaled by quantity
+    public static MacroTotals of(ProductSnapshot snapshot, Double quantity) {
+        return new MacroTotals(
+                snapshot.getCalories() * quantity,
+                snapshot.getProtein() * quantity,
+                snapshot.getCarbs() * quantity,
+                snapshot.getFat() * quantity
+        );
+    }
+
+    public void add(MacroTotals other) {
+        this.calories += other.calories;
+        this.protein += other.protein;
+        this.carbs += other.carbs;
+        this.fat += other.fat;
+    }
+
+    public void subtract(MacroTotals other) {
+        this.calories -= other.calories;
+        this.protein -= other.protein;
+        this.carbs -= other.carbs;
+        this.fat -= other.fat;
+    }
+
+    public MacroTotals minus(MacroTotals other) {
+        return new MacroTotals(
+                this.calories - other.calories,
+                this.protein - other.protein,
+                this.carbs - other.carbs,
+                this.fat - other.fat
+        );
+    }
+
+    public MacroTotals negate() {
+        return new MacroTotals(-calories, -protein, -carbs, -fat);
+    }
+}
@@ -13,7 +13,8 @@ import java.util.List;
 @NoArgsConstructor
 public class Meal {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "meal_seq")
+    @SequenceGenerator(name = "meal_seq", sequenceName = "meal_seq", allocationSize = 50)
     private Long mealId;
 
     private String name;
@@ -28,6 +29,13 @@ public class Meal {
     @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true, mappedBy = "meal")
     private List<ProductQuantity> productQuantities = new ArrayList<>();
 
+    @Embedded
+    private MacroTotals totals = new MacroTotals();
+
+    // source of Meal created by set-based copy, matches copied ProductQuantities with the Meal they were copied into
+    @Column(updatable = false)
+    private Long copiedFromId;
+
     public void addProductQuantity(ProductQuantity productQuantity) {
         productQuantities.add(productQuantity);
         productQuantity.setMeal(this);
@@ -37,6 +45,21 @@ public class Meal {
         productQuantities.remove(productQuantity);
     }
 
+    // apply macros change to Meal and to DietDay it belongs to
+    public void addTotals(MacroTotals delta) {
+        totals.add(delta);
+        if (dietDay != null) {
+            dietDay.getTotals().add(delta);
+        }
+    }
+
+    public void subtractTotals(MacroTotals delta) {
+        totals.subtract(delta);
+        if (dietDay != null) {
+            dietDay.getTotals().subtract(delta);
+        }
+    }
+
     public static Meal fromDto(MealDto dto) {
         Meal meal = new Meal();
         meal.setName(dto.getName());
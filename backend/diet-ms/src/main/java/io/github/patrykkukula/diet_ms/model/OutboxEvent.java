@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Getter @Setter
@@ -18,13 +19,17 @@ public class OutboxEvent {
     @GeneratedValue(strategy = GenerationType.AUTO)
     public Long outboxEventId;
 
+    @Column(nullable = false, unique = true)
+    private UUID eventId;
+
     @Enumerated(value = EnumType.STRING)
     @Column(nullable = false)
     private OutboxEventStatus status;
     @Enumerated(value = EnumType.STRING)
     @Column(nullable = false)
     private EventType eventType;
-    @Column(nullable = false)
+    // logged events carry all meals and totals of a day, longer than default varchar
+    @Column(nullable = false, columnDefinition = "TEXT")
     private String payload;
     @Column(nullable = false)
     private LocalDateTime createdAt;
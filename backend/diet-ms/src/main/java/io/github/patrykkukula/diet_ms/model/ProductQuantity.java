@@ -11,7 +11,8 @@ import lombok.Setter;
 @NoArgsConstructor
 public class ProductQuantity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_quantity_seq")
+    @SequenceGenerator(name = "product_quantity_seq", sequenceName = "product_quantity_seq", allocationSize = 50)
     private Long productQuantityId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -3,10 +3,12 @@ package io.github.patrykkukula.diet_ms.model;
 import io.github.patrykkukula.diet_ms.constants.ProductCategory;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductCreatedEvent;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -15,7 +17,7 @@ import java.util.List;
 @Getter @Setter
 @NoArgsConstructor
 @ToString
-public class ProductSnapshot {
+public class ProductSnapshot implements Persistable<Long> {
     @Id
     private Long productId;
 
@@ -43,6 +45,27 @@ public class ProductSnapshot {
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "productSnapshot")
     private List<ProductQuantity> productQuantities = new ArrayList<>();
 
+    // id is assigned from event, snapshot created from event is persisted without select checking if it exists
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private boolean created = false;
+
+    @Override
+    public Long getId() {
+        return productId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return created;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.created = false;
+    }
+
     public static ProductSnapshot fromEvent(ProductCreatedEvent event) {
         ProductSnapshot productSnapshot = new ProductSnapshot();
         productSnapshot.setProductId(event.productId());
@@ -53,6 +76,16 @@ public class ProductSnapshot {
         productSnapshot.setCarbs(event.carbs());
         productSnapshot.setFat(event.fat());
         productSnapshot.setOwnerUsername(event.ownerUsername() != null ? event.ownerUsername() : null);
+        productSnapshot.created = true;
+        return productSnapshot;
+    }
+
+    // snapshot with id assigned from event, persisted without select, fields are set by caller
+    public static ProductSnapshot newSnapshot(Long productId, String ownerUsername) {
+        ProductSnapshot productSnapshot = new ProductSnapshot();
+        productSnapshot.setProductId(productId);
+        productSnapshot.setOwnerUsername(ownerUsername);
+        productSnapshot.created = true;
         return productSnapshot;
     }
 }
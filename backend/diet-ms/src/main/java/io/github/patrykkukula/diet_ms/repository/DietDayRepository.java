@@ -1,12 +1,18 @@
 package io.github.patrykkukula.diet_ms.repository;
 
+import io.github.patrykkukula.diet_ms.dto.DietDayExportDto;
+import io.github.patrykkukula.diet_ms.dto.DietDaySummaryDto;
 import io.github.patrykkukula.diet_ms.model.DietDay;
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,19 +26,152 @@ public interface DietDayRepository extends JpaRepository<DietDay, Long> {
     public Optional<DietDay> fetchDietDay(@Param(value = "dietDayId") Long dietDayId);
 
     /**
+     * First level of month graph loading - DietDays with their Meals in a single statement.
+     * ProductQuantities are loaded for all Meals at once by {@link MealRepository#fetchMealsWithProductQuantities}
      * @param startDate
      * @param endDate
      * @param username
-     * @return list of DietDays for given user, and given month in a given year
+     * @return list of DietDays with initialized meals, ordered by date
      */
-    @Query("SELECT d FROM DietDay d WHERE d.ownerUsername= :username" +
+    @Query("SELECT DISTINCT d FROM DietDay d " +
+            "LEFT JOIN FETCH d.meals m " +
+            "WHERE d.ownerUsername= :username" +
             " AND d.date>= :startDate" +
-            " AND d.date< :endDate")
-    public List<DietDay> fetchDietDaysForUserForGivenYearAndMonth(
+            " AND d.date< :endDate" +
+            " ORDER BY d.date ASC")
+    public List<DietDay> fetchDietDaysWithMealsForUserForGivenDateRange(
+            @Param(value = "startDate") LocalDate startDate,
+            @Param(value = "endDate") LocalDate endDate,
+            @Param(value = "username") String username);
+
+    /**
+     * Per day macro totals read from maintained DietDay totals, no entities are hydrated
+     * @param startDate
+     * @param endDate
+     * @param username
+     * @return list of DietDaySummaryDto ordered by date
+     */
+    @Query("SELECT new io.github.patrykkukula.diet_ms.dto.DietDaySummaryDto(d.dietDayId, d.date, " +
+            "d.totals.calories, d.totals.protein, d.totals.carbs, d.totals.fat) " +
+            "FROM DietDay d " +
+            "WHERE d.ownerUsername= :username" +
+            " AND d.date>= :startDate" +
+            " AND d.date< :endDate" +
+            " ORDER BY d.date ASC")
+    public List<DietDaySummaryDto> fetchDietDaySummariesForUserForGivenDateRange(
             @Param(value = "startDate") LocalDate startDate,
             @Param(value = "endDate") LocalDate endDate,
             @Param(value = "username") String username);
 
+    /**
+     * Keyset page of DietDays of all users for bulk export, ordered by owner, date and id so DietDays of one user
+     * are consecutive. Served by (owner_username, date) index
+     * @param cursorUsername - owner of last DietDay already exported, empty string for first page
+     * @param cursorDate - date of last DietDay already exported
+     * @param cursorId - id of last DietDay already exported
+     * @param pageable - limits size of page, first page is always requested
+     */
+    @Query("SELECT new io.github.patrykkukula.diet_ms.dto.DietDayExportDto(d.dietDayId, d.ownerUsername, d.date, " +
+            "d.totals.calories, d.totals.protein, d.totals.carbs, d.totals.fat) FROM DietDay d " +
+            "WHERE d.ownerUsername> :cursorUsername" +
+            " OR (d.ownerUsername= :cursorUsername AND d.date> :cursorDate)" +
+            " OR (d.ownerUsername= :cursorUsername AND d.date= :cursorDate AND d.dietDayId> :cursorId)" +
+            " ORDER BY d.ownerUsername ASC, d.date ASC, d.dietDayId ASC")
+    public List<DietDayExportDto> fetchDietDaysForExportAfter(
+            @Param(value = "cursorUsername") String cursorUsername,
+            @Param(value = "cursorDate") LocalDate cursorDate,
+            @Param(value = "cursorId") Long cursorId,
+            Pageable pageable);
+
+    /**
+     * Keyset page of DietDay ids after given cursor, ordered by date and id, served by (owner_username, date) index
+     * @param startDate - inclusive
+     * @param endDate - exclusive
+     * @param cursorDate - date of last DietDay already returned
+     * @param cursorId - id of last DietDay already returned
+     * @param username
+     * @param pageable - limits size of page, first page is always requested
+     * @return list of DietDay ids
+     */
+    @Query("SELECT d.dietDayId FROM DietDay d " +
+            "WHERE d.ownerUsername= :username" +
+            " AND d.date>= :startDate" +
+            " AND d.date< :endDate" +
+            " AND (d.date> :cursorDate OR (d.date= :cursorDate AND d.dietDayId> :cursorId))" +
+            " ORDER BY d.date ASC, d.dietDayId ASC")
+    public List<Long> fetchDietDayIdsForUserAfterCursor(
+            @Param(value = "startDate") LocalDate startDate,
+            @Param(value = "endDate") LocalDate endDate,
+            @Param(value = "cursorDate") LocalDate cursorDate,
+            @Param(value = "cursorId") Long cursorId,
+            @Param(value = "username") String username,
+            Pageable pageable);
+
+    @Query("SELECT DISTINCT d FROM DietDay d " +
+            "LEFT JOIN FETCH d.meals m " +
+            "WHERE d.dietDayId IN :dietDayIds" +
+            " ORDER BY d.date ASC, d.dietDayId ASC")
+    public List<DietDay> fetchDietDaysWithMealsByIds(@Param(value = "dietDayIds") Collection<Long> dietDayIds);
+
     @Query("SELECT d FROM DietDay d JOIN FETCH d.meals WHERE d.dietDayId= :id")
     public Optional<DietDay> findByIdWithMeals(@Param(value = "id") Long id);
+
+    /**
+     * Add delta to maintained totals of DietDay in place, delta is negative when macros are removed
+     */
+    @Modifying
+    @Query("UPDATE DietDay d SET " +
+            "d.totals.calories = d.totals.calories + :#{#delta.calories}, " +
+            "d.totals.protein = d.totals.protein + :#{#delta.protein}, " +
+            "d.totals.carbs = d.totals.carbs + :#{#delta.carbs}, " +
+            "d.totals.fat = d.totals.fat + :#{#delta.fat} " +
+            "WHERE d.dietDayId= :dietDayId")
+    public int addToTotals(@Param(value = "dietDayId") Long dietDayId, @Param(value = "delta") MacroTotals delta);
+
+    /**
+     * Recompute maintained totals of every DietDay containing any of given products from already recomputed Meal totals
+     * @param productIds - ids of updated ProductSnapshots
+     * @return number of updated DietDays
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE diet_day d SET " +
+            "total_calories = (SELECT COALESCE(SUM(m.total_calories), 0) FROM meal m WHERE m.diet_day_id = d.diet_day_id), " +
+            "total_protein = (SELECT COALESCE(SUM(m.total_protein), 0) FROM meal m WHERE m.diet_day_id = d.diet_day_id), " +
+            "total_carbs = (SELECT COALESCE(SUM(m.total_carbs), 0) FROM meal m WHERE m.diet_day_id = d.diet_day_id), " +
+            "total_fat = (SELECT COALESCE(SUM(m.total_fat), 0) FROM meal m WHERE m.diet_day_id = d.diet_day_id) " +
+            "WHERE d.diet_day_id IN (SELECT m.diet_day_id FROM meal m " +
+            "JOIN product_quantity q ON q.meal_id = m.meal_id WHERE q.product_id IN (:productIds))",
+            nativeQuery = true)
+    public int recomputeTotalsForDietDaysWithProducts(@Param(value = "productIds") Collection<Long> productIds);
+
+    @Query("SELECT COUNT(d) > 0 FROM DietDay d " +
+            "WHERE d.ownerUsername= :username" +
+            " AND d.date>= :startDate" +
+            " AND d.date< :endDate")
+    public boolean existsForUserInGivenDateRange(
+            @Param(value = "startDate") LocalDate startDate,
+            @Param(value = "endDate") LocalDate endDate,
+            @Param(value = "username") String username);
+
+    /**
+     * First step of set-based copy - DietDays of given date range are copied with dates shifted by offsetDays,
+     * maintained totals are copied as they are. Every copy keeps id of its source, so several DietDays of one date
+     * are never matched with each other's copies
+     * @param startDate - inclusive
+     * @param endDate - exclusive
+     * @param offsetDays - number of days between source and copied DietDay
+     * @param username
+     * @return number of copied DietDays
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO diet_day (diet_day_id, date, owner_username, total_calories, total_protein, total_carbs, total_fat, copied_from_id) " +
+            "SELECT nextval('diet_day_seq'), d.date + CAST(:offsetDays AS INTEGER), d.owner_username, d.total_calories, d.total_protein, d.total_carbs, d.total_fat, d.diet_day_id " +
+            "FROM diet_day d " +
+            "WHERE d.owner_username = :username AND d.date >= :startDate AND d.date < :endDate",
+            nativeQuery = true)
+    public int copyDietDays(
+            @Param(value = "startDate") LocalDate startDate,
+            @Param(value = "endDate") LocalDate endDate,
+            @Param(value = "offsetDays") int offsetDays,
+            @Param(value = "username") String username);
 }
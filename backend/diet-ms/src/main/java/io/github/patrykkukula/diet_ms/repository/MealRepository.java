@@ -1,10 +1,17 @@
 package io.github.patrykkukula.diet_ms.repository;
 
+import io.github.patrykkukula.diet_ms.dto.MealRefDto;
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
 import io.github.patrykkukula.diet_ms.model.Meal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +19,88 @@ public interface MealRepository extends JpaRepository<Meal, Long> {
 
     @Query("SELECT m FROM Meal m JOIN FETCH m.dietDay WHERE m.mealId= :mealId")
     public Optional<Meal> findByIdWithDietDay(Long mealId);
+
+    /**
+     * Keys and totals of Meal in one statement, without loading Meal and DietDay entities
+     * @return empty when Meal does not exist or belongs to another user
+     */
+    @Query("SELECT new io.github.patrykkukula.diet_ms.dto.MealRefDto(m.mealId, d.dietDayId, d.date, " +
+            "m.totals.calories, m.totals.protein, m.totals.carbs, m.totals.fat) " +
+            "FROM Meal m JOIN m.dietDay d WHERE m.mealId= :mealId AND d.ownerUsername= :username")
+    public Optional<MealRefDto> fetchOwnedMealRef(@Param(value = "mealId") Long mealId, @Param(value = "username") String username);
+
+    /**
+     * Ownership is part of the statement, so Meal of another user is never removed. ProductQuantities of Meal
+     * must be removed first with {@link ProductQuantityRepository#deleteAllForOwnedMeal}
+     * @return number of removed rows, 0 when Meal was removed or belongs to another user
+     */
+    @Modifying
+    @Query("DELETE FROM Meal m " +
+            "WHERE m.mealId= :mealId " +
+            "AND m.dietDay.dietDayId IN (SELECT d.dietDayId FROM DietDay d WHERE d.ownerUsername= :username)")
+    public int deleteOwnedMeal(@Param(value = "mealId") Long mealId, @Param(value = "username") String username);
+
+    /**
+     * Add delta to maintained totals of Meal in place, delta is negative when macros are removed
+     */
+    @Modifying
+    @Query("UPDATE Meal m SET " +
+            "m.totals.calories = m.totals.calories + :#{#delta.calories}, " +
+            "m.totals.protein = m.totals.protein + :#{#delta.protein}, " +
+            "m.totals.carbs = m.totals.carbs + :#{#delta.carbs}, " +
+            "m.totals.fat = m.totals.fat + :#{#delta.fat} " +
+            "WHERE m.mealId= :mealId")
+    public int addToTotals(@Param(value = "mealId") Long mealId, @Param(value = "delta") MacroTotals delta);
+
+    /**
+     * Second level of graph loading - ProductQuantities and ProductSnapshots for all given Meals in a single statement
+     * @param mealIds - ids of Meals already present in persistence context
+     * @return list of Meals with initialized productQuantities
+     */
+    @Query("SELECT DISTINCT m FROM Meal m " +
+            "LEFT JOIN FETCH m.productQuantities pq " +
+            "LEFT JOIN FETCH pq.productSnapshot ps " +
+            "WHERE m.mealId IN :mealIds")
+    public List<Meal> fetchMealsWithProductQuantities(@Param(value = "mealIds") Collection<Long> mealIds);
+
+    /**
+     * Recompute maintained totals of every Meal containing any of given products, used when ProductSnapshot macros change
+     * @param productIds - ids of updated ProductSnapshots
+     * @return number of updated Meals
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE meal m SET " +
+            "total_calories = (SELECT COALESCE(SUM(ps.calories * pq.quantity), 0) FROM product_quantity pq " +
+            "JOIN product_snapshot ps ON ps.product_id = pq.product_id WHERE pq.meal_id = m.meal_id), " +
+            "total_protein = (SELECT COALESCE(SUM(ps.protein * pq.quantity), 0) FROM product_quantity pq " +
+            "JOIN product_snapshot ps ON ps.product_id = pq.product_id WHERE pq.meal_id = m.meal_id), " +
+            "total_carbs = (SELECT COALESCE(SUM(ps.carbs * pq.quantity), 0) FROM product_quantity pq " +
+            "JOIN product_snapshot ps ON ps.product_id = pq.product_id WHERE pq.meal_id = m.meal_id), " +
+            "total_fat = (SELECT COALESCE(SUM(ps.fat * pq.quantity), 0) FROM product_quantity pq " +
+            "JOIN product_snapshot ps ON ps.product_id = pq.product_id WHERE pq.meal_id = m.meal_id) " +
+            "WHERE m.meal_id IN (SELECT q.meal_id FROM product_quantity q WHERE q.product_id IN (:productIds))",
+            nativeQuery = true)
+    public int recomputeTotalsForMealsWithProducts(@Param(value = "productIds") Collection<Long> productIds);
+
+    /**
+     * Second step of set-based copy - Meals of copied DietDays are inserted into DietDays created by
+     * {@link DietDayRepository#copyDietDays}, matched by id of source DietDay and shifted date, as earlier copies of
+     * the same DietDay keep the same source id. Order index is renumbered from 0 within DietDay
+     * @return number of copied Meals
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO meal (meal_id, name, diet_day_id, order_index, total_calories, total_protein, total_carbs, total_fat, copied_from_id) " +
+            "SELECT nextval('meal_seq'), m.name, nd.diet_day_id, " +
+            "ROW_NUMBER() OVER (PARTITION BY m.diet_day_id ORDER BY m.order_index, m.meal_id) - 1, " +
+            "m.total_calories, m.total_protein, m.total_carbs, m.total_fat, m.meal_id " +
+            "FROM meal m " +
+            "JOIN diet_day od ON od.diet_day_id = m.diet_day_id " +
+            "JOIN diet_day nd ON nd.copied_from_id = od.diet_day_id AND nd.date = od.date + CAST(:offsetDays AS INTEGER) " +
+            "WHERE od.owner_username = :username AND od.date >= :startDate AND od.date < :endDate",
+            nativeQuery = true)
+    public int copyMeals(
+            @Param(value = "startDate") LocalDate startDate,
+            @Param(value = "endDate") LocalDate endDate,
+            @Param(value = "offsetDays") int offsetDays,
+            @Param(value = "username") String username);
 }
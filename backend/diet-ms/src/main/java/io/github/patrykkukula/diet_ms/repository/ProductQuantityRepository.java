@@ -1,15 +1,90 @@
 package io.github.patrykkukula.diet_ms.repository;
 
+import io.github.patrykkukula.diet_ms.dto.ProductQuantityRefDto;
+import io.github.patrykkukula.diet_ms.dto.ProductUsageExportDto;
 import io.github.patrykkukula.diet_ms.model.ProductQuantity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductQuantityRepository extends JpaRepository<ProductQuantity, Long> {
     @Query("SELECT q FROM ProductQuantity q JOIN q.meal m WHERE m.mealId= :mealId")
     public List<ProductQuantity> getProductQuantitiesForMeal(@Param(value = "mealId") Long mealId);
+
+    // products used in given DietDays, for bulk export
+    @Query("SELECT new io.github.patrykkukula.diet_ms.dto.ProductUsageExportDto(d.dietDayId, ps.productId, ps.name, q.quantity) " +
+            "FROM ProductQuantity q JOIN q.meal m JOIN m.dietDay d JOIN q.productSnapshot ps " +
+            "WHERE d.dietDayId IN :dietDayIds")
+    public List<ProductUsageExportDto> fetchProductUsageForExport(@Param(value = "dietDayIds") Collection<Long> dietDayIds);
+
+    /**
+     * Keys and macros of ProductQuantity in one statement, without loading ProductQuantity, Meal and DietDay entities
+     * @return empty when ProductQuantity does not exist or belongs to another user
+     */
+    @Query("SELECT new io.github.patrykkukula.diet_ms.dto.ProductQuantityRefDto(q.productQuantityId, m.mealId, d.dietDayId, d.date, " +
+            "ps.productId, q.quantity, ps.name, ps.productCategory, ps.calories, ps.protein, ps.carbs, ps.fat) " +
+            "FROM ProductQuantity q JOIN q.meal m JOIN m.dietDay d JOIN q.productSnapshot ps " +
+            "WHERE q.productQuantityId= :id AND d.ownerUsername= :username")
+    public Optional<ProductQuantityRefDto> fetchOwnedProductQuantityRef(@Param(value = "id") Long id,
+                                                                        @Param(value = "username") String username);
+
+    /**
+     * Ownership is part of the statement, so ProductQuantity of another user is never changed
+     * @return number of updated rows, 0 when ProductQuantity was removed or belongs to another user
+     */
+    @Modifying
+    @Query("UPDATE ProductQuantity q SET q.quantity= :quantity " +
+            "WHERE q.productQuantityId= :id " +
+            "AND q.meal.mealId IN (SELECT m.mealId FROM Meal m WHERE m.dietDay.ownerUsername= :username)")
+    public int updateOwnedProductQuantity(@Param(value = "id") Long id,
+                                          @Param(value = "username") String username,
+                                          @Param(value = "quantity") Double quantity);
+
+    /**
+     * Ownership is part of the statement, so ProductQuantity of another user is never removed
+     * @return number of removed rows, 0 when ProductQuantity was removed or belongs to another user
+     */
+    @Modifying
+    @Query("DELETE FROM ProductQuantity q " +
+            "WHERE q.productQuantityId= :id " +
+            "AND q.meal.mealId IN (SELECT m.mealId FROM Meal m WHERE m.dietDay.ownerUsername= :username)")
+    public int deleteOwnedProductQuantity(@Param(value = "id") Long id, @Param(value = "username") String username);
+
+    /**
+     * Ownership is part of the statement, so ProductQuantities of Meal of another user are never removed
+     * @return number of removed rows, 0 also when Meal is empty
+     */
+    @Modifying
+    @Query("DELETE FROM ProductQuantity q " +
+            "WHERE q.meal.mealId IN (SELECT m.mealId FROM Meal m WHERE m.mealId= :mealId AND m.dietDay.ownerUsername= :username)")
+    public int deleteAllForOwnedMeal(@Param(value = "mealId") Long mealId, @Param(value = "username") String username);
+
+    /**
+     * Last step of set-based copy - ProductQuantities are inserted into Meals created by {@link MealRepository#copyMeals},
+     * source Meal is matched with its copy by id of source Meal and shifted date of DietDay the copy belongs to
+     * @return number of copied ProductQuantities
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO product_quantity (product_quantity_id, product_id, quantity, meal_id) " +
+            "SELECT nextval('product_quantity_seq'), q.product_id, q.quantity, nm.meal_id " +
+            "FROM product_quantity q " +
+            "JOIN meal m ON m.meal_id = q.meal_id " +
+            "JOIN diet_day od ON od.diet_day_id = m.diet_day_id " +
+            "JOIN meal nm ON nm.copied_from_id = m.meal_id " +
+            "JOIN diet_day nd ON nd.diet_day_id = nm.diet_day_id AND nd.date = od.date + CAST(:offsetDays AS INTEGER) " +
+            "WHERE od.owner_username = :username AND od.date >= :startDate AND od.date < :endDate",
+            nativeQuery = true)
+    public int copyProductQuantities(
+            @Param(value = "startDate") LocalDate startDate,
+            @Param(value = "endDate") LocalDate endDate,
+            @Param(value = "offsetDays") int offsetDays,
+            @Param(value = "username") String username);
 }
@@ -2,8 +2,22 @@ package io.github.patrykkukula.diet_ms.repository;
 
 import io.github.patrykkukula.diet_ms.model.ProductSnapshot;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+
 @Repository
 public interface ProductSnapshotRepository extends JpaRepository<ProductSnapshot, Long> {
+    /**
+     * ProductSnapshots still referenced by ProductQuantity are kept, so logged Meals of deleted product are not broken
+     * and one referenced snapshot does not fail delete of the whole batch
+     * @return number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM ProductSnapshot s WHERE s.productId IN :ids " +
+            "AND NOT EXISTS (SELECT q.productQuantityId FROM ProductQuantity q WHERE q.productSnapshot.productId = s.productId)")
+    public int deleteUnreferencedByIdIn(@Param(value = "ids") Collection<Long> ids);
 }
@@ -0,0 +1,58 @@
+package io.github.patrykkukula.diet_ms.service;
+
+import io.github.patrykkukula.diet_ms.dto.DietDayExportDto;
+import io.github.patrykkukula.diet_ms.dto.ProductUsageExportDto;
+import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
+import io.github.patrykkukula.diet_ms.repository.ProductQuantityRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+    Diet history of all users exported for statistics-ms rebuild. DietDays are read in keyset pages with one more
+    statement for their products, so export holds one page in memory and does not load Meal entities
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DietDayExportService {
+    private static final int EXPORT_BATCH_SIZE = 500;
+
+    private final DietDayRepository dietDayRepository;
+    private final ProductQuantityRepository productQuantityRepository;
+
+    /**
+     * @return DietDays of all users ordered by owner and date, loaded lazily while stream is consumed
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public Stream<DietDayExportDto> exportDietDays() {
+        List<DietDayExportDto> firstBatch = loadBatchAfter("", LocalDate.EPOCH, 0L);
+
+        return Stream.iterate(firstBatch, batch -> !batch.isEmpty(), batch -> batch.size() < EXPORT_BATCH_SIZE ? List.of() :
+                        loadBatchAfter(batch.getLast().username(), batch.getLast().date(), batch.getLast().dietDayId()))
+                .flatMap(List::stream);
+    }
+
+    private List<DietDayExportDto> loadBatchAfter(String username, LocalDate date, Long dietDayId) {
+        List<DietDayExportDto> dietDays = dietDayRepository.fetchDietDaysForExportAfter(username, date, dietDayId, PageRequest.of(0, EXPORT_BATCH_SIZE));
+        if (dietDays.isEmpty()) {
+            return dietDays;
+        }
+
+        Map<Long, List<ProductUsageExportDto>> products = productQuantityRepository.fetchProductUsageForExport(
+                        dietDays.stream().map(DietDayExportDto::dietDayId).toList()).stream()
+                .collect(Collectors.groupingBy(ProductUsageExportDto::dietDayId));
+
+        return dietDays.stream()
+                .map(dietDay -> dietDay.withProducts(products.getOrDefault(dietDay.dietDayId(), List.of())))
+                .toList();
+    }
+}
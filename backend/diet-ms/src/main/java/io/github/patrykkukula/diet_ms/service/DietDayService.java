@@ -2,45 +2,67 @@ package io.github.patrykkukula.diet_ms.service;
 
 import io.github.patrykkukula.diet_ms.assembler.DietDayAssembler;
 import io.github.patrykkukula.diet_ms.cache.CacheUtils;
+import io.github.patrykkukula.diet_ms.cache.DietDayPatches;
 import io.github.patrykkukula.diet_ms.dto.*;
+import io.github.patrykkukula.diet_ms.exception.DietDayAlreadyExistsException;
 import io.github.patrykkukula.diet_ms.exception.DietDayNotFoundException;
+import io.github.patrykkukula.diet_ms.factory.OutboxEventFactory;
+import io.github.patrykkukula.diet_ms.loader.DietDayCursor;
+import io.github.patrykkukula.diet_ms.loader.DietDayGraphLoader;
+import io.github.patrykkukula.diet_ms.mapper.MealMapper;
 import io.github.patrykkukula.diet_ms.model.DietDay;
+import io.github.patrykkukula.diet_ms.model.Meal;
 import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
+import io.github.patrykkukula.diet_ms.repository.MealRepository;
+import io.github.patrykkukula.diet_ms.repository.OutboxEventRepository;
+import io.github.patrykkukula.diet_ms.repository.ProductQuantityRepository;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayLoggedEvent;
 import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class DietDayService {
+    private static final int STREAM_BATCH_SIZE = 31;
+
     private final DietDayRepository dietDayRepository;
     private final ProductSnapshotService productSnapshotService;
     private final DietDayAssembler dietDayAssembler;
     private final AuthenticationUtils authenticationUtilsImpl;
     private final CacheUtils cacheUtils;
+    private final DietDayGraphLoader dietDayGraphLoader;
+    private final MealRepository mealRepository;
+    private final ProductQuantityRepository productQuantityRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxEventFactory eventFactory;
 
     @Transactional
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    @CacheEvict(value = "monthlyDiets",
-            key = "#result.date.getYear() + '-' + #result.date.getMonthValue() + '-' + @authenticationUtils.getAuthenticatedUserUsername()")
     public DietDayDtoRead createDietDay(DietDayDto dietDayDto) {
         DietDay dietDay = dietDayAssembler.assemble(dietDayDto);
 
         DietDay savedDiet = dietDayRepository.save(dietDay);
 
+        cacheUtils.evictMonthlyDietsCache(savedDiet);
+
         return new DietDayDtoRead(savedDiet.getDietDayId(), savedDiet.getOwnerUsername(), savedDiet.getDate(), setProductsForMeal(dietDay));
     }
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    @Cacheable(value = "dietDay", key = "#dietDayId + '-' + @authenticationUtils.getAuthenticatedUserUsername()")
+    @Cacheable(value = "dietDay", key = "@cacheKeys.dietDay(#dietDayId)")
     public DietDayDtoRead getDietDayById(Long dietDayId) {
         DietDay dietDay = dietDayRepository.fetchDietDay(dietDayId).orElseThrow(() -> new DietDayNotFoundException(dietDayId));
 
@@ -55,18 +77,17 @@ public class DietDayService {
      * @param month - month in a given year to fetch DietDays for, provided from UI request
      * @return List of DietDayDtoRead
      */
+    @Transactional(readOnly = true)
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    @Cacheable(value = "monthlyDiets", key = "#year + '-' + #month + '-' + @authenticationUtils.getAuthenticatedUserUsername()")
+    @Cacheable(value = "monthlyDiets", key = "@cacheKeys.monthlyDiets(#year, #month)")
     public List<DietDayDtoRead> getDietDayListForUserByGivenYearAndMonth(int year, int month) {
-        if (year <= 2021 || year >= LocalDate.now().getYear() + 5) {
-            throw new IllegalArgumentException("Year must be at least 2021 and cannot be more than current year plus 5 years");
-        }
+        validateYear(year);
         String username = authenticationUtilsImpl.getAuthenticatedUserUsername();
 
         LocalDate startDate = LocalDate.of(year, month, 1);
         LocalDate endDate = startDate.plusMonths(1);
 
-        return dietDayRepository.fetchDietDaysForUserForGivenYearAndMonth(startDate, endDate, username)
+        return dietDayGraphLoader.loadDietDays(startDate, endDate, username)
                 .stream()
                 .map(dietDay -> {
                     return new DietDayDtoRead(dietDay.getDietDayId(), dietDay.getOwnerUsername(), dietDay.getDate(), setProductsForMeal(dietDay));
@@ -74,30 +95,122 @@ public class DietDayService {
                 .toList();
     }
 
+    /**
+     *
+     * @param year - year to fetch summaries for, provided from UI request
+     * @param month - month in a given year to fetch summaries for, provided from UI request
+     * @return List of per day macro totals, computed by the database
+     */
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public List<DietDaySummaryDto> getDietDaySummaryForUserByGivenYearAndMonth(int year, int month) {
+        validateYear(year);
+        String username = authenticationUtilsImpl.getAuthenticatedUserUsername();
+
+        LocalDate startDate = LocalDate.of(year, month, 1);
+        LocalDate endDate = startDate.plusMonths(1);
+
+        return dietDayRepository.fetchDietDaySummariesForUserForGivenDateRange(startDate, endDate, username);
+    }
+
+    /**
+     * @param from - first day of range, inclusive
+     * @param to - last day of range, inclusive
+     * @param cursor - position of last DietDay already received by client ("yyyy-MM-dd:id"), null to start from first day
+     * @return DietDays ordered by date, loaded lazily in batches of STREAM_BATCH_SIZE while stream is consumed,
+     * so only one batch is held in memory. First batch is loaded before return
+     */
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public Stream<DietDayDtoRead> getDietDayStreamForUserInGivenDateRange(LocalDate from, LocalDate to, String cursor) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("From date cannot be after to date");
+        }
+        String username = authenticationUtilsImpl.getAuthenticatedUserUsername();
+        LocalDate endDate = to.plusDays(1);
+        DietDayCursor start = cursor != null ? DietDayCursor.parse(cursor) : DietDayCursor.startOf(from);
+
+        List<DietDay> firstBatch = dietDayGraphLoader.loadDietDaysAfter(from, endDate, start, username, STREAM_BATCH_SIZE);
+
+        return Stream.iterate(firstBatch, batch -> !batch.isEmpty(), batch -> batch.size() < STREAM_BATCH_SIZE ? List.of() :
+                        dietDayGraphLoader.loadDietDaysAfter(from, endDate, DietDayCursor.after(batch.getLast()), username, STREAM_BATCH_SIZE))
+                .flatMap(List::stream)
+                .map(dietDay -> new DietDayDtoRead(dietDay.getDietDayId(), dietDay.getOwnerUsername(), dietDay.getDate(), setProductsForMeal(dietDay)));
+    }
+
     @Transactional
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    @CacheEvict(value = "dietDay", key = "#dietDayId + '-' + @authenticationUtils.getAuthenticatedUserUsername()")
     public void removeDietDay(Long dietDayId) {
         DietDay dietDay = dietDayRepository.fetchDietDay(dietDayId).orElseThrow(() -> new DietDayNotFoundException(dietDayId));
 
         isResourceOwner(dietDay);
 
         dietDayRepository.delete(dietDay);
+        outboxEventRepository.save(eventFactory.createTotalsChanged(dietDay.getOwnerUsername(), dietDay.getDate(), dietDay.getTotals().negate(), -1));
 
-        cacheUtils.evictMonthlyDietsCache(dietDay);
+        cacheUtils.evictCaches(dietDay);
     }
 
     @Transactional
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    @CacheEvict(value = "dietDay", key = "#dietDayId + '-' + @authenticationUtils.getAuthenticatedUserUsername()")
     public MealDto addMealToDietDay(Long dietDayId, MealDto mealDto) {
         DietDay dietDay = dietDayRepository.findById(dietDayId).orElseThrow(() -> new DietDayNotFoundException(dietDayId));
 
         isResourceOwner(dietDay);
 
-        cacheUtils.evictMonthlyDietsCache(dietDay);
+        Meal meal = dietDayAssembler.createMeal(mealDto, dietDay, dietDay.getOwnerUsername());
 
-        return dietDayAssembler.addMealToDietDay(mealDto, dietDay, dietDay.getOwnerUsername());
+        // patch evaluated after commit, when Meal and ProductQuantity ids are generated
+        cacheUtils.patchDietDayCache(dietDay, cached -> DietDayPatches.putMeal(MealMapper.mapMealToMealDtoRead(meal)).apply(cached));
+
+        return MealMapper.mapMealToMealDto(meal);
+    }
+
+    /**
+     * Copy DietDays with their Meals and ProductQuantities with set-based statements, no entities are assembled
+     * @param dietDayId - first DietDay to copy
+     * @param date - date of first copy
+     * @param days - number of consecutive days to copy starting from DietDay date, 7 copies whole week
+     * @return copied DietDays ordered by date
+     */
+    @Transactional
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public List<DietDayDtoRead> copyDietDay(Long dietDayId, LocalDate date, int days) {
+        DietDay dietDay = dietDayRepository.findById(dietDayId).orElseThrow(() -> new DietDayNotFoundException(dietDayId));
+
+        isResourceOwner(dietDay);
+
+        String username = dietDay.getOwnerUsername();
+        LocalDate startDate = dietDay.getDate();
+        LocalDate endDate = startDate.plusDays(days);
+        LocalDate copyEndDate = date.plusDays(days);
+
+        // copies are matched with source by source id and shifted date, so target days must be empty
+        if (dietDayRepository.existsForUserInGivenDateRange(date, copyEndDate, username)) {
+            throw new DietDayAlreadyExistsException(date, copyEndDate.minusDays(1));
+        }
+
+        int offsetDays = (int) ChronoUnit.DAYS.between(startDate, date);
+        int copiedDays = dietDayRepository.copyDietDays(startDate, endDate, offsetDays, username);
+        int copiedMeals = mealRepository.copyMeals(startDate, endDate, offsetDays, username);
+        int copiedQuantities = productQuantityRepository.copyProductQuantities(startDate, endDate, offsetDays, username);
+
+        log.info("Copied DietDays: {}, Meals: {}, ProductQuantities: {}", copiedDays, copiedMeals, copiedQuantities);
+
+        List<DietDay> copies = dietDayGraphLoader.loadDietDays(date, copyEndDate, username);
+
+        // one OutboxEvent per copied DietDay carrying its totals, saved as single batch
+        outboxEventRepository.saveAll(copies.stream()
+                .map(copy -> eventFactory.create(new DietDayLoggedEvent(username, copy.getDate(), copy.getMeals()
+                        .stream()
+                        .map(MealMapper::mapMealToLoggedMeal)
+                        .toList(), OutboxEventFactory.totalsDelta(copy.getTotals(), 1))))
+                .toList());
+
+        copies.forEach(cacheUtils::evictMonthlyDietsCache);
+
+        return copies.stream()
+                .map(copy -> new DietDayDtoRead(copy.getDietDayId(), copy.getOwnerUsername(), copy.getDate(), setProductsForMeal(copy)))
+                .toList();
     }
 
     /*
@@ -113,6 +226,12 @@ public class DietDayService {
                 .toList();
     }
 
+    private void validateYear(int year) {
+        if (year <= 2021 || year >= LocalDate.now().getYear() + 5) {
+            throw new IllegalArgumentException("Year must be at least 2021 and cannot be more than current year plus 5 years");
+        }
+    }
+
     // check if DietDay belongs to user
     private void isResourceOwner(DietDay dietDay) {
         String username = authenticationUtilsImpl.getAuthenticatedUserUsername();
@@ -2,11 +2,19 @@ package io.github.patrykkukula.diet_ms.service;
 
 import io.github.patrykkukula.diet_ms.assembler.DietDayAssembler;
 import io.github.patrykkukula.diet_ms.cache.CacheUtils;
+import io.github.patrykkukula.diet_ms.cache.DietDayPatches;
+import io.github.patrykkukula.diet_ms.dto.MealRefDto;
 import io.github.patrykkukula.diet_ms.dto.ProductQuantityDto;
 import io.github.patrykkukula.diet_ms.exception.MealNotFoundException;
-import io.github.patrykkukula.diet_ms.model.DietDay;
+import io.github.patrykkukula.diet_ms.factory.OutboxEventFactory;
+import io.github.patrykkukula.diet_ms.mapper.ProductQuantityMapper;
+import io.github.patrykkukula.diet_ms.mapper.ProductSnapshotMapper;
 import io.github.patrykkukula.diet_ms.model.Meal;
+import io.github.patrykkukula.diet_ms.model.ProductQuantity;
+import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
 import io.github.patrykkukula.diet_ms.repository.MealRepository;
+import io.github.patrykkukula.diet_ms.repository.OutboxEventRepository;
+import io.github.patrykkukula.diet_ms.repository.ProductQuantityRepository;
 import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -18,22 +26,28 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class MealService {
     private final MealRepository mealRepository;
+    private final ProductQuantityRepository productQuantityRepository;
+    private final DietDayRepository dietDayRepository;
     private final AuthenticationUtils authenticationUtils;
     private final DietDayAssembler dietDayAssembler;
     private final CacheUtils cacheUtils;
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxEventFactory eventFactory;
 
     @Transactional
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
     public void removeMeal(Long mealId) {
-        Meal meal = fetchMeal(mealId);
-
-        isResourceOwner(meal);
-
-        DietDay dietDay = meal.getDietDay();
+        String username = authenticationUtils.getAuthenticatedUserUsername();
+        MealRefDto mealRef = fetchOwnedMealRef(mealId, username);
 
-        dietDay.removeMeal(meal);
+        productQuantityRepository.deleteAllForOwnedMeal(mealId, username);
+        if (mealRepository.deleteOwnedMeal(mealId, username) == 0) {
+            throw notOwnedOrMissing(mealId);
+        }
+        dietDayRepository.addToTotals(mealRef.dietDayId(), mealRef.totals().negate());
+        outboxEventRepository.save(eventFactory.createTotalsChanged(username, mealRef.date(), mealRef.totals().negate(), 0));
 
-        cacheUtils.evictCaches(dietDay);
+        cacheUtils.patchDietDayCache(mealRef.dietDayId(), DietDayPatches.removeMeal(mealId));
     }
 
     @Transactional
@@ -43,9 +57,25 @@ public class MealService {
 
         isResourceOwner(meal);
 
-        cacheUtils.evictCaches(meal.getDietDay());
+        ProductQuantity productQuantity = dietDayAssembler.createProductQuantity(productQuantityDto, meal, authenticationUtils.getAuthenticatedUserUsername());
 
-        return dietDayAssembler.addProductQuantityToMeal(productQuantityDto, meal, authenticationUtils.getAuthenticatedUserUsername());
+        // patch evaluated after commit, when ProductQuantity id is generated
+        cacheUtils.patchDietDayCache(meal.getDietDay(), cached -> DietDayPatches.putProduct(mealId,
+                ProductSnapshotMapper.mapProductSnapshotToProductDtoRead(productQuantity.getProductSnapshot(), productQuantity)).apply(cached));
+
+        return ProductQuantityMapper.mapProductQuantityToProductQuantityDto(productQuantity);
+    }
+
+    private MealRefDto fetchOwnedMealRef(Long mealId, String username) {
+        return mealRepository.fetchOwnedMealRef(mealId, username).orElseThrow(() -> notOwnedOrMissing(mealId));
+    }
+
+    // empty projection or no affected row is either missing Meal (404) or Meal of another user (403)
+    private RuntimeException notOwnedOrMissing(Long mealId) {
+        if (mealRepository.existsById(mealId)) {
+            return new AccessDeniedException("Access denied");
+        }
+        return new MealNotFoundException(mealId);
     }
 
     private Meal fetchMeal(Long mealId) {
@@ -1,13 +1,17 @@
 package io.github.patrykkukula.diet_ms.service;
 
 import io.github.patrykkukula.diet_ms.cache.CacheUtils;
+import io.github.patrykkukula.diet_ms.cache.DietDayPatches;
 import io.github.patrykkukula.diet_ms.dto.ProductQuantityDto;
 import io.github.patrykkukula.diet_ms.dto.ProductQuantityDtoUpdate;
+import io.github.patrykkukula.diet_ms.dto.ProductQuantityRefDto;
 import io.github.patrykkukula.diet_ms.exception.ProductQuantityNotFoundException;
+import io.github.patrykkukula.diet_ms.factory.OutboxEventFactory;
 import io.github.patrykkukula.diet_ms.mapper.ProductQuantityMapper;
-import io.github.patrykkukula.diet_ms.model.DietDay;
-import io.github.patrykkukula.diet_ms.model.Meal;
-import io.github.patrykkukula.diet_ms.model.ProductQuantity;
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
+import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
+import io.github.patrykkukula.diet_ms.repository.MealRepository;
+import io.github.patrykkukula.diet_ms.repository.OutboxEventRepository;
 import io.github.patrykkukula.diet_ms.repository.ProductQuantityRepository;
 import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
 import jakarta.transaction.Transactional;
@@ -17,54 +21,67 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
+/*
+    ProductQuantities are changed with owner-scoped statements instead of loading ProductQuantity, Meal, DietDay
+    and ProductSnapshot entities - keys and macros are read with one projection, maintained totals are adjusted in place
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ProductQuantityService {
     private final ProductQuantityRepository productQuantityRepository;
+    private final MealRepository mealRepository;
+    private final DietDayRepository dietDayRepository;
     private final AuthenticationUtils authenticationUtils;
     private final CacheUtils cacheUtils;
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxEventFactory eventFactory;
 
     @Transactional
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
     public void removeProductQuantity(Long quantityId) {
-        ProductQuantity productQuantity = fetchProductQuantity(quantityId);
-
-        isResourceOwner(productQuantity);
-
-        Meal meal = productQuantity.getMeal();
-        DietDay dietDay = meal.getDietDay();
+        String username = authenticationUtils.getAuthenticatedUserUsername();
+        ProductQuantityRefDto productQuantityRef = fetchOwnedProductQuantityRef(quantityId, username);
 
-        meal.removeProductQuantity(productQuantity);
+        if (productQuantityRepository.deleteOwnedProductQuantity(quantityId, username) == 0) {
+            throw new ProductQuantityNotFoundException(quantityId);
+        }
+        addToTotals(productQuantityRef, productQuantityRef.totals(productQuantityRef.quantity()).negate(), username);
 
-        cacheUtils.evictCaches(dietDay);
+        cacheUtils.patchDietDayCache(productQuantityRef.dietDayId(), DietDayPatches.removeProduct(productQuantityRef.mealId(), quantityId));
     }
 
     @Transactional
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
     public ProductQuantityDto updateProductQuantity(Long quantityId, ProductQuantityDtoUpdate productQuantityDto) {
-        ProductQuantity productQuantity = fetchProductQuantity(quantityId);
-
-        isResourceOwner(productQuantity);
+        String username = authenticationUtils.getAuthenticatedUserUsername();
+        ProductQuantityRefDto productQuantityRef = fetchOwnedProductQuantityRef(quantityId, username);
+        Double quantity = productQuantityDto.getQuantity();
 
-        productQuantity.setQuantity(productQuantityDto.getQuantity());
+        if (productQuantityRepository.updateOwnedProductQuantity(quantityId, username, quantity) == 0) {
+            throw new ProductQuantityNotFoundException(quantityId);
+        }
+        addToTotals(productQuantityRef, productQuantityRef.totals(quantity).minus(productQuantityRef.totals(productQuantityRef.quantity())), username);
 
-        DietDay dietDay = productQuantity.getMeal().getDietDay();
-        cacheUtils.evictCaches(dietDay);
+        cacheUtils.patchDietDayCache(productQuantityRef.dietDayId(), DietDayPatches.putProduct(productQuantityRef.mealId(),
+                productQuantityRef.toProductDtoRead(quantity)));
 
-        return ProductQuantityMapper.mapProductQuantityToProductQuantityDto(productQuantity);
+        return ProductQuantityMapper.mapQuantityToProductQuantityDto(quantity);
     }
 
-    private ProductQuantity fetchProductQuantity(Long quantityId) {
-        return productQuantityRepository.findById(quantityId).orElseThrow(() -> new ProductQuantityNotFoundException(quantityId));
+    // empty projection is either missing ProductQuantity (404) or ProductQuantity of another user (403)
+    private ProductQuantityRefDto fetchOwnedProductQuantityRef(Long quantityId, String username) {
+        return productQuantityRepository.fetchOwnedProductQuantityRef(quantityId, username).orElseThrow(() -> {
+            if (productQuantityRepository.existsById(quantityId)) {
+                return new AccessDeniedException("Access denied");
+            }
+            return new ProductQuantityNotFoundException(quantityId);
+        });
     }
 
-    // check if ProductQuantity belongs to user
-    private void isResourceOwner(ProductQuantity productQuantity) {
-        String username = authenticationUtils.getAuthenticatedUserUsername();
-
-        if (!productQuantity.getMeal().getDietDay().getOwnerUsername().equals(username)) {
-            throw new AccessDeniedException("Access denied");
-        }
+    private void addToTotals(ProductQuantityRefDto productQuantityRef, MacroTotals delta, String username) {
+        mealRepository.addToTotals(productQuantityRef.mealId(), delta);
+        dietDayRepository.addToTotals(productQuantityRef.dietDayId(), delta);
+        outboxEventRepository.save(eventFactory.createTotalsChanged(username, productQuantityRef.date(), delta, 0));
     }
 }
@@ -1,10 +1,12 @@
 package io.github.patrykkukula.diet_ms.service;
 
+import io.github.patrykkukula.diet_ms.cache.CacheUtils;
 import io.github.patrykkukula.diet_ms.dto.ProductDtoRead;
-import io.github.patrykkukula.diet_ms.exception.ProductSnapshotNotFoundException;
 import io.github.patrykkukula.diet_ms.mapper.ProductSnapshotMapper;
 import io.github.patrykkukula.diet_ms.model.Meal;
 import io.github.patrykkukula.diet_ms.model.ProductSnapshot;
+import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
+import io.github.patrykkukula.diet_ms.repository.MealRepository;
 import io.github.patrykkukula.diet_ms.repository.ProductSnapshotRepository;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductCreatedEvent;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductUpdatedEvent;
@@ -13,13 +15,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductSnapshotService {
     private final ProductSnapshotRepository productSnapshotRepository;
+    private final MealRepository mealRepository;
+    private final DietDayRepository dietDayRepository;
+    private final CacheUtils cacheUtils;
     
     public List<ProductDtoRead> getProductsForMeal(Meal meal) {
         return meal.getProductQuantities()
@@ -29,28 +36,94 @@ public class ProductSnapshotService {
                 }).toList();
     }
 
+    /*
+        events of a batch are applied with one saveAll. Only the last event of every product is applied, duplicates and
+        creates of already existing snapshots are skipped, so redelivered or late creates never overwrite newer updates
+     */
     @Transactional
-    public void addProductSnapshot(ProductCreatedEvent event) {
-        ProductSnapshot productSnapshot = productSnapshotRepository.save(ProductSnapshot.fromEvent(event));
-        log.info("ProductSnapshot created: {}", productSnapshot);
+    public void addProductSnapshots(List<ProductCreatedEvent> events) {
+        Map<Long, ProductCreatedEvent> latest = latestByProductId(events, ProductCreatedEvent::productId);
+        Set<Long> existing = findAllById(latest.keySet()).keySet();
+
+        List<ProductSnapshot> snapshots = latest.values().stream()
+                .filter(event -> !existing.contains(event.productId()))
+                .map(ProductSnapshot::fromEvent)
+                .toList();
+
+        productSnapshotRepository.saveAll(snapshots);
+        log.info("ProductSnapshots created: {}, skipped as already existing: {}", snapshots.size(), events.size() - snapshots.size());
     }
 
+    /*
+        only the last event of every product in the batch is applied. Update of not yet created snapshot creates it.
+        Maintained totals are recomputed with one statement per table, only for products whose macros changed
+     */
     @Transactional
-    public void updateProductSnapshot(ProductUpdatedEvent event) {
-        ProductSnapshot snapshot = findById(event.productId());
+    public void updateProductSnapshots(List<ProductUpdatedEvent> events) {
+        Map<Long, ProductUpdatedEvent> latest = latestByProductId(events, ProductUpdatedEvent::productId);
+        Map<Long, ProductSnapshot> snapshots = findAllById(latest.keySet());
+
+        List<ProductSnapshot> created = new ArrayList<>();
+        Set<Long> macrosChanged = new HashSet<>();
+        for (ProductUpdatedEvent event : latest.values()) {
+            ProductSnapshot snapshot = snapshots.get(event.productId());
+            if (snapshot == null) {
+                // update received before create of the product
+                created.add(ProductSnapshotMapper.mapProductUpdatedEventToSnapshotUpdate(event,
+                        ProductSnapshot.newSnapshot(event.productId(), event.ownerUsername())));
+            }
+            else {
+                if (!hasSameMacros(snapshot, event)) {
+                    macrosChanged.add(event.productId());
+                }
+                ProductSnapshotMapper.mapProductUpdatedEventToSnapshotUpdate(event, snapshot);
+            }
+        }
+        productSnapshotRepository.saveAll(created);
 
-        ProductSnapshot updatedSnapshot = ProductSnapshotMapper.mapProductUpdatedEventToSnapshotUpdate(event, snapshot);
+        log.info("ProductSnapshots updated: {}, created from update: {}", latest.size() - created.size(), created.size());
 
-        log.info("ProductSnapshot updated: {}", updatedSnapshot);
+        if (!macrosChanged.isEmpty()) {
+            // macros of snapshots changed - recompute maintained totals, Meals first as DietDay totals are summed from them
+            int meals = mealRepository.recomputeTotalsForMealsWithProducts(macrosChanged);
+            int dietDays = dietDayRepository.recomputeTotalsForDietDaysWithProducts(macrosChanged);
+
+            log.info("Totals recomputed for {} Meals and {} DietDays with product IDs: {}", meals, dietDays, macrosChanged);
+        }
+
+        latest.keySet().forEach(cacheUtils::evictProductCaches);
     }
 
+    /*
+        deleting already deleted snapshot is a no-op, all snapshots of the batch are deleted with one statement.
+        Snapshots still used in logged Meals are kept
+     */
     @Transactional
-    public void deleteProductSnapshot(Long productId) {
-        productSnapshotRepository.deleteById(productId);
-        log.info("ProductSnapshot deleted with ID: {}", productId);
+    public void deleteProductSnapshots(List<Long> productIds) {
+        Set<Long> ids = new HashSet<>(productIds);
+
+        int deleted = productSnapshotRepository.deleteUnreferencedByIdIn(ids);
+        log.info("ProductSnapshots deleted: {}, kept as used in Meals or not existing: {}, IDs: {}", deleted, ids.size() - deleted, ids);
+
+        ids.forEach(cacheUtils::evictProductCaches);
+    }
+
+    private Map<Long, ProductSnapshot> findAllById(Collection<Long> productIds) {
+        return productSnapshotRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(ProductSnapshot::getProductId, Function.identity()));
+    }
+
+    // events of one binding are delivered in publish order, so the last event of every product is the newest
+    private <T> Map<Long, T> latestByProductId(List<T> events, Function<T, Long> productId) {
+        Map<Long, T> latest = new LinkedHashMap<>();
+        events.forEach(event -> latest.put(productId.apply(event), event));
+        return latest;
     }
 
-    private ProductSnapshot findById(Long id) {
-        return productSnapshotRepository.findById(id).orElseThrow(() -> new ProductSnapshotNotFoundException(id));
+    private boolean hasSameMacros(ProductSnapshot snapshot, ProductUpdatedEvent event) {
+        return Objects.equals(snapshot.getCalories(), event.calories())
+                && Objects.equals(snapshot.getProtein(), event.protein())
+                && Objects.equals(snapshot.getCarbs(), event.carbs())
+                && Objects.equals(snapshot.getFat(), event.fat());
     }
 }
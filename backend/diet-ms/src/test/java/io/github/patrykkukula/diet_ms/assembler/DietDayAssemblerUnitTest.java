@@ -7,24 +7,31 @@ import io.github.patrykkukula.diet_ms.builder.ProductSnapshotTestBuilder;
 import io.github.patrykkukula.diet_ms.dto.DietDayDto;
 import io.github.patrykkukula.diet_ms.dto.MealDto;
 import io.github.patrykkukula.diet_ms.dto.ProductQuantityDto;
+import io.github.patrykkukula.diet_ms.exception.ProductSnapshotNotFoundException;
+import io.github.patrykkukula.diet_ms.factory.OutboxEventFactory;
 import io.github.patrykkukula.diet_ms.model.DietDay;
 import io.github.patrykkukula.diet_ms.model.ProductQuantity;
 import io.github.patrykkukula.diet_ms.model.ProductSnapshot;
+import io.github.patrykkukula.diet_ms.repository.OutboxEventRepository;
 import io.github.patrykkukula.diet_ms.repository.ProductSnapshotRepository;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayLoggedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,7 +39,11 @@ public class DietDayAssemblerUnitTest {
     @Mock
     private ProductSnapshotRepository productSnapshotRepository;
     @Mock
-    private AuthenticationUtilsImpl authenticationUtilsImpl;
+    private AuthenticationUtils authenticationUtilsImpl;
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private OutboxEventFactory eventFactory;
     @InjectMocks
     private DietDayAssembler dietDayAssembler;
 
@@ -60,20 +71,20 @@ public class DietDayAssemblerUnitTest {
     @DisplayName("should assemble DietDay correctly")
     public void shouldAssembleDietDayCorrectly() {
         when(authenticationUtilsImpl.getAuthenticatedUserUsername()).thenReturn("user");
-        when(productSnapshotRepository.findById(anyLong())).thenReturn(Optional.of(productSnapshot));
+        when(productSnapshotRepository.findAllById(anyCollection())).thenReturn(List.of(productSnapshot));
 
         DietDay assembled = dietDayAssembler.assemble(dietDayDto);
 
         assertEquals("user", assembled.getOwnerUsername());
         assertEquals(1, assembled.getMeals().size());
-        verify(productSnapshotRepository, times(1)).findById(eq(1L));
+        verify(productSnapshotRepository, times(1)).findAllById(eq(Set.of(1L)));
     }
 
     @Test
     @DisplayName("should create Meal correctly when assemble diet day")
     public void shouldCreateMealCorrectlyWhenAssembleDietDay() {
         when(authenticationUtilsImpl.getAuthenticatedUserUsername()).thenReturn("user");
-        when(productSnapshotRepository.findById(anyLong())).thenReturn(Optional.of(productSnapshot));
+        when(productSnapshotRepository.findAllById(anyCollection())).thenReturn(List.of(productSnapshot));
 
         DietDay assembled = dietDayAssembler.assemble(dietDayDto);
         assembled.getMeals().forEach(meal -> {
@@ -87,7 +98,7 @@ public class DietDayAssemblerUnitTest {
     @DisplayName("should create ProductQuantity correctly when assemble diet day")
     public void shouldCreateProductQuantityCorrectlyWhenAssembleDietDay() {
         when(authenticationUtilsImpl.getAuthenticatedUserUsername()).thenReturn("user");
-        when(productSnapshotRepository.findById(anyLong())).thenReturn(Optional.of(productSnapshot));
+        when(productSnapshotRepository.findAllById(anyCollection())).thenReturn(List.of(productSnapshot));
 
         DietDay assembled = dietDayAssembler.assemble(dietDayDto);
         assembled.getMeals().forEach(meal -> {
@@ -102,9 +113,54 @@ public class DietDayAssemblerUnitTest {
     public void shouldSetMealNameCorrectlyWhenAssembleDietDayWithNoMealNameProvided() {
         mealDto.setName(null);
         when(authenticationUtilsImpl.getAuthenticatedUserUsername()).thenReturn("user");
-        when(productSnapshotRepository.findById(anyLong())).thenReturn(Optional.of(productSnapshot));
+        when(productSnapshotRepository.findAllById(anyCollection())).thenReturn(List.of(productSnapshot));
 
         DietDay assembled = dietDayAssembler.assemble(dietDayDto);
         assembled.getMeals().forEach(meal -> assertEquals("Meal", meal.getName()));
     }
+
+    @Test
+    @DisplayName("should resolve all ProductSnapshots with single query and save single event when assemble diet day")
+    public void shouldResolveAllProductSnapshotsWithSingleQueryWhenAssembleDietDay() {
+        ProductQuantityDto otherQuantity = ProductQuantityDtoTestBuilder.productQuantityDto()
+                .productId(2L)
+                .build();
+        MealDto otherMeal = MealDtoTestBuilder.meal()
+                .quantities(List.of(productQuantityDto, otherQuantity))
+                .build();
+        dietDayDto.setMeals(List.of(mealDto, otherMeal));
+        ProductSnapshot otherSnapshot = ProductSnapshotTestBuilder.productSnapshot().build();
+        otherSnapshot.setProductId(2L);
+        when(authenticationUtilsImpl.getAuthenticatedUserUsername()).thenReturn("user");
+        when(productSnapshotRepository.findAllById(anyCollection())).thenReturn(List.of(productSnapshot, otherSnapshot));
+
+        DietDay assembled = dietDayAssembler.assemble(dietDayDto);
+
+        assertEquals(2, assembled.getMeals().size());
+        verify(productSnapshotRepository, times(1)).findAllById(eq(Set.of(1L, 2L)));
+        ArgumentCaptor<DietDayLoggedEvent> event = ArgumentCaptor.forClass(DietDayLoggedEvent.class);
+        verify(eventFactory, times(1)).create(event.capture());
+        verify(eventFactory, never()).createTotalsChanged(anyString(), any(), any(), anyInt());
+        assertEquals(OutboxEventFactory.totalsDelta(assembled.getTotals(), 1), event.getValue().totals());
+    }
+
+    @Test
+    @DisplayName("should throw ProductSnapshotNotFoundException listing all missing ids")
+    public void shouldThrowProductSnapshotNotFoundExceptionListingAllMissingIds() {
+        ProductQuantityDto missingQuantity = ProductQuantityDtoTestBuilder.productQuantityDto()
+                .productId(2L)
+                .build();
+        ProductQuantityDto otherMissingQuantity = ProductQuantityDtoTestBuilder.productQuantityDto()
+                .productId(3L)
+                .build();
+        mealDto.setQuantities(List.of(productQuantityDto, missingQuantity, otherMissingQuantity));
+        when(authenticationUtilsImpl.getAuthenticatedUserUsername()).thenReturn("user");
+        when(productSnapshotRepository.findAllById(anyCollection())).thenReturn(List.of(productSnapshot));
+
+        ProductSnapshotNotFoundException ex = assertThrows(ProductSnapshotNotFoundException.class,
+                () -> dietDayAssembler.assemble(dietDayDto));
+
+        assertEquals("Product snapshots with IDs [2, 3] not found", ex.getMessage());
+        verify(outboxEventRepository, never()).save(any());
+    }
 }
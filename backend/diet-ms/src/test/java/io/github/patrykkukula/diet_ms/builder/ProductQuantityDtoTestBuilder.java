@@ -12,6 +12,11 @@ public class ProductQuantityDtoTestBuilder {
         return new ProductQuantityDtoTestBuilder();
     }
 
+    public ProductQuantityDtoTestBuilder productId(Long id) {
+        this.id = id;
+        return this;
+    }
+
     public ProductQuantityDtoTestBuilder quantity(Double quantity) {
         this.quantity = quantity;
         return this;
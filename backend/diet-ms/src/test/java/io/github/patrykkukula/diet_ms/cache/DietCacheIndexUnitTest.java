@@ -0,0 +1,181 @@
+package io.github.patrykkukula.diet_ms.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.patrykkukula.diet_ms.constants.ProductCategory;
+import io.github.patrykkukula.diet_ms.dto.DietDayDtoRead;
+import io.github.patrykkukula.diet_ms.dto.MealDtoRead;
+import io.github.patrykkukula.diet_ms.dto.ProductDtoRead;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DietCacheIndexUnitTest {
+    private DietCacheIndex index;
+    private IndexedCaffeineCache dietDayCache;
+    private IndexedCaffeineCache monthlyDietsCache;
+
+    private final CacheKeys.DietDayKey dietDayKey = new CacheKeys.DietDayKey(1L, "user");
+    private final CacheKeys.DietDayKey otherDietDayKey = new CacheKeys.DietDayKey(2L, "user");
+    private final CacheKeys.MonthlyDietsKey monthlyKey = new CacheKeys.MonthlyDietsKey(2100, 1, "user");
+
+    @BeforeEach
+    public void setUp() {
+        index = new DietCacheIndex();
+        dietDayCache = new IndexedCaffeineCache("dietDay", Caffeine.newBuilder().build(), index);
+        monthlyDietsCache = new IndexedCaffeineCache("monthlyDiets", Caffeine.newBuilder().build(), index);
+        index.registerCache(dietDayCache);
+        index.registerCache(monthlyDietsCache);
+
+        DietDayDtoRead dietDay = dietDay(1L, 10L);
+        DietDayDtoRead otherDietDay = dietDay(2L, 20L);
+        dietDayCache.put(dietDayKey, dietDay);
+        dietDayCache.put(otherDietDayKey, otherDietDay);
+        monthlyDietsCache.put(monthlyKey, List.of(dietDay, otherDietDay));
+    }
+
+    @Test
+    @DisplayName("should evict DietDay and every monthly list containing it")
+    public void shouldEvictDietDayAndMonthlyListContainingIt() {
+        int evicted = index.invalidateDietDay(1L);
+
+        assertEquals(2, evicted);
+        assertNull(dietDayCache.get(dietDayKey));
+        assertNull(monthlyDietsCache.get(monthlyKey));
+        assertNotNull(dietDayCache.get(otherDietDayKey));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    @DisplayName("should evict only monthly list of given user and month")
+    public void shouldEvictOnlyMonthlyListOfGivenUserAndMonth() {
+        assertEquals(0, index.invalidateUserMonth("other", LocalDate.of(2100, 1, 5)));
+        assertEquals(1, index.invalidateUserMonth("user", LocalDate.of(2100, 1, 5)));
+
+        assertNull(monthlyDietsCache.get(monthlyKey));
+        assertNotNull(dietDayCache.get(dietDayKey));
+    }
+
+    @Test
+    @DisplayName("should evict every entry containing given product")
+    public void shouldEvictEveryEntryContainingGivenProduct() {
+        int evicted = index.invalidateProduct(20L);
+
+        assertEquals(2, evicted);
+        assertNull(dietDayCache.get(otherDietDayKey));
+        assertNull(monthlyDietsCache.get(monthlyKey));
+        assertNotNull(dietDayCache.get(dietDayKey));
+    }
+
+    @Test
+    @DisplayName("should remove entry from index when evicted directly from cache")
+    public void shouldRemoveEntryFromIndexWhenEvictedDirectlyFromCache() {
+        dietDayCache.evict(dietDayKey);
+        monthlyDietsCache.clear();
+
+        assertEquals(1, index.size());
+        assertEquals(0, index.invalidateDietDay(1L));
+    }
+
+    @Test
+    @DisplayName("should patch DietDay and its copy in monthly list")
+    public void shouldPatchDietDayAndItsCopyInMonthlyList() {
+        ProductDtoRead product = new ProductDtoRead(30L, 5L, 2.0, "added", ProductCategory.FISH, 50, 5, 5, 5);
+
+        boolean patched = index.patchDietDay(1L, DietDayPatches.putProduct(1L, product));
+
+        DietDayDtoRead cached = (DietDayDtoRead) dietDayCache.get(dietDayKey).get();
+        List<?> monthly = (List<?>) monthlyDietsCache.get(monthlyKey).get();
+        assertTrue(patched);
+        assertEquals(2, cached.meals().getFirst().products().size());
+        assertEquals(cached, monthly.getFirst());
+        assertEquals(2, index.invalidateProduct(30L));
+    }
+
+    @Test
+    @DisplayName("should not patch when cached DietDay does not contain Meal")
+    public void shouldNotPatchWhenCachedDietDayDoesNotContainMeal() {
+        boolean patched = index.patchDietDay(1L, DietDayPatches.removeProduct(99L, 1L));
+
+        assertFalse(patched);
+    }
+
+    @Test
+    @DisplayName("should not cache value read before DietDay was changed")
+    public void shouldNotCacheValueReadBeforeDietDayWasChanged() {
+        CacheKeys.DietDayKey newKey = new CacheKeys.DietDayKey(3L, "user");
+        assertNull(dietDayCache.get(newKey));
+
+        index.markDietDayChanged(3L);
+        dietDayCache.put(newKey, dietDay(3L, 10L));
+
+        assertNull(dietDayCache.get(newKey));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    @DisplayName("should evict cached value when value read before patch is put")
+    public void shouldEvictCachedValueWhenValueReadBeforePatchIsPut() {
+        dietDayCache.evict(dietDayKey);
+        assertNull(dietDayCache.get(dietDayKey));
+        index.patchDietDay(1L, DietDayPatches.removeMeal(1L));
+
+        dietDayCache.put(dietDayKey, dietDay(1L, 10L));
+
+        assertNull(dietDayCache.get(dietDayKey));
+        assertNotNull(monthlyDietsCache.get(monthlyKey));
+    }
+
+    @Test
+    @DisplayName("should cache value read after DietDay was changed")
+    public void shouldCacheValueReadAfterDietDayWasChanged() {
+        CacheKeys.DietDayKey newKey = new CacheKeys.DietDayKey(3L, "user");
+        index.markDietDayChanged(3L);
+        assertNull(dietDayCache.get(newKey));
+
+        dietDayCache.put(newKey, dietDay(3L, 10L));
+
+        assertNotNull(dietDayCache.get(newKey));
+    }
+
+    @Test
+    @DisplayName("should patch cached value after failed read of it on the same thread")
+    public void shouldPatchCachedValueAfterFailedReadOfItOnTheSameThread() throws InterruptedException {
+        dietDayCache.evict(dietDayKey);
+        assertNull(dietDayCache.get(dietDayKey));           // read fails, value is never put by this thread
+        Thread reader = new Thread(() -> dietDayCache.put(dietDayKey, dietDay(1L, 10L)));
+        reader.start();
+        reader.join();
+        ProductDtoRead product = new ProductDtoRead(30L, 5L, 2.0, "added", ProductCategory.FISH, 50, 5, 5, 5);
+
+        boolean patched = index.patchDietDay(1L, DietDayPatches.putProduct(1L, product));
+
+        assertTrue(patched);
+        assertEquals(2, ((DietDayDtoRead) dietDayCache.get(dietDayKey).get()).meals().getFirst().products().size());
+    }
+
+    @Test
+    @DisplayName("should not cache value changed since any tracked change when its read was dropped")
+    public void shouldNotCacheValueChangedSinceAnyTrackedChangeWhenItsReadWasDropped() {
+        CacheKeys.DietDayKey newKey = new CacheKeys.DietDayKey(3L, "user");
+        assertNull(dietDayCache.get(newKey));
+        index.markDietDayChanged(3L);
+        for (long id = 100; id < 120; id++) {
+            assertNull(dietDayCache.get(new CacheKeys.DietDayKey(id, "user")));
+        }
+
+        dietDayCache.put(newKey, dietDay(3L, 10L));
+
+        assertNull(dietDayCache.get(newKey));
+    }
+
+    private DietDayDtoRead dietDay(Long dietDayId, Long productId) {
+        ProductDtoRead product = new ProductDtoRead(productId, 1L, 1.0, "product", ProductCategory.MEAT, 100, 10, 10, 10);
+        MealDtoRead meal = new MealDtoRead(1L, "meal", List.of(product));
+        return new DietDayDtoRead(dietDayId, "user", LocalDate.of(2100, 1, dietDayId.intValue()), List.of(meal));
+    }
+}
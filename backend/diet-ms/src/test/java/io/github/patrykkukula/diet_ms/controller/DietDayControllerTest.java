@@ -5,11 +5,16 @@ import io.github.patrykkukula.diet_ms.builder.DietDayDtoTestBuilder;
 import io.github.patrykkukula.diet_ms.builder.MealDtoTestBuilder;
 import io.github.patrykkukula.diet_ms.dto.DietDayDto;
 import io.github.patrykkukula.diet_ms.dto.DietDayDtoRead;
+import io.github.patrykkukula.diet_ms.dto.DietDayExportDto;
+import io.github.patrykkukula.diet_ms.dto.DietDaySummaryDto;
 import io.github.patrykkukula.diet_ms.dto.MealDto;
 import io.github.patrykkukula.diet_ms.dto.ProductQuantityDto;
+import io.github.patrykkukula.diet_ms.dto.ProductUsageExportDto;
+import io.github.patrykkukula.diet_ms.exception.DietDayAlreadyExistsException;
 import io.github.patrykkukula.diet_ms.exception.DietDayNotFoundException;
 import io.github.patrykkukula.diet_ms.exception.ProductSnapshotNotFoundException;
 import io.github.patrykkukula.diet_ms.security.SecurityConfig;
+import io.github.patrykkukula.diet_ms.service.DietDayExportService;
 import io.github.patrykkukula.diet_ms.service.DietDayService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
@@ -28,11 +33,15 @@ import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequ
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -49,6 +58,8 @@ public class DietDayControllerTest {
     public ObjectMapper mapper;
     @MockitoBean
     public DietDayService dietDayService;
+    @MockitoBean
+    public DietDayExportService dietDayExportService;
 
     private static final String BASE_URL = "/api/diets";
     private DietDayDto dietDayDto;
@@ -298,6 +309,165 @@ public class DietDayControllerTest {
             verify(dietDayService, times(1)).getDietDayById(1L);
         }
     }
+    @Nested
+    @DisplayName("when getDietDaySummary")
+    class whenGetDietDaySummary {
+        @Test
+        @DisplayName("should return flat list of DietDaySummaryDto correctly")
+        public void shouldReturnFlatListOfDietDaySummaryDtoCorrectly() throws Exception {
+            when(dietDayService.getDietDaySummaryForUserByGivenYearAndMonth(anyInt(), anyInt())).thenReturn(
+                    List.of(new DietDaySummaryDto(1L, LocalDate.of(2100, 1, 1), 250.0, 25.0, 50.0, 12.5)));
+
+            mockMvc.perform(get(BASE_URL + "/summary")
+                            .param("year", "2100")
+                            .param("month", "1")
+                            .with(jwtUser))
+                    .andExpectAll(
+                            status().isOk(),
+                            jsonPath("$.size()").value(1),
+                            jsonPath("$[0].dietDayId").value(1L),
+                            jsonPath("$[0].date").value("2100-01-01"),
+                            jsonPath("$[0].calories").value(250.0)
+                    );
+
+            verify(dietDayService, times(1)).getDietDaySummaryForUserByGivenYearAndMonth(2100, 1);
+        }
+
+        @Test
+        @DisplayName("should respond 400 when month is invalid")
+        public void shouldRespond400WhenMonthIsInvalid() throws Exception {
+            mockMvc.perform(get(BASE_URL + "/summary")
+                            .param("year", "2100")
+                            .param("month", "13")
+                            .with(jwtUser))
+                    .andExpect(status().isBadRequest());
+
+            verify(dietDayService, never()).getDietDaySummaryForUserByGivenYearAndMonth(anyInt(), anyInt());
+        }
+    }
+
+    @Nested
+    @DisplayName("when getDietDaysForUserInGivenDateRange")
+    class whenGetDietDaysForUserInGivenDateRange {
+        @Test
+        @DisplayName("should stream DietDays as newline delimited JSON")
+        public void shouldStreamDietDaysAsNewlineDelimitedJson() throws Exception {
+            DietDayDtoRead secondDietDay = new DietDayDtoRead(2L, "user", LocalDate.of(2100, 1, 2), List.of());
+            when(dietDayService.getDietDayStreamForUserInGivenDateRange(any(LocalDate.class), any(LocalDate.class), any()))
+                    .thenReturn(Stream.of(dietDayDtoRead, secondDietDay));
+
+            MvcResult result = mockMvc.perform(get(BASE_URL + "/range")
+                            .param("from", "2100-01-01")
+                            .param("to", "2100-01-31")
+                            .param("cursor", "2099-12-31:5")
+                            .accept(MediaType.APPLICATION_NDJSON)
+                            .with(jwtUser))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpectAll(
+                            status().isOk(),
+                            content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON),
+                            content().string(mapper.writeValueAsString(dietDayDtoRead) + "\n" + mapper.writeValueAsString(secondDietDay) + "\n")
+                    );
+
+            verify(dietDayService, times(1)).getDietDayStreamForUserInGivenDateRange(
+                    LocalDate.of(2100, 1, 1), LocalDate.of(2100, 1, 31), "2099-12-31:5");
+        }
+
+        @Test
+        @DisplayName("should respond 400 when from date is missing")
+        public void shouldRespond400WhenFromDateIsMissing() throws Exception {
+            mockMvc.perform(get(BASE_URL + "/range")
+                            .param("to", "2100-01-31")
+                            .accept(MediaType.APPLICATION_NDJSON)
+                            .with(jwtUser))
+                    .andExpect(status().isBadRequest());
+
+            verify(dietDayService, never()).getDietDayStreamForUserInGivenDateRange(any(), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("when exportDietDays")
+    class whenExportDietDays {
+        @Test
+        @DisplayName("should stream exported DietDays as newline delimited JSON")
+        public void shouldStreamExportedDietDaysAsNewlineDelimitedJson() throws Exception {
+            DietDayExportDto exported = new DietDayExportDto(1L, "user", LocalDate.of(2100, 1, 1), 100.0, 10.0, 10.0, 10.0,
+                    List.of(new ProductUsageExportDto(1L, 100L, "product", 1.0)));
+            when(dietDayExportService.exportDietDays()).thenReturn(Stream.of(exported));
+
+            MvcResult result = mockMvc.perform(get(BASE_URL + "/export")
+                            .accept(MediaType.APPLICATION_NDJSON)
+                            .with(jwtAdmin))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpectAll(
+                            status().isOk(),
+                            content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON),
+                            content().string(mapper.writeValueAsString(exported) + "\n"),
+                            content().string(Matchers.not(Matchers.containsString("dietDayId\":1,\"productId")))
+                    );
+
+            verify(dietDayExportService, times(1)).exportDietDays();
+            verify(dietDayService, never()).getDietDayById(anyLong());
+        }
+    }
+
+    @Nested
+    @DisplayName("when copyDietDay")
+    class whenCopyDietDay {
+        @Test
+        @DisplayName("should return copied DietDays correctly")
+        public void shouldReturnCopiedDietDaysCorrectly() throws Exception {
+            when(dietDayService.copyDietDay(anyLong(), any(LocalDate.class), anyInt())).thenReturn(
+                    List.of(new DietDayDtoRead(2L, "user", LocalDate.of(2100, 1, 8), List.of())));
+
+            mockMvc.perform(post(BASE_URL + "/{id}/copy", 1L)
+                            .param("date", "2100-01-08")
+                            .param("days", "7")
+                            .with(jwtUser))
+                    .andExpectAll(
+                            status().isCreated(),
+                            jsonPath("$.size()").value(1),
+                            jsonPath("$[0].dietDayId").value(2L),
+                            jsonPath("$[0].date").value("2100-01-08")
+                    );
+
+            verify(dietDayService, times(1)).copyDietDay(1L, LocalDate.of(2100, 1, 8), 7);
+        }
+
+        @Test
+        @DisplayName("should respond 400 when days is more than week")
+        public void shouldRespond400WhenDaysIsMoreThanWeek() throws Exception {
+            mockMvc.perform(post(BASE_URL + "/{id}/copy", 1L)
+                            .param("date", "2100-01-08")
+                            .param("days", "8")
+                            .with(jwtUser))
+                    .andExpect(status().isBadRequest());
+
+            verify(dietDayService, never()).copyDietDay(anyLong(), any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("should respond 409 when DietDay already exists at target date")
+        public void shouldRespond409WhenDietDayAlreadyExistsAtTargetDate() throws Exception {
+            when(dietDayService.copyDietDay(anyLong(), any(LocalDate.class), anyInt())).thenThrow(
+                    new DietDayAlreadyExistsException(LocalDate.of(2100, 1, 8), LocalDate.of(2100, 1, 8)));
+
+            mockMvc.perform(post(BASE_URL + "/{id}/copy", 1L)
+                            .param("date", "2100-01-08")
+                            .with(jwtUser))
+                    .andExpect(status().isConflict());
+
+            verify(dietDayService, times(1)).copyDietDay(1L, LocalDate.of(2100, 1, 8), 1);
+        }
+    }
+
     @Nested
     @DisplayName("when removeDietDay")
     class whenRemoveDietDay {
@@ -0,0 +1,120 @@
+package io.github.patrykkukula.diet_ms.loader;
+
+import io.github.patrykkukula.diet_ms.builder.ProductSnapshotTestBuilder;
+import io.github.patrykkukula.diet_ms.model.DietDay;
+import io.github.patrykkukula.diet_ms.model.Meal;
+import io.github.patrykkukula.diet_ms.model.ProductQuantity;
+import io.github.patrykkukula.diet_ms.model.ProductSnapshot;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(DietDayGraphLoader.class)
+public class DietDayGraphLoaderIntegrationTest {
+    @Autowired
+    private DietDayGraphLoader loader;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        ProductSnapshot snapshot = ProductSnapshotTestBuilder.productSnapshot().build();
+        snapshot.setProductId(100L);
+        entityManager.persist(snapshot);
+
+        for (int day = 1; day <= 20; day++) {
+            DietDay dietDay = new DietDay();
+            dietDay.setDate(LocalDate.of(2100, 1, day));
+            dietDay.setOwnerUsername("user");
+            for (long mealIndex = 0; mealIndex < 4; mealIndex++) {
+                Meal meal = new Meal();
+                meal.setName("meal");
+                meal.setOrderIndex(mealIndex);
+                for (int q = 0; q < 3; q++) {
+                    ProductQuantity quantity = new ProductQuantity();
+                    quantity.setQuantity(1.0);
+                    quantity.setProductSnapshot(snapshot);
+                    meal.addProductQuantity(quantity);
+                }
+                dietDay.addMeal(meal);
+            }
+            entityManager.persist(dietDay);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("should load whole month graph with fixed number of statements")
+    public void shouldLoadWholeMonthGraphWithFixedNumberOfStatements() {
+        List<DietDay> dietDays = loader.loadDietDays(LocalDate.of(2100, 1, 1), LocalDate.of(2100, 2, 1), "user");
+
+        int quantities = dietDays.stream()
+                .flatMap(dietDay -> dietDay.getMeals().stream())
+                .mapToInt(meal -> meal.getProductQuantities().size())
+                .sum();
+        dietDays.forEach(dietDay -> dietDay.getMeals()
+                .forEach(meal -> meal.getProductQuantities()
+                        .forEach(quantity -> assertNotNull(quantity.getProductSnapshot().getName()))));
+
+        assertEquals(20, dietDays.size());
+        assertEquals(240, quantities);
+        assertTrue(statistics.getPrepareStatementCount() <= 2);
+    }
+
+    @Test
+    @DisplayName("should return DietDays ordered by date")
+    public void shouldReturnDietDaysOrderedByDate() {
+        List<DietDay> dietDays = loader.loadDietDays(LocalDate.of(2100, 1, 1), LocalDate.of(2100, 2, 1), "user");
+
+        assertEquals(LocalDate.of(2100, 1, 1), dietDays.getFirst().getDate());
+        assertEquals(LocalDate.of(2100, 1, 20), dietDays.getLast().getDate());
+    }
+
+    @Test
+    @DisplayName("should load batches after cursor without gaps or repeats")
+    public void shouldLoadBatchesAfterCursorWithoutGapsOrRepeats() {
+        LocalDate startDate = LocalDate.of(2100, 1, 5);
+        LocalDate endDate = LocalDate.of(2100, 1, 16);
+
+        List<DietDay> firstBatch = loader.loadDietDaysAfter(startDate, endDate, DietDayCursor.startOf(startDate), "user", 7);
+        List<DietDay> secondBatch = loader.loadDietDaysAfter(startDate, endDate, DietDayCursor.after(firstBatch.getLast()), "user", 7);
+
+        assertEquals(7, firstBatch.size());
+        assertEquals(4, secondBatch.size());
+        assertEquals(startDate, firstBatch.getFirst().getDate());
+        assertEquals(LocalDate.of(2100, 1, 12), secondBatch.getFirst().getDate());
+        assertEquals(LocalDate.of(2100, 1, 15), secondBatch.getLast().getDate());
+        assertEquals(4, secondBatch.getFirst().getMeals().size());
+        assertTrue(loader.loadDietDaysAfter(startDate, endDate, DietDayCursor.after(secondBatch.getLast()), "user", 7).isEmpty());
+    }
+
+    @Test
+    @DisplayName("should parse cursor written by toString")
+    public void shouldParseCursorWrittenByToString() {
+        DietDayCursor cursor = new DietDayCursor(LocalDate.of(2100, 1, 5), 15L);
+
+        assertEquals(cursor, DietDayCursor.parse(cursor.toString()));
+        assertThrows(IllegalArgumentException.class, () -> DietDayCursor.parse("2100-01-05"));
+    }
+}
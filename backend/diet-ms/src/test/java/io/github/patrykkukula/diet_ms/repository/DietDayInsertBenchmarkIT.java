@@ -0,0 +1,89 @@
+package io.github.patrykkukula.diet_ms.repository;
+
+import io.github.patrykkukula.diet_ms.builder.ProductSnapshotTestBuilder;
+import io.github.patrykkukula.diet_ms.model.DietDay;
+import io.github.patrykkukula.diet_ms.model.Meal;
+import io.github.patrykkukula.diet_ms.model.ProductQuantity;
+import io.github.patrykkukula.diet_ms.model.ProductSnapshot;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+
+import java.time.LocalDate;
+
+/*
+    Insert throughput of whole DietDays (5 meals x 8 products = 40 items per day). Not part of mvn test, run with
+    mvn test -Dtest=DietDayInsertBenchmarkIT -Dbenchmark=true and compare logged days/s and statements per day
+    between id generation strategies
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+public class DietDayInsertBenchmarkIT {
+    private static final int WARMUP_DAYS = 200;
+    private static final int MEASURED_DAYS = 1000;
+    private static final int MEALS_PER_DAY = 5;
+    private static final int PRODUCTS_PER_MEAL = 8;
+
+    @Autowired
+    private DietDayRepository dietDayRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("measure insert throughput of DietDays with 40 items")
+    public void measureInsertThroughputOfDietDaysWith40Items() {
+        ProductSnapshot snapshot = ProductSnapshotTestBuilder.productSnapshot().build();
+        snapshot.setProductId(100L);
+        entityManager.persist(snapshot);
+
+        insertDays(snapshot, 0, WARMUP_DAYS);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        long start = System.nanoTime();
+        insertDays(snapshot, WARMUP_DAYS, MEASURED_DAYS);
+        long elapsed = System.nanoTime() - start;
+
+        log.info("[BENCHMARK] {} days: {} days/s, {} statements per day, {} entities inserted",
+                MEASURED_DAYS,
+                String.format("%.1f", MEASURED_DAYS / (elapsed / 1_000_000_000.0)),
+                String.format("%.1f", (double) statistics.getPrepareStatementCount() / MEASURED_DAYS),
+                statistics.getEntityInsertCount());
+    }
+
+    private void insertDays(ProductSnapshot snapshot, int from, int count) {
+        LocalDate firstDate = LocalDate.of(2100, 1, 1);
+        for (int day = from; day < from + count; day++) {
+            DietDay dietDay = new DietDay();
+            dietDay.setDate(firstDate.plusDays(day));
+            dietDay.setOwnerUsername("user");
+            for (long mealIndex = 0; mealIndex < MEALS_PER_DAY; mealIndex++) {
+                Meal meal = new Meal();
+                meal.setName("meal");
+                meal.setOrderIndex(mealIndex);
+                for (int product = 0; product < PRODUCTS_PER_MEAL; product++) {
+                    ProductQuantity quantity = new ProductQuantity();
+                    quantity.setQuantity(1.0);
+                    quantity.setProductSnapshot(snapshot);
+                    meal.addProductQuantity(quantity);
+                }
+                dietDay.addMeal(meal);
+            }
+            dietDayRepository.save(dietDay);
+            entityManager.flush();
+            entityManager.clear();
+            snapshot = entityManager.find(ProductSnapshot.class, snapshot.getProductId());
+        }
+    }
+}
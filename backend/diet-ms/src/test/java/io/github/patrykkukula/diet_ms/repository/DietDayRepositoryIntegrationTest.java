@@ -0,0 +1,239 @@
+package io.github.patrykkukula.diet_ms.repository;
+
+import io.github.patrykkukula.diet_ms.builder.ProductSnapshotTestBuilder;
+import io.github.patrykkukula.diet_ms.dto.DietDayExportDto;
+import io.github.patrykkukula.diet_ms.dto.DietDaySummaryDto;
+import io.github.patrykkukula.diet_ms.dto.MealRefDto;
+import io.github.patrykkukula.diet_ms.dto.ProductQuantityRefDto;
+import io.github.patrykkukula.diet_ms.dto.ProductUsageExportDto;
+import io.github.patrykkukula.diet_ms.model.DietDay;
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
+import io.github.patrykkukula.diet_ms.model.Meal;
+import io.github.patrykkukula.diet_ms.model.ProductQuantity;
+import io.github.patrykkukula.diet_ms.model.ProductSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class DietDayRepositoryIntegrationTest {
+    @Autowired
+    private DietDayRepository dietDayRepository;
+    @Autowired
+    private MealRepository mealRepository;
+    @Autowired
+    private ProductQuantityRepository productQuantityRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private ProductSnapshot snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        snapshot = ProductSnapshotTestBuilder.productSnapshot()
+                .calories(100)
+                .protein(10)
+                .carbs(20)
+                .fat(5)
+                .build();
+        snapshot.setProductId(100L);
+        entityManager.persist(snapshot);
+    }
+
+    @Test
+    @DisplayName("should return maintained macro totals per DietDay")
+    public void shouldReturnMaintainedMacroTotalsPerDietDay() {
+        persistDietDay(LocalDate.of(2100, 1, 2), "user", 2.0, 0.5);
+        persistDietDay(LocalDate.of(2100, 1, 1), "user", 1.0);
+        persistDietDay(LocalDate.of(2100, 1, 3), "other", 1.0);
+        persistDietDay(LocalDate.of(2100, 2, 1), "user", 1.0);
+
+        List<DietDaySummaryDto> summaries = dietDayRepository.fetchDietDaySummariesForUserForGivenDateRange(
+                LocalDate.of(2100, 1, 1), LocalDate.of(2100, 2, 1), "user");
+
+        assertEquals(2, summaries.size());
+        assertEquals(LocalDate.of(2100, 1, 1), summaries.getFirst().date());
+        assertEquals(100.0, summaries.getFirst().calories());
+        assertEquals(250.0, summaries.getLast().calories());
+        assertEquals(25.0, summaries.getLast().protein());
+        assertEquals(50.0, summaries.getLast().carbs());
+        assertEquals(12.5, summaries.getLast().fat());
+    }
+
+    @Test
+    @DisplayName("should copy DietDays with Meals and ProductQuantities to shifted dates")
+    public void shouldCopyDietDaysWithMealsAndProductQuantitiesToShiftedDates() {
+        DietDay first = persistDietDay(LocalDate.of(2100, 1, 1), "user", 2.0, 0.5);
+        Meal secondMeal = new Meal();
+        secondMeal.setName("dinner");
+        secondMeal.setOrderIndex(0L);                  // duplicated order index is renumbered in copy
+        ProductQuantity quantity = new ProductQuantity();
+        quantity.setQuantity(3.0);
+        quantity.setProductSnapshot(snapshot);
+        secondMeal.addProductQuantity(quantity);
+        first.addMeal(secondMeal);
+        entityManager.persist(secondMeal);
+        persistDietDay(LocalDate.of(2100, 1, 2), "user", 1.0);
+        persistDietDay(LocalDate.of(2100, 1, 3), "user", 1.0);
+        persistDietDay(LocalDate.of(2100, 1, 1), "other", 1.0);
+
+        LocalDate startDate = LocalDate.of(2100, 1, 1);
+        LocalDate endDate = LocalDate.of(2100, 1, 3);
+        int days = dietDayRepository.copyDietDays(startDate, endDate, 7, "user");
+        int meals = mealRepository.copyMeals(startDate, endDate, 7, "user");
+        int quantities = productQuantityRepository.copyProductQuantities(startDate, endDate, 7, "user");
+        entityManager.clear();
+
+        List<DietDay> copies = dietDayRepository.fetchDietDaysWithMealsForUserForGivenDateRange(
+                LocalDate.of(2100, 1, 8), LocalDate.of(2100, 1, 15), "user");
+
+        assertEquals(2, days);
+        assertEquals(3, meals);
+        assertEquals(4, quantities);
+        assertEquals(2, copies.size());
+        assertEquals(LocalDate.of(2100, 1, 8), copies.getFirst().getDate());
+        assertEquals(250.0, copies.getFirst().getTotals().getCalories());
+        assertEquals(2, copies.getFirst().getMeals().size());
+        assertEquals(3, copies.getFirst().getMeals().stream().mapToInt(meal -> meal.getProductQuantities().size()).sum());
+        assertEquals(1, copies.getLast().getMeals().iterator().next().getProductQuantities().size());
+    }
+
+    @Test
+    @DisplayName("should copy every DietDay once when user has several DietDays of one date")
+    public void shouldCopyEveryDietDayOnceWhenUserHasSeveralDietDaysOfOneDate() {
+        persistDietDay(LocalDate.of(2100, 1, 1), "user", 2.0);
+        persistDietDay(LocalDate.of(2100, 1, 1), "user", 1.0, 0.5);
+
+        LocalDate startDate = LocalDate.of(2100, 1, 1);
+        LocalDate endDate = LocalDate.of(2100, 1, 2);
+        int days = dietDayRepository.copyDietDays(startDate, endDate, 7, "user");
+        int meals = mealRepository.copyMeals(startDate, endDate, 7, "user");
+        int quantities = productQuantityRepository.copyProductQuantities(startDate, endDate, 7, "user");
+        entityManager.clear();
+
+        List<DietDay> copies = dietDayRepository.fetchDietDaysWithMealsForUserForGivenDateRange(
+                LocalDate.of(2100, 1, 8), LocalDate.of(2100, 1, 9), "user");
+
+        assertEquals(2, days);
+        assertEquals(2, meals);
+        assertEquals(3, quantities);
+        assertEquals(2, copies.size());
+        assertTrue(copies.stream().allMatch(copy -> copy.getMeals().size() == 1));
+        assertEquals(3, copies.stream()
+                .flatMap(copy -> copy.getMeals().stream())
+                .mapToInt(meal -> meal.getProductQuantities().size())
+                .sum());
+    }
+
+    @Test
+    @DisplayName("should tell if user has DietDay in given date range")
+    public void shouldTellIfUserHasDietDayInGivenDateRange() {
+        persistDietDay(LocalDate.of(2100, 1, 3), "user", 1.0);
+
+        assertTrue(dietDayRepository.existsForUserInGivenDateRange(LocalDate.of(2100, 1, 1), LocalDate.of(2100, 1, 8), "user"));
+        assertFalse(dietDayRepository.existsForUserInGivenDateRange(LocalDate.of(2100, 1, 4), LocalDate.of(2100, 1, 8), "user"));
+        assertFalse(dietDayRepository.existsForUserInGivenDateRange(LocalDate.of(2100, 1, 1), LocalDate.of(2100, 1, 8), "other"));
+    }
+
+    @Test
+    @DisplayName("should change ProductQuantity only for its owner and adjust totals in place")
+    public void shouldChangeProductQuantityOnlyForItsOwnerAndAdjustTotalsInPlace() {
+        DietDay dietDay = persistDietDay(LocalDate.of(2100, 1, 1), "user", 2.0, 1.0);
+        Meal meal = dietDay.getMeals().iterator().next();
+        Long quantityId = meal.getProductQuantities().getFirst().getProductQuantityId();
+        entityManager.clear();
+
+        ProductQuantityRefDto ref = productQuantityRepository.fetchOwnedProductQuantityRef(quantityId, "user").orElseThrow();
+        int otherUpdated = productQuantityRepository.updateOwnedProductQuantity(quantityId, "other", 9.0);
+        int otherDeleted = productQuantityRepository.deleteOwnedProductQuantity(quantityId, "other");
+        int updated = productQuantityRepository.updateOwnedProductQuantity(quantityId, "user", 4.0);
+        MacroTotals delta = ref.totals(4.0).minus(ref.totals(ref.quantity()));
+        mealRepository.addToTotals(ref.mealId(), delta);
+        dietDayRepository.addToTotals(ref.dietDayId(), delta);
+        entityManager.clear();
+
+        assertTrue(productQuantityRepository.fetchOwnedProductQuantityRef(quantityId, "other").isEmpty());
+        assertEquals(meal.getMealId(), ref.mealId());
+        assertEquals(dietDay.getDietDayId(), ref.dietDayId());
+        assertEquals(0, otherUpdated);
+        assertEquals(0, otherDeleted);
+        assertEquals(1, updated);
+        assertEquals(4.0, productQuantityRepository.findById(quantityId).orElseThrow().getQuantity());
+        assertEquals(500.0, mealRepository.findById(ref.mealId()).orElseThrow().getTotals().getCalories());
+        assertEquals(500.0, dietDayRepository.findById(ref.dietDayId()).orElseThrow().getTotals().getCalories());
+    }
+
+    @Test
+    @DisplayName("should remove Meal with ProductQuantities only for its owner")
+    public void shouldRemoveMealWithProductQuantitiesOnlyForItsOwner() {
+        DietDay dietDay = persistDietDay(LocalDate.of(2100, 1, 1), "user", 2.0, 1.0);
+        Long mealId = dietDay.getMeals().iterator().next().getMealId();
+        entityManager.clear();
+
+        MealRefDto ref = mealRepository.fetchOwnedMealRef(mealId, "user").orElseThrow();
+        int otherDeletedQuantities = productQuantityRepository.deleteAllForOwnedMeal(mealId, "other");
+        int otherDeleted = mealRepository.deleteOwnedMeal(mealId, "other");
+        productQuantityRepository.deleteAllForOwnedMeal(mealId, "user");
+        int deleted = mealRepository.deleteOwnedMeal(mealId, "user");
+        entityManager.clear();
+
+        assertTrue(mealRepository.fetchOwnedMealRef(mealId, "other").isEmpty());
+        assertEquals(300.0, ref.calories());
+        assertEquals(0, otherDeletedQuantities);
+        assertEquals(0, otherDeleted);
+        assertEquals(1, deleted);
+        assertTrue(mealRepository.findById(mealId).isEmpty());
+        assertTrue(productQuantityRepository.getProductQuantitiesForMeal(mealId).isEmpty());
+    }
+
+    @Test
+    @DisplayName("should export DietDays of all users ordered by owner and date in keyset pages")
+    public void shouldExportDietDaysOfAllUsersOrderedByOwnerAndDateInKeysetPages() {
+        persistDietDay(LocalDate.of(2100, 1, 2), "user", 2.0, 0.5);
+        persistDietDay(LocalDate.of(2100, 1, 1), "user", 1.0);
+        persistDietDay(LocalDate.of(2100, 1, 3), "other", 1.0);
+
+        List<DietDayExportDto> firstPage = dietDayRepository.fetchDietDaysForExportAfter("", LocalDate.EPOCH, 0L, PageRequest.of(0, 2));
+        DietDayExportDto last = firstPage.getLast();
+        List<DietDayExportDto> secondPage = dietDayRepository.fetchDietDaysForExportAfter(last.username(), last.date(), last.dietDayId(), PageRequest.of(0, 2));
+        List<ProductUsageExportDto> products = productQuantityRepository.fetchProductUsageForExport(List.of(secondPage.getFirst().dietDayId()));
+
+        assertEquals(List.of("other", "user"), firstPage.stream().map(DietDayExportDto::username).toList());
+        assertEquals(LocalDate.of(2100, 1, 1), last.date());
+        assertEquals(1, secondPage.size());
+        assertEquals(LocalDate.of(2100, 1, 2), secondPage.getFirst().date());
+        assertEquals(250.0, secondPage.getFirst().calories());
+        assertEquals(2, products.size());
+        assertEquals(100L, products.getFirst().productId());
+        assertEquals(2.5, products.stream().mapToDouble(ProductUsageExportDto::quantity).sum());
+    }
+
+    private DietDay persistDietDay(LocalDate date, String owner, Double... quantities) {
+        DietDay dietDay = new DietDay();
+        dietDay.setDate(date);
+        dietDay.setOwnerUsername(owner);
+        Meal meal = new Meal();
+        meal.setName("meal");
+        meal.setOrderIndex(0L);
+        for (Double value : quantities) {
+            ProductQuantity quantity = new ProductQuantity();
+            quantity.setQuantity(value);
+            quantity.setProductSnapshot(snapshot);
+            meal.addProductQuantity(quantity);
+            meal.addTotals(MacroTotals.of(snapshot, value));
+        }
+        dietDay.addMeal(meal);
+        entityManager.persist(dietDay);
+        entityManager.flush();
+        return dietDay;
+    }
+}
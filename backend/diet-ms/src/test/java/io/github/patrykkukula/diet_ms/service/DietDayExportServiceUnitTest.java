@@ -0,0 +1,56 @@
+package io.github.patrykkukula.diet_ms.service;
+
+import io.github.patrykkukula.diet_ms.dto.DietDayExportDto;
+import io.github.patrykkukula.diet_ms.dto.ProductUsageExportDto;
+import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
+import io.github.patrykkukula.diet_ms.repository.ProductQuantityRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DietDayExportServiceUnitTest {
+    @Mock
+    private DietDayRepository dietDayRepository;
+    @Mock
+    private ProductQuantityRepository productQuantityRepository;
+    @InjectMocks
+    private DietDayExportService dietDayExportService;
+
+    @Test
+    @DisplayName("should load next page after last exported DietDay and attach products")
+    public void shouldLoadNextPageAfterLastExportedDietDayAndAttachProducts() {
+        List<DietDayExportDto> fullPage = LongStream.rangeClosed(1, 500)
+                .mapToObj(id -> new DietDayExportDto(id, "user", LocalDate.of(2100, 1, 1), 0.0, 0.0, 0.0, 0.0))
+                .toList();
+        when(dietDayRepository.fetchDietDaysForExportAfter(eq(""), any(LocalDate.class), eq(0L), any(Pageable.class))).thenReturn(fullPage);
+        when(dietDayRepository.fetchDietDaysForExportAfter(eq("user"), eq(LocalDate.of(2100, 1, 1)), eq(500L), any(Pageable.class)))
+                .thenReturn(List.of(new DietDayExportDto(501L, "user", LocalDate.of(2100, 1, 2), 0.0, 0.0, 0.0, 0.0)));
+        when(productQuantityRepository.fetchProductUsageForExport(anyCollection()))
+                .thenReturn(List.of(new ProductUsageExportDto(1L, 100L, "product", 2.0)))
+                .thenReturn(List.of());
+
+        List<DietDayExportDto> exported = dietDayExportService.exportDietDays().toList();
+
+        assertEquals(501, exported.size());
+        assertEquals(1, exported.getFirst().products().size());
+        assertEquals(100L, exported.getFirst().products().getFirst().productId());
+        assertEquals(0, exported.getLast().products().size());
+        verify(dietDayRepository, times(2)).fetchDietDaysForExportAfter(any(), any(), any(), any(Pageable.class));
+        verify(productQuantityRepository, times(2)).fetchProductUsageForExport(anyCollection());
+    }
+}
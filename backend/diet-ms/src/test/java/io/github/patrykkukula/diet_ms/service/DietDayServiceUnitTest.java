@@ -2,12 +2,17 @@ package io.github.patrykkukula.diet_ms.service;
 
 import io.github.patrykkukula.diet_ms.assembler.DietDayAssembler;
 import io.github.patrykkukula.diet_ms.builder.*;
+import io.github.patrykkukula.diet_ms.cache.CacheUtils;
 import io.github.patrykkukula.diet_ms.constants.ProductCategory;
 import io.github.patrykkukula.diet_ms.dto.*;
 import io.github.patrykkukula.diet_ms.exception.DietDayNotFoundException;
+import io.github.patrykkukula.diet_ms.factory.OutboxEventFactory;
 import io.github.patrykkukula.diet_ms.model.DietDay;
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
 import io.github.patrykkukula.diet_ms.model.Meal;
+import io.github.patrykkukula.diet_ms.model.OutboxEvent;
 import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
+import io.github.patrykkukula.diet_ms.repository.OutboxEventRepository;
 import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -25,7 +30,9 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +45,12 @@ public class    DietDayServiceUnitTest {
     private DietDayAssembler dietDayAssembler;
     @Mock
     private AuthenticationUtils authenticationUtils;
+    @Mock
+    private CacheUtils cacheUtils;
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private OutboxEventFactory eventFactory;
     @InjectMocks
     private DietDayService dietDayService;
 
@@ -150,10 +163,14 @@ public class    DietDayServiceUnitTest {
             when(dietDayRepository.fetchDietDay(anyLong())).thenReturn(Optional.of(dietDay));
             when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
             doNothing().when(dietDayRepository).delete(any(DietDay.class));
+            OutboxEvent event = new OutboxEvent();
+            when(eventFactory.createTotalsChanged(anyString(), any(), any(MacroTotals.class), anyInt())).thenReturn(event);
 
             dietDayService.removeDietDay(1L);
 
             verify(dietDayRepository, times(1)).delete(eq(dietDay));
+            verify(eventFactory, times(1)).createTotalsChanged(eq("user"), eq(dietDay.getDate()), any(MacroTotals.class), eq(-1));
+            verify(outboxEventRepository, times(1)).save(eq(event));
         }
 
         @Test
@@ -182,11 +199,16 @@ public class    DietDayServiceUnitTest {
         public void shouldReturnAddedMealCorrectly() {
             when(dietDayRepository.findById(anyLong())).thenReturn(Optional.of(dietDay));
             when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
-            when(dietDayAssembler.addMealToDietDay(any(MealDto.class), any(DietDay.class), anyString())).thenReturn(mealDto);
+            Meal createdMeal = MealTestBuilder.meal()
+                            .name("dinner")
+                            .quantities(List.of(ProductQuantityTestBuilder.productQuantity().quantity(2.0).build()))
+                            .build();
+            when(dietDayAssembler.createMeal(any(MealDto.class), any(DietDay.class), anyString())).thenReturn(createdMeal);
 
             MealDto addedMeal = dietDayService.addMealToDietDay(1L, mealDto);
 
-            verify(dietDayAssembler, times(1)).addMealToDietDay(eq(mealDto), eq(dietDay), eq("user"));
+            verify(dietDayAssembler, times(1)).createMeal(eq(mealDto), eq(dietDay), eq("user"));
+            verify(cacheUtils, times(1)).patchDietDayCache(eq(dietDay), any());
             assertEquals("dinner", addedMeal.getName());
             assertEquals(1, addedMeal.getQuantities().size());
         }
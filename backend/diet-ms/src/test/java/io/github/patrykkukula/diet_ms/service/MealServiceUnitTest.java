@@ -2,23 +2,34 @@ package io.github.patrykkukula.diet_ms.service;
 
 import io.github.patrykkukula.diet_ms.assembler.DietDayAssembler;
 import io.github.patrykkukula.diet_ms.builder.DietDayTestBuilder;
+import io.github.patrykkukula.diet_ms.cache.CacheUtils;
 import io.github.patrykkukula.diet_ms.builder.ProductQuantityDtoTestBuilder;
+import io.github.patrykkukula.diet_ms.builder.ProductQuantityTestBuilder;
+import io.github.patrykkukula.diet_ms.builder.ProductSnapshotTestBuilder;
+import io.github.patrykkukula.diet_ms.dto.MealRefDto;
 import io.github.patrykkukula.diet_ms.dto.ProductQuantityDto;
 import io.github.patrykkukula.diet_ms.exception.MealNotFoundException;
+import io.github.patrykkukula.diet_ms.factory.OutboxEventFactory;
 import io.github.patrykkukula.diet_ms.model.DietDay;
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
 import io.github.patrykkukula.diet_ms.model.Meal;
+import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
 import io.github.patrykkukula.diet_ms.repository.MealRepository;
+import io.github.patrykkukula.diet_ms.repository.OutboxEventRepository;
+import io.github.patrykkukula.diet_ms.repository.ProductQuantityRepository;
 import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
 
+import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
@@ -34,7 +45,17 @@ public class    MealServiceUnitTest {
     @Mock
     private AuthenticationUtils authenticationUtils;
     @Mock
+    private ProductQuantityRepository productQuantityRepository;
+    @Mock
+    private DietDayRepository dietDayRepository;
+    @Mock
     private DietDayAssembler dietDayAssembler;
+    @Mock
+    private CacheUtils cacheUtils;
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private OutboxEventFactory eventFactory;
     @InjectMocks
     private MealService mealService;
 
@@ -63,20 +84,29 @@ public class    MealServiceUnitTest {
     @DisplayName("when removeMeal")
     class whenRemoveMeal {
         @Test
-        @DisplayName("should remove Meal correctly")
-        public void shouldRemoveMealCorrectly() {
-            when(mealRepository.findById(anyLong())).thenReturn(Optional.of(meal));
+        @DisplayName("should remove Meal and subtract its totals from DietDay")
+        public void shouldRemoveMealAndSubtractItsTotalsFromDietDay() {
             when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(mealRepository.fetchOwnedMealRef(1L, "user")).thenReturn(Optional.of(new MealRefDto(1L, 2L, LocalDate.of(2100, 1, 1), 100.0, 10.0, 20.0, 5.0)));
+            when(mealRepository.deleteOwnedMeal(1L, "user")).thenReturn(1);
 
             mealService.removeMeal(1L);
 
-            assertEquals(0, dietDay.getMeals().size());
+            ArgumentCaptor<MacroTotals> delta = ArgumentCaptor.forClass(MacroTotals.class);
+            verify(productQuantityRepository).deleteAllForOwnedMeal(1L, "user");
+            verify(dietDayRepository).addToTotals(eq(2L), delta.capture());
+            verify(cacheUtils).patchDietDayCache(eq(2L), any());
+            verify(eventFactory).createTotalsChanged(eq("user"), eq(LocalDate.of(2100, 1, 1)), any(MacroTotals.class), eq(0));
+            assertEquals(-100.0, delta.getValue().getCalories());
+            assertEquals(-5.0, delta.getValue().getFat());
         }
 
         @Test
         @DisplayName("should throw MealNotFoundException when Meal not found")
         public void shouldThrowMealNotFoundExceptionWhenNotFound() {
-            when(mealRepository.findById(anyLong())).thenReturn(Optional.empty());
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(mealRepository.fetchOwnedMealRef(1L, "user")).thenReturn(Optional.empty());
+            when(mealRepository.existsById(1L)).thenReturn(false);
 
             assertThrows(MealNotFoundException.class, () -> mealService.removeMeal(1L));
         }
@@ -84,10 +114,24 @@ public class    MealServiceUnitTest {
         @Test
         @DisplayName("should throw AccessDeniedException when User is not owner")
         public void shouldThrowAccessDeniedExceptionWhenUserIsNotOwner() {
-            when(mealRepository.findById(anyLong())).thenReturn(Optional.of(meal));
             when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("bad");
+            when(mealRepository.fetchOwnedMealRef(1L, "bad")).thenReturn(Optional.empty());
+            when(mealRepository.existsById(1L)).thenReturn(true);
 
             assertThrows(AccessDeniedException.class, () -> mealService.removeMeal(1L));
+            verify(mealRepository, never()).deleteOwnedMeal(anyLong(), anyString());
+        }
+
+        @Test
+        @DisplayName("should throw MealNotFoundException when Meal removed concurrently")
+        public void shouldThrowMealNotFoundExceptionWhenMealRemovedConcurrently() {
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(mealRepository.fetchOwnedMealRef(1L, "user")).thenReturn(Optional.of(new MealRefDto(1L, 2L, LocalDate.of(2100, 1, 1), 100.0, 10.0, 20.0, 5.0)));
+            when(mealRepository.deleteOwnedMeal(1L, "user")).thenReturn(0);
+            when(mealRepository.existsById(1L)).thenReturn(false);
+
+            assertThrows(MealNotFoundException.class, () -> mealService.removeMeal(1L));
+            verify(dietDayRepository, never()).addToTotals(anyLong(), any());
         }
     }
 
@@ -97,13 +141,15 @@ public class    MealServiceUnitTest {
         @Test
         @DisplayName("should call DietDayAssembler correctly")
         public void shouldCallDietDayAssemblerCorrectly() {
-            when(mealRepository.findById(anyLong())).thenReturn(Optional.of(meal));
+            when(mealRepository.findByIdWithDietDay(anyLong())).thenReturn(Optional.of(meal));
             when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
-            when(dietDayAssembler.addProductQuantityToMeal(any(ProductQuantityDto.class), any(Meal.class), anyString())).thenReturn(dto);
+            when(dietDayAssembler.createProductQuantity(any(ProductQuantityDto.class), any(Meal.class), anyString()))
+                    .thenReturn(ProductQuantityTestBuilder.productQuantity().quantity(2.0)
+                            .snapshot(ProductSnapshotTestBuilder.productSnapshot().build()).build());
 
             ProductQuantityDto returned = mealService.addProductQuantityToMeal(1L, dto);
 
-            verify(dietDayAssembler, times(1)).addProductQuantityToMeal(eq(dto), eq(meal), eq("user"));
+            verify(dietDayAssembler, times(1)).createProductQuantity(eq(dto), eq(meal), eq("user"));
             assertEquals(2.0, returned.getQuantity());
             assertEquals(1L, returned.getProductId());
         }
@@ -111,18 +157,18 @@ public class    MealServiceUnitTest {
         @Test
         @DisplayName("should throw MealNotFoundException when Meal not found")
         public void shouldThrowMealNotFoundExceptionWhenMealNotFound() {
-            when(mealRepository.findById(anyLong())).thenReturn(Optional.empty());
+            when(mealRepository.findByIdWithDietDay(anyLong())).thenReturn(Optional.empty());
 
-            assertThrows(MealNotFoundException.class, () -> mealService.removeMeal(1L));
+            assertThrows(MealNotFoundException.class, () -> mealService.addProductQuantityToMeal(1L, dto));
         }
 
         @Test
         @DisplayName("should throw AccessDeniedException when User is not owner")
         public void shouldThrowAccessDeniedExceptionWhenUserIsNotOwner() {
-            when(mealRepository.findById(anyLong())).thenReturn(Optional.of(meal));
+            when(mealRepository.findByIdWithDietDay(anyLong())).thenReturn(Optional.of(meal));
             when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("bad");
 
-            assertThrows(AccessDeniedException.class, () -> mealService.removeMeal(1L));
+            assertThrows(AccessDeniedException.class, () -> mealService.addProductQuantityToMeal(1L, dto));
         }
     }
 }
@@ -1,56 +1,58 @@
 package io.github.patrykkukula.diet_ms.service;
 
-import io.github.patrykkukula.diet_ms.builder.DietDayTestBuilder;
-import io.github.patrykkukula.diet_ms.builder.MealTestBuilder;
-import io.github.patrykkukula.diet_ms.builder.ProductQuantityTestBuilder;
+import io.github.patrykkukula.diet_ms.cache.CacheUtils;
+import io.github.patrykkukula.diet_ms.constants.ProductCategory;
 import io.github.patrykkukula.diet_ms.dto.ProductQuantityDto;
 import io.github.patrykkukula.diet_ms.dto.ProductQuantityDtoUpdate;
+import io.github.patrykkukula.diet_ms.dto.ProductQuantityRefDto;
 import io.github.patrykkukula.diet_ms.exception.ProductQuantityNotFoundException;
-import io.github.patrykkukula.diet_ms.model.DietDay;
-import io.github.patrykkukula.diet_ms.model.Meal;
-import io.github.patrykkukula.diet_ms.model.ProductQuantity;
+import io.github.patrykkukula.diet_ms.factory.OutboxEventFactory;
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
+import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
+import io.github.patrykkukula.diet_ms.repository.MealRepository;
+import io.github.patrykkukula.diet_ms.repository.OutboxEventRepository;
 import io.github.patrykkukula.diet_ms.repository.ProductQuantityRepository;
 import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
 
+import java.time.LocalDate;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.anyLong;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class ProductQuantityServiceUnitTest {
     @Mock
     private ProductQuantityRepository productQuantityRepository;
     @Mock
+    private MealRepository mealRepository;
+    @Mock
+    private DietDayRepository dietDayRepository;
+    @Mock
     private AuthenticationUtils authenticationUtils;
+    @Mock
+    private CacheUtils cacheUtils;
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private OutboxEventFactory eventFactory;
     @InjectMocks
     private ProductQuantityService productQuantityService;
 
-    private ProductQuantity productQuantity;
-    private Meal meal;
-    private DietDay dietDay;
+    private ProductQuantityRefDto productQuantityRef;
     private ProductQuantityDtoUpdate dto = new ProductQuantityDtoUpdate();
 
     @BeforeEach
     public void setUp(){
-        dietDay = DietDayTestBuilder.dietDay()
-                        .owner("user")
-                        .build();
-        meal = MealTestBuilder.meal()
-                        .dietDay(dietDay)
-                        .build();
-        productQuantity = ProductQuantityTestBuilder.productQuantity()
-                        .quantity(2.0)
-                        .meal(meal)
-                        .build();
-        meal.getProductQuantities().add(productQuantity);
+        productQuantityRef = new ProductQuantityRefDto(1L, 2L, 3L, LocalDate.of(2100, 1, 1), 4L, 2.0, "product",
+                ProductCategory.OTHER, 100, 10, 20, 5);
         dto.setQuantity(5.0);
     }
 
@@ -58,29 +60,53 @@ public class ProductQuantityServiceUnitTest {
     @DisplayName("when removeProductQuantity")
     class whenRemoveProductQuantity {
         @Test
-        @DisplayName("should remove ProductQuantity correctly")
-        public void shouldRemoveProductQuantityCorrectly() {
-            when(productQuantityRepository.findById(anyLong())).thenReturn(Optional.of(productQuantity));
+        @DisplayName("should remove ProductQuantity and subtract its macros from totals")
+        public void shouldRemoveProductQuantityAndSubtractItsMacrosFromTotals() {
             when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(productQuantityRepository.fetchOwnedProductQuantityRef(1L, "user")).thenReturn(Optional.of(productQuantityRef));
+            when(productQuantityRepository.deleteOwnedProductQuantity(1L, "user")).thenReturn(1);
 
             productQuantityService.removeProductQuantity(1L);
 
-            assertEquals(0, meal.getProductQuantities().size());
+            ArgumentCaptor<MacroTotals> delta = ArgumentCaptor.forClass(MacroTotals.class);
+            verify(mealRepository).addToTotals(eq(2L), delta.capture());
+            verify(dietDayRepository).addToTotals(eq(3L), any(MacroTotals.class));
+            verify(cacheUtils).patchDietDayCache(eq(3L), any());
+            verify(eventFactory).createTotalsChanged(eq("user"), eq(LocalDate.of(2100, 1, 1)), any(MacroTotals.class), eq(0));
+            assertEquals(-200.0, delta.getValue().getCalories());
+            assertEquals(-10.0, delta.getValue().getFat());
         }
 
         @Test
         @DisplayName("should throw ProductQuantityNotFoundException when ProductQuantity not found")
         public void shouldThrowProductQuantityExceptionWhenProductQuantityNotFound() {
-            when(productQuantityRepository.findById(anyLong())).thenReturn(Optional.empty());
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(productQuantityRepository.fetchOwnedProductQuantityRef(1L, "user")).thenReturn(Optional.empty());
+            when(productQuantityRepository.existsById(1L)).thenReturn(false);
 
             assertThrows(ProductQuantityNotFoundException.class, () -> productQuantityService.removeProductQuantity(1L));
         }
+
         @Test
         @DisplayName("should throw AccessDeniedException when User is not owner")
         public void shouldThrowAccessDeniedExceptionWhenUserIsNotOwner() {
-            when(productQuantityRepository.findById(anyLong())).thenReturn(Optional.of(productQuantity));
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("bad");
+            when(productQuantityRepository.fetchOwnedProductQuantityRef(1L, "bad")).thenReturn(Optional.empty());
+            when(productQuantityRepository.existsById(1L)).thenReturn(true);
 
             assertThrows(AccessDeniedException.class, () -> productQuantityService.removeProductQuantity(1L));
+            verify(productQuantityRepository, never()).deleteOwnedProductQuantity(anyLong(), anyString());
+        }
+
+        @Test
+        @DisplayName("should throw ProductQuantityNotFoundException when ProductQuantity removed concurrently")
+        public void shouldThrowProductQuantityNotFoundExceptionWhenRemovedConcurrently() {
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(productQuantityRepository.fetchOwnedProductQuantityRef(1L, "user")).thenReturn(Optional.of(productQuantityRef));
+            when(productQuantityRepository.deleteOwnedProductQuantity(1L, "user")).thenReturn(0);
+
+            assertThrows(ProductQuantityNotFoundException.class, () -> productQuantityService.removeProductQuantity(1L));
+            verify(mealRepository, never()).addToTotals(anyLong(), any());
         }
     }
 
@@ -88,20 +114,28 @@ public class ProductQuantityServiceUnitTest {
     @DisplayName("when updateProductQuantity")
     class whenUpdateProductQuantity {
         @Test
-        @DisplayName("should update ProductQuantity correctly")
-        public void shouldUpdateProductQuantityCorrectly() {
-            when(productQuantityRepository.findById(anyLong())).thenReturn(Optional.of(productQuantity));
+        @DisplayName("should update ProductQuantity and add macros difference to totals")
+        public void shouldUpdateProductQuantityAndAddMacrosDifferenceToTotals() {
             when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(productQuantityRepository.fetchOwnedProductQuantityRef(1L, "user")).thenReturn(Optional.of(productQuantityRef));
+            when(productQuantityRepository.updateOwnedProductQuantity(1L, "user", 5.0)).thenReturn(1);
 
             ProductQuantityDto updateProduct = productQuantityService.updateProductQuantity(1L, dto);
 
+            ArgumentCaptor<MacroTotals> delta = ArgumentCaptor.forClass(MacroTotals.class);
+            verify(dietDayRepository).addToTotals(eq(3L), delta.capture());
+            verify(mealRepository).addToTotals(eq(2L), any(MacroTotals.class));
             assertEquals(5.0, updateProduct.getQuantity());
+            assertEquals(300.0, delta.getValue().getCalories());
+            assertEquals(30.0, delta.getValue().getProtein());
         }
 
         @Test
         @DisplayName("should throw ProductQuantityNotFoundException when ProductQuantity not found")
         public void shouldThrowProductQuantityExceptionWhenProductQuantityNotFound() {
-            when(productQuantityRepository.findById(anyLong())).thenReturn(Optional.empty());
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(productQuantityRepository.fetchOwnedProductQuantityRef(1L, "user")).thenReturn(Optional.empty());
+            when(productQuantityRepository.existsById(1L)).thenReturn(false);
 
             assertThrows(ProductQuantityNotFoundException.class, () -> productQuantityService.updateProductQuantity(1L, dto));
         }
@@ -109,9 +143,12 @@ public class ProductQuantityServiceUnitTest {
         @Test
         @DisplayName("should throw AccessDeniedException when User is not owner")
         public void shouldThrowAccessDeniedExceptionWhenUserIsNotOwner() {
-            when(productQuantityRepository.findById(anyLong())).thenReturn(Optional.of(productQuantity));
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("bad");
+            when(productQuantityRepository.fetchOwnedProductQuantityRef(1L, "bad")).thenReturn(Optional.empty());
+            when(productQuantityRepository.existsById(1L)).thenReturn(true);
 
             assertThrows(AccessDeniedException.class, () -> productQuantityService.updateProductQuantity(1L, dto));
+            verify(productQuantityRepository, never()).updateOwnedProductQuantity(anyLong(), anyString(), anyDouble());
         }
     }
 }
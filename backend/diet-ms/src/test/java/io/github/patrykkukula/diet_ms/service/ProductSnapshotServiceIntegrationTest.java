@@ -1,27 +1,42 @@
 package io.github.patrykkukula.diet_ms.service;
 
 import io.github.patrykkukula.diet_ms.builder.ProductSnapshotTestBuilder;
+import io.github.patrykkukula.diet_ms.cache.CacheUtils;
+import io.github.patrykkukula.diet_ms.cache.DietCacheIndex;
 import io.github.patrykkukula.diet_ms.constants.ProductCategory;
+import io.github.patrykkukula.diet_ms.model.DietDay;
+import io.github.patrykkukula.diet_ms.model.MacroTotals;
+import io.github.patrykkukula.diet_ms.model.Meal;
+import io.github.patrykkukula.diet_ms.model.ProductQuantity;
 import io.github.patrykkukula.diet_ms.model.ProductSnapshot;
+import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
 import io.github.patrykkukula.diet_ms.repository.ProductSnapshotRepository;
+import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductCreatedEvent;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductUpdatedEvent;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
 import org.springframework.context.annotation.Import;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
-@Import(ProductSnapshotService.class)
+@Import({ProductSnapshotService.class, CacheUtils.class, DietCacheIndex.class})
 public class ProductSnapshotServiceIntegrationTest {
     @Autowired
     private ProductSnapshotRepository repository;
     @Autowired
     private ProductSnapshotService service;
+    @Autowired
+    private DietDayRepository dietDayRepository;
+    @Autowired
+    private TestEntityManager entityManager;
 
     @Test
     @DisplayName("should update ProductSnapshot correctly")
@@ -43,7 +58,7 @@ public class ProductSnapshotServiceIntegrationTest {
                 "user"
         );
 
-        service.updateProductSnapshot(event);
+        service.updateProductSnapshots(List.of(event));
 
         repository.flush();
 
@@ -52,4 +67,98 @@ public class ProductSnapshotServiceIntegrationTest {
         assertTrue(updatedSnapshot.isPresent());
         assertEquals("updated product", updatedSnapshot.get().getName());
     }
+
+    @Test
+    @DisplayName("should recompute Meal and DietDay totals when ProductSnapshot updated")
+    public void shouldRecomputeMealAndDietDayTotalsWhenProductSnapshotUpdated() {
+        ProductSnapshot snapshot = ProductSnapshotTestBuilder.productSnapshot()
+                .calories(100)
+                .build();
+        snapshot.setProductId(100L);
+        entityManager.persist(snapshot);
+
+        DietDay dietDay = new DietDay();
+        dietDay.setDate(LocalDate.of(2100, 1, 1));
+        dietDay.setOwnerUsername("user");
+        Meal meal = new Meal();
+        meal.setName("meal");
+        meal.setOrderIndex(0L);
+        ProductQuantity quantity = new ProductQuantity();
+        quantity.setQuantity(2.0);
+        quantity.setProductSnapshot(snapshot);
+        meal.addProductQuantity(quantity);
+        meal.addTotals(MacroTotals.of(snapshot, 2.0));
+        dietDay.addMeal(meal);
+        entityManager.persist(dietDay);
+        entityManager.flush();
+
+        service.updateProductSnapshots(List.of(new ProductUpdatedEvent(
+                100L, "updated product", ProductCategory.MEAT.name(), 150, 10, 20, 5, "user")));
+
+        entityManager.clear();
+        DietDay updatedDietDay = dietDayRepository.findById(dietDay.getDietDayId()).orElseThrow();
+        Meal updatedMeal = entityManager.find(Meal.class, meal.getMealId());
+
+        assertEquals(300.0, updatedMeal.getTotals().getCalories());
+        assertEquals(300.0, updatedDietDay.getTotals().getCalories());
+        assertEquals(20.0, updatedDietDay.getTotals().getProtein());
+    }
+
+    @Test
+    @DisplayName("should apply batch with duplicates, late create and update before create")
+    public void shouldApplyBatchWithDuplicatesLateCreateAndUpdateBeforeCreate() {
+        ProductCreatedEvent created = new ProductCreatedEvent(200L, "product", ProductCategory.MEAT.name(), 100, 10, 10, 10, "user");
+
+        service.addProductSnapshots(List.of(created, created));
+        service.updateProductSnapshots(List.of(
+                new ProductUpdatedEvent(200L, "first update", ProductCategory.MEAT.name(), 110, 10, 10, 10, "user"),
+                new ProductUpdatedEvent(200L, "second update", ProductCategory.MEAT.name(), 120, 10, 10, 10, "user"),
+                new ProductUpdatedEvent(201L, "not created yet", ProductCategory.FISH.name(), 50, 5, 5, 5, "user")));
+        service.addProductSnapshots(List.of(
+                created,
+                new ProductCreatedEvent(201L, "late create", ProductCategory.FISH.name(), 40, 5, 5, 5, "user")));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals("second update", repository.findById(200L).orElseThrow().getName());
+        assertEquals(120, repository.findById(200L).orElseThrow().getCalories());
+        assertEquals("not created yet", repository.findById(201L).orElseThrow().getName());
+
+        service.deleteProductSnapshots(List.of(200L, 200L, 999L));
+        entityManager.clear();
+
+        assertTrue(repository.findById(200L).isEmpty());
+        assertTrue(repository.findById(201L).isPresent());
+    }
+
+    @Test
+    @DisplayName("should delete unreferenced ProductSnapshots and keep ProductSnapshots used in Meals")
+    public void shouldDeleteUnreferencedProductSnapshotsAndKeepProductSnapshotsUsedInMeals() {
+        ProductSnapshot used = ProductSnapshotTestBuilder.productSnapshot().build();
+        used.setProductId(300L);
+        ProductSnapshot unused = ProductSnapshotTestBuilder.productSnapshot().build();
+        unused.setProductId(301L);
+        entityManager.persist(used);
+        entityManager.persist(unused);
+
+        DietDay dietDay = new DietDay();
+        dietDay.setDate(LocalDate.of(2100, 1, 1));
+        dietDay.setOwnerUsername("user");
+        Meal meal = new Meal();
+        meal.setName("meal");
+        meal.setOrderIndex(0L);
+        ProductQuantity quantity = new ProductQuantity();
+        quantity.setQuantity(1.0);
+        quantity.setProductSnapshot(used);
+        meal.addProductQuantity(quantity);
+        dietDay.addMeal(meal);
+        entityManager.persist(dietDay);
+        entityManager.flush();
+
+        service.deleteProductSnapshots(List.of(300L, 301L));
+        entityManager.clear();
+
+        assertTrue(repository.findById(300L).isPresent());
+        assertTrue(repository.findById(301L).isEmpty());
+    }
 }
@@ -2,12 +2,14 @@ package io.github.patrykkukula.diet_ms.service;
 
 import io.github.patrykkukula.diet_ms.builder.ProductQuantityTestBuilder;
 import io.github.patrykkukula.diet_ms.builder.ProductSnapshotTestBuilder;
+import io.github.patrykkukula.diet_ms.cache.CacheUtils;
 import io.github.patrykkukula.diet_ms.constants.ProductCategory;
 import io.github.patrykkukula.diet_ms.dto.ProductDtoRead;
-import io.github.patrykkukula.diet_ms.exception.ProductSnapshotNotFoundException;
 import io.github.patrykkukula.diet_ms.model.Meal;
 import io.github.patrykkukula.diet_ms.model.ProductQuantity;
 import io.github.patrykkukula.diet_ms.model.ProductSnapshot;
+import io.github.patrykkukula.diet_ms.repository.DietDayRepository;
+import io.github.patrykkukula.diet_ms.repository.MealRepository;
 import io.github.patrykkukula.diet_ms.repository.ProductSnapshotRepository;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductCreatedEvent;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductUpdatedEvent;
@@ -21,16 +23,22 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class ProductSnapshotServiceUnitTest {
     @Mock
     private ProductSnapshotRepository productSnapshotRepository;
+    @Mock
+    private MealRepository mealRepository;
+    @Mock
+    private DietDayRepository dietDayRepository;
+    @Mock
+    private CacheUtils cacheUtils;
     @InjectMocks
     private ProductSnapshotService productSnapshotService;
 
@@ -78,34 +86,84 @@ public class ProductSnapshotServiceUnitTest {
     }
 
     @Test
-    @DisplayName("should add ProductSnapshot correctly")
-    public void shouldAddProductSnapshotCorrectly() {
-        ArgumentCaptor<ProductSnapshot> captor = ArgumentCaptor.forClass(ProductSnapshot.class);
-        productSnapshotService.addProductSnapshot(productCreatedEvent);
+    @DisplayName("should add ProductSnapshots correctly")
+    public void shouldAddProductSnapshotsCorrectly() {
+        ArgumentCaptor<List<ProductSnapshot>> captor = ArgumentCaptor.forClass(List.class);
+        when(productSnapshotRepository.findAllById(any())).thenReturn(List.of());
 
-        verify(productSnapshotRepository).save(captor.capture());
+        productSnapshotService.addProductSnapshots(List.of(productCreatedEvent, productCreatedEvent));
 
-        ProductSnapshot value = captor.getValue();
+        verify(productSnapshotRepository).saveAll(captor.capture());
 
-        assertEquals("product", value.getName());
-        assertEquals(ProductCategory.FISH, value.getProductCategory());
+        List<ProductSnapshot> value = captor.getValue();
+
+        assertEquals(1, value.size());
+        assertEquals("product", value.getFirst().getName());
+        assertEquals(ProductCategory.FISH, value.getFirst().getProductCategory());
+        assertTrue(value.getFirst().isNew());
     }
 
     @Test
-    @DisplayName("should delete ProductSnapshot correctly")
-    public void shouldDeleteProductSnapshotCorrectly() {
-        doNothing().when(productSnapshotRepository).deleteById(anyLong());
+    @DisplayName("should skip create when ProductSnapshot already exists")
+    public void shouldSkipCreateWhenProductSnapshotAlreadyExists() {
+        productSnapshot.setProductId(1L);
+        when(productSnapshotRepository.findAllById(any())).thenReturn(List.of(productSnapshot));
 
-        productSnapshotService.deleteProductSnapshot(1L);
+        productSnapshotService.addProductSnapshots(List.of(productCreatedEvent));
 
-        verify(productSnapshotRepository, times(1)).deleteById(eq(1L));
+        verify(productSnapshotRepository).saveAll(eq(List.of()));
+        assertEquals("snapshot", productSnapshot.getName());
     }
 
     @Test
-    @DisplayName("should throw ProductSnapshotNotFoundExceptionWhenUpdateProductSnapshotAndProductNotFound")
-    public void shouldThrowProductSnapshotNotFoundExceptionWhenUpdateProductSnapshotAndProductNotFound() {
-        when(productSnapshotRepository.findById(anyLong())).thenReturn(Optional.empty());
+    @DisplayName("should delete ProductSnapshots correctly")
+    public void shouldDeleteProductSnapshotsCorrectly() {
+        productSnapshotService.deleteProductSnapshots(List.of(1L, 1L));
+
+        verify(productSnapshotRepository, times(1)).deleteUnreferencedByIdIn(eq(Set.of(1L)));
+        verify(cacheUtils, times(1)).evictProductCaches(eq(1L));
+    }
+
+    @Test
+    @DisplayName("should recompute Meal and DietDay totals when update ProductSnapshot macros")
+    public void shouldRecomputeMealAndDietDayTotalsWhenUpdateProductSnapshotMacros() {
+        productSnapshot.setProductId(1L);
+        when(productSnapshotRepository.findAllById(any())).thenReturn(List.of(productSnapshot));
+
+        productSnapshotService.updateProductSnapshots(List.of(productUpdatedEvent));
+
+        assertEquals("updated product", productSnapshot.getName());
+        verify(mealRepository, times(1)).recomputeTotalsForMealsWithProducts(eq(Set.of(1L)));
+        verify(dietDayRepository, times(1)).recomputeTotalsForDietDaysWithProducts(eq(Set.of(1L)));
+        verify(cacheUtils, times(1)).evictProductCaches(eq(1L));
+    }
+
+    @Test
+    @DisplayName("should not recompute totals when only name of ProductSnapshot changed")
+    public void shouldNotRecomputeTotalsWhenOnlyNameOfProductSnapshotChanged() {
+        productSnapshot.setProductId(1L);
+        productSnapshot.setCalories(100);
+        productSnapshot.setProtein(100);
+        productSnapshot.setCarbs(100);
+        productSnapshot.setFat(100);
+        when(productSnapshotRepository.findAllById(any())).thenReturn(List.of(productSnapshot));
+
+        productSnapshotService.updateProductSnapshots(List.of(productUpdatedEvent));
+
+        verify(mealRepository, never()).recomputeTotalsForMealsWithProducts(any());
+        verify(cacheUtils, times(1)).evictProductCaches(eq(1L));
+    }
+
+    @Test
+    @DisplayName("should create ProductSnapshot when update received before create")
+    public void shouldCreateProductSnapshotWhenUpdateReceivedBeforeCreate() {
+        ArgumentCaptor<List<ProductSnapshot>> captor = ArgumentCaptor.forClass(List.class);
+        when(productSnapshotRepository.findAllById(any())).thenReturn(List.of());
+
+        productSnapshotService.updateProductSnapshots(List.of(productUpdatedEvent));
 
-        assertThrows(ProductSnapshotNotFoundException.class, () ->productSnapshotService.updateProductSnapshot(productUpdatedEvent));
+        verify(productSnapshotRepository).saveAll(captor.capture());
+        assertEquals("updated product", captor.getValue().getFirst().getName());
+        verify(mealRepository, never()).recomputeTotalsForMealsWithProducts(any());
     }
 }
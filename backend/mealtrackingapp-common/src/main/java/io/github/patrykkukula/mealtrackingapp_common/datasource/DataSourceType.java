@@ -0,0 +1,5 @@
+package io.github.patrykkukula.mealtrackingapp_common.datasource;
+
+public enum DataSourceType {
+    PRIMARY, REPLICA
+}
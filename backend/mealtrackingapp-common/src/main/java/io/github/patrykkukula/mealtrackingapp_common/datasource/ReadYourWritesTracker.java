@@ -0,0 +1,29 @@
+package io.github.patrykkukula.mealtrackingapp_common.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Remembers users who recently wrote to primary. Their reads stay on primary for given window, so they see their
+ * own writes even if replica has not replayed them yet
+ */
+public class ReadYourWritesTracker {
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesTracker(Duration window) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void recordWrite(String username) {
+        recentWriters.put(username, Boolean.TRUE);
+    }
+
+    public boolean recentlyWrote(String username) {
+        return recentWriters.getIfPresent(username) != null;
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.patrykkukula.mealtrackingapp_common.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.unit.DataSize;
+
+import javax.sql.DataSource;
+
+/**
+ * Periodically measures how far replica is behind primary as bytes of WAL written on primary and not replayed
+ * by replica yet. Replica is used only while it is at most given maximum behind, unreachable replica or failed
+ * measurement counts as lagging. Unlike time of last replayed transaction, replayed position does not fall behind
+ * while primary is idle
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final String primaryLsnQuery;
+    private final String lagQuery;
+    private final DataSize maxLag;
+    private volatile boolean replicaAvailable = false;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, String primaryLsnQuery, String lagQuery, DataSize maxLag) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.primaryLsnQuery = primaryLsnQuery;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+    }
+
+    // position of primary is read first, so replica replaying further in the meantime only lowers measured lag
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval:5000}")
+    public void checkLag() {
+        boolean available;
+        try {
+            String primaryLsn = primary.queryForObject(primaryLsnQuery, String.class);
+            Long lagBytes = replica.queryForObject(lagQuery, Long.class, primaryLsn);
+            available = lagBytes != null && lagBytes <= maxLag.toBytes();
+            if (!available) {
+                log.warn("[REPLICA] lag {} bytes exceeds maximum {}, reads routed to primary", lagBytes, maxLag);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("[REPLICA] lag check failed, reads routed to primary: {}", ex.getMessage());
+            available = false;
+        }
+        if (available && !replicaAvailable) {
+            log.info("[REPLICA] lag within {}, reads routed to replica", maxLag);
+        }
+        replicaAvailable = available;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.patrykkukula.mealtrackingapp_common.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes connections of read-only transactions to replica and everything else to primary. Reads fall back to primary
+ * when replica lags behind or when authenticated user wrote within read-your-writes window.
+ * Must be wrapped in LazyConnectionDataSourceProxy - connection is then obtained on first statement, after
+ * read-only flag of transaction is set
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWritesTracker writesTracker;
+
+    public ReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor, ReadYourWritesTracker writesTracker) {
+        this.lagMonitor = lagMonitor;
+        this.writesTracker = writesTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String username = currentUsername();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (username != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                writesTracker.recordWrite(username);
+            }
+            return DataSourceType.PRIMARY;
+        }
+        if (!lagMonitor.isReplicaAvailable() || (username != null && writesTracker.recentlyWrote(username))) {
+            return DataSourceType.PRIMARY;
+        }
+        return DataSourceType.REPLICA;
+    }
+
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.patrykkukula.mealtrackingapp_common.events;
+
+/**
+ * Message headers identifying event sent from outbox. Producer and sequence (outbox id) let consumers drop
+ * redelivered events without database work, event id stays the same across outbox retries
+ */
+public final class EventHeaders {
+    public static final String EVENT_ID = "event-id";
+    public static final String EVENT_SEQUENCE = "event-sequence";
+    public static final String EVENT_PRODUCER = "event-producer";
+
+    private EventHeaders() {}
+}
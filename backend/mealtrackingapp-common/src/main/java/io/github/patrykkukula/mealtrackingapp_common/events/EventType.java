@@ -1,5 +1,8 @@
 package io.github.patrykkukula.mealtrackingapp_common.events;
 
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayLoggedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayTotalsChangedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.MealLoggedEvent;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.*;
 import jakarta.annotation.Nullable;
 import lombok.Getter;
@@ -15,7 +18,10 @@ public enum EventType {
     PRODUCT_UPDATED_IN_MEAL("product.updated.in.meal", ProductUpdatedInMealEvent.class),
     PRODUCT_ADDED("product.added", ProductCreatedEvent.class),
     PRODUCT_UPDATED("product.updated", ProductUpdatedEvent.class),
-    PRODUCT_DELETED("product.deleted", ProductDeletedEvent.class);
+    PRODUCT_DELETED("product.deleted", ProductDeletedEvent.class),
+    MEAL_LOGGED("meal.logged", MealLoggedEvent.class),
+    DIET_DAY_LOGGED("diet.day.logged", DietDayLoggedEvent.class),
+    DIET_DAY_TOTALS_CHANGED("diet.day.totals.changed", DietDayTotalsChangedEvent.class);
 
     private final String routingKey;
     private final Class<? extends BasicProductEvent> eventClass;
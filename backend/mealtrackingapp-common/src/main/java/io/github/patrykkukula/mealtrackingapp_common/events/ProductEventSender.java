@@ -3,9 +3,13 @@ package io.github.patrykkukula.mealtrackingapp_common.events;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.BasicProductEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 
+import java.util.UUID;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
@@ -13,10 +17,26 @@ public class ProductEventSender {
     private final StreamBridge streamBridge;
     private final EventBindingConfig  eventBindingConfig;
 
+    @Value("${spring.application.name}")
+    private String producer;
+
     public void sendEvent(BasicProductEvent event) {
-        String binding = eventBindingConfig.getBinding(event.routingKey());
+        send(event.routingKey(), event);
+    }
+
+    // send event with outbox id and sequence in headers, so consumers can drop duplicates
+    public void sendEvent(BasicProductEvent event, UUID eventId, long sequence) {
+        send(event.routingKey(), MessageBuilder.withPayload(event)
+                .setHeader(EventHeaders.EVENT_ID, eventId.toString())
+                .setHeader(EventHeaders.EVENT_SEQUENCE, sequence)
+                .setHeader(EventHeaders.EVENT_PRODUCER, producer)
+                .build());
+    }
+
+    private void send(String routingKey, Object message) {
+        String binding = eventBindingConfig.getBinding(routingKey);
 
-        boolean send = streamBridge.send(binding, event);
+        boolean send = streamBridge.send(binding, message);
 
         if (!send) {
             throw new RuntimeException("Failed to send event");
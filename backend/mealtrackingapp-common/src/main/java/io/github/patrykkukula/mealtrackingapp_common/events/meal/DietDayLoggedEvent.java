@@ -0,0 +1,29 @@
+package io.github.patrykkukula.mealtrackingapp_common.events.meal;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.product.BasicProductEvent;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Single event for all Meals and products of created DietDay, replaces ProductAddedToMealEvent per product.
+ * Totals are the whole DietDay, null in events of producers publishing DietDayTotalsChangedEvent separately
+ */
+public record DietDayLoggedEvent(
+        String username,
+        LocalDate date,
+        List<LoggedMeal> meals,
+        TotalsDelta totals
+) implements BasicProductEvent {
+
+    @Override
+    public String routingKey() {
+        return "diet.day.logged";
+    }
+
+    public List<LoggedProduct> products() {
+        return meals.stream()
+                .flatMap(meal -> meal.products().stream())
+                .toList();
+    }
+}
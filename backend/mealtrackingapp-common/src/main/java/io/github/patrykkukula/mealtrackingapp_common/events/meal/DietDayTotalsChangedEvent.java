@@ -0,0 +1,31 @@
+package io.github.patrykkukula.mealtrackingapp_common.events.meal;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.product.BasicProductEvent;
+
+import java.time.LocalDate;
+
+/**
+ * Change of macro totals of user's DietDay, published for changes without logged event - removals and quantity
+ * updates - so rollups are updated incrementally. Logged events carry their {@link TotalsDelta} instead.
+ * Macros are the delta, negative on removal. daysDelta is 1 when DietDay is created, -1 when removed
+ */
+public record DietDayTotalsChangedEvent(
+        String username,
+        LocalDate date,
+        Double calories,
+        Double protein,
+        Double carbs,
+        Double fat,
+        int daysDelta
+) implements BasicProductEvent {
+
+    public static DietDayTotalsChangedEvent of(String username, LocalDate date, TotalsDelta totals) {
+        return new DietDayTotalsChangedEvent(username, date, totals.calories(), totals.protein(), totals.carbs(),
+                totals.fat(), totals.daysDelta());
+    }
+
+    @Override
+    public String routingKey() {
+        return "diet.day.totals.changed";
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.patrykkukula.mealtrackingapp_common.events.meal;
+
+import java.util.List;
+
+public record LoggedMeal(
+        String mealName,
+        List<LoggedProduct> products
+) {
+}
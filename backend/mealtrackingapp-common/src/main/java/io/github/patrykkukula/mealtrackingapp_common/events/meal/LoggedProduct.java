@@ -0,0 +1,8 @@
+package io.github.patrykkukula.mealtrackingapp_common.events.meal;
+
+public record LoggedProduct(
+        Long productId,
+        String productName,
+        Double quantity
+) {
+}
@@ -0,0 +1,24 @@
+package io.github.patrykkukula.mealtrackingapp_common.events.meal;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.product.BasicProductEvent;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Single event for all products of a Meal added to existing DietDay, replaces ProductAddedToMealEvent per product.
+ * Totals are the totals of the Meal, null in events of producers publishing DietDayTotalsChangedEvent separately
+ */
+public record MealLoggedEvent(
+        String username,
+        LocalDate date,
+        String mealName,
+        List<LoggedProduct> products,
+        TotalsDelta totals
+) implements BasicProductEvent {
+
+    @Override
+    public String routingKey() {
+        return "meal.logged";
+    }
+}
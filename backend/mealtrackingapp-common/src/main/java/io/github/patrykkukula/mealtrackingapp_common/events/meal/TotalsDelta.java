@@ -0,0 +1,14 @@
+package io.github.patrykkukula.mealtrackingapp_common.events.meal;
+
+/**
+ * Change of macro totals of user's DietDay carried by logged events, so rollups are updated without separate
+ * DietDayTotalsChangedEvent. Macros are the delta, daysDelta is 1 when DietDay is created
+ */
+public record TotalsDelta(
+        Double calories,
+        Double protein,
+        Double carbs,
+        Double fat,
+        int daysDelta
+) {
+}
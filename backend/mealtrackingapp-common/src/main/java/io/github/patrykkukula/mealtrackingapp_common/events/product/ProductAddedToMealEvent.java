@@ -1,10 +1,16 @@
 package io.github.patrykkukula.mealtrackingapp_common.events.product;
 
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.TotalsDelta;
+
+import java.time.LocalDate;
+
 public record ProductAddedToMealEvent(
         String productName,
         Long productId,
         Double quantity,
-        String username
+        String username,
+        LocalDate date,                // date of DietDay the product was added to
+        TotalsDelta totals             // macros of added quantity, null when published separately
 ) implements BasicProductEvent {
 
     @Override
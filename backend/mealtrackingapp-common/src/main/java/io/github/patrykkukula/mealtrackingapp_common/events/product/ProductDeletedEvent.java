@@ -1,6 +1,7 @@
 package io.github.patrykkukula.mealtrackingapp_common.events.product;
 
-public record ProductDeletedEvent(Long productId)
+public record ProductDeletedEvent(Long productId,
+                                  String ownerUsername)
 implements BasicProductEvent {
     @Override
     public String routingKey() {
@@ -0,0 +1,101 @@
+package io.github.patrykkukula.mealtrackingapp_common.threads;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Detects virtual threads pinned to their carrier thread - blocking inside synchronized sections, Caffeine compute
+ * loaders or native frames of JDBC drivers. Pinned events are read from JFR and grouped by the first frame of
+ * application code, every new pinning site is logged with its stack once and report is logged on shutdown.
+ * Active only when spring.threads.virtual.enabled=true
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "io.github.patrykkukula";
+
+    private final Duration threshold;
+    private final Map<String, PinningSite> sites = new ConcurrentHashMap<>();
+    private volatile RecordingStream stream;
+
+    public record PinningSite(String site, long count, Duration maxDuration) {
+        private PinningSite merge(PinningSite other) {
+            return new PinningSite(site, count + other.count, maxDuration.compareTo(other.maxDuration) >= 0 ? maxDuration : other.maxDuration);
+        }
+    }
+
+    public VirtualThreadPinningMonitor(@Value("${app.threads.pinning-threshold:20ms}") Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void start() {
+        RecordingStream recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        stream = recordingStream;
+        log.info("[VIRTUAL THREAD PINNING] monitor started, threshold: {}", threshold);
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recordingStream = stream;
+        stream = null;
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+        report().forEach(site -> log.warn("[VIRTUAL THREAD PINNING] {} pinned {} times, max {} ms",
+                site.site(), site.count(), site.maxDuration().toMillis()));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    // pinning sites ordered by number of pinned events, most frequent first
+    public List<PinningSite> report() {
+        return sites.values().stream()
+                .sorted(Comparator.comparingLong(PinningSite::count).reversed())
+                .toList();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+        String site = frames.stream()
+                .filter(frame -> frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .map(this::format)
+                .orElse("unknown");
+
+        PinningSite pinned = new PinningSite(site, 1, event.getDuration());
+        if (sites.merge(site, pinned, PinningSite::merge) == pinned) {          // first event of this site
+            log.warn("[VIRTUAL THREAD PINNED] {} for {} ms, stack:\n\t{}", site, event.getDuration().toMillis(),
+                    frames.stream().map(this::format).collect(Collectors.joining("\n\t")));
+        }
+    }
+
+    private String format(RecordedFrame frame) {
+        return "%s.%s:%d".formatted(frame.getMethod().getType().getName(), frame.getMethod().getName(), frame.getLineNumber());
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.patrykkukula.mealtrackingapp_common.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.transaction.autoconfigure.TransactionAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+    primary and replica are separate H2 databases, each knows its own name. WAL position is simulated by lsn column,
+    lag query returns how many bytes replica position is behind position read from primary
+ */
+@SpringBootTest(classes = ReplicaDataSourceIntegrationTest.TestConfig.class, properties = {
+        "app.datasource.replica.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "app.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.primary-lsn-query=SELECT CAST(lsn AS VARCHAR) FROM wal",
+        "app.datasource.replica.lag-query=SELECT CAST(? AS BIGINT) - lsn FROM wal",
+        "app.datasource.replica.max-lag=100B"
+})
+public class ReplicaDataSourceIntegrationTest {
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        database("primary", 1000);
+        database("replica", 1000);
+        replicaLagMonitor.checkLag();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("should read from replica in read-only transaction")
+    public void shouldReadFromReplicaInReadOnlyTransaction() {
+        assertEquals("replica", databaseName(true));
+    }
+
+    @Test
+    @DisplayName("should read from primary in read-write transaction")
+    public void shouldReadFromPrimaryInReadWriteTransaction() {
+        assertEquals("primary", databaseName(false));
+    }
+
+    @Test
+    @DisplayName("should read from primary when replica is behind more than max lag")
+    public void shouldReadFromPrimaryWhenReplicaIsBehindMoreThanMaxLag() throws SQLException {
+        new JdbcTemplate(primaryDataSource).update("UPDATE wal SET lsn = 1101");
+        replicaLagMonitor.checkLag();
+
+        assertEquals("primary", databaseName(true));
+
+        database("replica", 1001);
+        replicaLagMonitor.checkLag();
+
+        assertEquals("replica", databaseName(true));
+    }
+
+    @Test
+    @DisplayName("should read from primary when lag cannot be measured")
+    public void shouldReadFromPrimaryWhenLagCannotBeMeasured() throws SQLException {
+        execute("replica", "DROP TABLE wal");
+        replicaLagMonitor.checkLag();
+
+        assertEquals("primary", databaseName(true));
+    }
+
+    @Test
+    @DisplayName("should keep reads of user on primary after user wrote")
+    public void shouldKeepReadsOfUserOnPrimaryAfterUserWrote() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("writer", null, "ROLE_USER"));
+        databaseName(false);
+
+        assertEquals("primary", databaseName(true));
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("reader", null, "ROLE_USER"));
+
+        assertEquals("replica", databaseName(true));
+    }
+
+    private String databaseName(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+
+        return transaction.execute(status -> new JdbcTemplate(dataSource).queryForObject("SELECT name FROM database_name", String.class));
+    }
+
+    // tables are written directly, replica pool is read-only
+    private void database(String name, long lsn) throws SQLException {
+        execute(name, "CREATE TABLE IF NOT EXISTS database_name (name VARCHAR(16))",
+                "DELETE FROM database_name",
+                "INSERT INTO database_name VALUES ('" + name + "')",
+                "CREATE TABLE IF NOT EXISTS wal (lsn BIGINT)",
+                "DELETE FROM wal",
+                "INSERT INTO wal VALUES (" + lsn + ")");
+    }
+
+    private void execute(String name, String... statements) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    @Configuration
+    @Import(ReplicaDataSourceConfig.class)
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    static class TestConfig {
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.patrykkukula.mealtrackingapp_common.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class ReplicaRoutingDataSourceUnitTest {
+    @Mock
+    private ReplicaLagMonitor lagMonitor;
+
+    private ReadYourWritesTracker writesTracker;
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void setUp() {
+        writesTracker = new ReadYourWritesTracker(Duration.ofMinutes(1));
+        routingDataSource = new ReplicaRoutingDataSource(lagMonitor, writesTracker);
+        lenient().when(lagMonitor.isReplicaAvailable()).thenReturn(true);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null, "ROLE_USER"));
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    @DisplayName("should route read-only transaction to replica")
+    public void shouldRouteReadOnlyTransactionToReplica() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(DataSourceType.REPLICA, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    @DisplayName("should route read-write transaction to primary")
+    public void shouldRouteReadWriteTransactionToPrimary() {
+        assertEquals(DataSourceType.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    @DisplayName("should route read-only transaction to primary when replica lags")
+    public void shouldRouteReadOnlyTransactionToPrimaryWhenReplicaLags() {
+        lenient().when(lagMonitor.isReplicaAvailable()).thenReturn(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(DataSourceType.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    @DisplayName("should keep reads of user on primary after user wrote")
+    public void shouldKeepReadsOfUserOnPrimaryAfterUserWrote() {
+        routingDataSource.determineCurrentLookupKey();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(DataSourceType.PRIMARY, routingDataSource.determineCurrentLookupKey());
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("other", null, "ROLE_USER"));
+
+        assertEquals(DataSourceType.REPLICA, routingDataSource.determineCurrentLookupKey());
+    }
+}
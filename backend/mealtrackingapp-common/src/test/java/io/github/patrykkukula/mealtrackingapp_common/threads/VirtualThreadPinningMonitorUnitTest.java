@@ -0,0 +1,111 @@
+package io.github.patrykkukula.mealtrackingapp_common.threads;
+
+import io.github.patrykkukula.mealtrackingapp_common.threads.VirtualThreadPinningMonitor.PinningSite;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    pinned events are produced by a virtual thread parked inside synchronized block and read back from JFR stream,
+    events are flushed by JFR about once a second so report is polled
+ */
+public class VirtualThreadPinningMonitorUnitTest {
+    private static final Duration THRESHOLD = Duration.ofMillis(200);
+    private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+    private final Object lock = new Object();
+    private VirtualThreadPinningMonitor monitor;
+
+    @BeforeEach
+    public void setUp() {
+        monitor = new VirtualThreadPinningMonitor(THRESHOLD);
+        monitor.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        monitor.stop();
+    }
+
+    @Test
+    @DisplayName("should group pinned events by first application frame")
+    public void shouldGroupPinnedEventsByFirstApplicationFrame() throws InterruptedException {
+        pinFor(Duration.ofMillis(300));
+        pinFor(Duration.ofMillis(300));
+
+        PinningSite site = awaitSite("pinFor", 2);
+
+        assertTrue(site.site().startsWith(VirtualThreadPinningMonitorUnitTest.class.getName() + ".lambda$pinFor$"));
+        assertEquals(2, site.count());
+        assertTrue(site.maxDuration().compareTo(THRESHOLD) >= 0);
+    }
+
+    @Test
+    @DisplayName("should ignore pinned events shorter than threshold")
+    public void shouldIgnorePinnedEventsShorterThanThreshold() throws InterruptedException {
+        pinBelowThreshold();
+        pinFor(Duration.ofMillis(300));
+
+        awaitSite("pinFor", 1);
+
+        assertTrue(findSite("pinBelowThreshold").isEmpty());
+        assertEquals(1, monitor.report().size());
+    }
+
+    @Test
+    @DisplayName("should stop monitor and report sites after stop")
+    public void shouldStopMonitorAndReportSitesAfterStop() throws InterruptedException {
+        pinFor(Duration.ofMillis(300));
+        awaitSite("pinFor", 1);
+
+        monitor.stop();
+
+        assertFalse(monitor.isRunning());
+        assertEquals(1, monitor.report().size());
+    }
+
+    // parking virtual thread holding a monitor pins it to its carrier thread, site is the lambda of calling method
+    private void pinFor(Duration duration) throws InterruptedException {
+        Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                LockSupport.parkNanos(duration.toNanos());
+            }
+        }).join();
+    }
+
+    private void pinBelowThreshold() throws InterruptedException {
+        Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                LockSupport.parkNanos(Duration.ofMillis(20).toNanos());
+            }
+        }).join();
+    }
+
+    // events of one site can be flushed in separate chunks, waits until all expected events are counted
+    private PinningSite awaitSite(String method, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            Optional<PinningSite> site = findSite(method);
+            if (site.isPresent() && site.get().count() >= count) {
+                return site.get();
+            }
+            Thread.sleep(100);
+        }
+        return fail("%d pinned events not recorded for %s".formatted(count, method));
+    }
+
+    private Optional<PinningSite> findSite(String method) {
+        List<PinningSite> report = monitor.report();
+        return report.stream()
+                .filter(site -> site.site().contains(".lambda$" + method + "$"))
+                .findFirst();
+    }
+}
@@ -2,6 +2,7 @@ package io.github.patrykkukula.product_ms.controller;
 
 import io.github.patrykkukula.product_ms.constants.ProductCategory;
 import io.github.patrykkukula.product_ms.dto.ProductDto;
+import io.github.patrykkukula.product_ms.dto.ProductTotalsDto;
 import io.github.patrykkukula.product_ms.service.ProductService;
 import io.github.patrykkukula.mealtrackingapp_common.utils.BasicUtils;
 import jakarta.servlet.http.HttpServletRequest;
@@ -51,6 +52,11 @@ public class ProductController {
         return ResponseEntity.ok(productService.findProducts(pageNo, category, name));
     }
 
+    @GetMapping("/totals")
+    public ResponseEntity<ProductTotalsDto> getProductTotals() {
+        return ResponseEntity.ok(productService.getProductTotals());
+    }
+
     @PutMapping("/{productId}")
     public ResponseEntity<ProductDto> updateProduct(@Valid @RequestBody ProductDto productDto,
                                                     @PathVariable @Min(value = 1, message = "Product ID cannot be less than 1")
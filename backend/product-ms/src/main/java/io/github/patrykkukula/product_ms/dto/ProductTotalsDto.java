@@ -0,0 +1,6 @@
+package io.github.patrykkukula.product_ms.dto;
+
+// counts of global products and custom products of all users
+public record ProductTotalsDto(Long globalProducts,
+                               Long customProducts) {
+}
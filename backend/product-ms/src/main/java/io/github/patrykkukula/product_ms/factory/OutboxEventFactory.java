@@ -11,6 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Component
 @RequiredArgsConstructor
@@ -23,6 +24,7 @@ public class OutboxEventFactory {
         try {
             return new OutboxEvent(
                     null,
+                    UUID.randomUUID(),
                     OutboxEventStatus.NEW,
                     EventType.fromRoutingKey(event.routingKey()),
                     objectMapper.writeValueAsString(event),
@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Getter @Setter
@@ -18,6 +19,9 @@ public class OutboxEvent {
     @GeneratedValue(strategy = GenerationType.AUTO)
     public Long outboxEventId;
 
+    @Column(nullable = false, unique = true)
+    private UUID eventId;
+
     @Enumerated(value = EnumType.STRING)
     @Column(nullable = false)
     private OutboxEventStatus status;
@@ -1,6 +1,7 @@
 package io.github.patrykkukula.product_ms.repository;
 
 import io.github.patrykkukula.product_ms.constants.ProductCategory;
+import io.github.patrykkukula.product_ms.dto.ProductTotalsDto;
 import io.github.patrykkukula.product_ms.model.Product;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
@@ -26,5 +27,8 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     @Query("SELECT COUNT(p) FROM Product p WHERE p.ownerUsername = :username")
     public Long fetchCustomProductsAmountForUser(@Value("username") String username);
+
+    @Query("SELECT new io.github.patrykkukula.product_ms.dto.ProductTotalsDto(COUNT(p) - COUNT(p.ownerUsername), COUNT(p.ownerUsername)) FROM Product p")
+    public ProductTotalsDto fetchProductTotals();
 }
 
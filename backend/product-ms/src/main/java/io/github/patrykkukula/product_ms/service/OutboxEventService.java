@@ -40,7 +40,7 @@ public class OutboxEventService {
                             event.getPayload());
 
                     try {
-                        eventSender.sendEvent(productEvent);
+                        eventSender.sendEvent(productEvent, event.getEventId(), event.getOutboxEventId());
                         event.setStatus(OutboxEventStatus.SENT);
                         event.setSentAt(LocalDateTime.now());
 
@@ -5,6 +5,7 @@ import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductDelet
 import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductUpdatedEvent;
 import io.github.patrykkukula.product_ms.constants.ProductCategory;
 import io.github.patrykkukula.product_ms.dto.ProductDto;
+import io.github.patrykkukula.product_ms.dto.ProductTotalsDto;
 import io.github.patrykkukula.product_ms.exception.CustomProductAmountExceededException;
 import io.github.patrykkukula.product_ms.exception.ProductNotFoundException;
 import io.github.patrykkukula.product_ms.factory.OutboxEventFactory;
@@ -14,7 +15,6 @@ import io.github.patrykkukula.product_ms.model.Product;
 import io.github.patrykkukula.product_ms.repository.OutboxEventRepository;
 import io.github.patrykkukula.product_ms.repository.ProductRepository;
 import io.github.patrykkukula.product_ms.security.AuthenticationUtilsImpl;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
@@ -26,6 +26,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Objects;
@@ -97,6 +98,7 @@ public class ProductService {
     /*
         Caching only if product is global
      */
+    @Transactional(readOnly = true)
     @Cacheable(value = "product", key = "#productId", unless = "#result.ownerUsername != null")
     public ProductDto findProductById(Long productId) {
         Product product = fetchProductById(productId);
@@ -120,6 +122,7 @@ public class ProductService {
      * @param name     - product name to filter for - by default do not filter
      * @return product list for given parameters
      */
+    @Transactional(readOnly = true)
     public List<ProductDto> findProducts(int pageNo, ProductCategory category, String name) {
         if (pageNo < 0) {
             throw new IllegalArgumentException("Page number cannot be less than 0");
@@ -177,11 +180,19 @@ public class ProductService {
 
         productRepository.deleteById(productId);
 
-        OutboxEvent outboxEvent = createOutboxEventForProductDeletedEvent(productId);
+        OutboxEvent outboxEvent = createOutboxEventForProductDeletedEvent(productId, product.getOwnerUsername());
 
         outboxEventRepository.save(outboxEvent);
     }
 
+    /*
+        counts of whole catalog, used by statistics-ms to reconcile counts maintained from product events
+     */
+    @Transactional(readOnly = true)
+    public ProductTotalsDto getProductTotals() {
+        return productRepository.fetchProductTotals();
+    }
+
     private Product fetchProductById(Long productId) {
         return productRepository.findById(productId)
                 .orElseThrow(() -> new ProductNotFoundException(productId));
@@ -224,9 +235,9 @@ public class ProductService {
         return outboxEvent;
     }
 
-    private OutboxEvent createOutboxEventForProductDeletedEvent(Long productId) {
+    private OutboxEvent createOutboxEventForProductDeletedEvent(Long productId, String ownerUsername) {
         OutboxEvent outboxEvent = outboxEventFactory.create(
-                new ProductDeletedEvent(productId)
+                new ProductDeletedEvent(productId, ownerUsername)
         );
 
         log.info("outboxEvent created. Payload: {}", outboxEvent.getPayload());
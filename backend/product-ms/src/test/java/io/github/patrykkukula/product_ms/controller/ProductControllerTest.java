@@ -3,6 +3,7 @@ package io.github.patrykkukula.product_ms.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.patrykkukula.product_ms.constants.ProductCategory;
 import io.github.patrykkukula.product_ms.dto.ProductDto;
+import io.github.patrykkukula.product_ms.dto.ProductTotalsDto;
 import io.github.patrykkukula.product_ms.exception.CustomProductAmountExceededException;
 import io.github.patrykkukula.product_ms.exception.ProductNotFoundException;
 import io.github.patrykkukula.product_ms.security.SecurityConfig;
@@ -430,6 +431,27 @@ public class ProductControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("when getProductTotals")
+    class whenGetProductTotals {
+        @Test
+        @DisplayName("Should return product totals without authentication")
+        @WithAnonymousUser
+        public void shouldReturnProductTotalsWithoutAuthentication() throws Exception {
+            when(productService.getProductTotals()).thenReturn(new ProductTotalsDto(10L, 5L));
+
+            mockMvc.perform(get("/api/products/totals"))
+                    .andExpectAll(
+                            status().isOk(),
+                            jsonPath("$.globalProducts").value(10),
+                            jsonPath("$.customProducts").value(5)
+                    );
+
+            verify(productService, times(1)).getProductTotals();
+            verify(productService, never()).findProductById(anyLong());
+        }
+    }
+
     @Nested
     @DisplayName("when updateProduct")
     class whenUpdateProduct {
@@ -1,9 +1,15 @@
 package io.github.patrykkukula.statistics_ms;
 
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.mealtrackingapp_common.threads.VirtualThreadPinningMonitor;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@Import({VirtualThreadPinningMonitor.class, AuthenticationUtils.class})
 public class StatisticsMsApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,117 @@
+package io.github.patrykkukula.statistics_ms.accumulator;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.LoggedProduct;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory ProductCount usage absorbed between flushes. Counters are LongAdder/DoubleAdder cells keyed by
+ * (username, productId), so concurrent consumers add without locking or reading the database.
+ * Usage is collected in generations - flush seals current generation and starts new one, every caller gets future
+ * of generation its usage was added to, completed when that generation is written to the database
+ */
+@Component
+public class ProductCountAccumulator {
+    private final AtomicReference<Generation> current = new AtomicReference<>(new Generation());
+
+    /**
+     * @return future completed when given products are durably written, completed exceptionally when write failed
+     */
+    public CompletableFuture<Void> add(String username, List<LoggedProduct> products) {
+        while (true) {
+            Generation generation = current.get();
+            if (generation.enter()) {
+                try {
+                    products.forEach(product -> generation.counters
+                            .computeIfAbsent(new Key(username, product.productId()), key -> new Counter())
+                            .add(product));
+                } finally {
+                    generation.exit();
+                }
+                return generation.flushed;
+            }
+            // generation sealed by flush in the meantime, retry with new one
+        }
+    }
+
+    /**
+     * Start new generation and return previous one, once callers still adding to it finished
+     */
+    public Generation seal() {
+        Generation sealed = current.getAndSet(new Generation());
+        sealed.close();
+        return sealed;
+    }
+
+    private record Key(String username, Long productId) {}
+
+    private static class Counter {
+        private final LongAdder usageCount = new LongAdder();
+        private final DoubleAdder totalQuantity = new DoubleAdder();
+        private volatile String productName;
+
+        private void add(LoggedProduct product) {
+            productName = product.productName();
+            usageCount.increment();
+            totalQuantity.add(product.quantity());
+        }
+    }
+
+    public static class Generation {
+        private static final int CLOSED = Integer.MIN_VALUE;
+
+        private final Map<Key, Counter> counters = new ConcurrentHashMap<>();
+        private final CompletableFuture<Void> flushed = new CompletableFuture<>();
+        // number of callers currently adding, sign bit set once generation is sealed
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private boolean enter() {
+            int state;
+            do {
+                state = writers.get();
+                if (state < 0) {
+                    return false;
+                }
+            } while (!writers.compareAndSet(state, state + 1));
+            return true;
+        }
+
+        private void exit() {
+            writers.decrementAndGet();
+        }
+
+        private void close() {
+            int state;
+            do {
+                state = writers.get();
+            } while (!writers.compareAndSet(state, state | CLOSED));
+            while (writers.get() != CLOSED) {
+                Thread.onSpinWait();
+            }
+        }
+
+        public List<ProductCountDelta> deltas() {
+            return counters.entrySet().stream()
+                    .map(entry -> new ProductCountDelta(entry.getKey().username(), entry.getKey().productId(),
+                            entry.getValue().productName, entry.getValue().usageCount.intValue(),
+                            entry.getValue().totalQuantity.sum()))
+                    .toList();
+        }
+
+        public void complete() {
+            flushed.complete(null);
+        }
+
+        public void fail(Throwable cause) {
+            flushed.completeExceptionally(cause);
+        }
+    }
+}
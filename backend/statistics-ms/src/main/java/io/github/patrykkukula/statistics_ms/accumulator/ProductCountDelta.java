@@ -0,0 +1,11 @@
+package io.github.patrykkukula.statistics_ms.accumulator;
+
+/**
+ * Usage accumulated for single (username, productId) since last flush, added to ProductCount with one upsert
+ */
+public record ProductCountDelta(String username,
+                                Long productId,
+                                String productName,
+                                int usageCount,
+                                double totalQuantity) {
+}
@@ -0,0 +1,69 @@
+package io.github.patrykkukula.statistics_ms.accumulator;
+
+import io.github.patrykkukula.statistics_ms.dto.ProductTotalsDto;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Catalog-wide counts of global and custom products. Counts are read from memory, changes since last checkpoint
+ * are tracked separately so they can be written to TotalProducts as deltas
+ */
+@Component
+public class TotalProductsCounter {
+    private final AtomicLong globalProducts = new AtomicLong();
+    private final AtomicLong customProducts = new AtomicLong();
+    private final AtomicLong pendingGlobal = new AtomicLong();
+    private final AtomicLong pendingCustom = new AtomicLong();
+    private final ReadWriteLock resetLock = new ReentrantReadWriteLock();      // changes are shared, reset is exclusive
+
+    public void add(boolean custom, long delta) {
+        resetLock.readLock().lock();
+        try {
+            if (custom) {
+                customProducts.addAndGet(delta);
+                pendingCustom.addAndGet(delta);
+            } else {
+                globalProducts.addAndGet(delta);
+                pendingGlobal.addAndGet(delta);
+            }
+        } finally {
+            resetLock.readLock().unlock();
+        }
+    }
+
+    public long globalProducts() {
+        return globalProducts.get();
+    }
+
+    public long customProducts() {
+        return customProducts.get();
+    }
+
+    // take changes counted since last checkpoint
+    public ProductTotalsDto takePending() {
+        return new ProductTotalsDto(pendingGlobal.getAndSet(0), pendingCustom.getAndSet(0));
+    }
+
+    // give back changes whose checkpoint failed
+    public void restorePending(ProductTotalsDto pending) {
+        pendingGlobal.addAndGet(pending.globalProducts());
+        pendingCustom.addAndGet(pending.customProducts());
+    }
+
+    /*
+        set counts to values stored in database or recomputed from product-ms, changes not checkpointed yet
+        are not part of them and stay counted on top
+     */
+    public void reset(long global, long custom) {
+        resetLock.writeLock().lock();
+        try {
+            globalProducts.set(global + pendingGlobal.get());
+            customProducts.set(custom + pendingCustom.get());
+        } finally {
+            resetLock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.patrykkukula.statistics_ms.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.patrykkukula.mealtrackingapp_common.cache.CaffeineCacheImpl;
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Statistics responses of authenticated user cached until next event of the user. Cache is bounded by number of users,
+ * every user has a small map of results keyed by query, so evict removes the whole map with one invalidation.
+ * Query runs outside of cache lock - the first caller stores a pending result and completes it, concurrent callers
+ * of the same query wait for it. Query running while user is evicted completes result of evicted map, which is
+ * never read again
+ */
+@Component
+@RequiredArgsConstructor
+public class StatisticsCache {
+    private static final int MAX_RESULTS_PER_USER = 64;
+
+    private final AuthenticationUtils authenticationUtils;
+    private CaffeineCacheImpl results;
+
+    @Value("${app.statistics.response-cache-users:10000}")
+    private long cacheSize;
+
+    // results are invalidated by events, expiry only releases memory of inactive users
+    @PostConstruct
+    public void createResultCache() {
+        results = new CaffeineCacheImpl("statistics", Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterAccess(Duration.ofHours(2))
+                .recordStats()
+                .build());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Supplier<T> query, String queryName, Object... arguments) {
+        Map<QueryKey, CompletableFuture<Object>> userResults = results.get(authenticationUtils.getAuthenticatedUserUsername(),
+                () -> new ConcurrentHashMap<QueryKey, CompletableFuture<Object>>());
+        QueryKey key = new QueryKey(queryName, Arrays.asList(arguments));
+        // user browsing many ranges starts over, callers waiting for pending results keep their own reference
+        if (userResults.size() >= MAX_RESULTS_PER_USER && !userResults.containsKey(key)) {
+            userResults.clear();
+        }
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        CompletableFuture<Object> cached = userResults.putIfAbsent(key, pending);
+        if (cached != null) {
+            return (T) join(cached);
+        }
+        try {
+            T result = query.get();
+            pending.complete(result);
+            return result;
+        } catch (RuntimeException ex) {
+            userResults.remove(key, pending);
+            pending.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    // called after change of user's statistics is committed
+    public void evict(String username) {
+        results.evict(username);
+    }
+
+    // failure of query run by another caller is rethrown as is, so it is mapped to the same response
+    private static Object join(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private record QueryKey(String queryName, List<Object> arguments) {}
+}
@@ -0,0 +1,50 @@
+package io.github.patrykkukula.statistics_ms.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.patrykkukula.statistics_ms.dto.DietDayExportDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+@Component
+public class DietClient {
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+
+    public DietClient(RestClient.Builder loadBalancedRestClientBuilder, ObjectMapper objectMapper,
+                      @Value("${app.clients.diet-url:http://diet}") String dietUrl) {
+        this.restClient = loadBalancedRestClientBuilder.clone().baseUrl(dietUrl).build();
+        this.objectMapper = objectMapper;
+    }
+
+    /*
+        export is read line by line while diet-ms writes it, so DietDays of all users are never held in memory at once.
+        Export is admin only - access token of admin who started the rebuild is relayed
+     */
+    public void exportDietDays(String accessToken, Consumer<DietDayExportDto> consumer) {
+        restClient.get()
+                .uri("/api/diets/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .headers(headers -> headers.setBearerAuth(accessToken))
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isError()) {
+                        throw new IllegalStateException("DietDay export failed with status " + response.getStatusCode());
+                    }
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (!line.isBlank()) {
+                                consumer.accept(objectMapper.readValue(line, DietDayExportDto.class));
+                            }
+                        }
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.patrykkukula.statistics_ms.client;
+
+import io.github.patrykkukula.statistics_ms.dto.ProductTotalsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+@Component
+public class ProductClient {
+    private final RestClient restClient;
+
+    public ProductClient(RestClient.Builder loadBalancedRestClientBuilder,
+                         @Value("${app.clients.product-url:http://product}") String productUrl) {
+        this.restClient = loadBalancedRestClientBuilder.clone().baseUrl(productUrl).build();
+    }
+
+    public ProductTotalsDto fetchProductTotals() {
+        return restClient.get()
+                .uri("/api/products/totals")
+                .retrieve()
+                .body(ProductTotalsDto.class);
+    }
+}
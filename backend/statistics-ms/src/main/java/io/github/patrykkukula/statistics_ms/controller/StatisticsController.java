@@ -1,46 +1,157 @@
 package io.github.patrykkukula.statistics_ms.controller;
 
+import io.github.patrykkukula.statistics_ms.cache.StatisticsCache;
+import io.github.patrykkukula.statistics_ms.dto.CalorieDistributionDto;
+import io.github.patrykkukula.statistics_ms.dto.DailyAverageDto;
+import io.github.patrykkukula.statistics_ms.dto.DistinctProductsDto;
+import io.github.patrykkukula.statistics_ms.dto.MacroSeriesDto;
+import io.github.patrykkukula.statistics_ms.dto.MacroTrendDto;
 import io.github.patrykkukula.statistics_ms.dto.MonthlySummaryDto;
 import io.github.patrykkukula.statistics_ms.dto.MostUsedProductDto;
+import io.github.patrykkukula.statistics_ms.dto.RebuildProgressDto;
+import io.github.patrykkukula.statistics_ms.dto.RollingAverageDto;
 import io.github.patrykkukula.statistics_ms.dto.TotalProductsDto;
 import io.github.patrykkukula.statistics_ms.dto.WeeklySummaryDto;
-import jakarta.validation.Valid;
+import io.github.patrykkukula.statistics_ms.series.Macro;
+import io.github.patrykkukula.statistics_ms.service.CalorieDistributionService;
+import io.github.patrykkukula.statistics_ms.service.DistinctProductsService;
+import io.github.patrykkukula.statistics_ms.service.MacroSeriesService;
+import io.github.patrykkukula.statistics_ms.service.MostUsedProductsService;
+import io.github.patrykkukula.statistics_ms.service.RollupService;
+import io.github.patrykkukula.statistics_ms.service.StatisticsRebuildService;
+import io.github.patrykkukula.statistics_ms.service.TotalProductsService;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
-@Valid
+@Validated
 @RequestMapping(value = "api/statistics", produces = MediaType.APPLICATION_JSON_VALUE)
 @RequiredArgsConstructor
 public class StatisticsController {
+    private final MostUsedProductsService mostUsedProductsService;
+    private final RollupService rollupService;
+    private final TotalProductsService totalProductsService;
+    private final MacroSeriesService macroSeriesService;
+    private final StatisticsRebuildService statisticsRebuildService;
+    private final DistinctProductsService distinctProductsService;
+    private final CalorieDistributionService calorieDistributionService;
+    private final StatisticsCache statisticsCache;          // queries of authenticated user, global queries change with events of every user
 
+    // summary of week (Monday to Sunday) containing given date, current week by default
     @GetMapping("/weekly-summary")
-    public WeeklySummaryDto getWeeklyStatistics() {
-        return null;
+    public WeeklySummaryDto getWeeklyStatistics(
+            @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        LocalDate weekStart = RollupService.weekStart(date != null ? date : LocalDate.now());
+
+        return statisticsCache.get(() -> rollupService.getWeeklySummary(weekStart), "weekly-summary", weekStart);
     }
 
     @GetMapping("/total-products")
     public TotalProductsDto getTotalProducts() {
-        return null;
+        return totalProductsService.getTotalProducts();
+    }
+
+    // recompute product counts from product-ms without waiting for scheduled reconcile
+    @PostMapping("/total-products/reconcile")
+    public TotalProductsDto reconcileTotalProducts() {
+        totalProductsService.reconcileTotalProducts();
+
+        return totalProductsService.getTotalProducts();
+    }
+
+    // rebuild statistics of all users from diet-ms export in background, progress is available at /actuator/statisticsrebuild
+    @PostMapping("/rebuild")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public RebuildProgressDto rebuildStatistics() {
+        return statisticsRebuildService.startRebuild();
     }
 
     @GetMapping("/average-daily")
-    public TotalProductsDto getDailyAverage() {
-        return null;
+    public DailyAverageDto getDailyAverage() {
+        return statisticsCache.get(rollupService::getDailyAverage, "average-daily");
+    }
+
+    // mean, standard deviation, median and p90 of daily calories of authenticated user
+    @GetMapping("/calorie-distribution")
+    public CalorieDistributionDto getCalorieDistribution() {
+        return statisticsCache.get(calorieDistributionService::getCalorieDistribution, "calorie-distribution");
     }
 
+    /*
+        most used products of authenticated user read from sketch, exact=true scans ProductCounts instead
+     */
     @GetMapping("/most-used-products")
-    public List<MostUsedProductDto> getMostUsedProducts() {
-        return null;
+    public List<MostUsedProductDto> getMostUsedProducts(
+            @Min(value = 1, message = "min limit is 1") @Max(value = 50, message = "max limit is 50")
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "exact", defaultValue = "false") boolean exact) {
+        return statisticsCache.get(() -> mostUsedProductsService.getMostUsedProductsForUser(limit, exact), "most-used-products", limit, exact);
     }
 
     @GetMapping("/monthly")
-    public MonthlySummaryDto getMonthlySummary() {
-        return null;
+    public MonthlySummaryDto getMonthlySummary(
+            @RequestParam(value = "year") int year,
+            @Min(value = 1, message = "min month is 1") @Max(value = 12, message = "max month is 12")
+            @RequestParam(value = "month") int month) {
+        return statisticsCache.get(() -> rollupService.getMonthlySummary(year, month), "monthly", year, month);
+    }
+
+    // approximate number of different products used by authenticated user in month, or in whole year without month
+    @GetMapping("/distinct-products")
+    public DistinctProductsDto getDistinctProducts(
+            @RequestParam(value = "year") int year,
+            @Min(value = 1, message = "min month is 1") @Max(value = 12, message = "max month is 12")
+            @RequestParam(value = "month", required = false) Integer month) {
+        return statisticsCache.get(() -> month != null ? distinctProductsService.getDistinctProductsForMonth(year, month)
+                : distinctProductsService.getDistinctProductsForYear(year), "distinct-products", year, month);
+    }
+
+    // approximate number of different products used by all users in week containing given date, current week by default
+    @GetMapping("/distinct-products/all-users")
+    public DistinctProductsDto getDistinctProductsOfAllUsers(
+            @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return distinctProductsService.getDistinctProductsOfAllUsersForWeek(date != null ? date : LocalDate.now());
+    }
+
+    // daily values of macro in given range of at most 366 days
+    @GetMapping("/series")
+    public MacroSeriesDto getMacroSeries(
+            @RequestParam(value = "macro") Macro macro,
+            @RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return statisticsCache.get(() -> macroSeriesService.getSeries(macro, from, to), "series", macro, from, to);
+    }
+
+    @GetMapping("/series/rolling-average")
+    public RollingAverageDto getMacroRollingAverage(
+            @RequestParam(value = "macro") Macro macro,
+            @RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Min(value = 1, message = "min window is 1") @Max(value = 90, message = "max window is 90")
+            @RequestParam(value = "window", defaultValue = "7") int window) {
+        return statisticsCache.get(() -> macroSeriesService.getRollingAverage(macro, from, to, window), "series/rolling-average",
+                macro, from, to, window);
+    }
+
+    @GetMapping("/series/trend")
+    public MacroTrendDto getMacroTrend(
+            @RequestParam(value = "macro") Macro macro,
+            @RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return statisticsCache.get(() -> macroSeriesService.getTrend(macro, from, to), "series/trend", macro, from, to);
     }
 }
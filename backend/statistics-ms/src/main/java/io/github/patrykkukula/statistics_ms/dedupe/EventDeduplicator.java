@@ -0,0 +1,135 @@
+package io.github.patrykkukula.statistics_ms.dedupe;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.patrykkukula.mealtrackingapp_common.events.EventHeaders;
+import io.github.patrykkukula.mealtrackingapp_common.events.product.BasicProductEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Drops events redelivered by broker or sent again by producer's outbox before any database work. Every producer and
+ * destination gets window of recently seen outbox sequences, fixed size bitmap independent of traffic. Destinations
+ * are consumed at different pace, so sequences of one destination never push the window of another one.
+ * Windows not used for twice the ttl are dropped
+ */
+@Component
+@Slf4j
+public class EventDeduplicator {
+    private final Cache<WindowKey, SequenceWindow> windows;
+    private final int windowSize;
+    private final Duration windowTtl;
+
+    private record WindowKey(String producer, String destination) {}
+
+    public EventDeduplicator(@Value("${app.statistics.dedupe-window:65536}") int windowSize,
+                             @Value("${app.statistics.dedupe-window-ttl:10m}") Duration windowTtl) {
+        this.windowSize = windowSize;
+        this.windowTtl = windowTtl;
+        this.windows = Caffeine.newBuilder()
+                .expireAfterAccess(windowTtl.multipliedBy(2))
+                .build();
+    }
+
+    /*
+        run action once per event. Event is claimed before action and released when action fails, so failed event
+        is processed again when redelivered. Events without outbox headers are always processed
+     */
+    public void consumeOnce(Message<?> message, Runnable action) {
+        consumeOnce(message, null, action);
+    }
+
+    /*
+        same as above for one part of processing of the event, claimed in separate window of given scope. Part already
+        committed is skipped when the rest of processing fails and event is redelivered
+     */
+    public void consumeOnce(Message<?> message, String scope, Runnable action) {
+        SequenceWindow window = window(message, scope);
+        Long sequence = sequence(message.getHeaders());
+
+        if (window == null || sequence == null) {
+            action.run();
+            return;
+        }
+        if (!claim(window, message.getHeaders(), sequence)) {
+            return;
+        }
+        try {
+            action.run();
+        } catch (RuntimeException ex) {
+            window.release(sequence);
+            throw ex;
+        }
+    }
+
+    /*
+        same as above for action completing asynchronously - claim is released when returned future fails.
+        Duplicated event returns completed future, so its message is acknowledged without processing
+     */
+    public CompletableFuture<Void> consumeOnceAsync(Message<?> message, Supplier<CompletableFuture<Void>> action) {
+        SequenceWindow window = window(message, null);
+        Long sequence = sequence(message.getHeaders());
+
+        if (window == null || sequence == null) {
+            return action.get();
+        }
+        if (!claim(window, message.getHeaders(), sequence)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> processed;
+        try {
+            processed = action.get();
+        } catch (RuntimeException ex) {
+            window.release(sequence);
+            throw ex;
+        }
+        return processed.whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                window.release(sequence);
+            }
+        });
+    }
+
+    private boolean claim(SequenceWindow window, MessageHeaders headers, long sequence) {
+        if (window.claim(sequence)) {
+            return true;
+        }
+        log.info("Duplicate event {} with sequence {} from {} dropped", headers.get(EventHeaders.EVENT_ID), sequence,
+                headers.get(EventHeaders.EVENT_PRODUCER));
+        return false;
+    }
+
+    private SequenceWindow window(Message<?> message, String scope) {
+        String producer = message.getHeaders().get(EventHeaders.EVENT_PRODUCER, String.class);
+        if (producer == null) {
+            return null;
+        }
+        String destination = scope != null ? destination(message) + "#" + scope : destination(message);
+        return windows.get(new WindowKey(producer, destination), key -> new SequenceWindow(windowSize, windowTtl));
+    }
+
+    // exchange message was received from, routing key of the event when consumed without broker
+    private String destination(Message<?> message) {
+        String exchange = message.getHeaders().get(AmqpHeaders.RECEIVED_EXCHANGE, String.class);
+        if (exchange != null) {
+            return exchange;
+        }
+        return message.getPayload() instanceof BasicProductEvent event ? event.routingKey() : message.getPayload().getClass().getName();
+    }
+
+    private Long sequence(MessageHeaders headers) {
+        Object sequence = headers.get(EventHeaders.EVENT_SEQUENCE);
+        if (sequence instanceof Number number) {
+            return number.longValue();
+        }
+        return sequence != null ? Long.valueOf(sequence.toString()) : null;
+    }
+}
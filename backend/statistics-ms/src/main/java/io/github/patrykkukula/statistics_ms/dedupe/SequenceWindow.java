@@ -0,0 +1,109 @@
+package io.github.patrykkukula.statistics_ms.dedupe;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Sequences of single producer and destination seen recently - high-water mark with bitmap of the window below it.
+ * Sequences above the mark are new, sequences within window are checked in bitmap. Sequences older than the window
+ * cannot be checked and are processed again, consumers stay at-least-once for them.
+ * Claims are kept in two bitmaps rotated every ttl, so a sequence is remembered between ttl and twice ttl - producer
+ * restarting its sequence is not mistaken for duplicates for longer than that
+ */
+class SequenceWindow {
+    private final int size;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private long[] current;
+    private long[] previous;
+    private long rotatedAt;
+    private long highWaterMark = -1;
+
+    SequenceWindow(int size, Duration ttl) {
+        this(size, ttl, System::nanoTime);
+    }
+
+    // size is rounded up to power of two
+    SequenceWindow(int size, Duration ttl, LongSupplier nanoClock) {
+        this.size = Integer.highestOneBit(Math.max(64, size - 1)) << 1;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.current = new long[this.size / 64];
+        this.previous = new long[this.size / 64];
+        this.rotatedAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * @return true when sequence was not seen within window and is now claimed by caller
+     */
+    synchronized boolean claim(long sequence) {
+        rotateIfExpired();
+        if (sequence > highWaterMark) {
+            if (highWaterMark < 0 || sequence - highWaterMark >= size) {
+                Arrays.fill(current, 0L);
+                Arrays.fill(previous, 0L);
+            } else {
+                for (long skipped = highWaterMark + 1; skipped < sequence; skipped++) {
+                    clear(skipped);            // slots reused by sequences that were not seen yet
+                }
+            }
+            highWaterMark = sequence;
+            set(sequence);
+            return true;
+        }
+        if (sequence <= highWaterMark - size) {
+            return true;
+        }
+        if (isSet(sequence)) {
+            return false;
+        }
+        set(sequence);
+        return true;
+    }
+
+    // give up claim of sequence whose processing failed, so redelivery is accepted
+    synchronized void release(long sequence) {
+        if (sequence > highWaterMark - size) {
+            clear(sequence);
+        }
+    }
+
+    private void rotateIfExpired() {
+        long now = nanoClock.getAsLong();
+        long elapsed = now - rotatedAt;
+        if (elapsed < ttlNanos) {
+            return;
+        }
+        if (elapsed >= 2 * ttlNanos) {
+            Arrays.fill(previous, 0L);           // no claim since last rotation is younger than ttl
+        } else {
+            long[] oldest = previous;
+            previous = current;
+            current = oldest;
+        }
+        Arrays.fill(current, 0L);
+        rotatedAt = now;
+    }
+
+    private boolean isSet(long sequence) {
+        int slot = slot(sequence);
+        long mask = 1L << slot;
+        return ((current[slot >>> 6] | previous[slot >>> 6]) & mask) != 0;
+    }
+
+    private void set(long sequence) {
+        int slot = slot(sequence);
+        current[slot >>> 6] |= 1L << slot;
+    }
+
+    private void clear(long sequence) {
+        int slot = slot(sequence);
+        current[slot >>> 6] &= ~(1L << slot);
+        previous[slot >>> 6] &= ~(1L << slot);
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence & (size - 1));
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.patrykkukula.statistics_ms.dto;
+
+// distribution of calories over days with DietDay, median and p90 are accurate to 10 kcal
+public record CalorieDistributionDto(long days,
+                                     double mean,
+                                     double standardDeviation,
+                                     double median,
+                                     double p90) {
+}
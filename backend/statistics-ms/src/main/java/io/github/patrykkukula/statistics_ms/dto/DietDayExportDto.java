@@ -0,0 +1,17 @@
+package io.github.patrykkukula.statistics_ms.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Line of diet-ms export - DietDay of any user with its totals and products used in it
+ */
+public record DietDayExportDto(Long dietDayId,
+                               String username,
+                               LocalDate date,
+                               Double calories,
+                               Double protein,
+                               Double carbs,
+                               Double fat,
+                               List<ProductUsageExportDto> products) {
+}
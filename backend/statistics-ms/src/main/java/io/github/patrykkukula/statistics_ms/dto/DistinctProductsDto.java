@@ -0,0 +1,9 @@
+package io.github.patrykkukula.statistics_ms.dto;
+
+import java.time.LocalDate;
+
+// approximate number of different products used from from to to, standard error around 3%
+public record DistinctProductsDto(LocalDate from,
+                                  LocalDate to,
+                                  long distinctProducts) {
+}
@@ -0,0 +1,12 @@
+package io.github.patrykkukula.statistics_ms.dto;
+
+import io.github.patrykkukula.statistics_ms.series.Macro;
+
+import java.time.LocalDate;
+
+// one value per day from from to to
+public record MacroSeriesDto(Macro macro,
+                             LocalDate from,
+                             LocalDate to,
+                             int[] values) {
+}
@@ -0,0 +1,12 @@
+package io.github.patrykkukula.statistics_ms.dto;
+
+import io.github.patrykkukula.statistics_ms.series.Macro;
+
+import java.time.LocalDate;
+
+public record MacroTrendDto(Macro macro,
+                            LocalDate from,
+                            LocalDate to,
+                            double average,
+                            double changePerDay) {
+}
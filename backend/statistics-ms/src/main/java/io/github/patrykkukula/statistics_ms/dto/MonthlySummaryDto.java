@@ -0,0 +1,17 @@
+package io.github.patrykkukula.statistics_ms.dto;
+
+public record MonthlySummaryDto(Long monthlySummaryId,
+                                Integer year,
+                                Integer month,
+                                String monthName,
+                                Integer totalCalories,
+                                Integer totalProtein,
+                                Integer totalCarbs,
+                                Integer totalFat,
+                                Integer averageCalories,
+                                Integer averageProtein,
+                                Integer averageCarbs,
+                                Integer averageFat,
+                                Integer daysWithDiet,
+                                Integer totalDaysInMonth) {
+}
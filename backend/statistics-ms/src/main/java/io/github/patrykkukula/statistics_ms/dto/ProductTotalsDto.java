@@ -0,0 +1,6 @@
+package io.github.patrykkukula.statistics_ms.dto;
+
+// product counts exported by product-ms, also used for changes not checkpointed yet
+public record ProductTotalsDto(long globalProducts,
+                               long customProducts) {
+}
@@ -0,0 +1,6 @@
+package io.github.patrykkukula.statistics_ms.dto;
+
+public record ProductUsageExportDto(Long productId,
+                                    String productName,
+                                    Double quantity) {
+}
@@ -0,0 +1,14 @@
+package io.github.patrykkukula.statistics_ms.dto;
+
+import java.time.Instant;
+
+public record RebuildProgressDto(String state,
+                                 Instant startedAt,
+                                 Instant finishedAt,
+                                 long dietDaysRead,
+                                 long usersRebuilt,
+                                 long usersFailed,
+                                 double dietDaysPerSecond,
+                                 double usersPerSecond,
+                                 String error) {
+}
@@ -0,0 +1,13 @@
+package io.github.patrykkukula.statistics_ms.dto;
+
+import io.github.patrykkukula.statistics_ms.series.Macro;
+
+import java.time.LocalDate;
+
+// average of window days ending at each day from from to to
+public record RollingAverageDto(Macro macro,
+                                LocalDate from,
+                                LocalDate to,
+                                int window,
+                                double[] averages) {
+}
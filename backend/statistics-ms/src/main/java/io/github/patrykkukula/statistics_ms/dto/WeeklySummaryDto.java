@@ -1,6 +1,10 @@
 package io.github.patrykkukula.statistics_ms.dto;
 
+import java.time.LocalDate;
+
 public record WeeklySummaryDto(Long weeklySummaryId,
+                               LocalDate weekStart,
+                               LocalDate weekEnd,
                                Integer totalCalories,
                                Integer averageCalories,
                                Integer totalProtein,
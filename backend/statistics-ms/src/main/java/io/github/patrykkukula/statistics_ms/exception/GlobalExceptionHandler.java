@@ -0,0 +1,159 @@
+package io.github.patrykkukula.statistics_ms.exception;
+
+import io.github.patrykkukula.mealtrackingapp_common.dto.ErrorResponseDto;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+import java.util.stream.Collectors;
+
+import static io.github.patrykkukula.mealtrackingapp_common.utils.BasicUtils.setOccurrenceTime;
+
+
+@RestControllerAdvice
+@Slf4j
+public class GlobalExceptionHandler {
+    // invalid range or argument of statistics query
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponseDto> handleIllegalArgumentException(IllegalArgumentException ex, HttpServletRequest request) {
+        log.warn(
+                "IllegalArgumentException occurred in Statistics MS. path={}",
+                request.getRequestURI(),
+                ex
+        );
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                new ErrorResponseDto(
+                        HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                        HttpStatus.BAD_REQUEST.value(), ex.getMessage(),
+                        request.getRequestURI(),
+                        setOccurrenceTime()
+                )
+        );
+    }
+
+    // rebuild requested while previous one is still running
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponseDto> handleIllegalStateException(IllegalStateException ex, HttpServletRequest request) {
+        log.warn(
+                "IllegalStateException occurred in Statistics MS. path={}",
+                request.getRequestURI(),
+                ex
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                new ErrorResponseDto(
+                        HttpStatus.CONFLICT.getReasonPhrase(),
+                        HttpStatus.CONFLICT.value(), ex.getMessage(),
+                        request.getRequestURI(),
+                        setOccurrenceTime()
+                )
+        );
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponseDto> handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException ex, HttpServletRequest request) {
+        log.warn(
+                "MethodArgumentTypeMismatchException occurred in Statistics MS. path={}",
+                request.getRequestURI(),
+                ex
+        );
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                new ErrorResponseDto(
+                        HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                        HttpStatus.BAD_REQUEST.value(), ex.getName() + ": invalid value " + ex.getValue(),
+                        request.getRequestURI(),
+                        setOccurrenceTime()
+                )
+        );
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponseDto> handleAccessDeniedException(AccessDeniedException ex, HttpServletRequest request) {
+        log.warn(
+                "AccessDeniedException occurred in Statistics MS after SecurityFilterChain. path={}",
+                request.getRequestURI(),
+                ex
+        );
+
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(
+                new ErrorResponseDto(
+                        HttpStatus.FORBIDDEN.getReasonPhrase(),
+                        HttpStatus.FORBIDDEN.value(), ex.getMessage(),
+                        request.getRequestURI(),
+                        setOccurrenceTime()
+                )
+        );
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponseDto> handleConstraintViolationException(ConstraintViolationException ex, WebRequest webRequest) {
+        log.warn(
+                "ConstraintViolationException occurred in Statistics MS. path={}",
+                webRequest.getDescription(false),
+                ex
+        );
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                new ErrorResponseDto(HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                        HttpStatus.BAD_REQUEST.value(),
+                        ex.getConstraintViolations().stream()
+                                .map(ConstraintViolation::getMessage)
+                                .collect(Collectors.joining(", ")),
+                        webRequest.getDescription(false),
+                        setOccurrenceTime()
+                )
+        );
+    }
+
+    // @Min/@Max of request parameters validated by Spring MVC instead of method validation proxy
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponseDto> handleHandlerMethodValidationException(HandlerMethodValidationException ex, WebRequest webRequest) {
+        log.warn(
+                "HandlerMethodValidationException occurred in Statistics MS. path={}",
+                webRequest.getDescription(false),
+                ex
+        );
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                new ErrorResponseDto(HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                        HttpStatus.BAD_REQUEST.value(),
+                        ex.getAllErrors().stream()
+                                .map(MessageSourceResolvable::getDefaultMessage)
+                                .collect(Collectors.joining(", ")),
+                        webRequest.getDescription(false),
+                        setOccurrenceTime()
+                )
+        );
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponseDto> handleException(Exception ex, WebRequest webRequest) {
+        log.error(
+                "Unexpected exception occurred in Statistics MS. path={} | exception={}",
+                webRequest.getDescription(false),
+                ex.getClass(),
+                ex
+        );
+
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                new ErrorResponseDto(HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
+                        HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                        ex.getMessage(),
+                        webRequest.getDescription(false),
+                        setOccurrenceTime()
+                )
+        );
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.patrykkukula.statistics_ms.function;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayTotalsChangedEvent;
+import io.github.patrykkukula.statistics_ms.dedupe.EventDeduplicator;
+import io.github.patrykkukula.statistics_ms.service.DietDayTotalsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+
+import java.util.function.Consumer;
+
+@Configuration
+@Slf4j
+@RequiredArgsConstructor
+public class DietDayFunctions {
+    private final DietDayTotalsService dietDayTotalsService;
+    private final EventDeduplicator eventDeduplicator;
+
+    // removals and quantity updates, logged DietDays, Meals and products carry their totals
+    @Bean
+    public Consumer<Message<DietDayTotalsChangedEvent>> dietDayTotalsChangedEvent() {
+        return message -> eventDeduplicator.consumeOnce(message, () -> {
+            DietDayTotalsChangedEvent event = message.getPayload();
+            dietDayTotalsService.totalsChanged(event);
+            log.info("DietDayTotalsChanged Event received in statistics_ms for date: {}", event.date());
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.patrykkukula.statistics_ms.function;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Acknowledgement of messages consumed in MANUAL acknowledge mode once their processing completes. Listener thread
+ * returns right away, number of messages waiting for processing is bounded by binding prefetch. Failed message is
+ * rejected and requeued, also when processing fails before returning its future. Messages without channel header
+ * are acknowledged by the container, caller waits for processing instead so failure still reaches the container
+ */
+@Slf4j
+final class ManualAcknowledgement {
+    private ManualAcknowledgement() {}
+
+    static void acknowledgeWhenDone(Message<?> message, Supplier<? extends CompletableFuture<?>> processing) {
+        Channel channel = message.getHeaders().get(AmqpHeaders.CHANNEL, Channel.class);
+        Long deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+
+        if (channel == null || deliveryTag == null) {
+            processing.get().join();
+            return;
+        }
+        CompletableFuture<?> processed;
+        try {
+            processed = processing.get();
+        } catch (RuntimeException ex) {
+            processed = CompletableFuture.failedFuture(ex);
+        }
+        processed.whenComplete((ignored, ex) -> {
+            try {
+                if (ex == null) {
+                    channel.basicAck(deliveryTag, false);
+                } else {
+                    log.warn("Processing of message {} failed, message requeued: {}", deliveryTag, ex.getMessage());
+                    channel.basicNack(deliveryTag, false, true);
+                }
+            } catch (IOException ioException) {
+                log.error("Acknowledgement of message {} failed: {}", deliveryTag, ioException.getMessage());
+            }
+        });
+    }
+}
@@ -1,23 +1,117 @@
 package io.github.patrykkukula.statistics_ms.function;
 
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayLoggedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayTotalsChangedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.MealLoggedEvent;
 import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductAddedToMealEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductCreatedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductDeletedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.LoggedProduct;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.TotalsDelta;
+import io.github.patrykkukula.statistics_ms.dedupe.EventDeduplicator;
+import io.github.patrykkukula.statistics_ms.service.DietDayTotalsService;
+import io.github.patrykkukula.statistics_ms.service.DistinctProductsService;
 import io.github.patrykkukula.statistics_ms.service.StatisticsService;
+import io.github.patrykkukula.statistics_ms.service.TotalProductsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.function.Consumer;
 
 @Configuration
 @Slf4j
 @RequiredArgsConstructor
 public class ProductFunctions {
+    private static final String TOTALS_SCOPE = "totals";
+
     private final StatisticsService statisticsService;
+    private final TotalProductsService totalProductsService;
+    private final DistinctProductsService distinctProductsService;
+    private final EventDeduplicator eventDeduplicator;
+    private final DietDayTotalsService dietDayTotalsService;
 
-    public Consumer<ProductAddedToMealEvent> productAddedToMealEvent() {
-        return event -> {
-            statisticsService.addProductToProductCount(event);
+    /*
+        consumers do not wait for flush of accumulated usage - message is acknowledged once the flush it was added to
+        commits and requeued when flush fails, prefetch of bindings bounds messages waiting for one flush.
+        Duplicated events are dropped before usage is accumulated. Events sent before date was added count for today.
+        Cached statistics of the user are evicted by the flush that writes the usage.
+        Totals carried by the event are applied before usage is accumulated and claimed separately, so totals are not
+        applied again when the message is requeued by failed flush
+     */
+    @Bean
+    public Consumer<Message<ProductAddedToMealEvent>> productAddedToMealEvent() {
+        return message -> {
+            ProductAddedToMealEvent event = message.getPayload();
+            LocalDate date = event.date() != null ? event.date() : LocalDate.now();
+            ManualAcknowledgement.acknowledgeWhenDone(message, () -> {
+                applyTotals(message, event.username(), date, event.totals());
+                return eventDeduplicator.consumeOnceAsync(message, () -> {
+                    distinctProductsService.record(event.username(), date, List.of(event.productId()));
+                    return statisticsService.addProductToProductCount(event);
+                });
+            });
             log.info("ProductAddedToMeal Event received in statistics_ms for product ID: {}", event.productId());
         };
     }
+
+    @Bean
+    public Consumer<Message<MealLoggedEvent>> mealLoggedEvent() {
+        return message -> {
+            MealLoggedEvent event = message.getPayload();
+            ManualAcknowledgement.acknowledgeWhenDone(message, () -> {
+                applyTotals(message, event.username(), event.date(), event.totals());
+                return eventDeduplicator.consumeOnceAsync(message, () -> {
+                    distinctProductsService.record(event.username(), event.date(), event.products().stream().map(LoggedProduct::productId).toList());
+                    return statisticsService.addProductsToProductCount(event.username(), event.products());
+                });
+            });
+            log.info("MealLogged Event received in statistics_ms with products: {}", event.products().size());
+        };
+    }
+
+    @Bean
+    public Consumer<Message<DietDayLoggedEvent>> dietDayLoggedEvent() {
+        return message -> {
+            DietDayLoggedEvent event = message.getPayload();
+            ManualAcknowledgement.acknowledgeWhenDone(message, () -> {
+                applyTotals(message, event.username(), event.date(), event.totals());
+                return eventDeduplicator.consumeOnceAsync(message, () -> {
+                    distinctProductsService.record(event.username(), event.date(), event.products().stream().map(LoggedProduct::productId).toList());
+                    return statisticsService.addProductsToProductCount(event.username(), event.products());
+                });
+            });
+            log.info("DietDayLogged Event received in statistics_ms with meals: {}", event.meals().size());
+        };
+    }
+
+    @Bean
+    public Consumer<Message<ProductCreatedEvent>> productCreated() {
+        return message -> eventDeduplicator.consumeOnce(message, () -> {
+            ProductCreatedEvent event = message.getPayload();
+            totalProductsService.productCreated(event);
+            log.info("ProductCreated Event received in statistics_ms for product ID: {}", event.productId());
+        });
+    }
+
+    @Bean
+    public Consumer<Message<ProductDeletedEvent>> productDeleted() {
+        return message -> eventDeduplicator.consumeOnce(message, () -> {
+            ProductDeletedEvent event = message.getPayload();
+            totalProductsService.productDeleted(event);
+            log.info("ProductDeleted Event received in statistics_ms for product ID: {}", event.productId());
+        });
+    }
+
+    // events of producers publishing DietDayTotalsChangedEvent separately carry no totals
+    private void applyTotals(Message<?> message, String username, LocalDate date, TotalsDelta totals) {
+        if (totals != null) {
+            eventDeduplicator.consumeOnce(message, TOTALS_SCOPE,
+                    () -> dietDayTotalsService.totalsChanged(DietDayTotalsChangedEvent.of(username, date, totals)));
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package io.github.patrykkukula.statistics_ms.mapper;
 
+import io.github.patrykkukula.statistics_ms.dto.MostUsedProductDto;
 import io.github.patrykkukula.statistics_ms.dto.ProductCountDto;
 import io.github.patrykkukula.statistics_ms.model.ProductCount;
+import io.github.patrykkukula.statistics_ms.sketch.SpaceSavingSketch;
 
 public class ProductCountMapper {
 
@@ -17,6 +19,17 @@ public class ProductCountMapper {
                 .build();
     }
 
+    // product category is not part of usage events, left empty
+    public static MostUsedProductDto mapProductCountToMostUsedProductDto(ProductCount productCount) {
+        return new MostUsedProductDto(productCount.getProductId(), productCount.getProductName(), null,
+                productCount.getUsageCount(), productCount.getTotalQuantity(), calculateAverageQuantity(productCount));
+    }
+
+    public static MostUsedProductDto mapSketchEntryToMostUsedProductDto(SpaceSavingSketch.Entry entry) {
+        return new MostUsedProductDto(entry.getProductId(), entry.getProductName(), null,
+                (int) entry.getCount(), entry.getTotalQuantity(), entry.getTotalQuantity() / entry.getCount());
+    }
+
     private static double calculateAverageQuantity(ProductCount productCount) {
         return productCount.getTotalQuantity() / productCount.getUsageCount();
     }
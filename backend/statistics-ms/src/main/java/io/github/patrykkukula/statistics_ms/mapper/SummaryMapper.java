@@ -0,0 +1,52 @@
+package io.github.patrykkukula.statistics_ms.mapper;
+
+import io.github.patrykkukula.statistics_ms.dto.DailyAverageDto;
+import io.github.patrykkukula.statistics_ms.dto.MonthlySummaryDto;
+import io.github.patrykkukula.statistics_ms.dto.WeeklySummaryDto;
+import io.github.patrykkukula.statistics_ms.model.DailyAverage;
+import io.github.patrykkukula.statistics_ms.model.MonthlySummary;
+import io.github.patrykkukula.statistics_ms.model.WeeklySummary;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.YearMonth;
+
+public class SummaryMapper {
+
+    public static WeeklySummaryDto mapWeeklySummaryToWeeklySummaryDto(WeeklySummary weeklySummary) {
+        return new WeeklySummaryDto(weeklySummary.getWeeklySummaryId(), weeklySummary.getWeekStart(), weeklySummary.getWeekEnd(),
+                round(weeklySummary.getTotalCalories()), weeklySummary.getAverageCalories(),
+                round(weeklySummary.getTotalProtein()), weeklySummary.getDaysLogged());
+    }
+
+    public static MonthlySummaryDto mapMonthlySummaryToMonthlySummaryDto(MonthlySummary monthlySummary) {
+        return new MonthlySummaryDto(monthlySummary.getMonthlySummaryId(), monthlySummary.getYear(), monthlySummary.getMonth(),
+                monthlySummary.getMonthName(), round(monthlySummary.getTotalCalories()), round(monthlySummary.getTotalProtein()),
+                round(monthlySummary.getTotalCarbs()), round(monthlySummary.getTotalFat()), monthlySummary.getAverageCalories(),
+                monthlySummary.getAverageProtein(), monthlySummary.getAverageCarbs(), monthlySummary.getAverageFat(),
+                monthlySummary.getDaysWithDiet(), monthlySummary.getTotalDaysInMonth());
+    }
+
+    public static DailyAverageDto mapDailyAverageToDailyAverageDto(DailyAverage dailyAverage) {
+        return new DailyAverageDto(dailyAverage.getDailyAverageId(), dailyAverage.getAverageCalories(), dailyAverage.getAverageProtein(),
+                dailyAverage.getAverageCarbs(), dailyAverage.getAverageFat(), dailyAverage.getTotalDaysWithDied());
+    }
+
+    // summaries of periods without any DietDay logged
+    public static WeeklySummaryDto emptyWeeklySummary(LocalDate weekStart) {
+        return new WeeklySummaryDto(null, weekStart, weekStart.plusDays(6), 0, 0, 0, 0);
+    }
+
+    public static MonthlySummaryDto emptyMonthlySummary(int year, int month) {
+        return new MonthlySummaryDto(null, year, month, Month.of(month).toString(), 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                YearMonth.of(year, month).lengthOfMonth());
+    }
+
+    public static DailyAverageDto emptyDailyAverage() {
+        return new DailyAverageDto(null, 0, 0, 0, 0, 0);
+    }
+
+    private static Integer round(Double value) {
+        return (int) Math.round(value);
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.patrykkukula.statistics_ms.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Persisted DistributionSketch of daily calories of single user, histogram bins are delta encoded. Sketch is seeded
+ * again from DailyTotals when any day was updated after persistedAt
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_calorie_distribution_username", columnNames = "username"))
+@Getter @Setter
+@AllArgsConstructor @NoArgsConstructor
+public class CalorieDistribution {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long calorieDistributionId;
+
+    @Column(nullable = false)
+    private String username;
+    @Column(nullable = false)
+    private Long days;
+    @Column(nullable = false)
+    private Double mean;
+    @Column(nullable = false)
+    private Double m2;
+    @Column(nullable = false)
+    private Integer binCount;
+    @Column(nullable = false)
+    private byte[] bins;
+    @Column(nullable = false)
+    private Instant persistedAt;
+}
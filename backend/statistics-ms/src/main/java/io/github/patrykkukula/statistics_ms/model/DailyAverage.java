@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_daily_average_username", columnNames = "username"))
 @Getter @Setter
 @AllArgsConstructor @NoArgsConstructor
 public class DailyAverage {
@@ -14,6 +15,16 @@ public class DailyAverage {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     public Long dailyAverageId;
 
+    @Column(nullable = false)
+    public String username;
+    @Column(nullable = false)
+    public Double totalCalories;
+    @Column(nullable = false)
+    public Double totalProtein;
+    @Column(nullable = false)
+    public Double totalCarbs;
+    @Column(nullable = false)
+    public Double totalFat;
     @Column(nullable = false)
     public Integer averageCalories;
     @Column(nullable = false)
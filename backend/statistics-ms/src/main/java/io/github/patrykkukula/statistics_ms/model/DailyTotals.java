@@ -0,0 +1,41 @@
+package io.github.patrykkukula.statistics_ms.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Per-user day bucket with macro totals of single DietDay, weekly and monthly rollups receive the same deltas.
+ * MacroSeries loaded from stale blob patches days updated after it was persisted
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_daily_totals_username_date", columnNames = {"username", "date"}))
+@Getter @Setter
+@AllArgsConstructor @NoArgsConstructor
+public class DailyTotals {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long dailyTotalsId;
+
+    @Column(nullable = false)
+    private String username;
+    @Column(nullable = false)
+    private LocalDate date;
+    @Column(nullable = false)
+    private Double calories;
+    @Column(nullable = false)
+    private Double protein;
+    @Column(nullable = false)
+    private Double carbs;
+    @Column(nullable = false)
+    private Double fat;
+    @Column(nullable = false)
+    private Integer daysLogged;
+    @Column(nullable = false)
+    private Instant updatedAt;
+}
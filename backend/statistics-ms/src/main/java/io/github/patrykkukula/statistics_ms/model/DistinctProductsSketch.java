@@ -0,0 +1,29 @@
+package io.github.patrykkukula.statistics_ms.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * HyperLogLog registers of products used by single user in single month, months are merged for yearly count
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_distinct_products_sketch_username_month", columnNames = {"username", "year", "month"}))
+@Getter @Setter
+@AllArgsConstructor @NoArgsConstructor
+public class DistinctProductsSketch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long distinctProductsSketchId;
+
+    @Column(nullable = false)
+    private String username;
+    @Column(nullable = false)
+    private Integer year;
+    @Column(nullable = false)
+    private Integer month;
+    @Column(nullable = false)
+    private byte[] registers;
+}
@@ -0,0 +1,38 @@
+package io.github.patrykkukula.statistics_ms.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Delta encoded day columns of MacroSeries of single user and year. DailyTotals stays source of truth, days
+ * updated after persistedAt are patched from it when series is loaded
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_macro_series_blob_username_year", columnNames = {"username", "series_year"}))
+@Getter @Setter
+@AllArgsConstructor @NoArgsConstructor
+public class MacroSeriesBlob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long macroSeriesBlobId;
+
+    @Column(nullable = false)
+    private String username;
+    @Column(name = "series_year", nullable = false)
+    private Integer year;
+    @Column(nullable = false)
+    private byte[] calories;
+    @Column(nullable = false)
+    private byte[] protein;
+    @Column(nullable = false)
+    private byte[] carbs;
+    @Column(nullable = false)
+    private byte[] fat;
+    @Column(nullable = false)
+    private Instant persistedAt;
+}
@@ -8,6 +8,7 @@ import lombok.Setter;
 import java.time.Month;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_monthly_summary_username_month", columnNames = {"username", "year", "month"}))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,6 +17,8 @@ public class MonthlySummary {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     public Long monthlySummaryId;
 
+    @Column(nullable = false)
+    public String username;
     @Column(nullable = false)
     public Integer year;
     @Column(nullable = false)
@@ -23,13 +26,13 @@ public class MonthlySummary {
     @Column(nullable = false)
     public String monthName;
     @Column(nullable = false)
-    public Integer totalCalories;
+    public Double totalCalories;
     @Column(nullable = false)
-    public Integer totalProtein;
+    public Double totalProtein;
     @Column(nullable = false)
-    public Integer totalCarbs;
+    public Double totalCarbs;
     @Column(nullable = false)
-    public Integer totalFat;
+    public Double totalFat;
     @Column(nullable = false)
     public Integer averageCalories;
     @Column(nullable = false)
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_product_count_username_product", columnNames = {"username", "product_id"}))
 @Getter
 @Setter
 @AllArgsConstructor @NoArgsConstructor
@@ -0,0 +1,33 @@
+package io.github.patrykkukula.statistics_ms.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Persisted entry of user's most used products sketch, restored when sketch is first needed after restart
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_top_product_username", columnList = "username"))
+@Getter @Setter
+@AllArgsConstructor @NoArgsConstructor
+public class TopProduct {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long topProductId;
+
+    @Column(nullable = false)
+    private String username;
+    @Column(nullable = false)
+    private Long productId;
+    @Column(nullable = false)
+    private String productName;
+    @Column(nullable = false)
+    private Long usageCount;
+    @Column(nullable = false)
+    private Long usageError;
+    @Column(nullable = false)
+    private Double totalQuantity;
+}
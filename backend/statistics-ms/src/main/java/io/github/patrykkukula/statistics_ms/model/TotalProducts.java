@@ -6,12 +6,16 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+/**
+ * Catalog-wide product counts, single row with id ID checkpointed from in-memory counters
+ */
 @Entity
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 public class TotalProducts {
+    public static final Long ID = 1L;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     public Long totalProductsId;
 
     @Column(nullable = false)
@@ -0,0 +1,27 @@
+package io.github.patrykkukula.statistics_ms.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * HyperLogLog registers of products used by all users in week starting at weekStart
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_weekly_distinct_products_sketch_week", columnNames = "week_start"))
+@Getter @Setter
+@AllArgsConstructor @NoArgsConstructor
+public class WeeklyDistinctProductsSketch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long weeklyDistinctProductsSketchId;
+
+    @Column(nullable = false)
+    private LocalDate weekStart;
+    @Column(nullable = false)
+    private byte[] registers;
+}
@@ -9,6 +9,7 @@ import lombok.Setter;
 import java.time.LocalDate;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_weekly_summary_username_week", columnNames = {"username", "week_start"}))
 @Getter @Setter
 @AllArgsConstructor @NoArgsConstructor
 public class WeeklySummary {
@@ -16,16 +17,18 @@ public class WeeklySummary {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     public Long weeklySummaryId;
 
+    @Column(nullable = false)
+    private String username;
     @Column(nullable = false)
     private LocalDate weekStart;
     @Column(nullable = false)
     private LocalDate weekEnd;
     @Column(nullable = false)
-    public Integer totalCalories;
+    public Double totalCalories;
     @Column(nullable = false)
     public Integer averageCalories;
     @Column(nullable = false)
-    public Integer totalProtein;
+    public Double totalProtein;
     @Column(nullable = false)
     public Integer daysLogged;
 }
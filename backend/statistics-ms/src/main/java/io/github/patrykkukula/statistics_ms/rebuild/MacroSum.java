@@ -0,0 +1,49 @@
+package io.github.patrykkukula.statistics_ms.rebuild;
+
+import io.github.patrykkukula.statistics_ms.dto.DietDayExportDto;
+import lombok.Getter;
+
+/**
+ * Totals of DietDays falling into one rollup row. Averages round like CAST(... AS INTEGER) of the incremental upserts,
+ * so rebuilt rows equal the ones events would have produced
+ */
+@Getter
+public class MacroSum {
+    private double calories;
+    private double protein;
+    private double carbs;
+    private double fat;
+    private int days;
+
+    void add(DietDayExportDto dietDay) {
+        calories += valueOf(dietDay.calories());
+        protein += valueOf(dietDay.protein());
+        carbs += valueOf(dietDay.carbs());
+        fat += valueOf(dietDay.fat());
+        days++;
+    }
+
+    public int averageCalories() {
+        return average(calories);
+    }
+
+    public int averageProtein() {
+        return average(protein);
+    }
+
+    public int averageCarbs() {
+        return average(carbs);
+    }
+
+    public int averageFat() {
+        return average(fat);
+    }
+
+    private int average(double total) {
+        return days == 0 ? 0 : (int) Math.rint(total / days);
+    }
+
+    private static double valueOf(Double value) {
+        return value != null ? value : 0.0;
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.patrykkukula.statistics_ms.rebuild;
+
+import io.github.patrykkukula.statistics_ms.dto.RebuildProgressDto;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of last statistics rebuild, counters are updated by rebuild tasks and read by actuator and controller
+ */
+@Component
+public class RebuildProgress {
+    public enum State { IDLE, RUNNING, COMPLETED, FAILED }
+
+    private final AtomicLong dietDaysRead = new AtomicLong();
+    private final AtomicLong usersRebuilt = new AtomicLong();
+    private final AtomicLong usersFailed = new AtomicLong();
+    private State state = State.IDLE;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+
+    // false when rebuild is already running
+    public synchronized boolean start() {
+        if (state == State.RUNNING) {
+            return false;
+        }
+        dietDaysRead.set(0);
+        usersRebuilt.set(0);
+        usersFailed.set(0);
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        finishedAt = null;
+        error = null;
+        return true;
+    }
+
+    public synchronized void finish(String error) {
+        this.state = error == null ? State.COMPLETED : State.FAILED;
+        this.finishedAt = Instant.now();
+        this.error = error;
+    }
+
+    public void dietDayRead() {
+        dietDaysRead.incrementAndGet();
+    }
+
+    public void userRebuilt() {
+        usersRebuilt.incrementAndGet();
+    }
+
+    public void userFailed() {
+        usersFailed.incrementAndGet();
+    }
+
+    public synchronized RebuildProgressDto snapshot() {
+        double seconds = startedAt == null ? 0 : Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis() / 1000.0;
+        long dietDays = dietDaysRead.get();
+        long users = usersRebuilt.get();
+
+        return new RebuildProgressDto(state.name(), startedAt, finishedAt, dietDays, users, usersFailed.get(),
+                seconds > 0 ? dietDays / seconds : 0, seconds > 0 ? users / seconds : 0, error);
+    }
+}
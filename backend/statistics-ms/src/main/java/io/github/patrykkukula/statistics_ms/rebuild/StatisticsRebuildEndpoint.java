@@ -0,0 +1,20 @@
+package io.github.patrykkukula.statistics_ms.rebuild;
+
+import io.github.patrykkukula.statistics_ms.dto.RebuildProgressDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+// progress and throughput of statistics rebuild at /actuator/statisticsrebuild, rebuild itself is started by admin through API
+@Component
+@Endpoint(id = "statisticsrebuild")
+@RequiredArgsConstructor
+public class StatisticsRebuildEndpoint {
+    private final RebuildProgress rebuildProgress;
+
+    @ReadOperation
+    public RebuildProgressDto progress() {
+        return rebuildProgress.snapshot();
+    }
+}
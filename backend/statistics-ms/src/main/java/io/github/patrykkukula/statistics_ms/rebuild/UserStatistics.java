@@ -0,0 +1,73 @@
+package io.github.patrykkukula.statistics_ms.rebuild;
+
+import io.github.patrykkukula.statistics_ms.accumulator.ProductCountDelta;
+import io.github.patrykkukula.statistics_ms.dto.DietDayExportDto;
+import io.github.patrykkukula.statistics_ms.dto.ProductUsageExportDto;
+import io.github.patrykkukula.statistics_ms.service.RollupService;
+import io.github.patrykkukula.statistics_ms.sketch.HyperLogLog;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * All statistics of single user aggregated from exported DietDays - day buckets, weeks, months, all-time totals
+ * product usage and distinct products of months - written in place of existing rows of the user by rebuild
+ */
+@Getter
+public class UserStatistics {
+    private final String username;
+    private final Map<LocalDate, MacroSum> days = new TreeMap<>();
+    private final Map<LocalDate, MacroSum> weeks = new TreeMap<>();
+    private final Map<YearMonth, MacroSum> months = new TreeMap<>();
+    private final MacroSum allDays = new MacroSum();
+    private final Map<Long, ProductUsage> products = new TreeMap<>();
+    private final Map<YearMonth, HyperLogLog> distinctProducts = new TreeMap<>();
+
+    private UserStatistics(String username) {
+        this.username = username;
+    }
+
+    public static UserStatistics aggregate(String username, List<DietDayExportDto> dietDays) {
+        UserStatistics statistics = new UserStatistics(username);
+        dietDays.forEach(statistics::add);
+
+        return statistics;
+    }
+
+    public List<ProductCountDelta> productCounts() {
+        return products.entrySet().stream()
+                .map(entry -> new ProductCountDelta(username, entry.getKey(), entry.getValue().productName,
+                        entry.getValue().usageCount, entry.getValue().totalQuantity))
+                .toList();
+    }
+
+    private void add(DietDayExportDto dietDay) {
+        days.computeIfAbsent(dietDay.date(), date -> new MacroSum()).add(dietDay);
+        weeks.computeIfAbsent(RollupService.weekStart(dietDay.date()), weekStart -> new MacroSum()).add(dietDay);
+        months.computeIfAbsent(YearMonth.from(dietDay.date()), yearMonth -> new MacroSum()).add(dietDay);
+        allDays.add(dietDay);
+
+        if (dietDay.products() != null && !dietDay.products().isEmpty()) {
+            dietDay.products().forEach(this::addProductUsage);
+            HyperLogLog sketch = distinctProducts.computeIfAbsent(YearMonth.from(dietDay.date()), yearMonth -> new HyperLogLog());
+            dietDay.products().forEach(usage -> sketch.add(usage.productId()));
+        }
+    }
+
+    private void addProductUsage(ProductUsageExportDto usage) {
+        ProductUsage product = products.computeIfAbsent(usage.productId(), productId -> new ProductUsage());
+        product.productName = usage.productName();
+        product.usageCount++;
+        product.totalQuantity += usage.quantity() != null ? usage.quantity() : 0.0;
+    }
+
+    private static class ProductUsage {
+        private String productName;
+        private int usageCount;
+        private double totalQuantity;
+    }
+}
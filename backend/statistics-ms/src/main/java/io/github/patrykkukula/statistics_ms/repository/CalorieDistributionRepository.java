@@ -0,0 +1,39 @@
+package io.github.patrykkukula.statistics_ms.repository;
+
+import io.github.patrykkukula.statistics_ms.model.CalorieDistribution;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface CalorieDistributionRepository extends JpaRepository<CalorieDistribution, Long> {
+
+    public Optional<CalorieDistribution> findByUsername(String username);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO calorie_distribution (username, days, mean, m2, bin_count, bins, persisted_at) " +
+            "VALUES (:username, :days, :mean, :m2, :binCount, :bins, :persistedAt) " +
+            "ON CONFLICT (username) DO UPDATE SET " +
+            "days = excluded.days, " +
+            "mean = excluded.mean, " +
+            "m2 = excluded.m2, " +
+            "bin_count = excluded.bin_count, " +
+            "bins = excluded.bins, " +
+            "persisted_at = excluded.persisted_at",
+            nativeQuery = true)
+    public int upsertCalorieDistribution(
+            @Param(value = "username") String username,
+            @Param(value = "days") long days,
+            @Param(value = "mean") double mean,
+            @Param(value = "m2") double m2,
+            @Param(value = "binCount") int binCount,
+            @Param(value = "bins") byte[] bins,
+            @Param(value = "persistedAt") Instant persistedAt);
+}
@@ -2,8 +2,49 @@ package io.github.patrykkukula.statistics_ms.repository;
 
 import io.github.patrykkukula.statistics_ms.model.DailyAverage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface DailyAverageRepository extends JpaRepository<DailyAverage, Long> {
+
+    public Optional<DailyAverage> findByUsername(String username);
+
+    /**
+     * Add delta of single day to all-time totals of user, averages are derived from updated totals in the same statement
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_average (username, total_calories, total_protein, total_carbs, total_fat, total_days_with_died, " +
+            "average_calories, average_protein, average_carbs, average_fat) " +
+            "VALUES (:username, :calories, :protein, :carbs, :fat, :daysDelta, " +
+            "CAST(COALESCE(:calories / NULLIF(:daysDelta, 0), 0) AS INTEGER), " +
+            "CAST(COALESCE(:protein / NULLIF(:daysDelta, 0), 0) AS INTEGER), " +
+            "CAST(COALESCE(:carbs / NULLIF(:daysDelta, 0), 0) AS INTEGER), " +
+            "CAST(COALESCE(:fat / NULLIF(:daysDelta, 0), 0) AS INTEGER)) " +
+            "ON CONFLICT (username) DO UPDATE SET " +
+            "total_calories = daily_average.total_calories + excluded.total_calories, " +
+            "total_protein = daily_average.total_protein + excluded.total_protein, " +
+            "total_carbs = daily_average.total_carbs + excluded.total_carbs, " +
+            "total_fat = daily_average.total_fat + excluded.total_fat, " +
+            "total_days_with_died = daily_average.total_days_with_died + excluded.total_days_with_died, " +
+            "average_calories = CAST(COALESCE((daily_average.total_calories + excluded.total_calories) " +
+            "/ NULLIF(daily_average.total_days_with_died + excluded.total_days_with_died, 0), 0) AS INTEGER), " +
+            "average_protein = CAST(COALESCE((daily_average.total_protein + excluded.total_protein) " +
+            "/ NULLIF(daily_average.total_days_with_died + excluded.total_days_with_died, 0), 0) AS INTEGER), " +
+            "average_carbs = CAST(COALESCE((daily_average.total_carbs + excluded.total_carbs) " +
+            "/ NULLIF(daily_average.total_days_with_died + excluded.total_days_with_died, 0), 0) AS INTEGER), " +
+            "average_fat = CAST(COALESCE((daily_average.total_fat + excluded.total_fat) " +
+            "/ NULLIF(daily_average.total_days_with_died + excluded.total_days_with_died, 0), 0) AS INTEGER)",
+            nativeQuery = true)
+    public int addToDailyAverage(
+            @Param(value = "username") String username,
+            @Param(value = "calories") Double calories,
+            @Param(value = "protein") Double protein,
+            @Param(value = "carbs") Double carbs,
+            @Param(value = "fat") Double fat,
+            @Param(value = "daysDelta") int daysDelta);
 }
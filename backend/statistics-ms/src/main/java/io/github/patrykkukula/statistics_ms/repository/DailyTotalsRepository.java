@@ -0,0 +1,50 @@
+package io.github.patrykkukula.statistics_ms.repository;
+
+import io.github.patrykkukula.statistics_ms.model.DailyTotals;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyTotalsRepository extends JpaRepository<DailyTotals, Long> {
+
+    public Optional<DailyTotals> findByUsernameAndDate(String username, LocalDate date);
+
+    public List<DailyTotals> findByUsernameAndDateBetween(String username, LocalDate from, LocalDate to);
+
+    public List<DailyTotals> findByUsernameAndDaysLoggedGreaterThan(String username, Integer daysLogged);
+
+    public List<DailyTotals> findByUsernameAndDateBetweenAndUpdatedAtAfter(String username, LocalDate from, LocalDate to, Instant updatedAt);
+
+    public boolean existsByUsernameAndUpdatedAtAfter(String username, Instant updatedAt);
+
+    /**
+     * Add delta to day bucket of user, bucket is created with first change of the day
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_totals (username, date, calories, protein, carbs, fat, days_logged, updated_at) " +
+            "VALUES (:username, :date, :calories, :protein, :carbs, :fat, :daysDelta, now()) " +
+            "ON CONFLICT (username, date) DO UPDATE SET " +
+            "calories = daily_totals.calories + excluded.calories, " +
+            "protein = daily_totals.protein + excluded.protein, " +
+            "carbs = daily_totals.carbs + excluded.carbs, " +
+            "fat = daily_totals.fat + excluded.fat, " +
+            "days_logged = daily_totals.days_logged + excluded.days_logged, " +
+            "updated_at = excluded.updated_at",
+            nativeQuery = true)
+    public int addToDailyTotals(
+            @Param(value = "username") String username,
+            @Param(value = "date") LocalDate date,
+            @Param(value = "calories") Double calories,
+            @Param(value = "protein") Double protein,
+            @Param(value = "carbs") Double carbs,
+            @Param(value = "fat") Double fat,
+            @Param(value = "daysDelta") int daysDelta);
+}
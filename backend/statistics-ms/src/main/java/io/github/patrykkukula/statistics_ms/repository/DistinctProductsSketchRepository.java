@@ -0,0 +1,52 @@
+package io.github.patrykkukula.statistics_ms.repository;
+
+import io.github.patrykkukula.statistics_ms.model.DistinctProductsSketch;
+import io.github.patrykkukula.statistics_ms.sketch.HyperLogLog;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DistinctProductsSketchRepository extends JpaRepository<DistinctProductsSketch, Long> {
+
+    public Optional<DistinctProductsSketch> findByUsernameAndYearAndMonth(String username, Integer year, Integer month);
+
+    public List<DistinctProductsSketch> findByUsernameAndYear(String username, Integer year);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    public Optional<DistinctProductsSketch> findForUpdateByUsernameAndYearAndMonth(String username, Integer year, Integer month);
+
+    @Modifying
+    @Query(value = "INSERT INTO distinct_products_sketch (username, year, month, registers) " +
+            "VALUES (:username, :year, :month, :registers) " +
+            "ON CONFLICT (username, year, month) DO NOTHING",
+            nativeQuery = true)
+    public int insertDistinctProductsSketch(
+            @Param(value = "username") String username,
+            @Param(value = "year") int year,
+            @Param(value = "month") int month,
+            @Param(value = "registers") byte[] registers);
+
+    /*
+        merge registers into persisted sketch by maximum of each register, so sketch written by another instance
+        or by rebuild since this one was loaded is not overwritten. Persisted row is locked until commit
+     */
+    @Transactional
+    public default void mergeDistinctProductsSketch(String username, int year, int month, byte[] registers) {
+        if (insertDistinctProductsSketch(username, year, month, registers) > 0) {
+            return;
+        }
+        DistinctProductsSketch persisted = findForUpdateByUsernameAndYearAndMonth(username, year, month).orElseThrow();
+        HyperLogLog merged = HyperLogLog.of(persisted.getRegisters());
+        merged.merge(HyperLogLog.of(registers));
+        persisted.setRegisters(merged.toBytes());
+    }
+}
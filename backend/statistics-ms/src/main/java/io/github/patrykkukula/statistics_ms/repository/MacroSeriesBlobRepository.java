@@ -0,0 +1,38 @@
+package io.github.patrykkukula.statistics_ms.repository;
+
+import io.github.patrykkukula.statistics_ms.model.MacroSeriesBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface MacroSeriesBlobRepository extends JpaRepository<MacroSeriesBlob, Long> {
+
+    public Optional<MacroSeriesBlob> findByUsernameAndYear(String username, Integer year);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO macro_series_blob (username, series_year, calories, protein, carbs, fat, persisted_at) " +
+            "VALUES (:username, :year, :calories, :protein, :carbs, :fat, :persistedAt) " +
+            "ON CONFLICT (username, series_year) DO UPDATE SET " +
+            "calories = excluded.calories, " +
+            "protein = excluded.protein, " +
+            "carbs = excluded.carbs, " +
+            "fat = excluded.fat, " +
+            "persisted_at = excluded.persisted_at",
+            nativeQuery = true)
+    public int upsertMacroSeriesBlob(
+            @Param(value = "username") String username,
+            @Param(value = "year") int year,
+            @Param(value = "calories") byte[] calories,
+            @Param(value = "protein") byte[] protein,
+            @Param(value = "carbs") byte[] carbs,
+            @Param(value = "fat") byte[] fat,
+            @Param(value = "persistedAt") Instant persistedAt);
+}
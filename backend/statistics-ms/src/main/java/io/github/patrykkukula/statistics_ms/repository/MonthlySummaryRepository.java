@@ -2,8 +2,54 @@ package io.github.patrykkukula.statistics_ms.repository;
 
 import io.github.patrykkukula.statistics_ms.model.MonthlySummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface MonthlySummaryRepository extends JpaRepository<MonthlySummary, Long> {
+
+    public Optional<MonthlySummary> findByUsernameAndYearAndMonth(String username, Integer year, Integer month);
+
+    /**
+     * Add delta of single day to month containing it, averages are derived from updated totals in the same statement
+     */
+    @Modifying
+    @Query(value = "INSERT INTO monthly_summary (username, year, month, month_name, total_days_in_month, " +
+            "total_calories, total_protein, total_carbs, total_fat, days_with_diet, " +
+            "average_calories, average_protein, average_carbs, average_fat) " +
+            "VALUES (:username, :year, :month, :monthName, :daysInMonth, :calories, :protein, :carbs, :fat, :daysDelta, " +
+            "CAST(COALESCE(:calories / NULLIF(:daysDelta, 0), 0) AS INTEGER), " +
+            "CAST(COALESCE(:protein / NULLIF(:daysDelta, 0), 0) AS INTEGER), " +
+            "CAST(COALESCE(:carbs / NULLIF(:daysDelta, 0), 0) AS INTEGER), " +
+            "CAST(COALESCE(:fat / NULLIF(:daysDelta, 0), 0) AS INTEGER)) " +
+            "ON CONFLICT (username, year, month) DO UPDATE SET " +
+            "total_calories = monthly_summary.total_calories + excluded.total_calories, " +
+            "total_protein = monthly_summary.total_protein + excluded.total_protein, " +
+            "total_carbs = monthly_summary.total_carbs + excluded.total_carbs, " +
+            "total_fat = monthly_summary.total_fat + excluded.total_fat, " +
+            "days_with_diet = monthly_summary.days_with_diet + excluded.days_with_diet, " +
+            "average_calories = CAST(COALESCE((monthly_summary.total_calories + excluded.total_calories) " +
+            "/ NULLIF(monthly_summary.days_with_diet + excluded.days_with_diet, 0), 0) AS INTEGER), " +
+            "average_protein = CAST(COALESCE((monthly_summary.total_protein + excluded.total_protein) " +
+            "/ NULLIF(monthly_summary.days_with_diet + excluded.days_with_diet, 0), 0) AS INTEGER), " +
+            "average_carbs = CAST(COALESCE((monthly_summary.total_carbs + excluded.total_carbs) " +
+            "/ NULLIF(monthly_summary.days_with_diet + excluded.days_with_diet, 0), 0) AS INTEGER), " +
+            "average_fat = CAST(COALESCE((monthly_summary.total_fat + excluded.total_fat) " +
+            "/ NULLIF(monthly_summary.days_with_diet + excluded.days_with_diet, 0), 0) AS INTEGER)",
+            nativeQuery = true)
+    public int addToMonthlySummary(
+            @Param(value = "username") String username,
+            @Param(value = "year") int year,
+            @Param(value = "month") int month,
+            @Param(value = "monthName") String monthName,
+            @Param(value = "daysInMonth") int daysInMonth,
+            @Param(value = "calories") Double calories,
+            @Param(value = "protein") Double protein,
+            @Param(value = "carbs") Double carbs,
+            @Param(value = "fat") Double fat,
+            @Param(value = "daysDelta") int daysDelta);
 }
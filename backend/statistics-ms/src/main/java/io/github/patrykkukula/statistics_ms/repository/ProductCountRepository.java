@@ -1,12 +1,13 @@
 package io.github.patrykkukula.statistics_ms.repository;
 
 import io.github.patrykkukula.statistics_ms.model.ProductCount;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.awt.print.Pageable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +16,11 @@ public interface ProductCountRepository extends JpaRepository<ProductCount, Long
 
     public Optional<ProductCount> findByProductIdAndUsername(Long productId, String username);
 
-    @Query("SELECT pc FROM ProductCount pc WHERE pc.username =  :username")
+    public List<ProductCount> findByUsernameAndProductIdIn(String username, Collection<Long> productIds);
+
+    /**
+     * Exact most used products, scans all ProductCounts of user - used to seed the sketch and to verify it
+     */
+    @Query("SELECT pc FROM ProductCount pc WHERE pc.username= :username ORDER BY pc.usageCount DESC, pc.productId")
     public List<ProductCount> findMostUsedProductsByUsername(@Param(value = "username") String username, Pageable pageable);
 }
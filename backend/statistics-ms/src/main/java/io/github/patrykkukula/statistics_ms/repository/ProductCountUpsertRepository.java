@@ -0,0 +1,37 @@
+package io.github.patrykkukula.statistics_ms.repository;
+
+import io.github.patrykkukula.statistics_ms.accumulator.ProductCountDelta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Adds accumulated usage to ProductCount rows without reading them - one batched upsert per flush, missing
+ * rows are inserted and existing ones incremented in place
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductCountUpsertRepository {
+    private static final String UPSERT_PRODUCT_COUNT = "INSERT INTO product_count (username, product_id, product_name, usage_count, total_quantity) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (username, product_id) DO UPDATE SET " +
+            "usage_count = product_count.usage_count + excluded.usage_count, " +
+            "total_quantity = product_count.total_quantity + excluded.total_quantity, " +
+            "product_name = excluded.product_name";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void upsertProductCounts(List<ProductCountDelta> deltas) {
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT_COUNT, deltas, deltas.size(), (statement, delta) -> {
+            statement.setString(1, delta.username());
+            statement.setLong(2, delta.productId());
+            statement.setString(3, delta.productName());
+            statement.setInt(4, delta.usageCount());
+            statement.setDouble(5, delta.totalQuantity());
+        });
+    }
+}
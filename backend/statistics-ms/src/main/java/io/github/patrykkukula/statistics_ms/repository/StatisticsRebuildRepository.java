@@ -0,0 +1,126 @@
+package io.github.patrykkukula.statistics_ms.repository;
+
+import io.github.patrykkukula.statistics_ms.rebuild.MacroSum;
+import io.github.patrykkukula.statistics_ms.rebuild.UserStatistics;
+import io.github.patrykkukula.statistics_ms.sketch.HyperLogLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Replaces all statistics rows of single user with rebuilt ones in one transaction, readers see either old or
+ * rebuilt rows of the user, never a mix. Persisted sketches and series of the user are removed and built again
+ * from rebuilt rows on next read
+ */
+@Repository
+@RequiredArgsConstructor
+public class StatisticsRebuildRepository {
+    private static final List<String> USER_TABLES = List.of("daily_totals", "weekly_summary", "monthly_summary",
+            "daily_average", "product_count", "top_product", "macro_series_blob", "distinct_products_sketch",
+            "calorie_distribution");
+    private static final String INSERT_DAILY_TOTALS = "INSERT INTO daily_totals (username, date, calories, protein, carbs, fat, days_logged, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, now())";
+    private static final String INSERT_WEEKLY_SUMMARY = "INSERT INTO weekly_summary (username, week_start, week_end, total_calories, total_protein, " +
+            "days_logged, average_calories) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MONTHLY_SUMMARY = "INSERT INTO monthly_summary (username, year, month, month_name, total_days_in_month, " +
+            "total_calories, total_protein, total_carbs, total_fat, days_with_diet, " +
+            "average_calories, average_protein, average_carbs, average_fat) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_DAILY_AVERAGE = "INSERT INTO daily_average (username, total_calories, total_protein, total_carbs, total_fat, " +
+            "total_days_with_died, average_calories, average_protein, average_carbs, average_fat) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_DISTINCT_PRODUCTS_SKETCH = "INSERT INTO distinct_products_sketch (username, year, month, registers) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductCountUpsertRepository productCountUpsertRepository;
+
+    @Transactional
+    public void replaceUserStatistics(UserStatistics statistics) {
+        String username = statistics.getUsername();
+        deleteUserStatistics(username);
+
+        List<Map.Entry<LocalDate, MacroSum>> days = new ArrayList<>(statistics.getDays().entrySet());
+        jdbcTemplate.batchUpdate(INSERT_DAILY_TOTALS, days, days.size(), (statement, day) -> {
+            statement.setString(1, username);
+            statement.setObject(2, day.getKey());
+            statement.setDouble(3, day.getValue().getCalories());
+            statement.setDouble(4, day.getValue().getProtein());
+            statement.setDouble(5, day.getValue().getCarbs());
+            statement.setDouble(6, day.getValue().getFat());
+            statement.setInt(7, day.getValue().getDays());
+        });
+
+        List<Map.Entry<LocalDate, MacroSum>> weeks = new ArrayList<>(statistics.getWeeks().entrySet());
+        jdbcTemplate.batchUpdate(INSERT_WEEKLY_SUMMARY, weeks, weeks.size(), (statement, week) -> {
+            statement.setString(1, username);
+            statement.setObject(2, week.getKey());
+            statement.setObject(3, week.getKey().plusDays(6));
+            statement.setDouble(4, week.getValue().getCalories());
+            statement.setDouble(5, week.getValue().getProtein());
+            statement.setInt(6, week.getValue().getDays());
+            statement.setInt(7, week.getValue().averageCalories());
+        });
+
+        List<Map.Entry<YearMonth, MacroSum>> months = new ArrayList<>(statistics.getMonths().entrySet());
+        jdbcTemplate.batchUpdate(INSERT_MONTHLY_SUMMARY, months, months.size(), (statement, month) -> {
+            YearMonth yearMonth = month.getKey();
+            MacroSum sum = month.getValue();
+            statement.setString(1, username);
+            statement.setInt(2, yearMonth.getYear());
+            statement.setInt(3, yearMonth.getMonthValue());
+            statement.setString(4, yearMonth.getMonth().toString());
+            statement.setInt(5, yearMonth.lengthOfMonth());
+            statement.setDouble(6, sum.getCalories());
+            statement.setDouble(7, sum.getProtein());
+            statement.setDouble(8, sum.getCarbs());
+            statement.setDouble(9, sum.getFat());
+            statement.setInt(10, sum.getDays());
+            statement.setInt(11, sum.averageCalories());
+            statement.setInt(12, sum.averageProtein());
+            statement.setInt(13, sum.averageCarbs());
+            statement.setInt(14, sum.averageFat());
+        });
+
+        MacroSum allDays = statistics.getAllDays();
+        if (allDays.getDays() > 0) {
+            jdbcTemplate.update(INSERT_DAILY_AVERAGE, username, allDays.getCalories(), allDays.getProtein(), allDays.getCarbs(),
+                    allDays.getFat(), allDays.getDays(), allDays.averageCalories(), allDays.averageProtein(),
+                    allDays.averageCarbs(), allDays.averageFat());
+        }
+
+        List<Map.Entry<YearMonth, HyperLogLog>> sketches = new ArrayList<>(statistics.getDistinctProducts().entrySet());
+        jdbcTemplate.batchUpdate(INSERT_DISTINCT_PRODUCTS_SKETCH, sketches, sketches.size(), (statement, sketch) -> {
+            statement.setString(1, username);
+            statement.setInt(2, sketch.getKey().getYear());
+            statement.setInt(3, sketch.getKey().getMonthValue());
+            statement.setBytes(4, sketch.getValue().toBytes());
+        });
+
+        productCountUpsertRepository.upsertProductCounts(statistics.productCounts());
+    }
+
+    // users having any statistics row
+    public Set<String> findUsernames() {
+        String query = USER_TABLES.stream()
+                .map(table -> "SELECT username FROM " + table)
+                .collect(Collectors.joining(" UNION "));
+        return new HashSet<>(jdbcTemplate.queryForList(query, String.class));
+    }
+
+    @Transactional
+    public void deleteUserStatistics(String username) {
+        USER_TABLES.forEach(table -> jdbcTemplate.update("DELETE FROM " + table + " WHERE username = ?", username));
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.patrykkukula.statistics_ms.repository;
+
+import io.github.patrykkukula.statistics_ms.model.TopProduct;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TopProductRepository extends JpaRepository<TopProduct, Long> {
+
+    public List<TopProduct> findByUsername(String username);
+
+    @Modifying
+    @Query("DELETE FROM TopProduct t WHERE t.username IN :usernames")
+    public int deleteByUsernameIn(@Param(value = "usernames") Collection<String> usernames);
+
+    // replace persisted sketches of given users in one transaction
+    @Transactional
+    public default void replaceTopProducts(Collection<String> usernames, List<TopProduct> topProducts) {
+        deleteByUsernameIn(usernames);
+        saveAll(topProducts);
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.patrykkukula.statistics_ms.repository;
+
+import io.github.patrykkukula.statistics_ms.model.TotalProducts;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface TotalProductsRepository extends JpaRepository<TotalProducts, Long> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO total_products (total_products_id, total_products, global_products, custom_products) " +
+            "VALUES (:id, 0, 0, 0) ON CONFLICT (total_products_id) DO NOTHING", nativeQuery = true)
+    public int createIfAbsent(@Param(value = "id") Long id);
+
+    // add changes counted since last checkpoint
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE total_products SET " +
+            "global_products = global_products + :global, " +
+            "custom_products = custom_products + :custom, " +
+            "total_products = total_products + :global + :custom " +
+            "WHERE total_products_id = :id", nativeQuery = true)
+    public int addToTotalProducts(
+            @Param(value = "id") Long id,
+            @Param(value = "global") long global,
+            @Param(value = "custom") long custom);
+
+    // overwrite counts with values recomputed from product-ms
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE total_products SET " +
+            "global_products = :global, " +
+            "custom_products = :custom, " +
+            "total_products = :global + :custom " +
+            "WHERE total_products_id = :id", nativeQuery = true)
+    public int replaceTotalProducts(
+            @Param(value = "id") Long id,
+            @Param(value = "global") long global,
+            @Param(value = "custom") long custom);
+}
@@ -0,0 +1,45 @@
+package io.github.patrykkukula.statistics_ms.repository;
+
+import io.github.patrykkukula.statistics_ms.model.WeeklyDistinctProductsSketch;
+import io.github.patrykkukula.statistics_ms.sketch.HyperLogLog;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface WeeklyDistinctProductsSketchRepository extends JpaRepository<WeeklyDistinctProductsSketch, Long> {
+
+    public Optional<WeeklyDistinctProductsSketch> findByWeekStart(LocalDate weekStart);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    public Optional<WeeklyDistinctProductsSketch> findForUpdateByWeekStart(LocalDate weekStart);
+
+    @Modifying
+    @Query(value = "INSERT INTO weekly_distinct_products_sketch (week_start, registers) " +
+            "VALUES (:weekStart, :registers) " +
+            "ON CONFLICT (week_start) DO NOTHING",
+            nativeQuery = true)
+    public int insertWeeklyDistinctProductsSketch(
+            @Param(value = "weekStart") LocalDate weekStart,
+            @Param(value = "registers") byte[] registers);
+
+    // week is shared by all users and persisted by every instance, registers are merged under row lock
+    @Transactional
+    public default void mergeWeeklyDistinctProductsSketch(LocalDate weekStart, byte[] registers) {
+        if (insertWeeklyDistinctProductsSketch(weekStart, registers) > 0) {
+            return;
+        }
+        WeeklyDistinctProductsSketch persisted = findForUpdateByWeekStart(weekStart).orElseThrow();
+        HyperLogLog merged = HyperLogLog.of(persisted.getRegisters());
+        merged.merge(HyperLogLog.of(registers));
+        persisted.setRegisters(merged.toBytes());
+    }
+}
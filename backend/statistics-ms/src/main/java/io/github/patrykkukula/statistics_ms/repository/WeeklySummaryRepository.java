@@ -0,0 +1,39 @@
+package io.github.patrykkukula.statistics_ms.repository;
+
+import io.github.patrykkukula.statistics_ms.model.WeeklySummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface WeeklySummaryRepository extends JpaRepository<WeeklySummary, Long> {
+
+    public Optional<WeeklySummary> findByUsernameAndWeekStart(String username, LocalDate weekStart);
+
+    /**
+     * Add delta of single day to week containing it, average is derived from updated totals in the same statement
+     */
+    @Modifying
+    @Query(value = "INSERT INTO weekly_summary (username, week_start, week_end, total_calories, total_protein, days_logged, average_calories) " +
+            "VALUES (:username, :weekStart, :weekEnd, :calories, :protein, :daysDelta, " +
+            "CAST(COALESCE(:calories / NULLIF(:daysDelta, 0), 0) AS INTEGER)) " +
+            "ON CONFLICT (username, week_start) DO UPDATE SET " +
+            "total_calories = weekly_summary.total_calories + excluded.total_calories, " +
+            "total_protein = weekly_summary.total_protein + excluded.total_protein, " +
+            "days_logged = weekly_summary.days_logged + excluded.days_logged, " +
+            "average_calories = CAST(COALESCE((weekly_summary.total_calories + excluded.total_calories) " +
+            "/ NULLIF(weekly_summary.days_logged + excluded.days_logged, 0), 0) AS INTEGER)",
+            nativeQuery = true)
+    public int addToWeeklySummary(
+            @Param(value = "username") String username,
+            @Param(value = "weekStart") LocalDate weekStart,
+            @Param(value = "weekEnd") LocalDate weekEnd,
+            @Param(value = "calories") Double calories,
+            @Param(value = "protein") Double protein,
+            @Param(value = "daysDelta") int daysDelta);
+}
@@ -26,7 +26,11 @@ public class SecurityConfig {
                 .securityContext(scc -> scc.requireExplicitSave(false))
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(authorize -> authorize.
-                        requestMatchers(HttpMethod.GET, "/api/statistics/**").permitAll()
+                        requestMatchers(HttpMethod.GET, "/api/statistics/total-products").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/statistics/distinct-products/all-users").hasRole(ROLE_ADMIN)
+                        .requestMatchers(HttpMethod.GET, "/api/statistics/**").authenticated()
+                        .requestMatchers(HttpMethod.POST, "/api/statistics/total-products/reconcile").hasRole(ROLE_ADMIN)
+                        .requestMatchers(HttpMethod.POST, "/api/statistics/rebuild").hasRole(ROLE_ADMIN)
                         .requestMatchers("/api/products/**").authenticated())
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwtConfigurer -> jwtConfigurer.jwtAuthenticationConverter(jwtAuthenticationConverter())));
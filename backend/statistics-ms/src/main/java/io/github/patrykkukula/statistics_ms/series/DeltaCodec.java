@@ -0,0 +1,46 @@
+package io.github.patrykkukula.statistics_ms.series;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Column of day values written as differences between consecutive days, zigzag encoded varints. Neighbouring days
+ * have similar totals and days without DietDay are zero, so most slots take one or two bytes instead of four
+ */
+public final class DeltaCodec {
+
+    private DeltaCodec() {}
+
+    public static byte[] encode(int[] values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(values.length * 2);
+        int previous = 0;
+        for (int value : values) {
+            int delta = value - previous;
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            while ((zigzag & ~0x7F) != 0) {
+                out.write((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            out.write(zigzag);
+            previous = value;
+        }
+        return out.toByteArray();
+    }
+
+    // decode into target, which must have as many slots as were encoded
+    public static void decode(byte[] encoded, int[] target) {
+        int position = 0;
+        int previous = 0;
+        for (int slot = 0; slot < target.length; slot++) {
+            int zigzag = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = encoded[position++];
+                zigzag |= (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            target[slot] = previous;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package io.github.patrykkukula.statistics_ms.series;
+
+// macro stored as one column of MacroSeries
+public enum Macro {
+    CALORIES, PROTEIN, CARBS, FAT
+}
@@ -0,0 +1,35 @@
+package io.github.patrykkukula.statistics_ms.series;
+
+import java.time.LocalDate;
+
+/**
+ * Daily macro totals of single user in single year, one int column per macro indexed by day of year. Slot 365 is
+ * only used in leap years, days without DietDay are zero
+ */
+public class MacroSeries {
+    public static final int DAYS = 366;
+
+    private final int[][] columns = new int[Macro.values().length][DAYS];
+
+    public static int slot(LocalDate date) {
+        return date.getDayOfYear() - 1;
+    }
+
+    public int[] column(Macro macro) {
+        return columns[macro.ordinal()];
+    }
+
+    public void setDay(LocalDate date, int calories, int protein, int carbs, int fat) {
+        int slot = slot(date);
+        columns[Macro.CALORIES.ordinal()][slot] = calories;
+        columns[Macro.PROTEIN.ordinal()][slot] = protein;
+        columns[Macro.CARBS.ordinal()][slot] = carbs;
+        columns[Macro.FAT.ordinal()][slot] = fat;
+    }
+
+    // copy slots of macro from fromDate to toDate (both inclusive) into target starting at offset
+    public void copy(Macro macro, LocalDate fromDate, LocalDate toDate, int[] target, int offset) {
+        int from = slot(fromDate);
+        System.arraycopy(columns[macro.ordinal()], from, target, offset, slot(toDate) - from + 1);
+    }
+}
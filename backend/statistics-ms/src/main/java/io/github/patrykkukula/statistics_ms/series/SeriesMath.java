@@ -0,0 +1,53 @@
+package io.github.patrykkukula.statistics_ms.series;
+
+/**
+ * Aggregations over day values, single pass over primitive arrays
+ */
+public final class SeriesMath {
+
+    private SeriesMath() {}
+
+    /*
+        values hold window - 1 days preceding the range followed by the range itself, result has one average
+        per day of the range
+     */
+    public static double[] rollingAverage(int[] values, int window) {
+        double[] averages = new double[values.length - window + 1];
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+            if (i >= window) {
+                sum -= values[i - window];
+            }
+            if (i >= window - 1) {
+                averages[i - window + 1] = (double) sum / window;
+            }
+        }
+        return averages;
+    }
+
+    public static double average(int[] values) {
+        long sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return values.length == 0 ? 0 : (double) sum / values.length;
+    }
+
+    // least squares slope - average change of value per day
+    public static double slope(int[] values) {
+        int n = values.length;
+        if (n < 2) {
+            return 0;
+        }
+        double sumY = 0;
+        double sumXY = 0;
+        for (int x = 0; x < n; x++) {
+            sumY += values[x];
+            sumXY += (double) x * values[x];
+        }
+        double meanX = (n - 1) / 2.0;
+        double sumXX = (double) n * (n - 1) * (2L * n - 1) / 6;
+        return (sumXY - meanX * sumY) / (sumXX - n * meanX * meanX);
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayTotalsChangedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.dto.CalorieDistributionDto;
+import io.github.patrykkukula.statistics_ms.model.DailyTotals;
+import io.github.patrykkukula.statistics_ms.repository.CalorieDistributionRepository;
+import io.github.patrykkukula.statistics_ms.repository.DailyTotalsRepository;
+import io.github.patrykkukula.statistics_ms.sketch.DistributionSketch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Mean, standard deviation, median and p90 of daily calories of every user kept in DistributionSketch, updated
+    with every change of DietDay totals, so reading them does not touch DailyTotals. Sketch is persisted periodically,
+    persisted sketch older than last change of DailyTotals of the user is seeded again from them. Sketch evicted
+    before persist is seeded again the same way
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CalorieDistributionService {
+    private final CalorieDistributionRepository calorieDistributionRepository;
+    private final DailyTotalsRepository dailyTotalsRepository;
+    private static final Duration RESEED_MARGIN = Duration.ofMinutes(5);         // updatedAt is start of transaction that committed later
+    private final AuthenticationUtils authenticationUtils;
+    private final Set<String> changedUsers = ConcurrentHashMap.newKeySet();
+    private Cache<String, DistributionSketch> sketches;
+
+    @Value("${app.statistics.calorie-distribution-cache-size:10000}")
+    private long cacheSize;
+
+    @PostConstruct
+    public void createSketchCache() {
+        sketches = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    public CalorieDistributionDto getCalorieDistribution() {
+        DistributionSketch sketch = sketches.get(authenticationUtils.getAuthenticatedUserUsername(), this::loadSketch);
+        synchronized (sketch) {
+            return new CalorieDistributionDto(sketch.getCount(), sketch.getMean(), sketch.standardDeviation(),
+                    sketch.quantile(0.5), sketch.quantile(0.9));
+        }
+    }
+
+    /*
+        sketch must be loaded before DailyTotals change is committed, sketch seeded from DailyTotals after the commit
+        would count the change twice
+     */
+    public void load(String username) {
+        sketches.get(username, this::loadSketch);
+    }
+
+    /*
+        old total of the day is derived from committed one, day counts only while it has DietDay. Old total missing
+        in the sketch means sketch drifted from DailyTotals - it is dropped and next load seeds it from them, the
+        change is already committed there and newer than any persisted sketch
+     */
+    public void dayChanged(DietDayTotalsChangedEvent event, DailyTotals dailyTotals) {
+        DistributionSketch sketch = sketches.getIfPresent(event.username());
+        if (sketch == null) {
+            return;
+        }
+        double calories = dailyTotals.getCalories();
+        int daysLogged = dailyTotals.getDaysLogged();
+        boolean removed = true;
+        synchronized (sketch) {
+            if (daysLogged - event.daysDelta() > 0) {
+                removed = sketch.remove(calories - event.calories());
+            }
+            if (removed && daysLogged > 0) {
+                sketch.add(calories);
+            }
+        }
+        if (!removed) {
+            log.warn("CalorieDistribution of user: {} does not match DailyTotals, seeding it again", event.username());
+            sketches.asMap().remove(event.username(), sketch);
+            return;
+        }
+        changedUsers.add(event.username());
+    }
+
+    // drop sketch of user whose DailyTotals were replaced, next read seeds it from them
+    public void evict(String username) {
+        sketches.invalidate(username);
+        changedUsers.remove(username);
+    }
+
+    // persistedAt is taken before sketch is copied, so day changed while copying is newer than persisted sketch
+    @Scheduled(fixedDelayString = "${app.statistics.calorie-distribution-persist-interval:60000}")
+    @PreDestroy
+    public void persistSketches() {
+        List<String> usernames = new ArrayList<>(changedUsers);
+        changedUsers.removeAll(usernames);
+
+        for (String username : usernames) {
+            DistributionSketch sketch = sketches.getIfPresent(username);
+            if (sketch == null) {
+                continue;
+            }
+            Instant persistedAt = Instant.now();
+            DistributionSketch copy;
+            synchronized (sketch) {
+                copy = sketch.copy();
+            }
+            try {
+                calorieDistributionRepository.upsertCalorieDistribution(username, copy.getCount(), copy.getMean(), copy.getM2(),
+                        copy.getBins().length, copy.encodedBins(), persistedAt);
+            } catch (RuntimeException ex) {
+                log.error("CalorieDistribution persist failed for user: {}: {}", username, ex.getMessage());
+                changedUsers.add(username);
+            }
+        }
+    }
+
+    /*
+        restore persisted sketch when no DailyTotals of the user changed after it was persisted, otherwise changes
+        applied after last persist may be lost and sketch is seeded from DailyTotals
+     */
+    private DistributionSketch loadSketch(String username) {
+        return calorieDistributionRepository.findByUsername(username)
+                .filter(distribution -> !dailyTotalsRepository.existsByUsernameAndUpdatedAtAfter(username,
+                        distribution.getPersistedAt().minus(RESEED_MARGIN)))
+                .map(distribution -> DistributionSketch.of(distribution.getDays(), distribution.getMean(), distribution.getM2(),
+                        distribution.getBins(), distribution.getBinCount()))
+                .orElseGet(() -> {
+                    DistributionSketch sketch = new DistributionSketch();
+                    dailyTotalsRepository.findByUsernameAndDaysLoggedGreaterThan(username, 0)
+                            .forEach(dailyTotals -> sketch.add(dailyTotals.getCalories()));
+                    changedUsers.add(username);
+                    return sketch;
+                });
+    }
+}
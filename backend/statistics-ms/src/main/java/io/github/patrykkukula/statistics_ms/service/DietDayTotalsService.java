@@ -0,0 +1,28 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayTotalsChangedEvent;
+import io.github.patrykkukula.statistics_ms.cache.StatisticsCache;
+import io.github.patrykkukula.statistics_ms.model.DailyTotals;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/*
+    change of DietDay totals, from DietDayTotalsChangedEvent or from totals carried by logged events, applied to
+    rollups, macro series and calorie distribution. Cached statistics of the user are evicted once it is committed
+ */
+@Service
+@RequiredArgsConstructor
+public class DietDayTotalsService {
+    private final RollupService rollupService;
+    private final MacroSeriesService macroSeriesService;
+    private final CalorieDistributionService calorieDistributionService;
+    private final StatisticsCache statisticsCache;
+
+    public void totalsChanged(DietDayTotalsChangedEvent event) {
+        calorieDistributionService.load(event.username());                      // before DailyTotals is committed
+        DailyTotals dailyTotals = rollupService.addDietDayTotals(event);
+        macroSeriesService.dayChanged(event.username(), event.date());          // after DailyTotals is committed
+        calorieDistributionService.dayChanged(event, dailyTotals);
+        statisticsCache.evict(event.username());
+    }
+}
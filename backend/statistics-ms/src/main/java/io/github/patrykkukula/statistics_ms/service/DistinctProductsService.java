@@ -0,0 +1,175 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.dto.DistinctProductsDto;
+import io.github.patrykkukula.statistics_ms.model.DistinctProductsSketch;
+import io.github.patrykkukula.statistics_ms.model.WeeklyDistinctProductsSketch;
+import io.github.patrykkukula.statistics_ms.repository.DistinctProductsSketchRepository;
+import io.github.patrykkukula.statistics_ms.repository.WeeklyDistinctProductsSketchRepository;
+import io.github.patrykkukula.statistics_ms.sketch.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Distinct products used by every user per month and by all users per week, kept as HyperLogLog sketches instead
+    of distinct product ids. Yearly count merges monthly sketches of the year. Sketches are held in memory only
+    between first change and next persist, reads merge persisted sketch with changes not persisted yet
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DistinctProductsService {
+    private final DistinctProductsSketchRepository distinctProductsSketchRepository;
+    private final WeeklyDistinctProductsSketchRepository weeklyDistinctProductsSketchRepository;
+    private final AuthenticationUtils authenticationUtils;
+    private final Map<SketchKey, HyperLogLog> sketches = new ConcurrentHashMap<>();
+    private final Set<SketchKey> changedSketches = ConcurrentHashMap.newKeySet();
+
+    // products used by user on given date, added to month of the user and week of all users
+    public void record(String username, LocalDate date, Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        add(SketchKey.month(username, YearMonth.from(date)), productIds);
+        add(SketchKey.week(RollupService.weekStart(date)), productIds);
+    }
+
+    public DistinctProductsDto getDistinctProductsForMonth(int year, int month) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+
+        return new DistinctProductsDto(yearMonth.atDay(1), yearMonth.atEndOfMonth(),
+                sketch(SketchKey.month(authenticationUtils.getAuthenticatedUserUsername(), yearMonth)).estimate());
+    }
+
+    public DistinctProductsDto getDistinctProductsForYear(int year) {
+        String username = authenticationUtils.getAuthenticatedUserUsername();
+        HyperLogLog merged = new HyperLogLog();
+        distinctProductsSketchRepository.findByUsernameAndYear(username, year)
+                .forEach(persisted -> merged.merge(HyperLogLog.of(persisted.getRegisters())));
+        for (int month = 1; month <= 12; month++) {
+            mergeChanges(SketchKey.month(username, YearMonth.of(year, month)), merged);
+        }
+
+        return new DistinctProductsDto(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31), merged.estimate());
+    }
+
+    // products used by all users in week (Monday to Sunday) containing given date
+    public DistinctProductsDto getDistinctProductsOfAllUsersForWeek(LocalDate date) {
+        LocalDate weekStart = RollupService.weekStart(date);
+
+        return new DistinctProductsDto(weekStart, weekStart.plusDays(6), sketch(SketchKey.week(weekStart)).estimate());
+    }
+
+    // drop changes of user whose sketches were replaced by rebuild
+    public void evict(String username) {
+        sketches.keySet().removeIf(key -> username.equals(key.username()));
+        changedSketches.removeIf(key -> username.equals(key.username()));
+    }
+
+    /*
+        persist sketches changed since last run and release them from memory. Registers are merged into persisted
+        sketch, so sketches persisted by other instances are kept. Sketch changed again while being persisted stays
+        changed and is kept until next run
+     */
+    @Scheduled(fixedDelayString = "${app.statistics.distinct-products-persist-interval:60000}")
+    @PreDestroy
+    public void persistSketches() {
+        List<SketchKey> keys = new ArrayList<>(changedSketches);
+        changedSketches.removeAll(keys);
+
+        for (SketchKey key : keys) {
+            byte[][] registers = new byte[1][];
+            sketches.computeIfPresent(key, (sketchKey, sketch) -> {
+                registers[0] = sketch.toBytes();
+                return sketch;
+            });
+            if (registers[0] == null) {
+                continue;
+            }
+            try {
+                if (key.isWeek()) {
+                    weeklyDistinctProductsSketchRepository.mergeWeeklyDistinctProductsSketch(key.periodStart(), registers[0]);
+                } else {
+                    distinctProductsSketchRepository.mergeDistinctProductsSketch(key.username(), key.periodStart().getYear(),
+                            key.periodStart().getMonthValue(), registers[0]);
+                }
+                sketches.computeIfPresent(key, (sketchKey, sketch) -> changedSketches.contains(sketchKey) ? sketch : null);
+            } catch (RuntimeException ex) {
+                log.error("Distinct products sketch persist failed for {}: {}", key, ex.getMessage());
+                changedSketches.add(key);
+            }
+        }
+    }
+
+    /*
+        persisted sketch is loaded outside of compute, so no bin of the map is locked during the query, and merged
+        into sketch inside it. Sketch released by persist in between is created again - merge is idempotent and
+        persisted registers are merged on read and persist anyway
+     */
+    private void add(SketchKey key, Collection<Long> productIds) {
+        HyperLogLog persisted = sketches.containsKey(key) ? null : loadSketch(key);
+        sketches.compute(key, (sketchKey, sketch) -> {
+            HyperLogLog changed = sketch != null ? sketch : new HyperLogLog();
+            if (persisted != null) {
+                changed.merge(persisted);
+            }
+            productIds.forEach(changed::add);
+            changedSketches.add(sketchKey);
+            return changed;
+        });
+    }
+
+    private HyperLogLog sketch(SketchKey key) {
+        HyperLogLog sketch = loadSketch(key);
+        mergeChanges(key, sketch);
+
+        return sketch;
+    }
+
+    private void mergeChanges(SketchKey key, HyperLogLog target) {
+        sketches.computeIfPresent(key, (sketchKey, sketch) -> {
+            target.merge(sketch);
+            return sketch;
+        });
+    }
+
+    private HyperLogLog loadSketch(SketchKey key) {
+        if (key.isWeek()) {
+            return weeklyDistinctProductsSketchRepository.findByWeekStart(key.periodStart())
+                    .map(WeeklyDistinctProductsSketch::getRegisters)
+                    .map(HyperLogLog::of)
+                    .orElseGet(HyperLogLog::new);
+        }
+        return distinctProductsSketchRepository.findByUsernameAndYearAndMonth(key.username(), key.periodStart().getYear(), key.periodStart().getMonthValue())
+                .map(DistinctProductsSketch::getRegisters)
+                .map(HyperLogLog::of)
+                .orElseGet(HyperLogLog::new);
+    }
+
+    // month of single user, or week of all users when username is null
+    private record SketchKey(String username, LocalDate periodStart) {
+        static SketchKey month(String username, YearMonth yearMonth) {
+            return new SketchKey(username, yearMonth.atDay(1));
+        }
+
+        static SketchKey week(LocalDate weekStart) {
+            return new SketchKey(null, weekStart);
+        }
+
+        boolean isWeek() {
+            return username == null;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.dto.MacroSeriesDto;
+import io.github.patrykkukula.statistics_ms.dto.MacroTrendDto;
+import io.github.patrykkukula.statistics_ms.dto.RollingAverageDto;
+import io.github.patrykkukula.statistics_ms.model.DailyTotals;
+import io.github.patrykkukula.statistics_ms.model.MacroSeriesBlob;
+import io.github.patrykkukula.statistics_ms.repository.DailyTotalsRepository;
+import io.github.patrykkukula.statistics_ms.repository.MacroSeriesBlobRepository;
+import io.github.patrykkukula.statistics_ms.series.DeltaCodec;
+import io.github.patrykkukula.statistics_ms.series.Macro;
+import io.github.patrykkukula.statistics_ms.series.MacroSeries;
+import io.github.patrykkukula.statistics_ms.series.SeriesMath;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/*
+    Daily macros of every user and year kept as int columns, so range, rolling average and trend of a year read
+    one cached MacroSeries instead of up to 366 DailyTotals rows. Series are persisted as delta encoded blobs,
+    DailyTotals stays source of truth - days changed after last persist are patched from it when series is loaded,
+    so series evicted or lost before persist are never stale
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MacroSeriesService {
+    private static final int MAX_RANGE_DAYS = 366;
+    private static final Duration PATCH_MARGIN = Duration.ofMinutes(5);          // updatedAt is start of transaction that committed later
+    private final MacroSeriesBlobRepository macroSeriesBlobRepository;
+    private final DailyTotalsRepository dailyTotalsRepository;
+    private final AuthenticationUtils authenticationUtils;
+    private final Set<SeriesKey> changedSeries = ConcurrentHashMap.newKeySet();
+    // striped by series, readers never take them. Lock instead of monitor, holder waits for JDBC on a virtual thread
+    private final ReentrantLock[] dayLocks = Stream.generate(ReentrantLock::new).limit(64).toArray(ReentrantLock[]::new);
+    private Cache<SeriesKey, MacroSeries> seriesCache;
+
+    @Value("${app.statistics.macro-series-cache-size:10000}")
+    private long cacheSize;
+
+    @PostConstruct
+    public void createSeriesCache() {
+        seriesCache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    /*
+        called after DietDay totals change is committed, day is copied from DailyTotals only when series is cached -
+        series loaded later reads it during patch. computeIfPresent only waits for series being loaded concurrently,
+        DailyTotals are read outside of it. Changes of one series are serialized by day lock, so a read of older
+        totals cannot be applied after a newer one
+     */
+    public void dayChanged(String username, LocalDate date) {
+        SeriesKey key = new SeriesKey(username, date.getYear());
+        MacroSeries series = seriesCache.asMap().computeIfPresent(key, (seriesKey, cached) -> cached);
+        if (series == null) {
+            return;
+        }
+        ReentrantLock dayLock = dayLock(key);
+        dayLock.lock();
+        try {
+            dailyTotalsRepository.findByUsernameAndDate(username, date).ifPresent(dailyTotals -> {
+                synchronized (series) {
+                    setDay(series, dailyTotals);
+                }
+            });
+        } finally {
+            dayLock.unlock();
+        }
+        changedSeries.add(key);
+    }
+
+    public MacroSeriesDto getSeries(Macro macro, LocalDate from, LocalDate to) {
+        validateRange(from, to);
+
+        return new MacroSeriesDto(macro, from, to, values(authenticationUtils.getAuthenticatedUserUsername(), macro, from, to));
+    }
+
+    public RollingAverageDto getRollingAverage(Macro macro, LocalDate from, LocalDate to, int window) {
+        validateRange(from, to);
+        int[] values = values(authenticationUtils.getAuthenticatedUserUsername(), macro, from.minusDays(window - 1), to);
+
+        return new RollingAverageDto(macro, from, to, window, SeriesMath.rollingAverage(values, window));
+    }
+
+    public MacroTrendDto getTrend(Macro macro, LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        int[] values = values(authenticationUtils.getAuthenticatedUserUsername(), macro, from, to);
+
+        return new MacroTrendDto(macro, from, to, SeriesMath.average(values), SeriesMath.slope(values));
+    }
+
+    // drop cached series of user whose DailyTotals were replaced, next read builds them from DailyTotals
+    public void evict(String username) {
+        seriesCache.asMap().keySet().removeIf(key -> key.username().equals(username));
+        changedSeries.removeIf(key -> key.username().equals(username));
+    }
+
+    /*
+        persist series changed since last run and still cached. persistedAt is taken before columns are encoded,
+        so day changed while encoding is patched on next load
+     */
+    @Scheduled(fixedDelayString = "${app.statistics.macro-series-persist-interval:60000}")
+    @PreDestroy
+    public void persistSeries() {
+        List<SeriesKey> keys = new ArrayList<>(changedSeries);
+        changedSeries.removeAll(keys);
+
+        for (SeriesKey key : keys) {
+            MacroSeries series = seriesCache.getIfPresent(key);
+            if (series == null) {
+                continue;
+            }
+            Instant persistedAt = Instant.now();
+            byte[][] columns = new byte[Macro.values().length][];
+            synchronized (series) {
+                for (Macro macro : Macro.values()) {
+                    columns[macro.ordinal()] = DeltaCodec.encode(series.column(macro));
+                }
+            }
+            try {
+                macroSeriesBlobRepository.upsertMacroSeriesBlob(key.username(), key.year(), columns[Macro.CALORIES.ordinal()],
+                        columns[Macro.PROTEIN.ordinal()], columns[Macro.CARBS.ordinal()], columns[Macro.FAT.ordinal()], persistedAt);
+            } catch (RuntimeException ex) {
+                log.error("MacroSeries persist failed for user: {}, year: {}: {}", key.username(), key.year(), ex.getMessage());
+                changedSeries.add(key);
+            }
+        }
+    }
+
+    // values of days from from to to, range may span more than one year
+    private int[] values(String username, Macro macro, LocalDate from, LocalDate to) {
+        int[] values = new int[(int) ChronoUnit.DAYS.between(from, to) + 1];
+        int offset = 0;
+        LocalDate start = from;
+        while (!start.isAfter(to)) {
+            LocalDate yearEnd = LocalDate.of(start.getYear(), 12, 31);
+            LocalDate end = yearEnd.isBefore(to) ? yearEnd : to;
+
+            MacroSeries series = series(username, start.getYear());
+            synchronized (series) {
+                series.copy(macro, start, end, values, offset);
+            }
+            offset += MacroSeries.slot(end) - MacroSeries.slot(start) + 1;
+            start = end.plusDays(1);
+        }
+        return values;
+    }
+
+    private MacroSeries series(String username, int year) {
+        return seriesCache.get(new SeriesKey(username, year), this::loadSeries);
+    }
+
+    // decode persisted blob and patch days changed after it was persisted, or build series from DailyTotals of whole year
+    private MacroSeries loadSeries(SeriesKey key) {
+        MacroSeries series = new MacroSeries();
+        LocalDate yearStart = LocalDate.of(key.year(), 1, 1);
+        LocalDate yearEnd = LocalDate.of(key.year(), 12, 31);
+
+        MacroSeriesBlob blob = macroSeriesBlobRepository.findByUsernameAndYear(key.username(), key.year()).orElse(null);
+        List<DailyTotals> days;
+        if (blob != null) {
+            DeltaCodec.decode(blob.getCalories(), series.column(Macro.CALORIES));
+            DeltaCodec.decode(blob.getProtein(), series.column(Macro.PROTEIN));
+            DeltaCodec.decode(blob.getCarbs(), series.column(Macro.CARBS));
+            DeltaCodec.decode(blob.getFat(), series.column(Macro.FAT));
+            days = dailyTotalsRepository.findByUsernameAndDateBetweenAndUpdatedAtAfter(key.username(), yearStart, yearEnd,
+                    blob.getPersistedAt().minus(PATCH_MARGIN));
+        } else {
+            days = dailyTotalsRepository.findByUsernameAndDateBetween(key.username(), yearStart, yearEnd);
+        }
+        days.forEach(dailyTotals -> setDay(series, dailyTotals));
+
+        if (blob == null || !days.isEmpty()) {
+            changedSeries.add(key);
+        }
+        return series;
+    }
+
+    private ReentrantLock dayLock(SeriesKey key) {
+        return dayLocks[Math.floorMod(key.hashCode(), dayLocks.length)];
+    }
+
+    private void setDay(MacroSeries series, DailyTotals dailyTotals) {
+        series.setDay(dailyTotals.getDate(), (int) Math.round(dailyTotals.getCalories()), (int) Math.round(dailyTotals.getProtein()),
+                (int) Math.round(dailyTotals.getCarbs()), (int) Math.round(dailyTotals.getFat()));
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("From date cannot be after to date");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Range cannot be longer than " + MAX_RANGE_DAYS + " days");
+        }
+    }
+
+    private record SeriesKey(String username, int year) {}
+}
@@ -0,0 +1,166 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.accumulator.ProductCountDelta;
+import io.github.patrykkukula.statistics_ms.dto.MostUsedProductDto;
+import io.github.patrykkukula.statistics_ms.mapper.ProductCountMapper;
+import io.github.patrykkukula.statistics_ms.model.TopProduct;
+import io.github.patrykkukula.statistics_ms.repository.ProductCountRepository;
+import io.github.patrykkukula.statistics_ms.repository.TopProductRepository;
+import io.github.patrykkukula.statistics_ms.sketch.SpaceSavingSketch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Most used products of every user kept in Space-Saving sketch, so the answer reads at most capacity entries
+    instead of all ProductCounts of user. Sketch is updated with usage flushed to ProductCount and persisted periodically.
+    Sketch evicted or lost before it was persisted is caught up with ProductCount when restored
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MostUsedProductsService {
+    private final TopProductRepository topProductRepository;
+    private final ProductCountRepository productCountRepository;
+    private final AuthenticationUtils authenticationUtils;
+    private final Set<String> changedUsers = ConcurrentHashMap.newKeySet();
+    private Cache<String, SpaceSavingSketch> sketches;
+
+    @Value("${app.statistics.top-products-capacity:50}")
+    private int capacity;
+    @Value("${app.statistics.top-products-cache-size:10000}")
+    private long cacheSize;
+
+    @PostConstruct
+    public void createSketchCache() {
+        sketches = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    public List<MostUsedProductDto> getMostUsedProductsForUser(int limit, boolean exact) {
+        String username = authenticationUtils.getAuthenticatedUserUsername();
+
+        return exact ? getMostUsedProductsExact(username, limit) : getMostUsedProducts(username, limit);
+    }
+
+    public List<MostUsedProductDto> getMostUsedProducts(String username, int limit) {
+        SpaceSavingSketch sketch = sketches.get(username, this::loadSketch);
+        synchronized (sketch) {
+            return sketch.top(limit).stream()
+                    .map(ProductCountMapper::mapSketchEntryToMostUsedProductDto)
+                    .toList();
+        }
+    }
+
+    // exact answer from ProductCount, used to verify the sketch
+    public List<MostUsedProductDto> getMostUsedProductsExact(String username, int limit) {
+        return productCountRepository.findMostUsedProductsByUsername(username, PageRequest.of(0, limit)).stream()
+                .map(ProductCountMapper::mapProductCountToMostUsedProductDto)
+                .toList();
+    }
+
+    /*
+        sketches must be loaded before flushed usage is written, sketch seeded from ProductCount after the write
+        would count flushed usage twice
+     */
+    public void loadSketches(Collection<String> usernames) {
+        sketches.getAll(usernames, missing -> {
+            Map<String, SpaceSavingSketch> loaded = new HashMap<>();
+            missing.forEach(username -> loaded.put(username, loadSketch(username)));
+            return loaded;
+        });
+    }
+
+    // record usage already written to ProductCount, sketch evicted in the meantime is seeded with it on next load
+    public void record(List<ProductCountDelta> deltas) {
+        deltas.forEach(delta -> {
+            SpaceSavingSketch sketch = sketches.getIfPresent(delta.username());
+            if (sketch == null) {
+                return;
+            }
+            synchronized (sketch) {
+                sketch.record(delta.productId(), delta.productName(), delta.usageCount(), delta.totalQuantity());
+            }
+            changedUsers.add(delta.username());
+        });
+    }
+
+    // drop sketch of user whose ProductCounts were replaced, next read seeds it from them
+    public void evict(String username) {
+        sketches.invalidate(username);
+        changedUsers.remove(username);
+    }
+
+    /*
+        persists sketches still cached, sketch evicted since it changed is skipped - its usage is in ProductCount
+        and restored sketch catches up with it
+     */
+    @Scheduled(fixedDelayString = "${app.statistics.top-products-persist-interval:60000}")
+    @PreDestroy
+    public void persistSketches() {
+        List<String> changed = new ArrayList<>(changedUsers);
+        if (changed.isEmpty()) {
+            return;
+        }
+        changedUsers.removeAll(changed);
+
+        List<String> usernames = new ArrayList<>();
+        List<TopProduct> topProducts = new ArrayList<>();
+        sketches.getAllPresent(changed).forEach((username, sketch) -> {
+            usernames.add(username);
+            synchronized (sketch) {
+                sketch.entries().forEach(entry -> topProducts.add(new TopProduct(null, username, entry.getProductId(),
+                        entry.getProductName(), entry.getCount(), entry.getError(), entry.getTotalQuantity())));
+            }
+        });
+        if (usernames.isEmpty()) {
+            return;
+        }
+        try {
+            topProductRepository.replaceTopProducts(usernames, topProducts);
+        } catch (RuntimeException ex) {
+            log.error("Most used products persist failed for {} users: {}", usernames.size(), ex.getMessage());
+            changedUsers.addAll(usernames);
+        }
+    }
+
+    /*
+        restore persisted sketch caught up with exact most used products - usage flushed after last persist is
+        in ProductCount only, so each product keeps the larger of both counts. User with nothing persisted yet
+        is seeded with exact most used products
+     */
+    private SpaceSavingSketch loadSketch(String username) {
+        List<SpaceSavingSketch.Entry> exact = productCountRepository.findMostUsedProductsByUsername(username, PageRequest.of(0, capacity)).stream()
+                .map(productCount -> new SpaceSavingSketch.Entry(productCount.getProductId(), productCount.getProductName(),
+                        productCount.getUsageCount(), 0, productCount.getTotalQuantity()))
+                .toList();
+        List<TopProduct> topProducts = topProductRepository.findByUsername(username);
+        if (topProducts.isEmpty()) {
+            return SpaceSavingSketch.of(capacity, exact);
+        }
+
+        Map<Long, SpaceSavingSketch.Entry> entries = new HashMap<>();
+        topProducts.forEach(topProduct -> entries.put(topProduct.getProductId(), new SpaceSavingSketch.Entry(topProduct.getProductId(),
+                topProduct.getProductName(), topProduct.getUsageCount(), topProduct.getUsageError(), topProduct.getTotalQuantity())));
+        exact.forEach(entry -> entries.merge(entry.getProductId(), entry,
+                (persisted, counted) -> persisted.getCount() >= counted.getCount() ? persisted : counted));
+        return SpaceSavingSketch.of(capacity, List.copyOf(entries.values()));
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayTotalsChangedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.dto.DailyAverageDto;
+import io.github.patrykkukula.statistics_ms.dto.MonthlySummaryDto;
+import io.github.patrykkukula.statistics_ms.dto.WeeklySummaryDto;
+import io.github.patrykkukula.statistics_ms.mapper.SummaryMapper;
+import io.github.patrykkukula.statistics_ms.model.DailyTotals;
+import io.github.patrykkukula.statistics_ms.repository.DailyAverageRepository;
+import io.github.patrykkukula.statistics_ms.repository.DailyTotalsRepository;
+import io.github.patrykkukula.statistics_ms.repository.MonthlySummaryRepository;
+import io.github.patrykkukula.statistics_ms.repository.WeeklySummaryRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+
+/*
+    Rollups are never recomputed - every change of DietDay totals is added to day bucket, week, month and all-time
+    rows of the user with one upsert each, removal arrives as negative delta. Reading a summary is single row lookup
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RollupService {
+    private final DailyTotalsRepository dailyTotalsRepository;
+    private final WeeklySummaryRepository weeklySummaryRepository;
+    private final MonthlySummaryRepository monthlySummaryRepository;
+    private final DailyAverageRepository dailyAverageRepository;
+    private final AuthenticationUtils authenticationUtils;
+
+    // returns day bucket after the change, read in the same transaction so concurrent change of the day cannot interleave
+    @Transactional
+    public DailyTotals addDietDayTotals(DietDayTotalsChangedEvent event) {
+        String username = event.username();
+        LocalDate date = event.date();
+        LocalDate weekStart = weekStart(date);
+        YearMonth yearMonth = YearMonth.from(date);
+
+        dailyTotalsRepository.addToDailyTotals(username, date, event.calories(), event.protein(), event.carbs(), event.fat(), event.daysDelta());
+        weeklySummaryRepository.addToWeeklySummary(username, weekStart, weekStart.plusDays(6), event.calories(), event.protein(), event.daysDelta());
+        monthlySummaryRepository.addToMonthlySummary(username, yearMonth.getYear(), yearMonth.getMonthValue(), yearMonth.getMonth().toString(),
+                yearMonth.lengthOfMonth(), event.calories(), event.protein(), event.carbs(), event.fat(), event.daysDelta());
+        dailyAverageRepository.addToDailyAverage(username, event.calories(), event.protein(), event.carbs(), event.fat(), event.daysDelta());
+
+        log.info("Rollups updated for user: {}, date: {}", username, date);
+
+        return dailyTotalsRepository.findByUsernameAndDate(username, date).orElseThrow();
+    }
+
+    public WeeklySummaryDto getWeeklySummary(LocalDate date) {
+        LocalDate weekStart = weekStart(date);
+
+        return weeklySummaryRepository.findByUsernameAndWeekStart(authenticationUtils.getAuthenticatedUserUsername(), weekStart)
+                .map(SummaryMapper::mapWeeklySummaryToWeeklySummaryDto)
+                .orElseGet(() -> SummaryMapper.emptyWeeklySummary(weekStart));
+    }
+
+    public MonthlySummaryDto getMonthlySummary(int year, int month) {
+        return monthlySummaryRepository.findByUsernameAndYearAndMonth(authenticationUtils.getAuthenticatedUserUsername(), year, month)
+                .map(SummaryMapper::mapMonthlySummaryToMonthlySummaryDto)
+                .orElseGet(() -> SummaryMapper.emptyMonthlySummary(year, month));
+    }
+
+    public DailyAverageDto getDailyAverage() {
+        return dailyAverageRepository.findByUsername(authenticationUtils.getAuthenticatedUserUsername())
+                .map(SummaryMapper::mapDailyAverageToDailyAverageDto)
+                .orElseGet(SummaryMapper::emptyDailyAverage);
+    }
+
+    // weeks start on Monday
+    public static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.cache.StatisticsCache;
+import io.github.patrykkukula.statistics_ms.client.DietClient;
+import io.github.patrykkukula.statistics_ms.dto.DietDayExportDto;
+import io.github.patrykkukula.statistics_ms.dto.RebuildProgressDto;
+import io.github.patrykkukula.statistics_ms.rebuild.RebuildProgress;
+import io.github.patrykkukula.statistics_ms.rebuild.UserStatistics;
+import io.github.patrykkukula.statistics_ms.repository.StatisticsRebuildRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/*
+    Rebuilds statistics of every user from DietDays exported by diet-ms. Export is ordered by owner, so DietDays
+    of one user arrive together and form a partition aggregated on its own virtual thread while export is still
+    being read. Rows of each user are swapped in one transaction as soon as the user is aggregated. Users that had
+    statistics when rebuild started but are missing in the export have their rows removed once export is read
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatisticsRebuildService {
+    private final DietClient dietClient;
+    private final StatisticsRebuildRepository statisticsRebuildRepository;
+    private final MostUsedProductsService mostUsedProductsService;
+    private final MacroSeriesService macroSeriesService;
+    private final DistinctProductsService distinctProductsService;
+    private final CalorieDistributionService calorieDistributionService;
+    private final RebuildProgress rebuildProgress;
+    private final AuthenticationUtils authenticationUtils;
+    private final StatisticsCache statisticsCache;
+
+    @Value("${app.statistics.rebuild-parallelism:8}")
+    private int parallelism;
+
+    public RebuildProgressDto startRebuild() {
+        String accessToken = authenticationUtils.getJwtAuthenticationToken().getToken().getTokenValue();
+        if (!rebuildProgress.start()) {
+            throw new IllegalStateException("Statistics rebuild is already running");
+        }
+        Thread.ofVirtual().name("statistics-rebuild").start(() -> rebuild(accessToken));
+
+        return rebuildProgress.snapshot();
+    }
+
+    /*
+        at most parallelism partitions are held in memory and aggregated at once, reading export waits for a permit
+        when all are taken. Executor is closed only after all submitted partitions are swapped. Only users having rows
+        before export is read are removed, so user whose first DietDay is logged during rebuild keeps its rows
+     */
+    private void rebuild(String accessToken) {
+        log.info("Statistics rebuild started");
+        Semaphore permits = new Semaphore(parallelism);
+        List<DietDayExportDto> partition = new ArrayList<>();
+        Set<String> exportedUsers = new HashSet<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                Set<String> removedUsers = statisticsRebuildRepository.findUsernames();
+                dietClient.exportDietDays(accessToken, dietDay -> {
+                    rebuildProgress.dietDayRead();
+                    exportedUsers.add(dietDay.username());
+                    if (!partition.isEmpty() && !partition.getLast().username().equals(dietDay.username())) {
+                        submitPartition(executor, permits, List.copyOf(partition));
+                        partition.clear();
+                    }
+                    partition.add(dietDay);
+                });
+                if (!partition.isEmpty()) {
+                    submitPartition(executor, permits, List.copyOf(partition));
+                }
+                removedUsers.removeAll(exportedUsers);
+                removeUsers(removedUsers);
+            } catch (RuntimeException ex) {
+                log.error("Statistics rebuild failed reading export: {}", ex.getMessage());
+                rebuildProgress.finish(ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName());
+                return;
+            }
+        }
+        rebuildProgress.finish(null);
+        log.info("Statistics rebuild finished: {}", rebuildProgress.snapshot());
+    }
+
+    private void submitPartition(ExecutorService executor, Semaphore permits, List<DietDayExportDto> dietDays) {
+        permits.acquireUninterruptibly();
+        executor.submit(() -> {
+            try {
+                rebuildUser(dietDays);
+                rebuildProgress.userRebuilt();
+            } catch (RuntimeException ex) {
+                log.error("Statistics rebuild failed for user: {}: {}", dietDays.getFirst().username(), ex.getMessage());
+                rebuildProgress.userFailed();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    // cached sketches, series and responses of the user are evicted after swap, so they are loaded again from rebuilt rows
+    private void rebuildUser(List<DietDayExportDto> dietDays) {
+        String username = dietDays.getFirst().username();
+        statisticsRebuildRepository.replaceUserStatistics(UserStatistics.aggregate(username, dietDays));
+        evictUser(username);
+    }
+
+    // users without any DietDay in the export, e.g. removed from diet-ms since their statistics were written
+    private void removeUsers(Set<String> usernames) {
+        usernames.forEach(username -> {
+            statisticsRebuildRepository.deleteUserStatistics(username);
+            evictUser(username);
+        });
+        log.info("Statistics rebuild removed statistics of {} users missing in export", usernames.size());
+    }
+
+    private void evictUser(String username) {
+        mostUsedProductsService.evict(username);
+        macroSeriesService.evict(username);
+        distinctProductsService.evict(username);
+        calorieDistributionService.evict(username);
+        statisticsCache.evict(username);
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.LoggedProduct;
+import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductAddedToMealEvent;
+import io.github.patrykkukula.statistics_ms.accumulator.ProductCountAccumulator;
+import io.github.patrykkukula.statistics_ms.accumulator.ProductCountDelta;
+import io.github.patrykkukula.statistics_ms.cache.StatisticsCache;
+import io.github.patrykkukula.statistics_ms.repository.ProductCountUpsertRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatisticsService {
+    private final ProductCountAccumulator productCountAccumulator;
+    private final ProductCountUpsertRepository productCountUpsertRepository;
+    private final MostUsedProductsService mostUsedProductsService;
+    private final StatisticsCache statisticsCache;
+
+    public CompletableFuture<Void> addProductToProductCount(ProductAddedToMealEvent event) {
+        return addProductsToProductCount(event.username(), List.of(new LoggedProduct(event.productId(), event.productName(), event.quantity())));
+    }
+
+    /*
+        usage is only accumulated in memory, returned future completes when next flush commits it. Product logged
+        more than once before flush updates the same ProductCount row
+     */
+    public CompletableFuture<Void> addProductsToProductCount(String username, List<LoggedProduct> products) {
+        return productCountAccumulator.add(username, products);
+    }
+
+    /*
+        write usage accumulated since last flush with single batch upsert and evict cached statistics of every user of the
+        flush once. When write fails, futures of the generation fail and their messages are requeued, so failed
+        generation is not retried here
+     */
+    @Scheduled(fixedDelayString = "${app.statistics.product-count-flush-interval:500}")
+    @PreDestroy
+    public void flushProductCounts() {
+        ProductCountAccumulator.Generation generation = productCountAccumulator.seal();
+        List<ProductCountDelta> deltas = generation.deltas();
+        try {
+            if (!deltas.isEmpty()) {
+                Set<String> usernames = deltas.stream().map(ProductCountDelta::username).collect(Collectors.toSet());
+                mostUsedProductsService.loadSketches(usernames);
+                productCountUpsertRepository.upsertProductCounts(deltas);
+                mostUsedProductsService.record(deltas);
+                usernames.forEach(statisticsCache::evict);
+                log.info("ProductCount flushed for {} products", deltas.size());
+            }
+            generation.complete();
+        } catch (RuntimeException ex) {
+            log.error("ProductCount flush failed for {} products: {}", deltas.size(), ex.getMessage());
+            generation.fail(ex);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductCreatedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductDeletedEvent;
+import io.github.patrykkukula.statistics_ms.accumulator.TotalProductsCounter;
+import io.github.patrykkukula.statistics_ms.client.ProductClient;
+import io.github.patrykkukula.statistics_ms.dto.ProductTotalsDto;
+import io.github.patrykkukula.statistics_ms.dto.TotalProductsDto;
+import io.github.patrykkukula.statistics_ms.model.TotalProducts;
+import io.github.patrykkukula.statistics_ms.repository.TotalProductsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/*
+    Product counts are maintained from product created and deleted events in memory and checkpointed to TotalProducts
+    periodically, so reading them never counts products. Changes not checkpointed yet are lost when instance stops
+    abruptly, reconcile job recomputes the counts from product-ms to repair them
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TotalProductsService {
+    private final TotalProductsRepository totalProductsRepository;
+    private final TotalProductsCounter totalProductsCounter;
+    private final ProductClient productClient;
+
+    // row is created before scheduled checkpoints start, they run before ApplicationReadyEvent
+    @PostConstruct
+    public void createTotalProducts() {
+        totalProductsRepository.createIfAbsent(TotalProducts.ID);
+    }
+
+    /*
+        events consumed before counts are loaded are kept as pending changes on top of loaded counts
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTotalProducts() {
+        TotalProducts totalProducts = totalProductsRepository.findById(TotalProducts.ID).orElseThrow();
+
+        totalProductsCounter.reset(totalProducts.getGlobalProducts(), totalProducts.getCustomProducts());
+        log.info("TotalProducts loaded, global: {}, custom: {}", totalProducts.getGlobalProducts(), totalProducts.getCustomProducts());
+    }
+
+    // products with owner are custom products
+    public void productCreated(ProductCreatedEvent event) {
+        totalProductsCounter.add(event.ownerUsername() != null, 1);
+    }
+
+    public void productDeleted(ProductDeletedEvent event) {
+        totalProductsCounter.add(event.ownerUsername() != null, -1);
+    }
+
+    public TotalProductsDto getTotalProducts() {
+        long global = totalProductsCounter.globalProducts();
+        long custom = totalProductsCounter.customProducts();
+
+        return new TotalProductsDto(TotalProducts.ID, Math.toIntExact(global + custom), Math.toIntExact(global), Math.toIntExact(custom));
+    }
+
+    @Scheduled(fixedDelayString = "${app.statistics.total-products-checkpoint-interval:10000}")
+    @PreDestroy
+    public synchronized void checkpointTotalProducts() {
+        ProductTotalsDto pending = totalProductsCounter.takePending();
+        if (pending.globalProducts() == 0 && pending.customProducts() == 0) {
+            return;
+        }
+        try {
+            // no updated row means deltas were not written, they are kept pending like on failure
+            if (totalProductsRepository.addToTotalProducts(TotalProducts.ID, pending.globalProducts(), pending.customProducts()) == 0) {
+                log.error("TotalProducts checkpoint failed: TotalProducts with ID: {} does not exist", TotalProducts.ID);
+                totalProductsCounter.restorePending(pending);
+            }
+        } catch (RuntimeException ex) {
+            log.error("TotalProducts checkpoint failed: {}", ex.getMessage());
+            totalProductsCounter.restorePending(pending);
+        }
+    }
+
+    /*
+        replace counts with values recomputed by product-ms. Pending changes are checkpointed first, events consumed
+        while export is computed stay pending and are added on top of exported counts. Checkpoint and reconcile
+        never overlap, so delta is never written over replaced counts
+     */
+    @Scheduled(cron = "${app.statistics.total-products-reconcile-cron:0 0 3 * * *}")
+    public synchronized void reconcileTotalProducts() {
+        checkpointTotalProducts();
+
+        ProductTotalsDto exported = productClient.fetchProductTotals();
+
+        totalProductsRepository.replaceTotalProducts(TotalProducts.ID, exported.globalProducts(), exported.customProducts());
+        totalProductsCounter.reset(exported.globalProducts(), exported.customProducts());
+        log.info("TotalProducts reconciled, global: {}, custom: {}", exported.globalProducts(), exported.customProducts());
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.patrykkukula.statistics_ms.sketch;
+
+import io.github.patrykkukula.statistics_ms.series.DeltaCodec;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of daily calories of single user. Mean and variance are kept with Welford running update, quantiles
+ * are read from histogram of BIN_WIDTH wide bins. Both support removing a value, so changed day is replaced by
+ * removing its old total and adding the new one. Quantile error is at most BIN_WIDTH. Not thread safe, callers synchronize
+ */
+@Getter
+public class DistributionSketch {
+    public static final int BIN_WIDTH = 10;
+    private long count;
+    private double mean;
+    private double m2;                          // sum of squared differences from mean
+    private int[] bins;
+
+    public DistributionSketch() {
+        this.bins = new int[0];
+    }
+
+    private DistributionSketch(long count, double mean, double m2, int[] bins) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+        this.bins = bins;
+    }
+
+    public static DistributionSketch of(long count, double mean, double m2, byte[] encodedBins, int binCount) {
+        int[] bins = new int[binCount];
+        DeltaCodec.decode(encodedBins, bins);
+
+        return new DistributionSketch(count, mean, m2, bins);
+    }
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        int bin = bin(value);
+        if (bin >= bins.length) {
+            bins = Arrays.copyOf(bins, Math.max(bin + 1, bins.length * 2));
+        }
+        bins[bin]++;
+    }
+
+    /*
+        Welford update is reversed. False when value could not have been added before - its bin is empty - and
+        sketch is left unchanged, sketch no longer matches added values and must be seeded again
+     */
+    public boolean remove(double value) {
+        int bin = bin(value);
+        if (count == 0 || bin >= bins.length || bins[bin] == 0) {
+            return false;
+        }
+        bins[bin]--;
+
+        if (count == 1) {
+            count = 0;
+            mean = 0;
+            m2 = 0;
+            return true;
+        }
+        double previousMean = (count * mean - value) / (count - 1);
+        m2 = Math.max(0, m2 - (value - mean) * (value - previousMean));
+        mean = previousMean;
+        count--;
+        return true;
+    }
+
+    public double standardDeviation() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0;
+    }
+
+    // value below which given fraction of days falls, interpolated within bin
+    public double quantile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        double rank = fraction * count;
+        long seen = 0;
+        for (int bin = 0; bin < bins.length; bin++) {
+            if (bins[bin] > 0 && seen + bins[bin] >= rank) {
+                return (bin + (rank - seen) / bins[bin]) * BIN_WIDTH;
+            }
+            seen += bins[bin];
+        }
+        return (double) bins.length * BIN_WIDTH;
+    }
+
+    public byte[] encodedBins() {
+        return DeltaCodec.encode(bins);
+    }
+
+    public DistributionSketch copy() {
+        return new DistributionSketch(count, mean, m2, bins.clone());
+    }
+
+    private static int bin(double value) {
+        return value <= 0 ? 0 : (int) (value / BIN_WIDTH);
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.patrykkukula.statistics_ms.sketch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted Space-Saving heavy hitters sketch of product usage for single user. At most capacity products are
+ * tracked - new product replaces the least used one and inherits its count as error, so count of tracked product
+ * never underestimates real usage by more than error. Not thread safe, callers synchronize on the sketch
+ */
+public class SpaceSavingSketch {
+    private final int capacity;
+    private final Map<Long, Entry> entries;
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+        this.entries = new HashMap<>(capacity * 2);
+    }
+
+    public static SpaceSavingSketch of(int capacity, List<Entry> entries) {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        entries.stream()
+                .sorted(Comparator.comparingLong(Entry::getCount).reversed())
+                .limit(capacity)
+                .forEach(entry -> sketch.entries.put(entry.getProductId(), entry));
+        return sketch;
+    }
+
+    public void record(Long productId, String productName, long count, double quantity) {
+        Entry entry = entries.get(productId);
+        if (entry == null) {
+            if (entries.size() < capacity) {
+                entry = new Entry(productId, productName, 0, 0, 0.0);
+            } else {
+                Entry evicted = entries.values().stream().min(Comparator.comparingLong(Entry::getCount)).orElseThrow();
+                entries.remove(evicted.getProductId());
+                entry = new Entry(productId, productName, evicted.getCount(), evicted.getCount(), 0.0);
+            }
+            entries.put(productId, entry);
+        }
+        entry.productName = productName;
+        entry.count += count;
+        entry.totalQuantity += quantity;
+    }
+
+    // most used products ordered by count, reads only tracked entries
+    public List<Entry> top(int limit) {
+        return entries.values().stream()
+                .sorted(Comparator.comparingLong(Entry::getCount).reversed().thenComparing(Entry::getProductId))
+                .limit(limit)
+                .map(Entry::copy)
+                .toList();
+    }
+
+    public List<Entry> entries() {
+        return entries.values().stream().map(Entry::copy).toList();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final Long productId;
+        private String productName;
+        private long count;
+        private final long error;
+        private double totalQuantity;
+
+        private Entry copy() {
+            return new Entry(productId, productName, count, error, totalQuantity);
+        }
+    }
+}
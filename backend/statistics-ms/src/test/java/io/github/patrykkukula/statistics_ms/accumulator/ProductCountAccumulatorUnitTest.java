@@ -0,0 +1,95 @@
+package io.github.patrykkukula.statistics_ms.accumulator;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.LoggedProduct;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCountAccumulatorUnitTest {
+    private ProductCountAccumulator accumulator;
+
+    @BeforeEach
+    public void setUp() {
+        accumulator = new ProductCountAccumulator();
+    }
+
+    @Test
+    @DisplayName("should merge usage of the same user and product into one delta")
+    public void shouldMergeUsageOfSameUserAndProductIntoOneDelta() {
+        accumulator.add("user", List.of(new LoggedProduct(1L, "rice", 100.0), new LoggedProduct(2L, "egg", 50.0)));
+        accumulator.add("user", List.of(new LoggedProduct(1L, "rice", 150.0)));
+        accumulator.add("other", List.of(new LoggedProduct(1L, "rice", 10.0)));
+
+        List<ProductCountDelta> deltas = accumulator.seal().deltas().stream()
+                .sorted(Comparator.comparing(ProductCountDelta::username).thenComparing(ProductCountDelta::productId))
+                .toList();
+
+        assertEquals(List.of(
+                new ProductCountDelta("other", 1L, "rice", 1, 10.0),
+                new ProductCountDelta("user", 1L, "rice", 2, 250.0),
+                new ProductCountDelta("user", 2L, "egg", 1, 50.0)), deltas);
+    }
+
+    @Test
+    @DisplayName("should add usage after seal to new generation")
+    public void shouldAddUsageAfterSealToNewGeneration() {
+        CompletableFuture<Void> first = accumulator.add("user", List.of(new LoggedProduct(1L, "rice", 100.0)));
+        ProductCountAccumulator.Generation sealed = accumulator.seal();
+        CompletableFuture<Void> second = accumulator.add("user", List.of(new LoggedProduct(2L, "egg", 50.0)));
+
+        sealed.complete();
+
+        assertNotSame(first, second);
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        assertEquals(1, sealed.deltas().size());
+        assertEquals(2L, accumulator.seal().deltas().getFirst().productId());
+    }
+
+    @Test
+    @DisplayName("should fail futures of failed generation only")
+    public void shouldFailFuturesOfFailedGenerationOnly() {
+        CompletableFuture<Void> failed = accumulator.add("user", List.of(new LoggedProduct(1L, "rice", 100.0)));
+        ProductCountAccumulator.Generation sealed = accumulator.seal();
+        CompletableFuture<Void> next = accumulator.add("user", List.of(new LoggedProduct(1L, "rice", 100.0)));
+
+        sealed.fail(new IllegalStateException("connection lost"));
+
+        CompletionException ex = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        assertFalse(next.isDone());
+        assertEquals(1, accumulator.seal().deltas().getFirst().usageCount());
+    }
+
+    @Test
+    @DisplayName("should not lose usage added concurrently with seal")
+    public void shouldNotLoseUsageAddedConcurrentlyWithSeal() throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<CompletableFuture<Void>> adds = IntStream.range(0, 10_000)
+                    .mapToObj(i -> CompletableFuture.runAsync(
+                            () -> accumulator.add("user", List.of(new LoggedProduct(1L, "rice", 1.0))), executor))
+                    .toList();
+            int counted = 0;
+            while (!adds.stream().allMatch(CompletableFuture::isDone)) {
+                counted += usageCount(accumulator.seal());
+            }
+            counted += usageCount(accumulator.seal());
+
+            assertEquals(10_000, counted);
+        }
+    }
+
+    private int usageCount(ProductCountAccumulator.Generation generation) {
+        return generation.deltas().stream().mapToInt(ProductCountDelta::usageCount).sum();
+    }
+}
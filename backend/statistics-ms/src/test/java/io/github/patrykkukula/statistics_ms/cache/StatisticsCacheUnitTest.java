@@ -0,0 +1,143 @@
+package io.github.patrykkukula.statistics_ms.cache;
+
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StatisticsCacheUnitTest {
+    @Mock
+    private AuthenticationUtils authenticationUtils;
+    @InjectMocks
+    private StatisticsCache statisticsCache;
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(statisticsCache, "cacheSize", 100L);
+        statisticsCache.createResultCache();
+        when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+    }
+
+    @Nested
+    @DisplayName("when get")
+    class whenGet {
+        @Test
+        @DisplayName("should run query once for the same name and arguments")
+        public void shouldRunQueryOnceForTheSameNameAndArguments() {
+            assertEquals(1, statisticsCache.get(queries::incrementAndGet, "monthly", 2100, 1).intValue());
+            assertEquals(1, statisticsCache.get(queries::incrementAndGet, "monthly", 2100, 1).intValue());
+            assertEquals(2, statisticsCache.get(queries::incrementAndGet, "monthly", 2100, 2).intValue());
+        }
+
+        @Test
+        @DisplayName("should not cache failed query and rethrow its exception")
+        public void shouldNotCacheFailedQueryAndRethrowItsException() {
+            assertThrows(IllegalArgumentException.class, () -> statisticsCache.get(() -> {
+                throw new IllegalArgumentException("invalid range");
+            }, "series"));
+
+            assertEquals(1, statisticsCache.get(queries::incrementAndGet, "series").intValue());
+        }
+
+        @Test
+        @DisplayName("should start over when user has too many results")
+        public void shouldStartOverWhenUserHasTooManyResults() {
+            for (int month = 0; month < 64; month++) {
+                statisticsCache.get(queries::incrementAndGet, "monthly", 2100, month);
+            }
+            assertEquals(1, statisticsCache.get(queries::incrementAndGet, "monthly", 2100, 0).intValue());
+
+            statisticsCache.get(queries::incrementAndGet, "monthly", 2100, 64);
+
+            assertEquals(66, statisticsCache.get(queries::incrementAndGet, "monthly", 2100, 0).intValue());
+        }
+
+        @Test
+        @DisplayName("should let concurrent callers wait for running query")
+        public void shouldLetConcurrentCallersWaitForRunningQuery() throws Exception {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> statisticsCache.get(() -> {
+                    started.countDown();
+                    await(release);
+                    return queries.incrementAndGet();
+                }, "trend"), executor);
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+                CompletableFuture<Integer> second = CompletableFuture.supplyAsync(
+                        () -> statisticsCache.get(queries::incrementAndGet, "trend"), executor);
+
+                assertFalse(second.isDone());
+                release.countDown();
+
+                assertEquals(1, first.get(5, TimeUnit.SECONDS));
+                assertEquals(1, second.get(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("when evict")
+    class whenEvict {
+        @Test
+        @DisplayName("should run queries of user again after evict")
+        public void shouldRunQueriesOfUserAgainAfterEvict() {
+            statisticsCache.get(queries::incrementAndGet, "monthly", 2100, 1);
+            statisticsCache.get(queries::incrementAndGet, "average-daily");
+
+            statisticsCache.evict("user");
+
+            assertEquals(3, statisticsCache.get(queries::incrementAndGet, "monthly", 2100, 1).intValue());
+            assertEquals(4, statisticsCache.get(queries::incrementAndGet, "average-daily").intValue());
+        }
+
+        @Test
+        @DisplayName("should keep results of other users")
+        public void shouldKeepResultsOfOtherUsers() {
+            statisticsCache.get(queries::incrementAndGet, "average-daily");
+
+            statisticsCache.evict("other");
+
+            assertEquals(1, statisticsCache.get(queries::incrementAndGet, "average-daily").intValue());
+        }
+
+        @Test
+        @DisplayName("should not serve result of query running while user was evicted")
+        public void shouldNotServeResultOfQueryRunningWhileUserWasEvicted() {
+            assertEquals(1, statisticsCache.get(() -> {
+                statisticsCache.evict("user");
+                return queries.incrementAndGet();
+            }, "average-daily").intValue());
+
+            assertEquals(2, statisticsCache.get(queries::incrementAndGet, "average-daily").intValue());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
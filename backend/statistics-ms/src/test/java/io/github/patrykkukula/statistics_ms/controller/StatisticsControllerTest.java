@@ -0,0 +1,116 @@
+package io.github.patrykkukula.statistics_ms.controller;
+
+import io.github.patrykkukula.statistics_ms.cache.StatisticsCache;
+import io.github.patrykkukula.statistics_ms.security.SecurityConfig;
+import io.github.patrykkukula.statistics_ms.service.CalorieDistributionService;
+import io.github.patrykkukula.statistics_ms.service.DistinctProductsService;
+import io.github.patrykkukula.statistics_ms.service.MacroSeriesService;
+import io.github.patrykkukula.statistics_ms.service.MostUsedProductsService;
+import io.github.patrykkukula.statistics_ms.service.RollupService;
+import io.github.patrykkukula.statistics_ms.service.StatisticsRebuildService;
+import io.github.patrykkukula.statistics_ms.service.TotalProductsService;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(StatisticsController.class)
+@Import(SecurityConfig.class)
+@AutoConfigureMockMvc
+public class StatisticsControllerTest {
+    @Autowired
+    public MockMvc mockMvc;
+    @MockitoBean
+    public MostUsedProductsService mostUsedProductsService;
+    @MockitoBean
+    public RollupService rollupService;
+    @MockitoBean
+    public TotalProductsService totalProductsService;
+    @MockitoBean
+    public MacroSeriesService macroSeriesService;
+    @MockitoBean
+    public StatisticsRebuildService statisticsRebuildService;
+    @MockitoBean
+    public DistinctProductsService distinctProductsService;
+    @MockitoBean
+    public CalorieDistributionService calorieDistributionService;
+    @MockitoBean
+    public StatisticsCache statisticsCache;
+
+    private static final String BASE_URL = "/api/statistics";
+    private SecurityMockMvcRequestPostProcessors.JwtRequestPostProcessor jwtAdmin;
+    private SecurityMockMvcRequestPostProcessors.JwtRequestPostProcessor jwtUser;
+
+    @BeforeEach
+    public void setUp() {
+        jwtAdmin = SecurityMockMvcRequestPostProcessors
+                .jwt()
+                .authorities(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+        jwtUser = SecurityMockMvcRequestPostProcessors
+                .jwt()
+                .authorities(new SimpleGrantedAuthority("ROLE_USER"));
+    }
+
+    @Test
+    @DisplayName("should respond 400 when month is out of range")
+    public void shouldRespond400WhenMonthIsOutOfRange() throws Exception {
+        mockMvc.perform(get(BASE_URL + "/monthly")
+                        .param("year", "2100")
+                        .param("month", "13")
+                        .with(jwtUser))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", Matchers.containsString("max month is 12")));
+    }
+
+    @Test
+    @DisplayName("should respond 400 when series range is invalid")
+    public void shouldRespond400WhenSeriesRangeIsInvalid() throws Exception {
+        when(statisticsCache.get(any(), eq("series"), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("From date cannot be after to date"));
+
+        mockMvc.perform(get(BASE_URL + "/series")
+                        .param("macro", "CALORIES")
+                        .param("from", "2100-02-01")
+                        .param("to", "2100-01-01")
+                        .with(jwtUser))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("From date cannot be after to date"));
+    }
+
+    @Test
+    @DisplayName("should respond 400 when macro is unknown")
+    public void shouldRespond400WhenMacroIsUnknown() throws Exception {
+        mockMvc.perform(get(BASE_URL + "/series")
+                        .param("macro", "SUGAR")
+                        .param("from", "2100-01-01")
+                        .param("to", "2100-02-01")
+                        .with(jwtUser))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should respond 409 when rebuild is already running")
+    public void shouldRespond409WhenRebuildIsAlreadyRunning() throws Exception {
+        when(statisticsRebuildService.startRebuild()).thenThrow(new IllegalStateException("Rebuild already running"));
+
+        mockMvc.perform(post(BASE_URL + "/rebuild")
+                        .with(jwtAdmin))
+                .andExpect(status().isConflict());
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.patrykkukula.statistics_ms.dedupe;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.EventHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventDeduplicatorUnitTest {
+    private EventDeduplicator deduplicator;
+    private AtomicInteger processed;
+
+    @BeforeEach
+    public void setUp() {
+        deduplicator = new EventDeduplicator(1024, Duration.ofMinutes(10));
+        processed = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("should process event once")
+    public void shouldProcessEventOnce() {
+        Message<String> message = message("diet", "meal.logged", 1);
+
+        deduplicator.consumeOnce(message, processed::incrementAndGet);
+        deduplicator.consumeOnce(message, processed::incrementAndGet);
+
+        assertEquals(1, processed.get());
+    }
+
+    @Test
+    @DisplayName("should keep separate windows per producer and destination")
+    public void shouldKeepSeparateWindowsPerProducerAndDestination() {
+        deduplicator.consumeOnce(message("diet", "meal.logged", 5000), processed::incrementAndGet);
+        deduplicator.consumeOnce(message("diet", "diet.day.logged", 1), processed::incrementAndGet);
+        deduplicator.consumeOnce(message("product", "meal.logged", 5000), processed::incrementAndGet);
+
+        assertEquals(3, processed.get());
+    }
+
+    @Test
+    @DisplayName("should process event again when action failed")
+    public void shouldProcessEventAgainWhenActionFailed() {
+        Message<String> message = message("diet", "meal.logged", 1);
+
+        assertThrows(IllegalStateException.class, () -> deduplicator.consumeOnce(message, () -> {
+            throw new IllegalStateException("failed");
+        }));
+        deduplicator.consumeOnce(message, processed::incrementAndGet);
+
+        assertEquals(1, processed.get());
+    }
+
+    @Test
+    @DisplayName("should release claim when asynchronous action fails")
+    public void shouldReleaseClaimWhenAsynchronousActionFails() {
+        Message<String> message = message("diet", "meal.logged", 1);
+        CompletableFuture<Void> flush = new CompletableFuture<>();
+
+        CompletableFuture<Void> first = deduplicator.consumeOnceAsync(message, () -> flush);
+        CompletableFuture<Void> duplicate = deduplicator.consumeOnceAsync(message, () -> {
+            processed.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+        flush.completeExceptionally(new IllegalStateException("flush failed"));
+        deduplicator.consumeOnceAsync(message, () -> {
+            processed.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(duplicate.isDone());
+        assertEquals(1, processed.get());
+    }
+
+    @Test
+    @DisplayName("should keep claim of scope when the rest of processing fails")
+    public void shouldKeepClaimOfScopeWhenTheRestOfProcessingFails() {
+        Message<String> message = message("diet", "meal.logged", 1);
+
+        deduplicator.consumeOnce(message, "totals", processed::incrementAndGet);
+        CompletableFuture<Void> first = deduplicator.consumeOnceAsync(message,
+                () -> CompletableFuture.failedFuture(new IllegalStateException("flush failed")));
+        deduplicator.consumeOnce(message, "totals", processed::incrementAndGet);
+        CompletableFuture<Void> redelivered = deduplicator.consumeOnceAsync(message, () -> {
+            processed.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(redelivered.isDone());
+        assertEquals(2, processed.get());
+    }
+
+    @Test
+    @DisplayName("should always process event without outbox headers")
+    public void shouldAlwaysProcessEventWithoutOutboxHeaders() {
+        Message<String> message = MessageBuilder.withPayload("event").build();
+
+        deduplicator.consumeOnce(message, processed::incrementAndGet);
+        deduplicator.consumeOnce(message, processed::incrementAndGet);
+
+        assertEquals(2, processed.get());
+    }
+
+    private Message<String> message(String producer, String destination, long sequence) {
+        return MessageBuilder.withPayload("event")
+                .setHeader(EventHeaders.EVENT_ID, UUID.randomUUID().toString())
+                .setHeader(EventHeaders.EVENT_PRODUCER, producer)
+                .setHeader(EventHeaders.EVENT_SEQUENCE, sequence)
+                .setHeader(AmqpHeaders.RECEIVED_EXCHANGE, destination)
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.patrykkukula.statistics_ms.dedupe;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequenceWindowUnitTest {
+    private final AtomicLong clock = new AtomicLong();
+    private SequenceWindow window;
+
+    @BeforeEach
+    public void setUp() {
+        window = new SequenceWindow(128, Duration.ofMinutes(10), clock::get);
+    }
+
+    @Test
+    @DisplayName("should claim sequence once")
+    public void shouldClaimSequenceOnce() {
+        assertTrue(window.claim(5));
+        assertFalse(window.claim(5));
+    }
+
+    @Test
+    @DisplayName("should claim sequences arriving out of order within window")
+    public void shouldClaimSequencesArrivingOutOfOrderWithinWindow() {
+        assertTrue(window.claim(100));
+        assertTrue(window.claim(40));
+        assertTrue(window.claim(99));
+
+        assertFalse(window.claim(40));
+        assertFalse(window.claim(99));
+    }
+
+    @Test
+    @DisplayName("should process sequence below window again")
+    public void shouldProcessSequenceBelowWindowAgain() {
+        assertTrue(window.claim(1));
+        assertTrue(window.claim(1000));
+
+        assertTrue(window.claim(1));
+        assertTrue(window.claim(1));
+    }
+
+    @Test
+    @DisplayName("should not treat skipped sequence as seen when slot is reused")
+    public void shouldNotTreatSkippedSequenceAsSeenWhenSlotIsReused() {
+        assertTrue(window.claim(3));
+        assertTrue(window.claim(120));
+        assertTrue(window.claim(140));             // skipped 121..139 clear slots, slot of 131 held 3
+
+        assertTrue(window.claim(131));
+        assertFalse(window.claim(131));
+        assertFalse(window.claim(120));
+    }
+
+    @Test
+    @DisplayName("should accept redelivery of released sequence")
+    public void shouldAcceptRedeliveryOfReleasedSequence() {
+        assertTrue(window.claim(7));
+        window.release(7);
+
+        assertTrue(window.claim(7));
+        assertFalse(window.claim(7));
+    }
+
+    @Test
+    @DisplayName("should remember claim for at least ttl")
+    public void shouldRememberClaimForAtLeastTtl() {
+        assertTrue(window.claim(50));
+
+        clock.addAndGet(Duration.ofMinutes(15).toNanos());
+
+        assertFalse(window.claim(50));
+    }
+
+    @Test
+    @DisplayName("should forget claims older than twice ttl")
+    public void shouldForgetClaimsOlderThanTwiceTtl() {
+        assertTrue(window.claim(50));
+
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+        assertTrue(window.claim(60));
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        assertTrue(window.claim(50));
+        assertFalse(window.claim(60));
+    }
+
+    @Test
+    @DisplayName("should accept restarted sequence after idle producer")
+    public void shouldAcceptRestartedSequenceAfterIdleProducer() {
+        for (long sequence = 1; sequence <= 100; sequence++) {
+            window.claim(sequence);
+        }
+
+        clock.addAndGet(Duration.ofMinutes(25).toNanos());
+
+        assertTrue(window.claim(1));
+        assertTrue(window.claim(2));
+    }
+}
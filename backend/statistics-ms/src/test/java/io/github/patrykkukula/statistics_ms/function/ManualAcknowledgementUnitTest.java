@@ -0,0 +1,67 @@
+package io.github.patrykkukula.statistics_ms.function;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+public class ManualAcknowledgementUnitTest {
+    private final Channel channel = mock(Channel.class);
+
+    @Test
+    @DisplayName("should acknowledge message when processing completes")
+    public void shouldAcknowledgeMessageWhenProcessingCompletes() throws IOException {
+        CompletableFuture<Void> processed = new CompletableFuture<>();
+
+        ManualAcknowledgement.acknowledgeWhenDone(message(), () -> processed);
+        verifyNoInteractions(channel);
+        processed.complete(null);
+
+        verify(channel).basicAck(7L, false);
+    }
+
+    @Test
+    @DisplayName("should requeue message when processing fails")
+    public void shouldRequeueMessageWhenProcessingFails() throws IOException {
+        ManualAcknowledgement.acknowledgeWhenDone(message(),
+                () -> CompletableFuture.failedFuture(new IllegalStateException("failed")));
+
+        verify(channel).basicNack(7L, false, true);
+    }
+
+    @Test
+    @DisplayName("should requeue message when processing fails before returning its future")
+    public void shouldRequeueMessageWhenProcessingFailsBeforeReturningItsFuture() throws IOException {
+        ManualAcknowledgement.acknowledgeWhenDone(message(), () -> {
+            throw new IllegalStateException("failed");
+        });
+
+        verify(channel).basicNack(7L, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("should rethrow failure when message has no channel")
+    public void shouldRethrowFailureWhenMessageHasNoChannel() {
+        Message<String> message = MessageBuilder.withPayload("event").build();
+
+        assertThrows(IllegalStateException.class, () -> ManualAcknowledgement.acknowledgeWhenDone(message, () -> {
+            throw new IllegalStateException("failed");
+        }));
+    }
+
+    private Message<String> message() {
+        return MessageBuilder.withPayload("event")
+                .setHeader(AmqpHeaders.CHANNEL, channel)
+                .setHeader(AmqpHeaders.DELIVERY_TAG, 7L)
+                .build();
+    }
+}
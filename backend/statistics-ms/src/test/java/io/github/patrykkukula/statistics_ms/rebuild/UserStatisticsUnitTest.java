@@ -0,0 +1,59 @@
+package io.github.patrykkukula.statistics_ms.rebuild;
+
+import io.github.patrykkukula.statistics_ms.accumulator.ProductCountDelta;
+import io.github.patrykkukula.statistics_ms.dto.DietDayExportDto;
+import io.github.patrykkukula.statistics_ms.dto.ProductUsageExportDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserStatisticsUnitTest {
+
+    @Test
+    @DisplayName("should aggregate DietDays into days, weeks, months and all days")
+    public void shouldAggregateDietDaysIntoDaysWeeksMonthsAndAllDays() {
+        UserStatistics statistics = UserStatistics.aggregate("user", List.of(
+                dietDay(LocalDate.of(2100, 1, 31), 2000.0, List.of()),
+                dietDay(LocalDate.of(2100, 2, 1), 1003.0, List.of())));
+
+        assertEquals(2, statistics.getDays().size());
+        assertEquals(2, statistics.getMonths().size());
+        assertEquals(2, statistics.getAllDays().getDays());
+        assertEquals(3003.0, statistics.getAllDays().getCalories());
+        assertEquals(1502, statistics.getAllDays().averageCalories());
+        assertEquals(3003.0, statistics.getWeeks().values().stream().mapToDouble(MacroSum::getCalories).sum());
+    }
+
+    @Test
+    @DisplayName("should count product usage and distinct products of month")
+    public void shouldCountProductUsageAndDistinctProductsOfMonth() {
+        UserStatistics statistics = UserStatistics.aggregate("user", List.of(
+                dietDay(LocalDate.of(2100, 1, 1), 2000.0, List.of(new ProductUsageExportDto(1L, "rice", 100.0), new ProductUsageExportDto(2L, "egg", null))),
+                dietDay(LocalDate.of(2100, 1, 2), 2000.0, List.of(new ProductUsageExportDto(1L, "rice", 50.0)))));
+
+        assertEquals(List.of(
+                new ProductCountDelta("user", 1L, "rice", 2, 150.0),
+                new ProductCountDelta("user", 2L, "egg", 1, 0.0)), statistics.productCounts());
+        assertEquals(2, statistics.getDistinctProducts().get(YearMonth.of(2100, 1)).estimate());
+    }
+
+    @Test
+    @DisplayName("should treat missing totals as zero")
+    public void shouldTreatMissingTotalsAsZero() {
+        UserStatistics statistics = UserStatistics.aggregate("user", List.of(
+                new DietDayExportDto(1L, "user", LocalDate.of(2100, 1, 1), null, null, null, null, null)));
+
+        assertEquals(0.0, statistics.getAllDays().getCalories());
+        assertEquals(0, statistics.getAllDays().averageFat());
+        assertTrue(statistics.getDistinctProducts().isEmpty());
+    }
+
+    private DietDayExportDto dietDay(LocalDate date, double calories, List<ProductUsageExportDto> products) {
+        return new DietDayExportDto(1L, "user", date, calories, 0.0, 0.0, 0.0, products);
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.patrykkukula.statistics_ms.series;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeltaCodecUnitTest {
+
+    @Test
+    @DisplayName("should decode encoded values")
+    public void shouldDecodeEncodedValues() {
+        int[] values = {0, 2100, 2350, 0, 0, 1980, -5, Integer.MAX_VALUE, Integer.MIN_VALUE, 0};
+        int[] decoded = new int[values.length];
+
+        DeltaCodec.decode(DeltaCodec.encode(values), decoded);
+
+        assertArrayEquals(values, decoded);
+    }
+
+    @Test
+    @DisplayName("should decode random year of values")
+    public void shouldDecodeRandomYearOfValues() {
+        Random random = new Random(42);
+        int[] values = new int[MacroSeries.DAYS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(5) == 0 ? 0 : 1500 + random.nextInt(1500);
+        }
+        int[] decoded = new int[values.length];
+
+        DeltaCodec.decode(DeltaCodec.encode(values), decoded);
+
+        assertArrayEquals(values, decoded);
+    }
+
+    @Test
+    @DisplayName("should encode empty days with one byte each")
+    public void shouldEncodeEmptyDaysWithOneByteEach() {
+        assertEquals(MacroSeries.DAYS, DeltaCodec.encode(new int[MacroSeries.DAYS]).length);
+    }
+
+    @Test
+    @DisplayName("should encode similar consecutive days in at most two bytes")
+    public void shouldEncodeSimilarConsecutiveDaysInAtMostTwoBytes() {
+        int[] values = new int[MacroSeries.DAYS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 2000 + (i % 2 == 0 ? 100 : -100);
+        }
+
+        byte[] encoded = DeltaCodec.encode(values);
+
+        assertTrue(encoded.length <= 2 * values.length);
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.patrykkukula.statistics_ms.series;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesMathUnitTest {
+
+    @Test
+    @DisplayName("should compute rolling average of every day of range")
+    public void shouldComputeRollingAverageOfEveryDayOfRange() {
+        double[] averages = SeriesMath.rollingAverage(new int[]{1, 2, 3, 4, 5}, 3);
+
+        assertArrayEquals(new double[]{2.0, 3.0, 4.0}, averages, 1e-9);
+    }
+
+    @Test
+    @DisplayName("should compute slope of linear series")
+    public void shouldComputeSlopeOfLinearSeries() {
+        assertEquals(10.0, SeriesMath.slope(new int[]{100, 110, 120, 130}), 1e-9);
+        assertEquals(0.0, SeriesMath.slope(new int[]{100}), 1e-9);
+    }
+
+    @Test
+    @DisplayName("should compute average")
+    public void shouldComputeAverage() {
+        assertEquals(2.5, SeriesMath.average(new int[]{1, 2, 3, 4}), 1e-9);
+        assertEquals(0.0, SeriesMath.average(new int[0]), 1e-9);
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayTotalsChangedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.dto.CalorieDistributionDto;
+import io.github.patrykkukula.statistics_ms.model.CalorieDistribution;
+import io.github.patrykkukula.statistics_ms.model.DailyTotals;
+import io.github.patrykkukula.statistics_ms.repository.CalorieDistributionRepository;
+import io.github.patrykkukula.statistics_ms.repository.DailyTotalsRepository;
+import io.github.patrykkukula.statistics_ms.sketch.DistributionSketch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CalorieDistributionServiceUnitTest {
+    @Mock
+    private CalorieDistributionRepository calorieDistributionRepository;
+    @Mock
+    private DailyTotalsRepository dailyTotalsRepository;
+    @Mock
+    private AuthenticationUtils authenticationUtils;
+    @InjectMocks
+    private CalorieDistributionService calorieDistributionService;
+
+    private final LocalDate date = LocalDate.of(2100, 1, 1);
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(calorieDistributionService, "cacheSize", 100L);
+        calorieDistributionService.createSketchCache();
+    }
+
+    @Nested
+    @DisplayName("when load")
+    class whenLoad {
+        @Test
+        @DisplayName("should restore persisted sketch when no DailyTotals changed after it was persisted")
+        public void shouldRestorePersistedSketchWhenNoDailyTotalsChangedAfterItWasPersisted() {
+            when(calorieDistributionRepository.findByUsername("user")).thenReturn(Optional.of(persisted(2000, 2200)));
+            when(dailyTotalsRepository.existsByUsernameAndUpdatedAtAfter(eq("user"), any(Instant.class))).thenReturn(false);
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+
+            calorieDistributionService.load("user");
+            CalorieDistributionDto distribution = calorieDistributionService.getCalorieDistribution();
+
+            assertEquals(2, distribution.days());
+            assertEquals(2100, distribution.mean(), 1e-9);
+            verify(dailyTotalsRepository, never()).findByUsernameAndDaysLoggedGreaterThan(any(), any());
+        }
+
+        @Test
+        @DisplayName("should seed sketch from DailyTotals when they changed after sketch was persisted")
+        public void shouldSeedSketchFromDailyTotalsWhenTheyChangedAfterSketchWasPersisted() {
+            when(calorieDistributionRepository.findByUsername("user")).thenReturn(Optional.of(persisted(2000, 2200)));
+            when(dailyTotalsRepository.existsByUsernameAndUpdatedAtAfter(eq("user"), any(Instant.class))).thenReturn(true);
+            when(dailyTotalsRepository.findByUsernameAndDaysLoggedGreaterThan("user", 0))
+                    .thenReturn(List.of(dailyTotals(2000, 1), dailyTotals(2200, 1), dailyTotals(1800, 1)));
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+
+            calorieDistributionService.load("user");
+            CalorieDistributionDto distribution = calorieDistributionService.getCalorieDistribution();
+
+            assertEquals(3, distribution.days());
+            assertEquals(2000, distribution.mean(), 1e-9);
+        }
+
+        @Test
+        @DisplayName("should persist sketch seeded from DailyTotals")
+        public void shouldPersistSketchSeededFromDailyTotals() {
+            when(calorieDistributionRepository.findByUsername("user")).thenReturn(Optional.empty());
+            when(dailyTotalsRepository.findByUsernameAndDaysLoggedGreaterThan("user", 0)).thenReturn(List.of(dailyTotals(2000, 1)));
+
+            calorieDistributionService.load("user");
+            calorieDistributionService.persistSketches();
+
+            verify(calorieDistributionRepository).upsertCalorieDistribution(eq("user"), eq(1L), eq(2000.0), eq(0.0),
+                    anyInt(), any(), any(Instant.class));
+        }
+    }
+
+    @Nested
+    @DisplayName("when dayChanged")
+    class whenDayChanged {
+        @Test
+        @DisplayName("should replace old total of the day with committed one")
+        public void shouldReplaceOldTotalOfTheDayWithCommittedOne() {
+            seed(2000, 2200);
+
+            calorieDistributionService.dayChanged(event(300, 0), dailyTotals(2500, 1));
+
+            CalorieDistributionDto distribution = calorieDistributionService.getCalorieDistribution();
+            assertEquals(2, distribution.days());
+            assertEquals(2250, distribution.mean(), 1e-9);
+        }
+
+        @Test
+        @DisplayName("should add day when DietDay is created and remove it when DietDay is removed")
+        public void shouldAddDayWhenDietDayIsCreatedAndRemoveItWhenDietDayIsRemoved() {
+            seed(2000);
+
+            calorieDistributionService.dayChanged(event(1500, 1), dailyTotals(1500, 1));
+            assertEquals(2, calorieDistributionService.getCalorieDistribution().days());
+
+            calorieDistributionService.dayChanged(event(-1500, -1), dailyTotals(0, 0));
+            assertEquals(1, calorieDistributionService.getCalorieDistribution().days());
+        }
+
+        @Test
+        @DisplayName("should seed sketch again when old total of the day is missing in it")
+        public void shouldSeedSketchAgainWhenOldTotalOfTheDayIsMissingInIt() {
+            seed(2000);
+            when(dailyTotalsRepository.existsByUsernameAndUpdatedAtAfter(eq("user"), any(Instant.class))).thenReturn(true);
+
+            calorieDistributionService.dayChanged(event(100, 0), dailyTotals(3100, 1));
+            when(dailyTotalsRepository.findByUsernameAndDaysLoggedGreaterThan("user", 0))
+                    .thenReturn(List.of(dailyTotals(2000, 1), dailyTotals(3100, 1)));
+            CalorieDistributionDto distribution = calorieDistributionService.getCalorieDistribution();
+
+            assertEquals(2, distribution.days());
+            assertEquals(2550, distribution.mean(), 1e-9);
+        }
+
+        @Test
+        @DisplayName("should ignore change of user whose sketch is not loaded")
+        public void shouldIgnoreChangeOfUserWhoseSketchIsNotLoaded() {
+            calorieDistributionService.dayChanged(event(100, 1), dailyTotals(100, 1));
+            calorieDistributionService.persistSketches();
+
+            verify(calorieDistributionRepository, never()).upsertCalorieDistribution(any(), anyLong(), anyDouble(), anyDouble(),
+                    anyInt(), any(), any());
+        }
+    }
+
+    // loads sketch restored from persisted one holding given days
+    private void seed(double... calories) {
+        when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+        when(calorieDistributionRepository.findByUsername("user")).thenReturn(Optional.of(persisted(calories)));
+        calorieDistributionService.load("user");
+    }
+
+    private CalorieDistribution persisted(double... calories) {
+        DistributionSketch sketch = new DistributionSketch();
+        for (double value : calories) {
+            sketch.add(value);
+        }
+        return new CalorieDistribution(1L, "user", sketch.getCount(), sketch.getMean(), sketch.getM2(),
+                sketch.getBins().length, sketch.encodedBins(), Instant.now());
+    }
+
+    private DietDayTotalsChangedEvent event(double calories, int daysDelta) {
+        return new DietDayTotalsChangedEvent("user", date, calories, 0.0, 0.0, 0.0, daysDelta);
+    }
+
+    private DailyTotals dailyTotals(double calories, int daysLogged) {
+        return new DailyTotals(1L, "user", date, calories, 0.0, 0.0, 0.0, daysLogged, Instant.now());
+    }
+}
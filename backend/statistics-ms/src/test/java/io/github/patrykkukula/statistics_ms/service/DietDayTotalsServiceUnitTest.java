@@ -0,0 +1,61 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayTotalsChangedEvent;
+import io.github.patrykkukula.statistics_ms.cache.StatisticsCache;
+import io.github.patrykkukula.statistics_ms.model.DailyTotals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DietDayTotalsServiceUnitTest {
+    @Mock
+    private RollupService rollupService;
+    @Mock
+    private MacroSeriesService macroSeriesService;
+    @Mock
+    private CalorieDistributionService calorieDistributionService;
+    @Mock
+    private StatisticsCache statisticsCache;
+    @InjectMocks
+    private DietDayTotalsService dietDayTotalsService;
+
+    private final LocalDate date = LocalDate.of(2100, 2, 10);
+    private final DietDayTotalsChangedEvent event = new DietDayTotalsChangedEvent("user", date, 500.0, 20.0, 50.0, 10.0, 1);
+
+    @Test
+    @DisplayName("should load distribution before rollups are committed and evict cache after")
+    public void shouldLoadDistributionBeforeRollupsAreCommittedAndEvictCacheAfter() {
+        DailyTotals dailyTotals = new DailyTotals(1L, "user", date, 500.0, 20.0, 50.0, 10.0, 1, Instant.now());
+        when(rollupService.addDietDayTotals(event)).thenReturn(dailyTotals);
+
+        dietDayTotalsService.totalsChanged(event);
+
+        InOrder inOrder = inOrder(calorieDistributionService, rollupService, macroSeriesService, statisticsCache);
+        inOrder.verify(calorieDistributionService).load("user");
+        inOrder.verify(rollupService).addDietDayTotals(event);
+        inOrder.verify(macroSeriesService).dayChanged("user", date);
+        inOrder.verify(calorieDistributionService).dayChanged(event, dailyTotals);
+        inOrder.verify(statisticsCache).evict("user");
+    }
+
+    @Test
+    @DisplayName("should not evict cache when rollups fail")
+    public void shouldNotEvictCacheWhenRollupsFail() {
+        when(rollupService.addDietDayTotals(event)).thenThrow(new IllegalStateException("connection lost"));
+
+        assertThrows(IllegalStateException.class, () -> dietDayTotalsService.totalsChanged(event));
+
+        verifyNoInteractions(macroSeriesService, statisticsCache);
+    }
+}
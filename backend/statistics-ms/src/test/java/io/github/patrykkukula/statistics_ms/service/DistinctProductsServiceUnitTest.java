@@ -0,0 +1,167 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.dto.DistinctProductsDto;
+import io.github.patrykkukula.statistics_ms.model.DistinctProductsSketch;
+import io.github.patrykkukula.statistics_ms.repository.DistinctProductsSketchRepository;
+import io.github.patrykkukula.statistics_ms.repository.WeeklyDistinctProductsSketchRepository;
+import io.github.patrykkukula.statistics_ms.sketch.HyperLogLog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DistinctProductsServiceUnitTest {
+    @Mock
+    private DistinctProductsSketchRepository distinctProductsSketchRepository;
+    @Mock
+    private WeeklyDistinctProductsSketchRepository weeklyDistinctProductsSketchRepository;
+    @Mock
+    private AuthenticationUtils authenticationUtils;
+    @InjectMocks
+    private DistinctProductsService distinctProductsService;
+
+    private final LocalDate date = LocalDate.of(2100, 3, 10);
+
+    @Nested
+    @DisplayName("when getDistinctProductsForMonth")
+    class whenGetDistinctProductsForMonth {
+        @Test
+        @DisplayName("should merge persisted sketch with changes not persisted yet")
+        public void shouldMergePersistedSketchWithChangesNotPersistedYet() {
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(distinctProductsSketchRepository.findByUsernameAndYearAndMonth("user", 2100, 3))
+                    .thenReturn(Optional.empty())
+                    .thenReturn(Optional.of(sketch(1L, 2L, 3L)));
+            when(weeklyDistinctProductsSketchRepository.findByWeekStart(any())).thenReturn(Optional.empty());
+            distinctProductsService.record("user", date, List.of(3L, 4L));
+
+            DistinctProductsDto distinctProducts = distinctProductsService.getDistinctProductsForMonth(2100, 3);
+
+            assertEquals(4, distinctProducts.distinctProducts());
+            assertEquals(LocalDate.of(2100, 3, 1), distinctProducts.from());
+            assertEquals(LocalDate.of(2100, 3, 31), distinctProducts.to());
+        }
+    }
+
+    @Nested
+    @DisplayName("when getDistinctProductsForYear")
+    class whenGetDistinctProductsForYear {
+        @Test
+        @DisplayName("should merge persisted sketches of all months of the year")
+        public void shouldMergePersistedSketchesOfAllMonthsOfTheYear() {
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(distinctProductsSketchRepository.findByUsernameAndYear("user", 2100))
+                    .thenReturn(List.of(sketch(1L, 2L), sketch(2L, 3L, 4L)));
+
+            assertEquals(4, distinctProductsService.getDistinctProductsForYear(2100).distinctProducts());
+        }
+    }
+
+    @Nested
+    @DisplayName("when persistSketches")
+    class whenPersistSketches {
+        @Test
+        @DisplayName("should merge changed month and week sketches into persisted ones")
+        public void shouldMergeChangedMonthAndWeekSketchesIntoPersistedOnes() {
+            when(distinctProductsSketchRepository.findByUsernameAndYearAndMonth("user", 2100, 3)).thenReturn(Optional.empty());
+            when(weeklyDistinctProductsSketchRepository.findByWeekStart(LocalDate.of(2100, 3, 8))).thenReturn(Optional.empty());
+            distinctProductsService.record("user", date, List.of(1L, 2L));
+
+            distinctProductsService.persistSketches();
+
+            ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+            verify(distinctProductsSketchRepository).mergeDistinctProductsSketch(eq("user"), eq(2100), eq(3), captor.capture());
+            assertEquals(2, HyperLogLog.of(captor.getValue()).estimate());
+            verify(weeklyDistinctProductsSketchRepository).mergeWeeklyDistinctProductsSketch(eq(LocalDate.of(2100, 3, 8)), any());
+        }
+
+        @Test
+        @DisplayName("should merge persisted sketch loaded outside of sketch map")
+        public void shouldMergePersistedSketchLoadedOutsideOfSketchMap() {
+            AtomicBoolean recorded = new AtomicBoolean();
+            when(distinctProductsSketchRepository.findByUsernameAndYearAndMonth("user", 2100, 3)).thenAnswer(invocation -> {
+                // record of another event while sketch is loaded
+                if (recorded.compareAndSet(false, true)) {
+                    distinctProductsService.record("user", date, List.of(5L));
+                }
+                return Optional.of(sketch(1L, 2L));
+            });
+            when(weeklyDistinctProductsSketchRepository.findByWeekStart(any())).thenReturn(Optional.empty());
+            distinctProductsService.record("user", date, List.of(3L));
+
+            distinctProductsService.persistSketches();
+
+            ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+            verify(distinctProductsSketchRepository).mergeDistinctProductsSketch(eq("user"), eq(2100), eq(3), captor.capture());
+            assertEquals(4, HyperLogLog.of(captor.getValue()).estimate());
+        }
+
+        @Test
+        @DisplayName("should persist nothing when no sketch changed since last persist")
+        public void shouldPersistNothingWhenNoSketchChangedSinceLastPersist() {
+            when(distinctProductsSketchRepository.findByUsernameAndYearAndMonth("user", 2100, 3)).thenReturn(Optional.empty());
+            when(weeklyDistinctProductsSketchRepository.findByWeekStart(any())).thenReturn(Optional.empty());
+            distinctProductsService.record("user", date, List.of(1L));
+            distinctProductsService.persistSketches();
+
+            distinctProductsService.persistSketches();
+
+            verify(distinctProductsSketchRepository, times(1)).mergeDistinctProductsSketch(anyString(), anyInt(), anyInt(), any());
+        }
+
+        @Test
+        @DisplayName("should persist again when previous persist failed")
+        public void shouldPersistAgainWhenPreviousPersistFailed() {
+            when(distinctProductsSketchRepository.findByUsernameAndYearAndMonth("user", 2100, 3)).thenReturn(Optional.empty());
+            when(weeklyDistinctProductsSketchRepository.findByWeekStart(any())).thenReturn(Optional.empty());
+            doThrow(new RuntimeException("down")).doNothing()
+                    .when(distinctProductsSketchRepository).mergeDistinctProductsSketch(anyString(), anyInt(), anyInt(), any());
+            distinctProductsService.record("user", date, List.of(1L));
+
+            distinctProductsService.persistSketches();
+            distinctProductsService.persistSketches();
+
+            verify(distinctProductsSketchRepository, times(2)).mergeDistinctProductsSketch(anyString(), anyInt(), anyInt(), any());
+        }
+
+        @Test
+        @DisplayName("should not persist changes of evicted user")
+        public void shouldNotPersistChangesOfEvictedUser() {
+            when(distinctProductsSketchRepository.findByUsernameAndYearAndMonth("user", 2100, 3)).thenReturn(Optional.empty());
+            when(weeklyDistinctProductsSketchRepository.findByWeekStart(any())).thenReturn(Optional.empty());
+            distinctProductsService.record("user", date, List.of(1L));
+
+            distinctProductsService.evict("user");
+            distinctProductsService.persistSketches();
+
+            verify(distinctProductsSketchRepository, never()).mergeDistinctProductsSketch(anyString(), anyInt(), anyInt(), any());
+            verify(weeklyDistinctProductsSketchRepository).mergeWeeklyDistinctProductsSketch(any(), any());
+        }
+    }
+
+    private DistinctProductsSketch sketch(Long... productIds) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (Long productId : productIds) {
+            sketch.add(productId);
+        }
+        return new DistinctProductsSketch(null, "user", 2100, 3, sketch.toBytes());
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.dto.MacroSeriesDto;
+import io.github.patrykkukula.statistics_ms.model.DailyTotals;
+import io.github.patrykkukula.statistics_ms.model.MacroSeriesBlob;
+import io.github.patrykkukula.statistics_ms.repository.DailyTotalsRepository;
+import io.github.patrykkukula.statistics_ms.repository.MacroSeriesBlobRepository;
+import io.github.patrykkukula.statistics_ms.series.DeltaCodec;
+import io.github.patrykkukula.statistics_ms.series.Macro;
+import io.github.patrykkukula.statistics_ms.series.MacroSeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MacroSeriesServiceUnitTest {
+    @Mock
+    private MacroSeriesBlobRepository macroSeriesBlobRepository;
+    @Mock
+    private DailyTotalsRepository dailyTotalsRepository;
+    @Mock
+    private AuthenticationUtils authenticationUtils;
+    @InjectMocks
+    private MacroSeriesService macroSeriesService;
+
+    private final LocalDate yearStart = LocalDate.of(2100, 1, 1);
+    private final LocalDate yearEnd = LocalDate.of(2100, 12, 31);
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(macroSeriesService, "cacheSize", 100L);
+        macroSeriesService.createSeriesCache();
+    }
+
+    @Nested
+    @DisplayName("when getSeries")
+    class whenGetSeries {
+        @Test
+        @DisplayName("should build series from DailyTotals when no blob persisted")
+        public void shouldBuildSeriesFromDailyTotalsWhenNoBlobPersisted() {
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(macroSeriesBlobRepository.findByUsernameAndYear("user", 2100)).thenReturn(Optional.empty());
+            when(dailyTotalsRepository.findByUsernameAndDateBetween("user", yearStart, yearEnd))
+                    .thenReturn(List.of(dailyTotals(LocalDate.of(2100, 1, 2), 2000.4)));
+
+            MacroSeriesDto series = macroSeriesService.getSeries(Macro.CALORIES, yearStart, LocalDate.of(2100, 1, 3));
+
+            assertArrayEquals(new int[]{0, 2000, 0}, series.values());
+        }
+
+        @Test
+        @DisplayName("should patch persisted blob with days updated after it was persisted")
+        public void shouldPatchPersistedBlobWithDaysUpdatedAfterItWasPersisted() {
+            int[] calories = new int[MacroSeries.DAYS];
+            calories[0] = 1500;
+            calories[1] = 1600;
+            byte[] empty = DeltaCodec.encode(new int[MacroSeries.DAYS]);
+            Instant persistedAt = Instant.now();
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(macroSeriesBlobRepository.findByUsernameAndYear("user", 2100)).thenReturn(Optional.of(
+                    new MacroSeriesBlob(1L, "user", 2100, DeltaCodec.encode(calories), empty, empty, empty, persistedAt)));
+            when(dailyTotalsRepository.findByUsernameAndDateBetweenAndUpdatedAtAfter(eq("user"), eq(yearStart), eq(yearEnd), any(Instant.class)))
+                    .thenReturn(List.of(dailyTotals(LocalDate.of(2100, 1, 2), 1700.0)));
+
+            MacroSeriesDto series = macroSeriesService.getSeries(Macro.CALORIES, yearStart, LocalDate.of(2100, 1, 2));
+
+            assertArrayEquals(new int[]{1500, 1700}, series.values());
+        }
+
+        @Test
+        @DisplayName("should read range spanning two years")
+        public void shouldReadRangeSpanningTwoYears() {
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(macroSeriesBlobRepository.findByUsernameAndYear(eq("user"), any())).thenReturn(Optional.empty());
+            when(dailyTotalsRepository.findByUsernameAndDateBetween(eq("user"), any(), any())).thenReturn(List.of());
+
+            MacroSeriesDto series = macroSeriesService.getSeries(Macro.PROTEIN, LocalDate.of(2100, 12, 30), LocalDate.of(2101, 1, 2));
+
+            assertEquals(4, series.values().length);
+            verify(macroSeriesBlobRepository).findByUsernameAndYear("user", 2101);
+        }
+
+        @Test
+        @DisplayName("should throw IllegalArgumentException when range is invalid")
+        public void shouldThrowIllegalArgumentExceptionWhenRangeIsInvalid() {
+            assertThrows(IllegalArgumentException.class, () -> macroSeriesService.getSeries(Macro.CALORIES, yearEnd, yearStart));
+            assertThrows(IllegalArgumentException.class, () -> macroSeriesService.getSeries(Macro.CALORIES, yearStart, yearStart.plusDays(366)));
+        }
+    }
+
+    @Nested
+    @DisplayName("when dayChanged")
+    class whenDayChanged {
+        @Test
+        @DisplayName("should not read DailyTotals when series is not cached")
+        public void shouldNotReadDailyTotalsWhenSeriesIsNotCached() {
+            macroSeriesService.dayChanged("user", LocalDate.of(2100, 1, 2));
+
+            verifyNoInteractions(dailyTotalsRepository);
+        }
+
+        @Test
+        @DisplayName("should copy changed day into cached series and persist it")
+        public void shouldCopyChangedDayIntoCachedSeriesAndPersistIt() {
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(macroSeriesBlobRepository.findByUsernameAndYear("user", 2100)).thenReturn(Optional.empty());
+            when(dailyTotalsRepository.findByUsernameAndDateBetween("user", yearStart, yearEnd)).thenReturn(List.of());
+            macroSeriesService.getSeries(Macro.CALORIES, yearStart, yearStart);
+            when(dailyTotalsRepository.findByUsernameAndDate("user", LocalDate.of(2100, 1, 2)))
+                    .thenReturn(Optional.of(dailyTotals(LocalDate.of(2100, 1, 2), 2200.0)));
+
+            macroSeriesService.dayChanged("user", LocalDate.of(2100, 1, 2));
+            macroSeriesService.persistSeries();
+
+            ArgumentCaptor<byte[]> calories = ArgumentCaptor.forClass(byte[].class);
+            verify(macroSeriesBlobRepository).upsertMacroSeriesBlob(eq("user"), eq(2100), calories.capture(), any(), any(), any(), any());
+            int[] decoded = new int[MacroSeries.DAYS];
+            DeltaCodec.decode(calories.getValue(), decoded);
+            assertEquals(2200, decoded[1]);
+        }
+    }
+
+    private DailyTotals dailyTotals(LocalDate date, double calories) {
+        return new DailyTotals(1L, "user", date, calories, 100.0, 200.0, 50.0, 1, Instant.now());
+    }
+}
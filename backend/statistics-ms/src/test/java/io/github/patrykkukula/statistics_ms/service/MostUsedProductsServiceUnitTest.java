@@ -0,0 +1,173 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.accumulator.ProductCountDelta;
+import io.github.patrykkukula.statistics_ms.dto.MostUsedProductDto;
+import io.github.patrykkukula.statistics_ms.model.ProductCount;
+import io.github.patrykkukula.statistics_ms.model.TopProduct;
+import io.github.patrykkukula.statistics_ms.repository.ProductCountRepository;
+import io.github.patrykkukula.statistics_ms.repository.TopProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MostUsedProductsServiceUnitTest {
+    @Mock
+    private TopProductRepository topProductRepository;
+    @Mock
+    private ProductCountRepository productCountRepository;
+    @Mock
+    private AuthenticationUtils authenticationUtils;
+    @InjectMocks
+    private MostUsedProductsService mostUsedProductsService;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(mostUsedProductsService, "capacity", 3);
+        ReflectionTestUtils.setField(mostUsedProductsService, "cacheSize", 100L);
+        mostUsedProductsService.createSketchCache();
+    }
+
+    @Nested
+    @DisplayName("when getMostUsedProducts")
+    class whenGetMostUsedProducts {
+        @Test
+        @DisplayName("should seed sketch with exact most used products when none persisted")
+        public void shouldSeedSketchWithExactMostUsedProductsWhenNonePersisted() {
+            when(topProductRepository.findByUsername("user")).thenReturn(List.of());
+            when(productCountRepository.findMostUsedProductsByUsername(eq("user"), any(Pageable.class)))
+                    .thenReturn(List.of(productCount(1L, "rice", 4, 400.0), productCount(2L, "egg", 2, 100.0)));
+
+            List<MostUsedProductDto> mostUsed = mostUsedProductsService.getMostUsedProducts("user", 5);
+
+            assertEquals(List.of(1L, 2L), mostUsed.stream().map(MostUsedProductDto::mostUsedProductId).toList());
+            assertEquals(4, mostUsed.getFirst().usageCount());
+            assertEquals(100.0, mostUsed.getFirst().averageQuantity());
+        }
+
+        @Test
+        @DisplayName("should catch restored sketch up with usage flushed after it was persisted")
+        public void shouldCatchRestoredSketchUpWithUsageFlushedAfterItWasPersisted() {
+            when(topProductRepository.findByUsername("user")).thenReturn(List.of(
+                    topProduct(1L, "rice", 3, 0),
+                    topProduct(2L, "egg", 6, 2)));
+            when(productCountRepository.findMostUsedProductsByUsername(eq("user"), any(Pageable.class)))
+                    .thenReturn(List.of(productCount(1L, "rice", 8, 800.0), productCount(3L, "milk", 5, 50.0), productCount(2L, "egg", 4, 40.0)));
+
+            List<MostUsedProductDto> mostUsed = mostUsedProductsService.getMostUsedProducts("user", 5);
+
+            assertEquals(List.of(1L, 2L, 3L), mostUsed.stream().map(MostUsedProductDto::mostUsedProductId).toList());
+            assertEquals(List.of(8, 6, 5), mostUsed.stream().map(MostUsedProductDto::usageCount).toList());
+        }
+
+        @Test
+        @DisplayName("should load sketch once and serve next reads from it")
+        public void shouldLoadSketchOnceAndServeNextReadsFromIt() {
+            when(topProductRepository.findByUsername("user")).thenReturn(List.of(topProduct(1L, "rice", 3, 0)));
+            when(productCountRepository.findMostUsedProductsByUsername(eq("user"), any(Pageable.class))).thenReturn(List.of());
+
+            mostUsedProductsService.getMostUsedProducts("user", 5);
+            mostUsedProductsService.getMostUsedProducts("user", 5);
+
+            verify(topProductRepository, times(1)).findByUsername("user");
+        }
+    }
+
+    @Nested
+    @DisplayName("when record")
+    class whenRecord {
+        @Test
+        @DisplayName("should add usage to loaded sketch")
+        public void shouldAddUsageToLoadedSketch() {
+            when(topProductRepository.findByUsername("user")).thenReturn(List.of());
+            when(productCountRepository.findMostUsedProductsByUsername(eq("user"), any(Pageable.class)))
+                    .thenReturn(List.of(productCount(1L, "rice", 1, 100.0)));
+            mostUsedProductsService.loadSketches(Set.of("user"));
+
+            mostUsedProductsService.record(List.of(new ProductCountDelta("user", 1L, "rice", 2, 200.0)));
+
+            assertEquals(3, mostUsedProductsService.getMostUsedProducts("user", 1).getFirst().usageCount());
+        }
+
+        @Test
+        @DisplayName("should skip usage of user whose sketch is not loaded")
+        public void shouldSkipUsageOfUserWhoseSketchIsNotLoaded() {
+            mostUsedProductsService.record(List.of(new ProductCountDelta("user", 1L, "rice", 2, 200.0)));
+            mostUsedProductsService.persistSketches();
+
+            verifyNoInteractions(topProductRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("when persistSketches")
+    class whenPersistSketches {
+        @BeforeEach
+        public void setUp() {
+            when(topProductRepository.findByUsername("user")).thenReturn(List.of());
+            when(productCountRepository.findMostUsedProductsByUsername(eq("user"), any(Pageable.class))).thenReturn(List.of());
+            mostUsedProductsService.loadSketches(Set.of("user"));
+            mostUsedProductsService.record(List.of(new ProductCountDelta("user", 1L, "rice", 2, 200.0)));
+        }
+
+        @Test
+        @DisplayName("should replace persisted sketch of changed user")
+        @SuppressWarnings("unchecked")
+        public void shouldReplacePersistedSketchOfChangedUser() {
+            mostUsedProductsService.persistSketches();
+
+            ArgumentCaptor<List<TopProduct>> captor = ArgumentCaptor.forClass(List.class);
+            verify(topProductRepository).replaceTopProducts(eq(List.of("user")), captor.capture());
+            assertEquals(1, captor.getValue().size());
+            assertEquals(2L, captor.getValue().getFirst().getUsageCount());
+        }
+
+        @Test
+        @DisplayName("should skip user whose sketch was evicted")
+        public void shouldSkipUserWhoseSketchWasEvicted() {
+            mostUsedProductsService.evict("user");
+
+            mostUsedProductsService.persistSketches();
+
+            verify(topProductRepository, never()).replaceTopProducts(anyList(), anyList());
+        }
+
+        @Test
+        @DisplayName("should persist again when previous persist failed")
+        public void shouldPersistAgainWhenPreviousPersistFailed() {
+            doThrow(new RuntimeException("down")).doNothing().when(topProductRepository).replaceTopProducts(anyList(), anyList());
+
+            mostUsedProductsService.persistSketches();
+            mostUsedProductsService.persistSketches();
+            mostUsedProductsService.persistSketches();
+
+            verify(topProductRepository, times(2)).replaceTopProducts(anyList(), anyList());
+        }
+    }
+
+    private ProductCount productCount(Long productId, String productName, int usageCount, double totalQuantity) {
+        return new ProductCount(null, productName, productId, "user", usageCount, totalQuantity);
+    }
+
+    private TopProduct topProduct(Long productId, String productName, long usageCount, long usageError) {
+        return new TopProduct(null, "user", productId, productName, usageCount, usageError, usageCount * 10.0);
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.DietDayTotalsChangedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.dto.MonthlySummaryDto;
+import io.github.patrykkukula.statistics_ms.dto.WeeklySummaryDto;
+import io.github.patrykkukula.statistics_ms.model.DailyTotals;
+import io.github.patrykkukula.statistics_ms.model.MonthlySummary;
+import io.github.patrykkukula.statistics_ms.repository.DailyAverageRepository;
+import io.github.patrykkukula.statistics_ms.repository.DailyTotalsRepository;
+import io.github.patrykkukula.statistics_ms.repository.MonthlySummaryRepository;
+import io.github.patrykkukula.statistics_ms.repository.WeeklySummaryRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RollupServiceUnitTest {
+    @Mock
+    private DailyTotalsRepository dailyTotalsRepository;
+    @Mock
+    private WeeklySummaryRepository weeklySummaryRepository;
+    @Mock
+    private MonthlySummaryRepository monthlySummaryRepository;
+    @Mock
+    private DailyAverageRepository dailyAverageRepository;
+    @Mock
+    private AuthenticationUtils authenticationUtils;
+    @InjectMocks
+    private RollupService rollupService;
+
+    @Nested
+    @DisplayName("when addDietDayTotals")
+    class whenAddDietDayTotals {
+        @Test
+        @DisplayName("should add delta to day, week, month and all-time rollups")
+        public void shouldAddDeltaToEveryRollup() {
+            DailyTotals dailyTotals = new DailyTotals(1L, "user", LocalDate.of(2100, 2, 10), 500.0, 20.0, 50.0, 10.0, 1, Instant.now());
+            when(dailyTotalsRepository.findByUsernameAndDate("user", LocalDate.of(2100, 2, 10))).thenReturn(Optional.of(dailyTotals));
+
+            DailyTotals returned = rollupService.addDietDayTotals(
+                    new DietDayTotalsChangedEvent("user", LocalDate.of(2100, 2, 10), 500.0, 20.0, 50.0, 10.0, 1));
+
+            assertEquals(dailyTotals, returned);
+            verify(dailyTotalsRepository).addToDailyTotals("user", LocalDate.of(2100, 2, 10), 500.0, 20.0, 50.0, 10.0, 1);
+            verify(weeklySummaryRepository).addToWeeklySummary("user", LocalDate.of(2100, 2, 8), LocalDate.of(2100, 2, 14), 500.0, 20.0, 1);
+            verify(monthlySummaryRepository).addToMonthlySummary("user", 2100, 2, "FEBRUARY", 28, 500.0, 20.0, 50.0, 10.0, 1);
+            verify(dailyAverageRepository).addToDailyAverage("user", 500.0, 20.0, 50.0, 10.0, 1);
+        }
+
+        @Test
+        @DisplayName("should add negative delta when DietDay is removed")
+        public void shouldAddNegativeDeltaWhenDietDayIsRemoved() {
+            when(dailyTotalsRepository.findByUsernameAndDate(anyString(), any(LocalDate.class)))
+                    .thenReturn(Optional.of(new DailyTotals()));
+
+            rollupService.addDietDayTotals(new DietDayTotalsChangedEvent("user", LocalDate.of(2100, 2, 10), -500.0, -20.0, -50.0, -10.0, -1));
+
+            verify(monthlySummaryRepository).addToMonthlySummary("user", 2100, 2, "FEBRUARY", 28, -500.0, -20.0, -50.0, -10.0, -1);
+        }
+    }
+
+    @Nested
+    @DisplayName("when getMonthlySummary")
+    class whenGetMonthlySummary {
+        @Test
+        @DisplayName("should map stored monthly summary")
+        public void shouldMapStoredMonthlySummary() {
+            MonthlySummary monthlySummary = new MonthlySummary();
+            monthlySummary.setMonthlySummaryId(1L);
+            monthlySummary.setYear(2100);
+            monthlySummary.setMonth(2);
+            monthlySummary.setMonthName();
+            monthlySummary.setTotalCalories(1000.4);
+            monthlySummary.setTotalProtein(40.6);
+            monthlySummary.setTotalCarbs(100.0);
+            monthlySummary.setTotalFat(20.0);
+            monthlySummary.setAverageCalories(500);
+            monthlySummary.setAverageProtein(20);
+            monthlySummary.setAverageCarbs(50);
+            monthlySummary.setAverageFat(10);
+            monthlySummary.setDaysWithDiet(2);
+            monthlySummary.setTotalDaysInMonth(28);
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(monthlySummaryRepository.findByUsernameAndYearAndMonth("user", 2100, 2)).thenReturn(Optional.of(monthlySummary));
+
+            MonthlySummaryDto summary = rollupService.getMonthlySummary(2100, 2);
+
+            assertEquals("FEBRUARY", summary.monthName());
+            assertEquals(1000, summary.totalCalories());
+            assertEquals(41, summary.totalProtein());
+            assertEquals(500, summary.averageCalories());
+            assertEquals(2, summary.daysWithDiet());
+            assertEquals(28, summary.totalDaysInMonth());
+        }
+
+        @Test
+        @DisplayName("should return empty summary when no DietDay logged in month")
+        public void shouldReturnEmptySummaryWhenNoDietDayLoggedInMonth() {
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(monthlySummaryRepository.findByUsernameAndYearAndMonth("user", 2100, 4)).thenReturn(Optional.empty());
+
+            MonthlySummaryDto summary = rollupService.getMonthlySummary(2100, 4);
+
+            assertNull(summary.monthlySummaryId());
+            assertEquals("APRIL", summary.monthName());
+            assertEquals(0, summary.totalCalories());
+            assertEquals(30, summary.totalDaysInMonth());
+        }
+    }
+
+    @Nested
+    @DisplayName("when getWeeklySummary")
+    class whenGetWeeklySummary {
+        @Test
+        @DisplayName("should look up week starting on Monday")
+        public void shouldLookUpWeekStartingOnMonday() {
+            when(authenticationUtils.getAuthenticatedUserUsername()).thenReturn("user");
+            when(weeklySummaryRepository.findByUsernameAndWeekStart("user", LocalDate.of(2100, 2, 8))).thenReturn(Optional.empty());
+
+            WeeklySummaryDto summary = rollupService.getWeeklySummary(LocalDate.of(2100, 2, 14));
+
+            assertEquals(LocalDate.of(2100, 2, 8), summary.weekStart());
+            assertEquals(LocalDate.of(2100, 2, 14), summary.weekEnd());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.security.AuthenticationUtils;
+import io.github.patrykkukula.statistics_ms.cache.StatisticsCache;
+import io.github.patrykkukula.statistics_ms.client.DietClient;
+import io.github.patrykkukula.statistics_ms.dto.DietDayExportDto;
+import io.github.patrykkukula.statistics_ms.dto.RebuildProgressDto;
+import io.github.patrykkukula.statistics_ms.rebuild.RebuildProgress;
+import io.github.patrykkukula.statistics_ms.rebuild.UserStatistics;
+import io.github.patrykkukula.statistics_ms.repository.StatisticsRebuildRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StatisticsRebuildServiceUnitTest {
+    @Mock
+    private DietClient dietClient;
+    @Mock
+    private StatisticsRebuildRepository statisticsRebuildRepository;
+    @Mock
+    private MostUsedProductsService mostUsedProductsService;
+    @Mock
+    private MacroSeriesService macroSeriesService;
+    @Mock
+    private DistinctProductsService distinctProductsService;
+    @Mock
+    private CalorieDistributionService calorieDistributionService;
+    @Spy
+    private RebuildProgress rebuildProgress = new RebuildProgress();
+    @Mock
+    private AuthenticationUtils authenticationUtils;
+    @Mock
+    private StatisticsCache statisticsCache;
+    @InjectMocks
+    private StatisticsRebuildService statisticsRebuildService;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(statisticsRebuildService, "parallelism", 2);
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").subject("admin").build();
+        when(authenticationUtils.getJwtAuthenticationToken()).thenReturn(new JwtAuthenticationToken(jwt));
+    }
+
+    @Nested
+    @DisplayName("when startRebuild")
+    class whenStartRebuild {
+        @Test
+        @DisplayName("should replace statistics of every exported user and evict its cached statistics")
+        public void shouldReplaceStatisticsOfEveryExportedUserAndEvictItsCachedStatistics() throws InterruptedException {
+            when(statisticsRebuildRepository.findUsernames()).thenReturn(new HashSet<>(Set.of("anna", "bob")));
+            export(dietDay("anna", 1), dietDay("anna", 2), dietDay("bob", 1));
+
+            RebuildProgressDto progress = rebuildAndWait();
+
+            ArgumentCaptor<UserStatistics> captor = ArgumentCaptor.forClass(UserStatistics.class);
+            verify(statisticsRebuildRepository, times(2)).replaceUserStatistics(captor.capture());
+            assertEquals(Set.of("anna", "bob"), Set.copyOf(captor.getAllValues().stream().map(UserStatistics::getUsername).toList()));
+            verify(statisticsRebuildRepository, never()).deleteUserStatistics(anyString());
+            verify(statisticsCache).evict("anna");
+            verify(mostUsedProductsService).evict("bob");
+            assertEquals("COMPLETED", progress.state());
+            assertEquals(3, progress.dietDaysRead());
+            assertEquals(2, progress.usersRebuilt());
+        }
+
+        @Test
+        @DisplayName("should remove statistics of users missing in export")
+        public void shouldRemoveStatisticsOfUsersMissingInExport() throws InterruptedException {
+            when(statisticsRebuildRepository.findUsernames()).thenReturn(new HashSet<>(Set.of("anna", "removed")));
+            export(dietDay("anna", 1));
+
+            rebuildAndWait();
+
+            verify(statisticsRebuildRepository).deleteUserStatistics("removed");
+            verify(statisticsRebuildRepository, never()).deleteUserStatistics("anna");
+            verify(calorieDistributionService).evict("removed");
+            verify(statisticsCache).evict("removed");
+        }
+
+        @Test
+        @DisplayName("should keep statistics of all users when export fails")
+        public void shouldKeepStatisticsOfAllUsersWhenExportFails() throws InterruptedException {
+            when(statisticsRebuildRepository.findUsernames()).thenReturn(new HashSet<>(Set.of("anna", "bob")));
+            doAnswer(invocation -> {
+                invocation.<Consumer<DietDayExportDto>>getArgument(1).accept(dietDay("anna", 1));
+                throw new IllegalStateException("export interrupted");
+            }).when(dietClient).exportDietDays(eq("token"), any());
+
+            RebuildProgressDto progress = rebuildAndWait();
+
+            verify(statisticsRebuildRepository, never()).deleteUserStatistics(anyString());
+            assertEquals("FAILED", progress.state());
+            assertEquals("export interrupted", progress.error());
+        }
+
+        @Test
+        @DisplayName("should throw IllegalStateException when rebuild is already running")
+        public void shouldThrowIllegalStateExceptionWhenRebuildIsAlreadyRunning() {
+            rebuildProgress.start();
+
+            assertThrows(IllegalStateException.class, () -> statisticsRebuildService.startRebuild());
+            verifyNoInteractions(dietClient);
+        }
+    }
+
+    private void export(DietDayExportDto... dietDays) {
+        doAnswer(invocation -> {
+            Consumer<DietDayExportDto> consumer = invocation.getArgument(1);
+            List.of(dietDays).forEach(consumer);
+            return null;
+        }).when(dietClient).exportDietDays(eq("token"), any());
+    }
+
+    private RebuildProgressDto rebuildAndWait() throws InterruptedException {
+        statisticsRebuildService.startRebuild();
+        for (int i = 0; i < 500 && "RUNNING".equals(rebuildProgress.snapshot().state()); i++) {
+            Thread.sleep(10);
+        }
+        return rebuildProgress.snapshot();
+    }
+
+    private DietDayExportDto dietDay(String username, int day) {
+        return new DietDayExportDto((long) day, username, LocalDate.of(2100, 1, day), 2000.0, 100.0, 250.0, 70.0, List.of());
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.meal.LoggedProduct;
+import io.github.patrykkukula.statistics_ms.accumulator.ProductCountAccumulator;
+import io.github.patrykkukula.statistics_ms.accumulator.ProductCountDelta;
+import io.github.patrykkukula.statistics_ms.cache.StatisticsCache;
+import io.github.patrykkukula.statistics_ms.repository.ProductCountUpsertRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StatisticsServiceUnitTest {
+    @Mock
+    private ProductCountUpsertRepository productCountUpsertRepository;
+    @Mock
+    private MostUsedProductsService mostUsedProductsService;
+    @Mock
+    private StatisticsCache statisticsCache;
+    private StatisticsService statisticsService;
+
+    @BeforeEach
+    public void setUp() {
+        statisticsService = new StatisticsService(new ProductCountAccumulator(), productCountUpsertRepository, mostUsedProductsService,
+                statisticsCache);
+    }
+
+    @Test
+    @DisplayName("should complete futures once accumulated usage is written")
+    public void shouldCompleteFuturesOnceAccumulatedUsageIsWritten() {
+        CompletableFuture<Void> added = statisticsService.addProductsToProductCount("user", List.of(new LoggedProduct(1L, "rice", 100.0)));
+
+        assertFalse(added.isDone());
+        statisticsService.flushProductCounts();
+
+        List<ProductCountDelta> deltas = List.of(new ProductCountDelta("user", 1L, "rice", 1, 100.0));
+        assertTrue(added.isDone());
+        assertFalse(added.isCompletedExceptionally());
+        verify(mostUsedProductsService).loadSketches(Set.of("user"));
+        verify(productCountUpsertRepository).upsertProductCounts(deltas);
+        verify(mostUsedProductsService).record(deltas);
+    }
+
+    @Test
+    @DisplayName("should fail futures and skip sketches when write fails")
+    public void shouldFailFuturesAndSkipSketchesWhenWriteFails() {
+        doThrow(new DataAccessResourceFailureException("connection lost")).when(productCountUpsertRepository).upsertProductCounts(anyList());
+        CompletableFuture<Void> added = statisticsService.addProductsToProductCount("user", List.of(new LoggedProduct(1L, "rice", 100.0)));
+
+        statisticsService.flushProductCounts();
+
+        assertTrue(added.isCompletedExceptionally());
+        verify(mostUsedProductsService, never()).record(anyList());
+        verifyNoInteractions(statisticsCache);
+    }
+
+    @Test
+    @DisplayName("should evict cached statistics of every user once per flush")
+    public void shouldEvictCachedStatisticsOfEveryUserOncePerFlush() {
+        statisticsService.addProductsToProductCount("user", List.of(new LoggedProduct(1L, "rice", 100.0)));
+        statisticsService.addProductsToProductCount("user", List.of(new LoggedProduct(2L, "egg", 50.0)));
+        statisticsService.addProductsToProductCount("other", List.of(new LoggedProduct(1L, "rice", 80.0)));
+
+        statisticsService.flushProductCounts();
+
+        verify(statisticsCache).evict("user");
+        verify(statisticsCache).evict("other");
+        verifyNoMoreInteractions(statisticsCache);
+    }
+
+    @Test
+    @DisplayName("should not write anything when no usage accumulated")
+    public void shouldNotWriteAnythingWhenNoUsageAccumulated() {
+        statisticsService.flushProductCounts();
+
+        verifyNoInteractions(productCountUpsertRepository, mostUsedProductsService, statisticsCache);
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.patrykkukula.statistics_ms.service;
+
+import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductCreatedEvent;
+import io.github.patrykkukula.mealtrackingapp_common.events.product.ProductDeletedEvent;
+import io.github.patrykkukula.statistics_ms.accumulator.TotalProductsCounter;
+import io.github.patrykkukula.statistics_ms.client.ProductClient;
+import io.github.patrykkukula.statistics_ms.dto.ProductTotalsDto;
+import io.github.patrykkukula.statistics_ms.dto.TotalProductsDto;
+import io.github.patrykkukula.statistics_ms.model.TotalProducts;
+import io.github.patrykkukula.statistics_ms.repository.TotalProductsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TotalProductsServiceUnitTest {
+    @Mock
+    private TotalProductsRepository totalProductsRepository;
+    @Mock
+    private ProductClient productClient;
+    private TotalProductsService totalProductsService;
+
+    @BeforeEach
+    public void setUp() {
+        totalProductsService = new TotalProductsService(totalProductsRepository, new TotalProductsCounter(), productClient);
+    }
+
+    @Nested
+    @DisplayName("when loadTotalProducts")
+    class whenLoadTotalProducts {
+        @Test
+        @DisplayName("should keep events consumed before load on top of loaded counts")
+        public void shouldKeepEventsConsumedBeforeLoadOnTopOfLoadedCounts() {
+            when(totalProductsRepository.findById(TotalProducts.ID)).thenReturn(Optional.of(new TotalProducts(TotalProducts.ID, 15, 10, 5)));
+            totalProductsService.productCreated(created("user"));
+
+            totalProductsService.loadTotalProducts();
+
+            assertEquals(new TotalProductsDto(TotalProducts.ID, 16, 10, 6), totalProductsService.getTotalProducts());
+        }
+    }
+
+    @Nested
+    @DisplayName("when createTotalProducts")
+    class whenCreateTotalProducts {
+        @Test
+        @DisplayName("should create TotalProducts when absent")
+        public void shouldCreateTotalProductsWhenAbsent() {
+            totalProductsService.createTotalProducts();
+
+            verify(totalProductsRepository).createIfAbsent(TotalProducts.ID);
+        }
+    }
+
+    @Nested
+    @DisplayName("when checkpointTotalProducts")
+    class whenCheckpointTotalProducts {
+        @Test
+        @DisplayName("should write changes counted since last checkpoint as deltas")
+        public void shouldWriteChangesCountedSinceLastCheckpointAsDeltas() {
+            when(totalProductsRepository.addToTotalProducts(anyLong(), anyLong(), anyLong())).thenReturn(1);
+            totalProductsService.productCreated(created(null));
+            totalProductsService.productCreated(created("user"));
+            totalProductsService.productDeleted(new ProductDeletedEvent(1L, "user"));
+
+            totalProductsService.checkpointTotalProducts();
+            totalProductsService.checkpointTotalProducts();
+
+            verify(totalProductsRepository, times(1)).addToTotalProducts(anyLong(), anyLong(), anyLong());
+            verify(totalProductsRepository).addToTotalProducts(TotalProducts.ID, 1, 0);
+        }
+
+        @Test
+        @DisplayName("should write changes again when checkpoint failed")
+        public void shouldWriteChangesAgainWhenCheckpointFailed() {
+            when(totalProductsRepository.addToTotalProducts(anyLong(), anyLong(), anyLong()))
+                    .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                    .thenReturn(1);
+            totalProductsService.productCreated(created(null));
+
+            totalProductsService.checkpointTotalProducts();
+            totalProductsService.productCreated(created(null));
+            totalProductsService.checkpointTotalProducts();
+
+            verify(totalProductsRepository).addToTotalProducts(TotalProducts.ID, 2, 0);
+        }
+
+        @Test
+        @DisplayName("should write changes again when TotalProducts did not exist")
+        public void shouldWriteChangesAgainWhenTotalProductsDidNotExist() {
+            when(totalProductsRepository.addToTotalProducts(anyLong(), anyLong(), anyLong()))
+                    .thenReturn(0)
+                    .thenReturn(1);
+            totalProductsService.productCreated(created("user"));
+
+            totalProductsService.checkpointTotalProducts();
+            totalProductsService.checkpointTotalProducts();
+
+            verify(totalProductsRepository, times(2)).addToTotalProducts(TotalProducts.ID, 0, 1);
+        }
+    }
+
+    @Nested
+    @DisplayName("when reconcileTotalProducts")
+    class whenReconcileTotalProducts {
+        @Test
+        @DisplayName("should checkpoint pending changes before replacing counts with exported ones")
+        public void shouldCheckpointPendingChangesBeforeReplacingCountsWithExportedOnes() {
+            when(productClient.fetchProductTotals()).thenReturn(new ProductTotalsDto(20, 7));
+            when(totalProductsRepository.addToTotalProducts(anyLong(), anyLong(), anyLong())).thenReturn(1);
+            totalProductsService.productCreated(created("user"));
+
+            totalProductsService.reconcileTotalProducts();
+
+            InOrder inOrder = inOrder(totalProductsRepository);
+            inOrder.verify(totalProductsRepository).addToTotalProducts(TotalProducts.ID, 0, 1);
+            inOrder.verify(totalProductsRepository).replaceTotalProducts(eq(TotalProducts.ID), eq(20L), eq(7L));
+            assertEquals(new TotalProductsDto(TotalProducts.ID, 27, 20, 7), totalProductsService.getTotalProducts());
+        }
+    }
+
+    private ProductCreatedEvent created(String ownerUsername) {
+        return new ProductCreatedEvent(1L, "rice", "GRAINS", 130, 3, 28, 0, ownerUsername);
+    }
+}
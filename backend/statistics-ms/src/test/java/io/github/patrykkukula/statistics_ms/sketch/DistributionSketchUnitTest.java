@@ -0,0 +1,93 @@
+package io.github.patrykkukula.statistics_ms.sketch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistributionSketchUnitTest {
+
+    @Test
+    @DisplayName("should keep mean and standard deviation equal to exact ones")
+    public void shouldKeepMeanAndStandardDeviationEqualToExactOnes() {
+        double[] values = new Random(7).doubles(1_000, 1200, 3500).toArray();
+        DistributionSketch sketch = new DistributionSketch();
+        Arrays.stream(values).forEach(sketch::add);
+
+        double mean = Arrays.stream(values).average().orElseThrow();
+        double variance = Arrays.stream(values).map(value -> (value - mean) * (value - mean)).sum() / (values.length - 1);
+
+        assertEquals(1_000, sketch.getCount());
+        assertEquals(mean, sketch.getMean(), 1e-6);
+        assertEquals(Math.sqrt(variance), sketch.standardDeviation(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("should read quantiles within one bin width of exact ones")
+    public void shouldReadQuantilesWithinOneBinWidthOfExactOnes() {
+        double[] values = new Random(11).doubles(2_001, 1200, 3500).toArray();
+        DistributionSketch sketch = new DistributionSketch();
+        Arrays.stream(values).forEach(sketch::add);
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        assertEquals(sorted[1_000], sketch.quantile(0.5), DistributionSketch.BIN_WIDTH);
+        assertEquals(sorted[1_800], sketch.quantile(0.9), DistributionSketch.BIN_WIDTH);
+    }
+
+    @Test
+    @DisplayName("should restore previous state when added value is removed")
+    public void shouldRestorePreviousStateWhenAddedValueIsRemoved() {
+        DistributionSketch sketch = new DistributionSketch();
+        sketch.add(1800);
+        sketch.add(2200);
+        sketch.add(2500);
+
+        assertTrue(sketch.remove(2500));
+
+        assertEquals(2, sketch.getCount());
+        assertEquals(2000, sketch.getMean(), 1e-9);
+        assertEquals(Math.sqrt(80_000), sketch.standardDeviation(), 1e-9);
+        assertEquals(0, sketch.getBins()[250]);
+    }
+
+    @Test
+    @DisplayName("should not change sketch when removed value was never added")
+    public void shouldNotChangeSketchWhenRemovedValueWasNeverAdded() {
+        DistributionSketch sketch = new DistributionSketch();
+        sketch.add(1800);
+
+        assertFalse(sketch.remove(2500));
+        assertFalse(sketch.remove(99_999));
+        assertFalse(new DistributionSketch().remove(1800));
+
+        assertEquals(1, sketch.getCount());
+        assertEquals(1800, sketch.getMean());
+    }
+
+    @Test
+    @DisplayName("should restore the same sketch from encoded bins")
+    public void shouldRestoreTheSameSketchFromEncodedBins() {
+        DistributionSketch sketch = new DistributionSketch();
+        new Random(3).doubles(100, 0, 4000).forEach(sketch::add);
+
+        DistributionSketch restored = DistributionSketch.of(sketch.getCount(), sketch.getMean(), sketch.getM2(),
+                sketch.encodedBins(), sketch.getBins().length);
+
+        assertArrayEquals(sketch.getBins(), restored.getBins());
+        assertEquals(sketch.quantile(0.5), restored.quantile(0.5));
+        assertEquals(sketch.standardDeviation(), restored.standardDeviation());
+    }
+
+    @Test
+    @DisplayName("should return zeros for empty sketch")
+    public void shouldReturnZerosForEmptySketch() {
+        DistributionSketch sketch = new DistributionSketch();
+
+        assertEquals(0, sketch.quantile(0.5));
+        assertEquals(0, sketch.standardDeviation());
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.patrykkukula.statistics_ms.sketch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperLogLogUnitTest {
+
+    @Test
+    @DisplayName("should estimate distinct values within four standard errors")
+    public void shouldEstimateDistinctValuesWithinFourStandardErrors() {
+        double maxError = 4 * 1.04 / Math.sqrt(HyperLogLog.REGISTERS);
+        for (int distinct : new int[]{10, 100, 1_000, 10_000, 100_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (long value = 1; value <= distinct; value++) {
+                sketch.add(value);
+            }
+
+            double relativeError = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+
+            assertTrue(relativeError <= maxError, distinct + " distinct values estimated with error " + relativeError);
+        }
+    }
+
+    @Test
+    @DisplayName("should not change estimate when value is added again")
+    public void shouldNotChangeEstimateWhenValueIsAddedAgain() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long value = 1; value <= 500; value++) {
+            sketch.add(value);
+        }
+        long estimate = sketch.estimate();
+
+        for (long value = 1; value <= 500; value++) {
+            sketch.add(value);
+        }
+
+        assertEquals(estimate, sketch.estimate());
+    }
+
+    @Test
+    @DisplayName("should estimate union when sketches are merged")
+    public void shouldEstimateUnionWhenSketchesAreMerged() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (long value = 1; value <= 3_000; value++) {
+            first.add(value);
+            union.add(value);
+        }
+        for (long value = 2_001; value <= 5_000; value++) {
+            second.add(value);
+            union.add(value);
+        }
+
+        first.merge(second);
+        long merged = first.estimate();
+        first.merge(second);
+
+        assertEquals(union.estimate(), merged);
+        assertEquals(merged, first.estimate());
+    }
+
+    @Test
+    @DisplayName("should restore the same sketch from its registers")
+    public void shouldRestoreTheSameSketchFromItsRegisters() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long value = 1; value <= 2_000; value++) {
+            sketch.add(value);
+        }
+        byte[] registers = sketch.toBytes();
+
+        HyperLogLog restored = HyperLogLog.of(registers);
+        registers[0] = Byte.MAX_VALUE;
+
+        assertEquals(sketch.estimate(), restored.estimate());
+        assertArrayEquals(sketch.toBytes(), restored.toBytes());
+    }
+
+    @Test
+    @DisplayName("should estimate zero for empty sketch")
+    public void shouldEstimateZeroForEmptySketch() {
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    @DisplayName("should throw IllegalArgumentException when registers have wrong length")
+    public void shouldThrowIllegalArgumentExceptionWhenRegistersHaveWrongLength() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.of(new byte[16]));
+    }
+}
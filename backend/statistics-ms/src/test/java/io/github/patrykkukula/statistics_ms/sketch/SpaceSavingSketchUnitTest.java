@@ -0,0 +1,104 @@
+package io.github.patrykkukula.statistics_ms.sketch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpaceSavingSketchUnitTest {
+
+    @Test
+    @DisplayName("should count exactly while products fit in capacity")
+    public void shouldCountExactlyWhileProductsFitInCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+        sketch.record(1L, "rice", 2, 200.0);
+        sketch.record(2L, "egg", 1, 50.0);
+        sketch.record(1L, "rice", 1, 100.0);
+
+        List<SpaceSavingSketch.Entry> top = sketch.top(5);
+
+        assertEquals(2, top.size());
+        assertEquals(1L, top.getFirst().getProductId());
+        assertEquals(3, top.getFirst().getCount());
+        assertEquals(0, top.getFirst().getError());
+        assertEquals(300.0, top.getFirst().getTotalQuantity());
+    }
+
+    @Test
+    @DisplayName("should replace least used product and inherit its count as error")
+    public void shouldReplaceLeastUsedProductAndInheritItsCountAsError() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.record(1L, "rice", 5, 0.0);
+        sketch.record(2L, "egg", 2, 0.0);
+        sketch.record(3L, "milk", 1, 10.0);
+
+        List<SpaceSavingSketch.Entry> top = sketch.top(2);
+
+        assertEquals(List.of(1L, 3L), top.stream().map(SpaceSavingSketch.Entry::getProductId).toList());
+        assertEquals(3, top.get(1).getCount());
+        assertEquals(2, top.get(1).getError());
+        assertEquals(10.0, top.get(1).getTotalQuantity());
+    }
+
+    @Test
+    @DisplayName("should keep counts within error bound and track every heavy hitter")
+    public void shouldKeepCountsWithinErrorBoundAndTrackEveryHeavyHitter() {
+        int capacity = 20;
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        long total = 0;
+        for (int i = 0; i < 20_000; i++) {
+            long productId = (long) Math.floor(Math.pow(random.nextDouble(), 3) * 500);      // skewed towards low ids
+            int count = 1 + random.nextInt(3);
+            sketch.record(productId, "product" + productId, count, count);
+            exact.merge(productId, (long) count, Long::sum);
+            total += count;
+        }
+
+        List<SpaceSavingSketch.Entry> entries = sketch.entries();
+        assertEquals(capacity, entries.size());
+        entries.forEach(entry -> {
+            long real = exact.get(entry.getProductId());
+            assertTrue(entry.getCount() >= real);
+            assertTrue(entry.getCount() - entry.getError() <= real);
+        });
+        long threshold = total / capacity;
+        exact.forEach((productId, count) -> {
+            if (count > threshold) {
+                assertTrue(entries.stream().anyMatch(entry -> entry.getProductId().equals(productId)));
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("should restore entries with highest counts up to capacity")
+    public void shouldRestoreEntriesWithHighestCountsUpToCapacity() {
+        SpaceSavingSketch sketch = SpaceSavingSketch.of(2, List.of(
+                new SpaceSavingSketch.Entry(1L, "rice", 1, 0, 0.0),
+                new SpaceSavingSketch.Entry(2L, "egg", 7, 1, 0.0),
+                new SpaceSavingSketch.Entry(3L, "milk", 4, 0, 0.0)));
+
+        List<SpaceSavingSketch.Entry> top = sketch.top(5);
+
+        assertEquals(List.of(2L, 3L), top.stream().map(SpaceSavingSketch.Entry::getProductId).toList());
+        assertEquals(1, top.getFirst().getError());
+    }
+
+    @Test
+    @DisplayName("should return copies not affected by later records")
+    public void shouldReturnCopiesNotAffectedByLaterRecords() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.record(1L, "rice", 1, 0.0);
+        SpaceSavingSketch.Entry entry = sketch.top(1).getFirst();
+
+        sketch.record(1L, "rice", 1, 0.0);
+
+        assertEquals(1, entry.getCount());
+    }
+}
@@ -13,42 +13,23 @@ export const DietsPage: React.FC = () => {
   const [selectedYear, setSelectedYear] = useState(today.getFullYear());
   const [selectedMonth, setSelectedMonth] = useState(today.getMonth() + 1);
 
-  // Fetch diet days for the selected month
-  const { data: dietDaysResponse = [] } = useQuery({
-    queryKey: ['dietDays', selectedYear, selectedMonth],
-    queryFn: () => dietApi.getDietDaysByMonth(selectedYear, selectedMonth),
+  // Fetch per day totals for the selected month
+  const { data: dietDaySummaries = [] } = useQuery({
+    queryKey: ['dietDays', 'summary', selectedYear, selectedMonth],
+    queryFn: () => dietApi.getDietDaySummaryByMonth(selectedYear, selectedMonth),
     enabled: isAuthenticated,
   });
 
-  // Convert diet days array to Map for calendar
+  // Convert summaries array to Map for calendar
   const dietDays = new Map(
-    dietDaysResponse.map((dietDay) => [
-      dietDay.date,
+    dietDaySummaries.map((summary) => [
+      summary.date,
       {
-        dietDayId: dietDay.dietDayId,
-        calories: dietDay.meals.reduce(
-          (sum, meal) =>
-            sum +
-            meal.products.reduce((mealSum, product) => mealSum + product.calories * product.quantity, 0),
-          0
-        ),
-        protein: dietDay.meals.reduce(
-          (sum, meal) =>
-            sum +
-            meal.products.reduce((mealSum, product) => mealSum + product.protein * product.quantity, 0),
-          0
-        ),
-        carbs: dietDay.meals.reduce(
-          (sum, meal) =>
-            sum +
-            meal.products.reduce((mealSum, product) => mealSum + product.carbs * product.quantity, 0),
-          0
-        ),
-        fat: dietDay.meals.reduce(
-          (sum, meal) =>
-            sum + meal.products.reduce((mealSum, product) => mealSum + product.fat * product.quantity, 0),
-          0
-        ),
+        dietDayId: summary.dietDayId,
+        calories: summary.calories,
+        protein: summary.protein,
+        carbs: summary.carbs,
+        fat: summary.fat,
       },
     ])
   );
@@ -1,5 +1,5 @@
 import api from './api';
-import { DietDayDto, DietDayResponseDto, MealDto, ProductQuantityDto } from '@/shared/types';
+import { DietDayDto, DietDayResponseDto, DietDaySummaryDto, MealDto, ProductQuantityDto } from '@/shared/types';
 
 // CRITICAL: Gateway routes diets through /diet/api/**
 const DIET_BASE = '/diet/api/diets';
@@ -22,6 +22,14 @@ export const dietApi = {
     await api.delete(`${DIET_BASE}/${dietDayId}`);
   },
 
+  // Copy diet day with its meals to given date, days > 1 copies following days as well (up to a week)
+  copyDietDay: async (dietDayId: number, date: string, days = 1): Promise<DietDayResponseDto[]> => {
+    const response = await api.post(`${DIET_BASE}/${dietDayId}/copy`, null, {
+      params: { date, days }
+    });
+    return response.data;
+  },
+
   // Add meal to diet day
   addMealToDietDay: async (dietDayId: number, meal: MealDto): Promise<MealDto> => {
     const response = await api.post(`${DIET_BASE}/${dietDayId}/add_meal`, meal);
@@ -59,4 +67,12 @@ export const dietApi = {
     });
     return response.data;
   },
+
+  // Get per day macro totals for a month, computed by backend
+  getDietDaySummaryByMonth: async (year: number, month: number): Promise<DietDaySummaryDto[]> => {
+    const response = await api.get(`${DIET_BASE}/summary`, {
+      params: { year, month }
+    });
+    return response.data;
+  },
 };
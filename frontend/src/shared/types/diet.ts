@@ -41,6 +41,15 @@ export interface ProductInMealDto {
   fat: number;
 }
 
+export interface DietDaySummaryDto {
+  dietDayId: number;
+  date: string;
+  calories: number;
+  protein: number;
+  carbs: number;
+  fat: number;
+}
+
 export interface CalendarDay {
   date: Date;
   dateString: string; // YYYY-MM-DD